@@ -791,6 +791,13 @@ public class SOCBoard implements Serializable, Cloneable
      */
     private int prevRobberHex;
 
+    /**
+     * Count of changes to the board layout, incremented by {@link #layoutChanged()}.
+     * See {@link #getLayoutVersion()}.
+     * @since 2.0.00
+     */
+    private int layoutVersion;
+
     /**
      * Maximum hex type value for the robber; can be used for array sizing.
      * Same value range as {@link #getHexTypeFromCoord(int)} for the current board encoding.
@@ -828,7 +835,8 @@ public class SOCBoard implements Serializable, Cloneable
     protected Vector<SOCCity> cities;
 
     /**
-     * random number generator
+     * random number generator, for {@link #makeNewBoard(Map)}
+     * @see #setRandom(Random)
      */
     protected Random rand = new Random();
 
@@ -1173,6 +1181,18 @@ public class SOCBoard implements Serializable, Cloneable
             3,   2,  6          // Za-Zc
         };
 
+    /**
+     * Set the random number generator for {@link #makeNewBoard(Map)}.
+     * {@link SOCGame#setRandomSeed(long)} calls this with a generator split from the game's,
+     * so the board layout is repeatable from the game's seed.
+     * @param r  Random number generator to use
+     * @since 2.0.00
+     */
+    void setRandom(final Random r)
+    {
+        rand = r;
+    }
+
     /**
      * Shuffle the hex tiles and layout a board.
      * This is called at server, but not at client;
@@ -1193,7 +1213,9 @@ public class SOCBoard implements Serializable, Cloneable
         // sets robberHex, contents of hexLayout[] and numberLayout[].
         // Also checks vs game option BC: Break up clumps of # or more same-type hexes/ports
         {
-            final int[] landHex = is6player ? makeNewBoard_landHexTypes_v2 : makeNewBoard_landHexTypes_v1;
+            final int[] landHex = (is6player ? makeNewBoard_landHexTypes_v2 : makeNewBoard_landHexTypes_v1).clone();
+                // shuffle a copy, not the static array shared by all games,
+                // so that this layout depends only on rand's seed
             final int[][] numPaths = is6player ? makeNewBoard_numPaths_v2 : makeNewBoard_numPaths_v1;
             final int[] numPath = numPaths[ Math.abs(rand.nextInt() % numPaths.length) ];
             final int[] numbers = is6player ? makeNewBoard_diceNums_v2 : makeNewBoard_diceNums_v1;
@@ -1235,7 +1257,7 @@ public class SOCBoard implements Serializable, Cloneable
      * after shuffling landHex[].
      * Sets robberHex, contents of hexLayout[] and numberLayout[].
      * Also checks vs game option BC: Break up clumps of # or more same-type hexes/ports
-     * (for land hex resource types).
+     * (for land hex resource types); see {@link #makeNewBoard_breakUpLandHexResourceClumps(int[], int[][], int)}.
      * Called from {@link #makeNewBoard(Map)} at server only; client has its board layout sent from the server.
      *<P>
      * This method does not clear out {@link #hexLayout} or {@link #numberLayout}
@@ -1249,18 +1271,26 @@ public class SOCBoard implements Serializable, Cloneable
      * @param number   Numbers to place into {@link #numberLayout} for each land hex;
      *                    array length is <tt>landHex[].length</tt> minus 1 for each desert in <tt>landHex[]</tt>
      * @param optBC    Game option "BC" from the options for this board, or <tt>null</tt>.
-     * @throws IllegalArgumentException if {@link #makeNewBoard_checkLandHexResourceClumps(Vector, int)}
-     *                 finds an invalid or uninitialized hex coordinate (hex type -1)
      */
     private final void makeNewBoard_placeHexes
         (int[] landHex, final int[] numPath, final int[] number, SOCGameOption optBC)
-        throws IllegalArgumentException
     {
         final boolean checkClumps = (optBC != null) && optBC.getBoolValue();
         final int clumpSize = checkClumps ? optBC.getIntValue() : 0;
         boolean clumpsNotOK = checkClumps;
 
-        do   // will re-do placement until clumpsNotOK is false
+        final int[][] adjac;  // for clump check, each land hex's adjacent land hex indexes within landHex
+        if (checkClumps)
+        {
+            final int[] hexCoords = new int[numPath.length];
+            for (int i = 0; i < numPath.length; ++i)
+                hexCoords[i] = numToHexID[numPath[i]];
+            adjac = makeNewBoard_getHexAdjacencyIndexes(hexCoords);
+        } else {
+            adjac = null;
+        }
+
+        do   // will re-do shuffle until clumpsNotOK is false
         {
             // shuffle the land hexes 10x
             for (int j = 0; j < 10; j++)
@@ -1278,228 +1308,209 @@ public class SOCBoard implements Serializable, Cloneable
                 }
             }
 
-            int cnt = 0;
-            for (int i = 0; i < landHex.length; i++)
+            if (checkClumps)
             {
-                // place the land hexes
-                hexLayout[numPath[i]] = landHex[i];
+                // Swap hexes to break up any large clumps; if that doesn't work, shuffle again
+                clumpsNotOK = makeNewBoard_breakUpLandHexResourceClumps(landHex, adjac, clumpSize);
+            }
 
-                // place the robber on the desert
-                if (landHex[i] == DESERT_HEX)
-                {
-                    robberHex = numToHexID[numPath[i]];
-                    numberLayout[numPath[i]] = -1;
-                }
-                else
-                {
-                    // place the numbers
-                    numberLayout[numPath[i]] = number[cnt];
-                    cnt++;
-                }
-            }  // for(i in landHex)
+        } while (clumpsNotOK);
 
-            if (checkClumps)
+        int cnt = 0;
+        for (int i = 0; i < landHex.length; i++)
+        {
+            // place the land hexes
+            hexLayout[numPath[i]] = landHex[i];
+
+            // place the robber on the desert
+            if (landHex[i] == DESERT_HEX)
             {
-                Vector<Integer> unvisited = new Vector<Integer>();  // contains each land hex's coordinate
-                for (int i = 0; i < landHex.length; ++i)
+                robberHex = numToHexID[numPath[i]];
+                numberLayout[numPath[i]] = -1;
+            }
+            else
+            {
+                // place the numbers
+                numberLayout[numPath[i]] = number[cnt];
+                cnt++;
+            }
+        }  // for(i in landHex)
+
+    }  // makeNewBoard_placeHexes
+
+    /**
+     * For the resource clump check in {@link #makeNewBoard_placeHexes(int[], int[], int[], SOCGameOption)},
+     * find which of a set of hexes are adjacent to each other.
+     * The hex coordinates are the same for each shuffle of a layout,
+     * so this is called once per layout instead of once per shuffle.
+     *
+     * @param hexCoords  Coordinates of the hexes being shuffled, which may include water hexes
+     * @return  For each index <tt>i</tt> in <tt>hexCoords</tt>, the indexes of its adjacent hexes
+     *     within <tt>hexCoords</tt> which are greater than <tt>i</tt>; each array may be empty.
+     *     Since each pair is listed only once, pass this to
+     *     {@link #makeNewBoard_breakUpLandHexResourceClumps(int[], int[][], int)}.
+     * @since 2.0.00
+     */
+    protected int[][] makeNewBoard_getHexAdjacencyIndexes(final int[] hexCoords)
+    {
+        final HashMap<Integer, Integer> hexIndex = new HashMap<Integer, Integer>();
+        for (int i = 0; i < hexCoords.length; ++i)
+            hexIndex.put(Integer.valueOf(hexCoords[i]), Integer.valueOf(i));
+
+        final int[][] adjac = new int[hexCoords.length][];
+        final int[] adj = new int[6];
+        for (int i = 0; i < hexCoords.length; ++i)
+        {
+            int n = 0;
+            Vector<Integer> av = getAdjacentHexesToHex(hexCoords[i], true);  // includes water: by location, not type
+            if (av != null)
+            {
+                for (Integer ah : av)
                 {
-                    unvisited.addElement(new Integer(numToHexID[numPath[i]]));
+                    final Integer j = hexIndex.get(ah);
+                    if ((j != null) && (j.intValue() > i))
+                        adj[n++] = j.intValue();
                 }
-                clumpsNotOK = makeNewBoard_checkLandHexResourceClumps(unvisited, clumpSize);
-            }  // if (checkClumps)
+            }
 
-        } while (clumpsNotOK);
+            adjac[i] = new int[n];
+            System.arraycopy(adj, 0, adjac[i], 0, n);
+        }
 
-    }  // makeNewBoard_placeHexes
+        return adjac;
+    }
 
     /**
-     * Depth-first search to check land hexes for resource clumps.
+     * Check shuffled land hexes for resource clumps, and try to break up any that are too large
+     * by swapping one of their hexes with a random hex of a different type.
      *<P>
-     * Start with the set of all land hexes, and consider them 'unvisited'.
-     * Look at each hex in the set, marking them as visited and moving
-     * them into new subsets ("clumps") composed of adjacent hexes of the
-     * same resource type. Build clumps by immediately visiting those adjacent
-     * hexes, and their unvisited same-type adjacents, etc.
-     * Once we've visited each hex, check if any clump subset's
-     * size is larger than the allowed size.
+     * Clumps are found by union-find over <tt>adjac</tt>: Each hex starts as its own clump,
+     * then each pair of adjacent hexes with the same type (except {@link #WATER_HEX}) has their clumps joined.
+     * When a clump reaches <tt>clumpSize</tt>, a random hex in it is swapped with a random hex of
+     * another type and the check starts over.  Most clumps are broken up this way in a few swaps,
+     * which is much faster than shuffling and checking the whole layout again.
+     * If the swaps don't break them all up after a while, returns true so the caller can reshuffle.
      *<P>
      * For the Fog Island (scenario option _SC_FOG on {@link SOCBoardLarge}),
-     * one land area contains some water.  So, <tt>unvisited</tt> may contain
-     * a few water hexes.  For performance, in general you should omit water
-     * hex locations from <tt>unvisited</tt>.
+     * one land area contains some water, so <tt>hexType</tt> may contain a few {@link #WATER_HEX}.
+     * Water is never a clump.
      *<P>
-     * Called from {@link #makeNewBoard_placeHexes(int[], int[], int[], SOCGameOption)}.
-     * Before v2.0.00, this was part of makeNewBoard_placeHexes.
-     * 
-     * @param unvisited  Contains each land hex's coordinate as an Integer;
-     *          <b>Note:</b> This vector will be modified by the method. <br>
-     *          See note above about occasional water hex coordinates in <tt>univisited</tt>.
+     * Called from {@link #makeNewBoard_placeHexes(int[], int[], int[], SOCGameOption)}
+     * before the hexes are placed into the board layout.
+     * Before v2.0.00, the clump check was part of makeNewBoard_placeHexes, searched the placed layout
+     * depth-first, and any clump meant a complete reshuffle.
+     *
+     * @param hexType  Shuffled hex types, such as {@link #CLAY_HEX}, in the same order as the
+     *          coordinates given to {@link #makeNewBoard_getHexAdjacencyIndexes(int[])};
+     *          <b>Note:</b> Hexes in this array will be swapped by the method.
+     * @param adjac  Adjacent hex indexes from {@link #makeNewBoard_getHexAdjacencyIndexes(int[])}
      * @param clumpSize  Clumps of this size or more are too large.
      *          Minimum value is 3, smaller values will always return false.
-     * @return  true if large clumps found, false if okay
-     * @throws IllegalArgumentException if a hex type is -1 (uninitialized or not a valid hex coordinate)
+     * @return  true if large clumps remain, false if okay
      * @since 2.0.00
      */
-    protected boolean makeNewBoard_checkLandHexResourceClumps(Vector<Integer> unvisited, final int clumpSize)
-        throws IllegalArgumentException
+    protected boolean makeNewBoard_breakUpLandHexResourceClumps
+        (final int[] hexType, final int[][] adjac, final int clumpSize)
     {
         if (clumpSize < 3)
             return false;
 
-        /**
-         * Depth-first search to check land hexes for resource clumps.
-         *
-         * Start with the set of all land hexes, and consider them 'unvisited'.
-         * Look at each hex in the set, marking them as visited and moving
-         * them into new subsets ("clumps") composed of adjacent hexes of the
-         * same resource type. Build clumps by immediately visiting those adjacent
-         * hexes, and their unvisited same-type adjacents, etc.
-         * Once we've visited each hex, check if any clump subset's
-         * size is larger than the allowed size.
-         *
-         * Pseudocode:
-        // Using vectors to represent sets.
-        //   Sets will contain each land hex's coordinate ("ID").
-        //
-        // - clumps := new empty set (will be a vector of vectors)
-        //     At end of search, each element of this set will be
-        //       a subset (a vector) of adjacent hexes
-        // - clumpsNotOK := false
-        // - unvisited-set := new set (vector) of all land hexes
-        // - iterate through unvisited-set; for each hex:
-        //     - remove this from unvisited-set
-        //     - if hex is water, done looking at this hex
-        //     - look at its adjacent hexes of same type
-        //          assertion: they are all unvisited, because this hex was unvisited
-        //                     and this is the top-level loop
-        //     - if none, done looking at this hex
-        //     - remove all adj-of-same-type from unvisited-set
-        //     - build a new clump-vector of this + all adj of same type
-        //     - grow the clump: iterate through each hex in clump-vector (skip its first hex,
-        //       because we already have its adjacent hexes)
-        //          precondition: each hex already in the clump set, is not in unvisited-vec
-        //          - look at its adjacent unvisited hexes of same type
-        //          - if none, done looking at this hex
-        //          - remove same-type adjacents from unvisited-set
-        //          - insert them into clump-vector (will continue the iteration with them)
-        //     - add clump-vector to set-of-all-clumps
-        //          OR, immediately check its size vs clumpSize
-        //   postcondition: have visited each hex
-        // - iterate through set-of-all-clumps
-        //      if size >= clumpSize then clumpsNotOK := true. Stop.
-        // - read clumpsNotOK.
-         */
-
-        // Actual code along with pseudocode:
-
-        // Using vectors to represent sets.
-        //   Sets will contain each land hex's coordinate ("ID").
-        //   We're operating on Integer instances, which is okay because
-        //   vector methods such as contains() and remove() test obj.equals()
-        //   to determine if the Integer is a member.
-        //   (getAdjacent() returns new Integer objs with the same value
-        //    as unvisited's members.)
+        final int n = hexType.length;
+        final int[] parent = new int[n],  // union-find: each hex's parent in its clump's tree
+                    size = new int[n];    // clump size, for each clump's root
+        final int maxSwaps = 2 * n;
 
-        boolean clumpsNotOK = false;    // will set true in while-loop body
-
-        // - unvisited-set := new set (vector) of all land hexes
-        // - iterate through unvisited-set
-
-        while (unvisited.size() > 0)
+        for (int swaps = 0; ; ++swaps)
         {
-            //   for each hex:
-
-            //     - remove this from unvisited-set
-            Integer hexCoordObj = unvisited.elementAt(0);
-            final int hexCoord = hexCoordObj.intValue();
-            final int resource = getHexTypeFromCoord(hexCoord);
-            unvisited.removeElementAt(0);
-            if (resource == -1)  // would cause inf loop, this "clump" can't be broken up
-                throw new IllegalArgumentException("hex type -1 at coord 0x" + Integer.toHexString(hexCoord));
-
-            //     - skip water hexes; water is never a clump
-            if (resource == SOCBoard.WATER_HEX)
-                continue;
-
-            //     - look at its adjacent hexes of same type
-            //          assertion: they are all unvisited, because this hex was unvisited
-            //                     and this is the top-level loop
-            //     - if none, done looking at this hex
-            //     - build a new clump-vector of this + all adj of same type
-            //     - remove all adj-of-same-type from unvisited-set
-
-            // set of adjacent will become the clump, or be emptied completely
-            Vector<Integer> adjacent = getAdjacentHexesToHex(hexCoord, false);
-            if (adjacent == null)
-                continue;
-
-            Vector<Integer> clump = null;
-            for (int i = 0; i < adjacent.size(); ++i)
+            for (int i = 0; i < n; ++i)
             {
-                Integer adjCoordObj = adjacent.elementAt(i);
-                final int adjCoord = adjCoordObj.intValue();
-                if (resource == getHexTypeFromCoord(adjCoord))
-                {
-                    // keep this one
-                    if (clump == null)
-                        clump = new Vector<Integer>();
-                    clump.addElement(adjCoordObj);
-                    unvisited.remove(adjCoordObj);
-                }
+                parent[i] = i;
+                size[i] = 1;
             }
-            if (clump == null)
-                continue;
 
-            clump.insertElementAt(hexCoordObj, 0);  // put the first hex into clump
-
-            //     - grow the clump: iterate through each hex in clump-vector (skip its first hex,
-            //       because we already have its adjacent hexes)
-            for (int ic = 1; ic < clump.size(); )  // ++ic is within loop body, if nothing inserted
+            // Join adjacent same-type hexes' clumps, until one is too large
+            int bigRoot = -1;
+            for (int i = 0; (i < n) && (bigRoot == -1); ++i)
             {
-                // precondition: each hex already in clump set, is not in unvisited-vec
-                Integer chexCoordObj = clump.elementAt(ic);
-                final int chexCoord = chexCoordObj.intValue();
-
-                //  - look at its adjacent unvisited hexes of same type
-                //  - if none, done looking at this hex
-                //  - remove same-type adjacents from unvisited-set
-                //  - insert them into clump-vector
-                //    (will continue the iteration with them)
-
-                Vector<Integer> adjacent2 = getAdjacentHexesToHex(chexCoord, false);
-                if (adjacent2 == null)
-                {
-                    ++ic;
+                final int htype = hexType[i];
+                if (htype == WATER_HEX)
                     continue;
-                }
-                boolean didInsert = false;
-                for (int ia = 0; ia < adjacent2.size(); ++ia)
+
+                for (final int j : adjac[i])
                 {
-                    Integer adjCoordObj = adjacent2.elementAt(ia);
-                    final int adjCoord = adjCoordObj.intValue();
-                    if ((resource == getHexTypeFromCoord(adjCoord))
-                        && unvisited.contains(adjCoordObj))
+                    if (hexType[j] != htype)
+                        continue;
+
+                    int ri = makeNewBoard_findClumpRoot(parent, i),
+                        rj = makeNewBoard_findClumpRoot(parent, j);
+                    if (ri == rj)
+                        continue;
+                    if (size[ri] < size[rj])
+                    {
+                        final int r = ri;  ri = rj;  rj = r;
+                    }
+                    parent[rj] = ri;  // join smaller clump into larger
+                    size[ri] += size[rj];
+                    if (size[ri] >= clumpSize)
                     {
-                        // keep this one
-                        clump.insertElementAt(adjCoordObj, ic);
-                        unvisited.remove(adjCoordObj);
-                        didInsert = true;
+                        bigRoot = ri;
+                        break;
                     }
                 }
-                if (! didInsert)
-                    ++ic;
+            }
 
-            }  // for each in clump
+            if (bigRoot == -1)
+                return false;  // no large clumps
+            if (swaps >= maxSwaps)
+                return true;
 
-            //     - immediately check clump's size vs clumpSize
-            if (clump.size() >= clumpSize)
+            // Pick a random hex in the large clump, and a random hex of another type to swap it with
+            final int ctype = hexType[bigRoot];
+            int inClump = 0, otherType = 0;
+            for (int i = 0; i < n; ++i)
             {
-                clumpsNotOK = true;
-                break;
+                if (hexType[i] != ctype)
+                    ++otherType;
+                else if (makeNewBoard_findClumpRoot(parent, i) == bigRoot)
+                    ++inClump;
             }
+            if (otherType == 0)
+                return true;  // all the same type: can't break up
+
+            int ci = rand.nextInt(inClump), oi = rand.nextInt(otherType), from = -1, to = -1;
+            for (int i = 0; (i < n) && ((from == -1) || (to == -1)); ++i)
+            {
+                if (hexType[i] != ctype)
+                {
+                    if (oi-- == 0)
+                        to = i;
+                }
+                else if ((makeNewBoard_findClumpRoot(parent, i) == bigRoot) && (ci-- == 0))
+                    from = i;
+            }
+
+            hexType[from] = hexType[to];
+            hexType[to] = ctype;
+        }
+    }
+
+    /**
+     * Union-find for {@link #makeNewBoard_breakUpLandHexResourceClumps(int[], int[][], int)}:
+     * Find the root of hex <tt>i</tt>'s clump, halving the path to it along the way.
+     * @param parent  Each hex's parent in its clump's tree; a root is its own parent
+     * @param i  Index of a hex
+     * @return  Index of the root hex of <tt>i</tt>'s clump
+     * @since 2.0.00
+     */
+    private static final int makeNewBoard_findClumpRoot(final int[] parent, int i)
+    {
+        while (parent[i] != i)
+        {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
 
-        }  // for each in unvisited
-        return clumpsNotOK;
+        return i;
     }
 
     /**
@@ -1896,6 +1907,45 @@ public class SOCBoard implements Serializable, Cloneable
         }    
     }
 
+    /**
+     * Get the board layout's version, which changes whenever the layout sent to clients changes:
+     * Making a new board, setting hex, number or port layouts, moving the robber or pirate,
+     * revealing a fog hex, placing or removing a port, etc.
+     * The server uses this to know when its cached board layout message for a game is out of date.
+     * @return  Version number; the value itself has no meaning, only whether it's changed
+     * @since 2.0.00
+     */
+    public int getLayoutVersion()
+    {
+        return layoutVersion;
+    }
+
+    /**
+     * The board layout has changed; increment {@link #getLayoutVersion()}.
+     * Methods here and in subclasses which change the layout call this.
+     * Call after {@link #makeNewBoard(Map)}.
+     * @since 2.0.00
+     */
+    protected void layoutChanged()
+    {
+        ++layoutVersion;
+    }
+
+    /**
+     * This board is replacing {@code oldBoard} in its game, with a layout made ahead of time;
+     * continue from the old board's layout version, so that the next {@link #layoutChanged()}
+     * gives a version newer than anything cached for the old board's layout.
+     * Changes counted while making this layout are kept, so the version is the same
+     * as if the old board had made this layout itself.
+     * @param oldBoard  The board being replaced
+     * @see SOCGame#startGame(SOCBoard, long)
+     * @since 2.0.00
+     */
+    void continueLayoutVersion(final SOCBoard oldBoard)
+    {
+        layoutVersion += oldBoard.layoutVersion;
+    }
+
     /**
      * @return coordinate where the robber is, or -1 if not on the board
      * @see #getPreviousRobberHex()
@@ -1948,6 +1998,7 @@ public class SOCBoard implements Serializable, Cloneable
         throws UnsupportedOperationException
     {
         hexLayout = hl;
+        layoutChanged();
 
         if (hl[0] == WATER_HEX)
         {
@@ -1993,6 +2044,7 @@ public class SOCBoard implements Serializable, Cloneable
     public void setPortsLayout(int[] portTypes)
     {
         portsLayout = portTypes;
+        layoutChanged();
 
         // Clear any previous port layout info
         if (nodeIDtoPortType == null)
@@ -2054,6 +2106,7 @@ public class SOCBoard implements Serializable, Cloneable
         throws UnsupportedOperationException
     {
         numberLayout = nl;
+        layoutChanged();
     }
 
     /**
@@ -2076,6 +2129,7 @@ public class SOCBoard implements Serializable, Cloneable
         else
             prevRobberHex = -1;
         robberHex = rh;
+        layoutChanged();
     }
 
     /**
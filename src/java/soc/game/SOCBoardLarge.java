@@ -925,6 +925,7 @@ public class SOCBoardLarge extends SOCBoard
 
         hexLayoutLg[r][c] = hexType;
         numberLayoutLg[r][c] = diceNum;
+        layoutChanged();
 
         if (hexType == WATER_HEX)
         {
@@ -1070,6 +1071,7 @@ public class SOCBoardLarge extends SOCBoard
             addedLayoutParts = null;
         else
             addedLayoutParts = adds;
+        layoutChanged();
 
         if (adds == null)
             return;
@@ -1104,6 +1106,7 @@ public class SOCBoardLarge extends SOCBoard
         if (addedLayoutParts == null)
             addedLayoutParts = new HashMap<String, int[]>();
         addedLayoutParts.put(key, v);
+        layoutChanged();
 
         // check for any Special Edge type
         for (int i = 0; i < SPECIAL_EDGE_LAYOUT_PARTS.length; ++i)
@@ -1171,6 +1174,7 @@ public class SOCBoardLarge extends SOCBoard
         portsLayout[i] = ptype;
         portsLayout[i + portsCount] = edge;
         portsLayout[i + (2*portsCount)] = facing;
+        layoutChanged();
 
         // - call placePort
         final int[] nodes = getAdjacentNodesToEdge_arr(edge);
@@ -1222,6 +1226,7 @@ public class SOCBoardLarge extends SOCBoard
         else
             prevPirateHex = 0;
         pirateHex = ph;
+        layoutChanged();
     }
 
     /**
@@ -1268,6 +1273,7 @@ public class SOCBoardLarge extends SOCBoard
     public void setPlayerExcludedLandAreas(final int[] px)
     {
         playerExcludedLandAreas = px;
+        layoutChanged();
     }
 
     /**
@@ -1292,6 +1298,7 @@ public class SOCBoardLarge extends SOCBoard
     public void setRobberExcludedLandAreas(final int[] rx)
     {
         robberExcludedLandAreas = rx;
+        layoutChanged();
     }
 
     /**
@@ -2019,6 +2026,8 @@ public class SOCBoardLarge extends SOCBoard
      */
     public void setLandHexLayout(final int[] lh)
     {
+        layoutChanged();
+
         // Clear the previous contents:
         landHexLayout.clear();
         nodesOnLand.clear();
@@ -3437,6 +3446,7 @@ public class SOCBoardLarge extends SOCBoard
          * The next n store each port's facing (towards land).
          */
         portsLayout = portTypesAndInfo;
+        layoutChanged();
 
         portsCount = portTypesAndInfo.length / 3;
 
@@ -3619,6 +3629,7 @@ public class SOCBoardLarge extends SOCBoard
             if (edge == portsLayout[n + i])
             {
                 portsLayout[n + i] = -1;
+                layoutChanged();
 
                 final int[] nodes = getAdjacentNodesToEdge_arr(edge);
                 final int node1Int = Integer.valueOf(nodes[0]),
@@ -30,6 +30,7 @@ import soc.util.SOCStringManager;
 public class SOCDevCard
     extends SOCInventoryItem implements SOCDevCardConstants  // SOCInventoryItem implies Cloneable
 {
+    private static final long serialVersionUID = 2000L;
 
     /**
      * If true, {@link #getItemName(SOCGame, boolean, SOCStringManager)} can just use the
@@ -27,6 +27,7 @@ import soc.disableDebug.D;
 import soc.message.SOCMessage;  // For static calls only; SOCGame does not interact with network messages
 import soc.util.IntPair;
 import soc.util.SOCGameBoardReset;
+import soc.util.SOCSplittableRandom;
 
 import java.io.Serializable;
 
@@ -591,9 +592,11 @@ public class SOCGame implements Serializable, Cloneable
     public static SOCBoard.BoardFactory boardFactory;
 
     /**
-     * monitor for synchronization
+     * monitor for synchronization.
+     * Transient so that a game serialized while its monitor is held
+     * (see {@link soc.server.SOCGameCheckpointer}) isn't restored locked.
      */
-    boolean inUse;
+    transient boolean inUse;
 
     /**
      * the name of the game
@@ -697,9 +700,10 @@ public class SOCGame implements Serializable, Cloneable
     /**
      * Listener for scenario events on the {@link #hasSeaBoard large sea board}, or null.
      * Package access for read-only use by {@link SOCPlayer}.
+     * Not serialized; after deserializing, call {@link #setScenarioEventListener(SOCScenarioEventListener)}.
      * @since 2.0.00
      */
-    SOCScenarioEventListener scenarioEventListener;
+    transient SOCScenarioEventListener scenarioEventListener;
 
     /**
      * For use at server; are there clients connected which aren't at the latest version?
@@ -983,9 +987,17 @@ public class SOCGame implements Serializable, Cloneable
     private int[] devCardDeck;
 
     /**
-     * used to generate random numbers
+     * used to generate random numbers.
+     * Seeded from {@link #randSeed} by {@link #setRandomSeed(long)}.
      */
-    private Random rand = new Random();
+    private SOCSplittableRandom rand;
+
+    /**
+     * The seed for {@link #rand} and the board's random layout.
+     * @see #getRandomSeed()
+     * @since 2.0.00
+     */
+    private long randSeed;
 
     /**
      * used to track if there were any player subs
@@ -1186,6 +1198,7 @@ public class SOCGame implements Serializable, Cloneable
         board = boardFactory.createBoard(op, hasSeaBoard, maxPlayers);
             // At server, createBoard might add "_BHW" to op if SOCBoardLarge with non-default size.
             // op won't be null because SOCBoardLarge requires game opt "PLL".
+        setRandomSeed(SOCSplittableRandom.newSeed());
 
         opts = op;
 
@@ -1820,6 +1833,34 @@ public class SOCGame implements Serializable, Cloneable
         return isFromBoardReset;
     }
 
+    /**
+     * Get this game's random seed, to play it again or replay it.
+     * @return  the seed from the constructor or from {@link #setRandomSeed(long)}
+     * @since 2.0.00
+     */
+    public long getRandomSeed()
+    {
+        return randSeed;
+    }
+
+    /**
+     * Seed this game's random numbers: its dev card deck, dice, and other in-game random choices,
+     * and its board's random layout.  A game started with the same seed, whose players take
+     * the same actions, plays out the same way.
+     * The constructor sets a new unique seed; call this before {@link #startGame()} to use a particular one.
+     *<P>
+     * Called only at server.
+     * @param seed  Seed value
+     * @see #getRandomSeed()
+     * @since 2.0.00
+     */
+    public void setRandomSeed(final long seed)
+    {
+        randSeed = seed;
+        rand = new SOCSplittableRandom(seed);
+        board.setRandom(rand.split());
+    }
+
     /**
      * Get the game board.
      * When {@link #hasSeaBoard}, <tt>getBoard()</tt> can be cast to {@link SOCBoardLarge}.
@@ -3603,15 +3644,45 @@ public class SOCGame implements Serializable, Cloneable
      * <LI> If appropriate, each player's {@link SOCPlayer#setRestrictedLegalShips(int[])}
      * <LI> If appropriate, {@code SOCBoardLargeAtServer.startGame_putInitPieces(SOCGame)}
      *</UL>
+     * @see #startGame(SOCBoard, long)
      */
     public void startGame()
+    {
+        startGame(null, 0L);
+    }
+
+    /**
+     * Start the game like {@link #startGame()}, optionally with a board whose layout has already been made,
+     * such as one from the server's pool of layouts made in the background.
+     * The game takes the premade board's seed as its own {@link #getRandomSeed()}, so the game
+     * and its board can still be played again or replayed from that seed.
+     *<P>
+     * Called only at server, not client.
+     *
+     * @param premadeBoard  A new board for this game's options and {@link #maxPlayers},
+     *     from {@link #makeBoardLayout(Map, boolean, int, long)}, to use instead of laying out this game's board;
+     *     or {@code null} to lay out this game's board as usual
+     * @param premadeSeed  The seed {@code premadeBoard} was laid out with; ignored if {@code premadeBoard} is null
+     * @since 2.0.00
+     */
+    public void startGame(final SOCBoard premadeBoard, final long premadeSeed)
     {
         isAtServer = true;
         pendingMessagesOut = new ArrayList<Object>();
 
+        if (premadeBoard != null)
+            setRandomSeed(premadeSeed);  // same generator state as if this game had laid out the board
+
         startGame_setupDevCards();
 
-        board.makeNewBoard(opts);
+        if (premadeBoard != null)
+        {
+            premadeBoard.continueLayoutVersion(board);
+            board = premadeBoard;
+        } else {
+            board.makeNewBoard(opts);
+        }
+        board.layoutChanged();
         if (hasSeaBoard)
         {
             /**
@@ -3643,6 +3714,31 @@ public class SOCGame implements Serializable, Cloneable
         setFirstPlayer(currentPlayerNumber);
     }
 
+    /**
+     * Make and lay out a new board ahead of time for a game with these options, for
+     * {@link #startGame(SOCBoard, long)}.  The layout is the one a game seeded with {@code seed}
+     * by {@link #setRandomSeed(long)} would make when started.
+     *<P>
+     * Called only at server, not client.
+     *
+     * @param opts  the game's options, or null; not changed
+     * @param hasSeaBoard  the game's {@link #hasSeaBoard}
+     * @param maxPlayers  the game's {@link #maxPlayers}
+     * @param seed  Seed for the layout, such as from {@link SOCSplittableRandom#newSeed()}
+     * @return  a new board from {@link #boardFactory}, after {@link SOCBoard#makeNewBoard(Map)}
+     * @since 2.0.00
+     */
+    public static SOCBoard makeBoardLayout
+        (final Map<String, SOCGameOption> opts, final boolean hasSeaBoard, final int maxPlayers, final long seed)
+    {
+        // clone: createBoard may add "_BHW"; the game's own options already have it
+        final Map<String, SOCGameOption> bopts = (opts != null) ? SOCGameOption.cloneOptions(opts) : null;
+        final SOCBoard b = boardFactory.createBoard(bopts, hasSeaBoard, maxPlayers);
+        b.setRandom(new SOCSplittableRandom(seed).split());  // as in setRandomSeed
+        b.makeNewBoard(bopts);
+        return b;
+    }
+
     /**
      * For {@link #startGame()}, fill and shuffle the development card deck.
      * {@link #devCardDeck} contents are based on game options and number of players.
@@ -7421,6 +7517,8 @@ public class SOCGame implements Serializable, Cloneable
         SOCGame cp = new SOCGame(name, active, SOCGameOption.cloneOptions(opts));
 
         cp.isFromBoardReset = true;
+        if (rand != null)
+            cp.setRandomSeed(rand.nextLong());  // repeatable if this game's seed was set
         oldGameState = gameState;  // for getResetOldGameState()
         active = false;
         gameState = RESET_OLD;
@@ -7940,8 +8038,10 @@ public class SOCGame implements Serializable, Cloneable
      * @author Jeremy D Monin &lt;jeremy@nand.net&gt;
      * @since 2.0.00
      */
-    public static class RollResult
+    public static class RollResult implements Serializable
     {
+        private static final long serialVersionUID = 2000L;
+
         /**
          * The dice numbers rolled, each 1 to 6.
          */
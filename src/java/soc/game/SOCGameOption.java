@@ -102,6 +102,8 @@ import soc.message.SOCMessage;
 public class SOCGameOption
     extends SOCVersionedItem implements Cloneable, Comparable<Object>
 {
+    private static final long serialVersionUID = 2000L;
+
     /**
      * {@link #optFlags} bitfield constant to indicate option should be dropped if unset/default.
      * If this option's value is the default, then server should not add it to game options
@@ -19,6 +19,8 @@
  **/
 package soc.game;
 
+import java.io.Serializable;
+
 import soc.util.SOCStringManager;
 
 /**
@@ -60,8 +62,9 @@ import soc.util.SOCStringManager;
  * @since 2.0.00
  */
 public class SOCInventoryItem
-    implements Cloneable
+    implements Cloneable, Serializable
 {
+    private static final long serialVersionUID = 2000L;
 
     /**
      * This inventory item's identifying type code or Dev Card type, which may be used at client and
@@ -20,6 +20,7 @@
  **/
 package soc.game;
 
+import java.io.Serializable;
 import java.util.Vector;
 
 import soc.util.IntPair;
@@ -29,8 +30,10 @@ import soc.util.IntPair;
  *
  * @author $author$
  */
-public class SOCLRPathData
+public class SOCLRPathData implements Serializable
 {
+    private static final long serialVersionUID = 2000L;
+
     private int beginningCoord;
     private int endCoord;
     private int length;
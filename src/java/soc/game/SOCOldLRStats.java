@@ -20,6 +20,8 @@
  **/
 package soc.game;
 
+import java.io.Serializable;
+
 import soc.disableDebug.D;
 
 
@@ -32,8 +34,10 @@ import soc.disableDebug.D;
  *
  * @author  Robert S. Thomas
  */
-public class SOCOldLRStats
+public class SOCOldLRStats implements Serializable
 {
+    private static final long serialVersionUID = 2000L;
+
     int[] lrLengths;
     SOCPlayer playerWithLR;
 
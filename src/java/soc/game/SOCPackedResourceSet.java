@@ -0,0 +1,288 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2013 JSettlers contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.game;
+
+/**
+ * Static helpers for a compact, immutable form of a {@link SOCResourceSet}:
+ * All 6 amounts (5 known types and {@link SOCResourceConstants#UNKNOWN}) packed into one <tt>long</tt>.
+ * Robot search code can copy, compare, hash and do arithmetic on these as primitive values,
+ * without allocating a resource set for each step.
+ *<P>
+ * Each amount has a 10-bit field: The low 9 bits hold the amount, 0 to {@link #MAX_AMOUNT},
+ * and the top bit is a guard bit which is always 0 in a packed set; {@link #contains(long, long)}
+ * and {@link #subtract(long, long)} use the guard bits to work on all 6 fields at once.
+ * Amount for resource type <tt>rtype</tt> is at bit <tt>(rtype - 1) * 10</tt>.
+ * Packed sets with the same amounts are equal as <tt>long</tt>s.
+ *<P>
+ * Amounts can't be negative.  Convert with {@link #fromResourceSet(SOCResourceSet)}
+ * and {@link #toResourceSet(long)}.
+ *
+ * @since 2.0.00
+ */
+public final class SOCPackedResourceSet
+{
+    /** Largest amount of a resource type in a packed set. */
+    public static final int MAX_AMOUNT = 0x1FF;
+
+    /** Packed set with zero of each resource type. */
+    public static final long EMPTY = 0L;
+
+    /** Width in bits of each amount's field, including its guard bit. */
+    private static final int FIELD_BITS = 10;
+
+    /** The guard bit of each of the 6 fields. */
+    private static final long GUARD_BITS;
+
+    static
+    {
+        long g = 0;
+        for (int rtype = SOCResourceConstants.CLAY; rtype <= SOCResourceConstants.UNKNOWN; ++rtype)
+            g |= ((long) (MAX_AMOUNT + 1)) << shift(rtype);
+        GUARD_BITS = g;
+    }
+
+    private SOCPackedResourceSet() {}
+
+    /** Bit position of a resource type's field. */
+    private static int shift(final int rtype)
+    {
+        return (rtype - 1) * FIELD_BITS;
+    }
+
+    /**
+     * Pack resource amounts.
+     * @param cl  number of clay resources
+     * @param or  number of ore resources
+     * @param sh  number of sheep resources
+     * @param wh  number of wheat resources
+     * @param wo  number of wood resources
+     * @param uk  number of unknown resources
+     * @return  the packed set
+     * @throws IllegalArgumentException if an amount is negative or more than {@link #MAX_AMOUNT}
+     */
+    public static long pack(final int cl, final int or, final int sh, final int wh, final int wo, final int uk)
+        throws IllegalArgumentException
+    {
+        return field(cl, SOCResourceConstants.CLAY) | field(or, SOCResourceConstants.ORE)
+            | field(sh, SOCResourceConstants.SHEEP) | field(wh, SOCResourceConstants.WHEAT)
+            | field(wo, SOCResourceConstants.WOOD) | field(uk, SOCResourceConstants.UNKNOWN);
+    }
+
+    /**
+     * Check an amount and shift it into its field.
+     * @throws IllegalArgumentException if <tt>amt</tt> is negative or more than {@link #MAX_AMOUNT}
+     */
+    private static long field(final int amt, final int rtype)
+        throws IllegalArgumentException
+    {
+        if ((amt < 0) || (amt > MAX_AMOUNT))
+            throw new IllegalArgumentException("amount: " + amt);
+
+        return ((long) amt) << shift(rtype);
+    }
+
+    /**
+     * Pack a resource set's amounts.  Negative amounts, which a set may briefly hold
+     * while tracking unknown resources, are packed as 0; amounts over {@link #MAX_AMOUNT}
+     * are packed as {@link #MAX_AMOUNT}.
+     * @param rs  the resource set
+     * @return  the packed set
+     */
+    public static long fromResourceSet(final SOCResourceSet rs)
+    {
+        long p = 0;
+        for (int rtype = SOCResourceConstants.CLAY; rtype <= SOCResourceConstants.UNKNOWN; ++rtype)
+        {
+            int amt = rs.getAmount(rtype);
+            if (amt < 0)
+                amt = 0;
+            else if (amt > MAX_AMOUNT)
+                amt = MAX_AMOUNT;
+            p |= ((long) amt) << shift(rtype);
+        }
+
+        return p;
+    }
+
+    /**
+     * Make a new resource set from a packed set.
+     * @param p  the packed set
+     * @return  a new resource set with the same amounts
+     */
+    public static SOCResourceSet toResourceSet(final long p)
+    {
+        return new SOCResourceSet
+            (getAmount(p, SOCResourceConstants.CLAY), getAmount(p, SOCResourceConstants.ORE),
+             getAmount(p, SOCResourceConstants.SHEEP), getAmount(p, SOCResourceConstants.WHEAT),
+             getAmount(p, SOCResourceConstants.WOOD), getAmount(p, SOCResourceConstants.UNKNOWN));
+    }
+
+    /**
+     * Get the amount of a resource type.
+     * @param p  the packed set
+     * @param rtype  the type of resource, like {@link SOCResourceConstants#CLAY}
+     *     or {@link SOCResourceConstants#UNKNOWN}
+     * @return the amount of that type
+     */
+    public static int getAmount(final long p, final int rtype)
+    {
+        return (int) (p >>> shift(rtype)) & MAX_AMOUNT;
+    }
+
+    /**
+     * Set the amount of a resource type.
+     * @param p  the packed set
+     * @param amt  the new amount, from 0 to {@link #MAX_AMOUNT}
+     * @param rtype  the type of resource, like {@link SOCResourceConstants#CLAY}
+     * @return  the packed set with that amount
+     * @throws IllegalArgumentException if <tt>amt</tt> is negative or more than {@link #MAX_AMOUNT}
+     */
+    public static long setAmount(final long p, final int amt, final int rtype)
+        throws IllegalArgumentException
+    {
+        return (p & ~(((long) MAX_AMOUNT) << shift(rtype))) | field(amt, rtype);
+    }
+
+    /**
+     * Add to the amount of a resource type.  The result must not be more than {@link #MAX_AMOUNT}.
+     * @param p  the packed set
+     * @param amt  amount to add; 0 or more
+     * @param rtype  the type of resource, like {@link SOCResourceConstants#CLAY}
+     * @return  the packed set with that amount added
+     */
+    public static long add(final long p, final int amt, final int rtype)
+    {
+        return p + (((long) amt) << shift(rtype));
+    }
+
+    /**
+     * Subtract from the amount of a resource type, which must have at least <tt>amt</tt>.
+     * @param p  the packed set
+     * @param amt  amount to subtract; 0 or more
+     * @param rtype  the type of resource, like {@link SOCResourceConstants#CLAY}
+     * @return  the packed set with that amount subtracted
+     */
+    public static long subtract(final long p, final int amt, final int rtype)
+    {
+        return p - (((long) amt) << shift(rtype));
+    }
+
+    /**
+     * Add two packed sets, like {@link SOCResourceSet#add(SOCResourceSet)}.
+     * Each resulting amount must not be more than {@link #MAX_AMOUNT}.
+     * @param a  a packed set
+     * @param b  another packed set
+     * @return  the packed sum
+     */
+    public static long add(final long a, final long b)
+    {
+        return a + b;
+    }
+
+    /**
+     * Subtract one packed set from another, like {@link SOCResourceSet#subtract(SOCResourceSet)}:
+     * If any type's amount would go below 0, it's 0 instead.
+     * @param a  the packed set to subtract from
+     * @param b  the packed set to subtract
+     * @return  the packed difference
+     */
+    public static long subtract(final long a, final long b)
+    {
+        final long d = (a | GUARD_BITS) - b;
+        final long nonNeg = d & GUARD_BITS;  // guard bit still set where a's amount >= b's
+
+        return d & (nonNeg - (nonNeg >>> (FIELD_BITS - 1)));
+    }
+
+    /**
+     * Does set <tt>a</tt> contain at least the amounts in <tt>b</tt>?
+     * Same as {@link SOCResourceSet#contains(SOCResourceSet) a.contains(b)}, including unknown resources.
+     * @param a  a packed set
+     * @param b  another packed set
+     * @return  true if each resource type's amount in <tt>a</tt> is &gt;= its amount in <tt>b</tt>
+     */
+    public static boolean contains(final long a, final long b)
+    {
+        return (((a | GUARD_BITS) - b) & GUARD_BITS) == GUARD_BITS;
+    }
+
+    /**
+     * Does the set contain any resources of this type?
+     * @param p  the packed set
+     * @param rtype  the type of resource, like {@link SOCResourceConstants#CLAY}
+     * @return  true if the set's amount of this resource &gt; 0
+     */
+    public static boolean contains(final long p, final int rtype)
+    {
+        return getAmount(p, rtype) > 0;
+    }
+
+    /**
+     * Get the total number of resources in this set, including unknown types.
+     * @param p  the packed set
+     * @return  the total number of resources
+     */
+    public static int getTotal(final long p)
+    {
+        return getKnownTotal(p) + getAmount(p, SOCResourceConstants.UNKNOWN);
+    }
+
+    /**
+     * Get the number of known resource types in this set, not including unknown.
+     * @param p  the packed set
+     * @return  the total of the 5 known types
+     */
+    public static int getKnownTotal(final long p)
+    {
+        int sum = 0;
+        for (int rtype = SOCResourceConstants.CLAY; rtype <= SOCResourceConstants.WOOD; ++rtype)
+            sum += getAmount(p, rtype);
+
+        return sum;
+    }
+
+    /**
+     * Hash a packed set, for open-addressed tables keyed by packed sets.
+     * Mixes all the bits, so small differences in amounts give very different hashes.
+     * @param p  the packed set
+     * @return  a hash code
+     */
+    public static int hashCode(final long p)
+    {
+        long h = p * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Human-readable form of the set, in the same format as {@link SOCResourceSet#toString()}.
+     * @param p  the packed set
+     * @return  a human readable form, such as "clay=5|ore=1|sheep=0|wheat=0|wood=3|unknown=0"
+     */
+    public static String toString(final long p)
+    {
+        return "clay=" + getAmount(p, SOCResourceConstants.CLAY)
+            + "|ore=" + getAmount(p, SOCResourceConstants.ORE)
+            + "|sheep=" + getAmount(p, SOCResourceConstants.SHEEP)
+            + "|wheat=" + getAmount(p, SOCResourceConstants.WHEAT)
+            + "|wood=" + getAmount(p, SOCResourceConstants.WOOD)
+            + "|unknown=" + getAmount(p, SOCResourceConstants.UNKNOWN);
+    }
+
+}
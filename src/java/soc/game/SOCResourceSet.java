@@ -32,6 +32,7 @@ import java.util.Arrays;
  *
  * @see SOCResourceConstants
  * @see SOCPlayingPiece#getResourcesToBuild(int)
+ * @see SOCPackedResourceSet
  */
 public class SOCResourceSet implements Serializable, Cloneable
 {
@@ -484,11 +485,11 @@ public class SOCResourceSet implements Serializable, Cloneable
     }
 
     /**
-     * @return a hashcode for this data
+     * @return a hashcode for this data, from the amounts of each resource type including UNKNOWN
      */
     public int hashCode()
     {
-        return this.toString().hashCode();
+        return Arrays.hashCode(resources);
     }
 
     /**
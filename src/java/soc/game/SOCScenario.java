@@ -70,6 +70,8 @@ import soc.message.SOCMessage;
 public class SOCScenario
     extends SOCVersionedItem implements Cloneable, Comparable<Object>
 {
+    private static final long serialVersionUID = 2000L;
+
     /**
      * Version 2.0.00 (2000) introduced game scenarios.
      * @since 2.0.00
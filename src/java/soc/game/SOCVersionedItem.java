@@ -20,6 +20,7 @@
  **/
 package soc.game;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -44,8 +45,9 @@ import soc.message.SOCMessage;
  * @author Jeremy D Monin &lt;jeremy@nand.net&gt;
  * @since 2.0.00
  */
-public abstract class SOCVersionedItem implements Cloneable
+public abstract class SOCVersionedItem implements Cloneable, Serializable
 {
+    private static final long serialVersionUID = 2000L;
 
     /**
      * Item key name: Short alphanumeric name (uppercase, starting with a letter, '_' permitted).
@@ -0,0 +1,374 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2013 JSettlers contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.robot;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Vector;
+
+import soc.game.SOCBoard;
+import soc.game.SOCBoardLarge;
+import soc.game.SOCGame;
+import soc.game.SOCPlayerNumbers;
+import soc.game.SOCResourceConstants;
+import soc.util.SortedIntMap;
+
+/**
+ * Precomputed analysis of a game's board layout, for robot planning:
+ * For each node touching a land hex, its adjacent dice numbers and resources,
+ * its total dice probability, and its port type; and the rarity of each resource
+ * on the board.
+ *<P>
+ * These depend only on the board layout, so one table is built per game
+ * and shared by all the robots in this JVM which are playing in that game;
+ * see {@link #forGame(SOCGame)}.  Each robot has its own copy of the game data,
+ * so the table is matched to a game by name and validated against the board contents.
+ * {@link SOCRobotClient} builds the table when the board layout arrives, so that robots
+ * joining the game find it ready.  The table is read-only once built.
+ *<P>
+ * Used by {@link OpeningBuildStrategy} in its search over pairs of settlement nodes,
+ * which would otherwise re-derive each node's hexes and numbers from the board for every pair,
+ * and for its resource rarity estimates.
+ *
+ * @since 2.0.00
+ */
+public class BoardNodeValues
+{
+    /**
+     * Maximum number of games' tables to keep in {@link #cache};
+     * the least recently used is dropped when a new one is added past this size.
+     */
+    public static final int MAX_CACHED_GAMES = 60;
+
+    /**
+     * Shared tables, keyed by game name, in least-recently-used order.
+     * Synchronize on the map when using it.
+     */
+    private static final LinkedHashMap<String, BoardNodeValues> cache
+        = new LinkedHashMap<String, BoardNodeValues>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 2000L;
+
+            protected boolean removeEldestEntry(Map.Entry<String, BoardNodeValues> eldest)
+            {
+                return (size() > MAX_CACHED_GAMES);
+            }
+        };
+
+    /**
+     * Board contents fingerprint from {@link #boardFingerprint(SOCBoard)} when this table was built.
+     */
+    private final long fingerprint;
+
+    /** Per-node values, keyed by node coordinate. */
+    private final SortedIntMap<NodeValue> nodes;
+
+    /** Resource rarity estimates; see {@link #getResourceRarity()}. */
+    private final int[] resourceRarity;
+
+    /**
+     * Get the shared table for a game's board, building it if needed.
+     * If a table was cached for another game with the same name, or the board's
+     * land hexes have changed since it was built (fog hexes revealed, for example),
+     * a new table is built and cached.
+     *<P>
+     * Thread-safe.  Building the table is quick, so if 2 robots ask at the same time,
+     * both may build one and the last one is kept.
+     *
+     * @param ga  Game to get the table for; its board layout should already be set
+     * @return  The node value table for <tt>ga</tt>'s board
+     */
+    public static BoardNodeValues forGame(final SOCGame ga)
+    {
+        final SOCBoard board = ga.getBoard();
+        final String gaName = ga.getName();
+        final long fp = boardFingerprint(board);
+
+        BoardNodeValues bnv;
+        synchronized (cache)
+        {
+            bnv = cache.get(gaName);
+        }
+        if ((bnv != null) && (bnv.fingerprint == fp))
+            return bnv;
+
+        bnv = new BoardNodeValues(board, fp);
+        synchronized (cache)
+        {
+            cache.put(gaName, bnv);
+        }
+
+        return bnv;
+    }
+
+    /**
+     * Build the table for a board.
+     * @param board  Board to build from
+     * @param fp  <tt>board</tt>'s fingerprint from {@link #boardFingerprint(SOCBoard)}
+     */
+    private BoardNodeValues(final SOCBoard board, final long fp)
+    {
+        fingerprint = fp;
+        nodes = new SortedIntMap<NodeValue>();
+        resourceRarity = calcResourceRarity(board);
+
+        final int[] landHexes = board.getLandHexCoords();
+        if (landHexes == null)
+            return;
+
+        for (int i = 0; i < landHexes.length; ++i)
+        {
+            final int[] hexNodes = board.getAdjacentNodesToHex(landHexes[i]);
+            for (int j = 0; j < hexNodes.length; ++j)
+            {
+                final int node = hexNodes[j];
+                if (! nodes.containsKey(node))
+                    nodes.put(node, new NodeValue(board, node));
+            }
+        }
+    }
+
+    /**
+     * Estimate the rarity of each resource, given this board's resource locations vs dice numbers.
+     * Ignores all hex types besides the usual {@link SOCBoard#CLAY_HEX} through {@link SOCBoard#WOOD_HEX}
+     * and {@link SOCBoardLarge#GOLD_HEX}, which counts as all 5 types.
+     * @param board  Board to look at
+     * @return  Rarity array for {@link #getResourceRarity()}
+     */
+    private static int[] calcResourceRarity(final SOCBoard board)
+    {
+        final int[] numberWeights = SOCNumberProbabilities.INT_VALUES;
+        final int[] estimates = new int[SOCResourceConstants.UNKNOWN];  // uses 1 to 5 (CLAY to WOOD)
+
+        // look at each hex
+        if (board.getBoardEncodingFormat() <= SOCBoard.BOARD_ENCODING_6PLAYER)
+        {
+            // v1 or v2 encoding
+            final int L = board.getNumberLayout().length;
+            for (int i = 0; i < L; i++)
+            {
+                final int hexNumber = board.getNumberOnHexFromNumber(i);
+                if (hexNumber > 0)
+                    estimates[board.getHexTypeFromNumber(i)] += numberWeights[hexNumber];
+            }
+        } else {
+            // v3 encoding
+            final int[] hcoord = board.getLandHexCoords();
+            if (hcoord != null)
+            {
+                for (int i = 0; i < hcoord.length; i++)
+                {
+                    final int hexNumber = board.getNumberOnHexFromCoord(hcoord[i]);
+                    if (hexNumber == 0)
+                        continue;
+
+                    final int htype = board.getHexTypeFromCoord(hcoord[i]);
+                    if (htype == SOCBoardLarge.GOLD_HEX)
+                    {
+                        // Count gold as all resource types
+                        for (int ht = SOCBoard.CLAY_HEX; ht <= SOCBoard.WOOD_HEX; ++ht)
+                            estimates[ht] += numberWeights[hexNumber];
+                    }
+                    else if ((htype >= 0) && (htype <= SOCBoard.WOOD_HEX))
+                    {
+                        estimates[htype] += numberWeights[hexNumber];
+                    }
+                }
+            }
+        }
+
+        return estimates;
+    }
+
+    /**
+     * Calculate a fingerprint of the board contents which affect this table:
+     * Each land hex's coordinate, type and dice number, and the port layout.
+     * @param board  Board to fingerprint
+     * @return  Fingerprint hash
+     */
+    private static long boardFingerprint(final SOCBoard board)
+    {
+        long fp = board.getBoardEncodingFormat();
+
+        final int[] landHexes = board.getLandHexCoords();
+        if (landHexes != null)
+        {
+            for (int i = 0; i < landHexes.length; ++i)
+            {
+                final int hex = landHexes[i];
+                fp = 31 * fp + hex;
+                fp = 31 * fp + board.getHexTypeFromCoord(hex);
+                fp = 31 * fp + board.getNumberOnHexFromCoord(hex);
+            }
+        }
+
+        final int[] ports = board.getPortsLayout();
+        if (ports != null)
+            for (int i = 0; i < ports.length; ++i)
+                fp = 31 * fp + ports[i];
+
+        return fp;
+    }
+
+    /**
+     * Get a node's values, calculating them if the node isn't in the table.
+     * @param board  Board, in case the node must be calculated
+     * @param node  Node coordinate
+     * @return  The node's values
+     */
+    private NodeValue getNode(final SOCBoard board, final int node)
+    {
+        NodeValue nv = nodes.get(node);
+        if (nv == null)
+            nv = new NodeValue(board, node);  // not expected: all settlement nodes touch land
+
+        return nv;
+    }
+
+    /**
+     * Add a node's dice numbers and resources to a player's numbers, like
+     * {@link SOCPlayerNumbers#updateNumbersAndProbability(int, SOCBoard, int[], StringBuffer)}
+     * with {@link SOCNumberProbabilities#INT_VALUES}, without looking at the board's hexes.
+     * @param board  The board this table was built from
+     * @param node  Node coordinate
+     * @param numbers  Numbers to add to
+     * @param sb  if not null, a StringBuffer to append each adjacent dice number into for debugging
+     * @return  Total probability of the node's dice numbers, as an integer percentage
+     */
+    public int updateNumbersAndProbability
+        (final SOCBoard board, final int node, final SOCPlayerNumbers numbers, final StringBuffer sb)
+    {
+        final NodeValue nv = getNode(board, node);
+        for (int i = 0; i < nv.diceNums.length; ++i)
+        {
+            numbers.addNumberForResource(nv.diceNums[i], nv.resources[i], nv.hexes[i]);
+            if (sb != null)
+            {
+                sb.append(nv.diceNums[i]);
+                sb.append(' ');
+            }
+        }
+
+        return nv.probTotal;
+    }
+
+    /**
+     * Get the total dice probability of a node's adjacent hexes.
+     * @param board  The board this table was built from
+     * @param node  Node coordinate
+     * @return  Total probability of the node's dice numbers, as an integer percentage,
+     *     from {@link SOCNumberProbabilities#INT_VALUES}
+     */
+    public int getProbability(final SOCBoard board, final int node)
+    {
+        return getNode(board, node).probTotal;
+    }
+
+    /**
+     * Get the dice numbers of a node's adjacent hexes.
+     * @param board  The board this table was built from
+     * @param node  Node coordinate
+     * @return  Dice numbers of the adjacent hexes which have one, in board order.
+     *     Shared by all robots in the game: Don't change the contents.
+     */
+    public int[] getDiceNumbers(final SOCBoard board, final int node)
+    {
+        return getNode(board, node).diceNums;
+    }
+
+    /**
+     * Get the rarity of each resource on the board, from the dice numbers of the hexes producing it.
+     * @return an array of rarity numbers, where
+     *         estimates[SOCBoard.CLAY_HEX] == the clay rarity,
+     *         as an integer percentage 0-100 of dice rolls.
+     *         Shared by all robots in the game: Don't change the contents.
+     */
+    public int[] getResourceRarity()
+    {
+        return resourceRarity;
+    }
+
+    /**
+     * Get a node's port type.
+     * @param board  The board this table was built from
+     * @param node  Node coordinate
+     * @return  Same as {@link SOCBoard#getPortTypeFromNodeCoord(int)}:
+     *     Port type in range {@link SOCBoard#MISC_PORT} to {@link SOCBoard#WOOD_PORT}, or -1 if none
+     */
+    public int getPortType(final SOCBoard board, final int node)
+    {
+        return getNode(board, node).portType;
+    }
+
+    /**
+     * One node's values.
+     */
+    private static final class NodeValue
+    {
+        /** Dice numbers of the adjacent hexes which have one, in board order */
+        final int[] diceNums;
+
+        /** Hex type of each hex in {@link #diceNums} */
+        final int[] resources;
+
+        /** Hex coordinate of each hex in {@link #diceNums} */
+        final int[] hexes;
+
+        /** Total probability of {@link #diceNums}, from {@link SOCNumberProbabilities#INT_VALUES} */
+        final int probTotal;
+
+        /** Port type, or -1 */
+        final int portType;
+
+        NodeValue(final SOCBoard board, final int node)
+        {
+            final Vector<Integer> adjacHexes = board.getAdjacentHexesToNode(node);
+            int[] dn = new int[adjacHexes.size()], rs = new int[dn.length], hx = new int[dn.length];
+            int n = 0, prob = 0;
+            for (Integer hexInt : adjacHexes)
+            {
+                final int hex = hexInt.intValue();
+                final int number = board.getNumberOnHexFromCoord(hex);
+                if (number > 0)
+                {
+                    dn[n] = number;
+                    rs[n] = board.getHexTypeFromCoord(hex);
+                    hx[n] = hex;
+                    ++n;
+                    prob += SOCNumberProbabilities.INT_VALUES[number];
+                }
+            }
+
+            if (n < dn.length)
+            {
+                int[] a = new int[n];  System.arraycopy(dn, 0, a, 0, n);  dn = a;
+                a = new int[n];  System.arraycopy(rs, 0, a, 0, n);  rs = a;
+                a = new int[n];  System.arraycopy(hx, 0, a, 0, n);  hx = a;
+            }
+
+            diceNums = dn;
+            resources = rs;
+            hexes = hx;
+            probTotal = prob;
+            portType = board.getPortTypeFromNodeCoord(node);
+        }
+    }
+
+}
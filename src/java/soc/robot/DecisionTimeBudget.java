@@ -0,0 +1,261 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2013 JSettlers contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.robot;
+
+import soc.util.SOCRobotParameters;
+
+/**
+ * Time budget for one robot decision, such as building plans in {@link SOCRobotDM#planStuff(int)},
+ * trade offers in {@link SOCRobotNegotiator}, or robber placement in {@link RobberStrategy}.
+ * Planners call {@link #isExpired()} between candidates, and when it returns true
+ * they stop and use their best answer found so far.  This keeps a smart robot on a large
+ * board from taking so long that the server force-ends its turn.
+ *<P>
+ * Each {@link SOCRobotBrain} has one budget, from {@link SOCRobotParameters#getDecisionTimeBudget()}.
+ * A decision starts with {@link #begin(int)} and ends with {@link #end()}.
+ * Decisions made while another is in progress, such as a {@link SOCRobotDM} simulator's
+ * planning while considering a trade offer, are part of the outer decision and share its deadline.
+ *<P>
+ * Counts how many decisions of each kind were made and how many of them hit the budget,
+ * per budget and for all robots in this JVM.
+ *<P>
+ * Not thread-safe: Meant to be used only by its brain's thread.  The JVM-wide totals are synchronized.
+ *
+ * @since 2.0.00
+ */
+public class DecisionTimeBudget
+{
+    /** Kind of decision: Building plans. */
+    public static final int PLAN = 0;
+
+    /** Kind of decision: Making or considering trade offers. */
+    public static final int TRADE = 1;
+
+    /** Kind of decision: Where to move the robber. */
+    public static final int ROBBER = 2;
+
+    /** Names of the kinds of decision, for {@link #toString()}. */
+    private static final String[] KIND_NAMES = { "plan", "trade", "robber" };
+
+    /** Number of decisions of each kind made by all robots in this JVM. */
+    private static final int[] totalDecisions = new int[KIND_NAMES.length];
+
+    /** Number of decisions of each kind which hit their budget, for all robots in this JVM. */
+    private static final int[] totalBudgetHits = new int[KIND_NAMES.length];
+
+    /** Time allowed per decision, in milliseconds, or 0 for no limit. */
+    private final int budgetMillis;
+
+    /** Number of nested {@link #begin(int)} calls not yet ended; 0 if no decision in progress. */
+    private int depth;
+
+    /** Kind of the current decision. */
+    private int kind;
+
+    /** Deadline of the current decision, from {@link System#currentTimeMillis()}. */
+    private long deadline;
+
+    /** Has the current decision hit its budget? */
+    private boolean expired;
+
+    /** Number of decisions of each kind made with this budget. */
+    private final int[] decisions = new int[KIND_NAMES.length];
+
+    /** Number of decisions of each kind which hit this budget. */
+    private final int[] budgetHits = new int[KIND_NAMES.length];
+
+    /**
+     * Create a budget.
+     * @param budgetMillis  Time allowed per decision, in milliseconds, or 0 for no limit
+     */
+    public DecisionTimeBudget(final int budgetMillis)
+    {
+        this.budgetMillis = budgetMillis;
+    }
+
+    /**
+     * @return  Time allowed per decision, in milliseconds, or 0 for no limit
+     */
+    public int getBudgetMillis()
+    {
+        return budgetMillis;
+    }
+
+    /**
+     * Start a decision, if one isn't already in progress.
+     * Each call must be paired with a call to {@link #end()}, usually in a <tt>finally</tt> block.
+     * @param decisionKind  Kind of decision: {@link #PLAN}, {@link #TRADE} or {@link #ROBBER}.
+     *     Ignored if a decision is already in progress.
+     */
+    public void begin(final int decisionKind)
+    {
+        if (depth++ > 0)
+            return;
+
+        kind = decisionKind;
+        expired = false;
+        deadline = (budgetMillis > 0)
+            ? System.currentTimeMillis() + budgetMillis
+            : Long.MAX_VALUE;
+
+        ++decisions[kind];
+        synchronized (totalDecisions)
+        {
+            ++totalDecisions[kind];
+        }
+    }
+
+    /**
+     * End a decision started by {@link #begin(int)}.
+     */
+    public void end()
+    {
+        if (depth > 0)
+            --depth;
+    }
+
+    /**
+     * Get the current decision's deadline, for other threads helping with the decision.
+     * Those threads should compare it to {@link System#currentTimeMillis()}
+     * instead of calling {@link #isExpired()}, which is for the brain's thread only.
+     * @return  Deadline from {@link System#currentTimeMillis()}, or {@link Long#MAX_VALUE}
+     *     if no limit or no decision is in progress
+     */
+    public long getDeadline()
+    {
+        return (depth > 0) ? deadline : Long.MAX_VALUE;
+    }
+
+    /**
+     * Has the current decision used up its time budget?
+     * The first call which finds the budget used up counts the decision as a budget hit.
+     * @return  True if a decision is in progress and its budget is used up;
+     *     false if there's time left or no decision is in progress
+     */
+    public boolean isExpired()
+    {
+        if (expired)
+            return true;
+        if ((depth == 0) || (System.currentTimeMillis() < deadline))
+            return false;
+
+        expired = true;
+        ++budgetHits[kind];
+        synchronized (totalDecisions)
+        {
+            ++totalBudgetHits[kind];
+        }
+
+        return true;
+    }
+
+    /**
+     * Get the number of decisions of a kind made with this budget.
+     * @param decisionKind  Kind of decision, such as {@link #PLAN}
+     * @return  Number of decisions of that kind
+     */
+    public int getDecisionCount(final int decisionKind)
+    {
+        return decisions[decisionKind];
+    }
+
+    /**
+     * Get the number of decisions of a kind which hit this budget.
+     * @param decisionKind  Kind of decision, such as {@link #PLAN}
+     * @return  Number of decisions of that kind which returned early
+     */
+    public int getBudgetHitCount(final int decisionKind)
+    {
+        return budgetHits[decisionKind];
+    }
+
+    /**
+     * Get the number of decisions of a kind made by all robots in this JVM.
+     * @param decisionKind  Kind of decision, such as {@link #PLAN}
+     * @return  Number of decisions of that kind
+     */
+    public static int getTotalDecisionCount(final int decisionKind)
+    {
+        synchronized (totalDecisions)
+        {
+            return totalDecisions[decisionKind];
+        }
+    }
+
+    /**
+     * Get the number of decisions of a kind which hit their budget, for all robots in this JVM.
+     * @param decisionKind  Kind of decision, such as {@link #PLAN}
+     * @return  Number of decisions of that kind which returned early
+     */
+    public static int getTotalBudgetHitCount(final int decisionKind)
+    {
+        synchronized (totalDecisions)
+        {
+            return totalBudgetHits[decisionKind];
+        }
+    }
+
+    /**
+     * Summarize budget hits and decision counts of all robots in this JVM,
+     * in the same format as {@link #toString()}.
+     * @return  Summary such as "plan=3/120|trade=0/45|robber=0/6"
+     */
+    public static String getTotalsString()
+    {
+        synchronized (totalDecisions)
+        {
+            return statsString(totalBudgetHits, totalDecisions);
+        }
+    }
+
+    /**
+     * Format budget hit and decision counts for each kind.
+     * @param hits  Budget hits per kind
+     * @param counts  Decisions per kind
+     * @return  Summary such as "plan=3/120|trade=0/45|robber=0/6"
+     */
+    private static String statsString(final int[] hits, final int[] counts)
+    {
+        StringBuffer sb = new StringBuffer();
+        for (int i = 0; i < KIND_NAMES.length; ++i)
+        {
+            if (i > 0)
+                sb.append('|');
+            sb.append(KIND_NAMES[i]);
+            sb.append('=');
+            sb.append(hits[i]);
+            sb.append('/');
+            sb.append(counts[i]);
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Summarize this budget's hits and decision counts.
+     * @return  Summary of budget hits / decisions of each kind, such as "plan=3/120|trade=0/45|robber=0/6"
+     */
+    @Override
+    public String toString()
+    {
+        return statsString(budgetHits, decisions);
+    }
+
+}
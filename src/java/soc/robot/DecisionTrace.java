@@ -0,0 +1,280 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2013 JSettlers contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.robot;
+
+import java.util.Vector;
+
+/**
+ * A robot brain's recent decisions, kept in a fixed-size ring buffer of int records
+ * so that tracing costs only a few array stores per record and no string formatting.
+ * Unlike {@link soc.util.DebugRecorder}, which is turned on by debug commands because building its
+ * strings is expensive, the trace is always on; its records are formatted as text only
+ * when someone asks for them with {@link #getRecordsText(int)}, such as the robot's <tt>:trace</tt>
+ * debug command.  When the buffer is full, new records replace the oldest ones.
+ *<P>
+ * Each record has a kind, 4 int fields whose meaning depends on the kind, and
+ * the time it was recorded, in milliseconds since the trace was created:
+ *<UL>
+ * <LI> {@link #PLAN_START}: Strategy type, game round, our total VP, our resource count
+ * <LI> {@link #CANDIDATE}: Piece type, coordinate, ETA, score as {@link Float#floatToIntBits(float)}
+ * <LI> {@link #PLAN_PIECE}: Piece type, coordinate, ETA, position in plan (0 is built first)
+ * <LI> {@link #PLAN_END}: Elapsed microseconds, 1 if time budget was hit, plan size, 0
+ * <LI> {@link #ROBBER}: Hex chosen, elapsed microseconds, 1 if time budget was hit, 0
+ * <LI> {@link #TRADE}: {@link #TRADE_MAKE}, {@link #TRADE_CONSIDER} or {@link #TRADE_COUNTER};
+ *        result (1 if offer made, or response code); elapsed microseconds; 1 if time budget was hit
+ *</UL>
+ * Piece types are from {@link SOCPossiblePiece}, such as {@link SOCPossiblePiece#SETTLEMENT}.
+ *<P>
+ * Thread-safe: The brain's thread adds records while the client's thread may read them.
+ *
+ * @since 2.0.00
+ */
+public class DecisionTrace
+{
+    /** Record kind: Start of building plans in {@link SOCRobotDM#planStuff(int)}. */
+    public static final int PLAN_START = 1;
+
+    /** Record kind: A candidate piece scored while planning. */
+    public static final int CANDIDATE = 2;
+
+    /** Record kind: A piece in the chosen building plan. */
+    public static final int PLAN_PIECE = 3;
+
+    /** Record kind: End of building plans. */
+    public static final int PLAN_END = 4;
+
+    /** Record kind: Robber placement. */
+    public static final int ROBBER = 5;
+
+    /** Record kind: Trade offer made, considered, or countered. */
+    public static final int TRADE = 6;
+
+    /** {@link #TRADE} record's first field: We made an offer, or decided not to. */
+    public static final int TRADE_MAKE = 0;
+
+    /** {@link #TRADE} record's first field: We considered another player's offer. */
+    public static final int TRADE_CONSIDER = 1;
+
+    /** {@link #TRADE} record's first field: We made a counter-offer, or decided not to. */
+    public static final int TRADE_COUNTER = 2;
+
+    /** Names of the record kinds, for {@link #getRecordsText()}; index is the kind. */
+    private static final String[] KIND_NAMES =
+        { "?", "plan-start", "candidate", "plan-piece", "plan-end", "robber", "trade" };
+
+    /** Default number of records kept, used by {@link SOCRobotBrain}. */
+    public static final int DEFAULT_CAPACITY = 512;
+
+    /** Number of ints in each record: Time, kind, and 4 fields. */
+    private static final int RECORD_INTS = 6;
+
+    /** The records; record <tt>i</tt> starts at <tt>buf[i * RECORD_INTS]</tt>. */
+    private final int[] buf;
+
+    /** Maximum number of records kept. */
+    private final int capacity;
+
+    /** Index of the next record to write, from 0 to {@link #capacity} - 1. */
+    private int next;
+
+    /** Number of records in the buffer, at most {@link #capacity}. */
+    private int count;
+
+    /** Creation time, from {@link System#currentTimeMillis()}; record times are relative to this. */
+    private final long startTime;
+
+    /**
+     * Create an empty trace.
+     * @param capacity  Number of records to keep; older records are replaced by newer ones
+     * @throws IllegalArgumentException if <tt>capacity</tt> &lt; 1
+     */
+    public DecisionTrace(final int capacity)
+        throws IllegalArgumentException
+    {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity: " + capacity);
+
+        this.capacity = capacity;
+        buf = new int[capacity * RECORD_INTS];
+        startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Add a record, replacing the oldest record if the buffer is full.
+     * @param kind  Record kind, such as {@link #PLAN_START}
+     * @param a  First field; see class javadoc for fields of each kind
+     * @param b  Second field
+     * @param c  Third field
+     * @param d  Fourth field
+     */
+    public synchronized void record(final int kind, final int a, final int b, final int c, final int d)
+    {
+        int i = next * RECORD_INTS;
+        buf[i++] = (int) (System.currentTimeMillis() - startTime);
+        buf[i++] = kind;
+        buf[i++] = a;
+        buf[i++] = b;
+        buf[i++] = c;
+        buf[i] = d;
+
+        if (++next == capacity)
+            next = 0;
+        if (count < capacity)
+            ++count;
+    }
+
+    /**
+     * Add a {@link #CANDIDATE} or {@link #PLAN_PIECE} record for a possible piece.
+     * @param kind  {@link #CANDIDATE} or {@link #PLAN_PIECE}
+     * @param pp  Possible piece; does nothing if null
+     * @param d  Fourth field: Ignored for {@link #CANDIDATE}, which records the piece's score;
+     *     position in plan for {@link #PLAN_PIECE}
+     */
+    public void recordPiece(final int kind, final SOCPossiblePiece pp, final int d)
+    {
+        if (pp == null)
+            return;
+
+        record(kind, pp.getType(), pp.getCoordinates(), pp.getETA(),
+            (kind == CANDIDATE) ? Float.floatToIntBits(pp.getScore()) : d);
+    }
+
+    /**
+     * @return the number of records in the buffer
+     */
+    public synchronized int size()
+    {
+        return count;
+    }
+
+    /**
+     * Remove all records.
+     */
+    public synchronized void clear()
+    {
+        next = 0;
+        count = 0;
+    }
+
+    /**
+     * Format all records as text, oldest first, one line per record.
+     * @return  The records, or an empty vector if none
+     * @see #getRecordsText(int)
+     */
+    public Vector<String> getRecordsText()
+    {
+        return getRecordsText(capacity);
+    }
+
+    /**
+     * Format the most recent records as text, oldest first, one line per record.
+     * @param maxRecords  Maximum number of records to format
+     * @return  The records, or an empty vector if none
+     */
+    public Vector<String> getRecordsText(final int maxRecords)
+    {
+        final int[] copy;
+        final int n, first;
+        synchronized (this)
+        {
+            copy = buf.clone();
+            n = (maxRecords < count) ? Math.max(maxRecords, 0) : count;
+            first = (next - n + capacity) % capacity;
+        }
+
+        Vector<String> v = new Vector<String>(n);
+        StringBuffer sb = new StringBuffer();
+        for (int r = 0; r < n; ++r)
+        {
+            final int i = ((first + r) % capacity) * RECORD_INTS;
+            final int kind = copy[i + 1];
+            final int a = copy[i + 2], b = copy[i + 3], c = copy[i + 4], d = copy[i + 5];
+
+            sb.setLength(0);
+            sb.append(copy[i]);
+            sb.append(' ');
+            sb.append(((kind > 0) && (kind < KIND_NAMES.length)) ? KIND_NAMES[kind] : KIND_NAMES[0]);
+            switch (kind)
+            {
+            case PLAN_START:
+                sb.append(" strategy=").append(a).append(" round=").append(b)
+                  .append(" vp=").append(c).append(" res=").append(d);
+                break;
+
+            case CANDIDATE:
+            case PLAN_PIECE:
+                sb.append(' ').append(pieceTypeName(a)).append(" at 0x").append(Integer.toHexString(b))
+                  .append(" eta=").append(c);
+                if (kind == CANDIDATE)
+                    sb.append(" score=").append(Float.intBitsToFloat(d));
+                else
+                    sb.append(" pos=").append(d);
+                break;
+
+            case PLAN_END:
+                sb.append(" micros=").append(a).append(" budgetHit=").append(b != 0)
+                  .append(" planSize=").append(c);
+                break;
+
+            case ROBBER:
+                sb.append(" hex=0x").append(Integer.toHexString(a)).append(" micros=").append(b)
+                  .append(" budgetHit=").append(c != 0);
+                break;
+
+            case TRADE:
+                sb.append((a == TRADE_MAKE) ? " make" : (a == TRADE_CONSIDER) ? " consider" : " counter")
+                  .append(" result=").append(b).append(" micros=").append(c).append(" budgetHit=").append(d != 0);
+                break;
+
+            default:
+                sb.append(' ').append(a).append(' ').append(b).append(' ').append(c).append(' ').append(d);
+            }
+
+            v.addElement(sb.toString());
+        }
+
+        return v;
+    }
+
+    /**
+     * Name of a possible piece type, for {@link #getRecordsText()}.
+     * @param ptype  Piece type, such as {@link SOCPossiblePiece#ROAD}
+     * @return  Name such as "road", or the number if unknown
+     */
+    private static String pieceTypeName(final int ptype)
+    {
+        switch (ptype)
+        {
+        case SOCPossiblePiece.ROAD:
+            return "road";
+        case SOCPossiblePiece.SETTLEMENT:
+            return "settlement";
+        case SOCPossiblePiece.CITY:
+            return "city";
+        case SOCPossiblePiece.SHIP:
+            return "ship";
+        case SOCPossiblePiece.CARD:
+            return "card";
+        default:
+            return Integer.toString(ptype);
+        }
+    }
+
+}
@@ -30,9 +30,9 @@ import java.util.Stack;
 
 import soc.disableDebug.D;
 import soc.game.SOCGame;
+import soc.game.SOCPackedResourceSet;
 import soc.game.SOCPlayer;
 import soc.game.SOCPlayingPiece;
-import soc.game.SOCResourceConstants;
 import soc.game.SOCResourceSet;
 import soc.util.SOCRobotParameters;
 
@@ -85,23 +85,10 @@ public class DiscardStrategy {
             /**
              * figure out what resources are NOT the ones we need
              */
-            SOCResourceSet leftOvers = ourPlayerData.getResources().copy();
-
-            for (int rsrc = SOCResourceConstants.CLAY;
-                    rsrc <= SOCResourceConstants.WOOD; rsrc++)
-            {
-                if (leftOvers.getAmount(rsrc) > targetResources.getAmount(rsrc))
-                {
-                    leftOvers.subtract(targetResources.getAmount(rsrc), rsrc);
-                }
-                else
-                {
-                    leftOvers.setAmount(0, rsrc);
-                }
-            }
-
-            SOCResourceSet neededRsrcs = ourPlayerData.getResources().copy();
-            neededRsrcs.subtract(leftOvers);
+            final long ourResources = SOCPackedResourceSet.fromResourceSet(ourPlayerData.getResources());
+            long leftOvers = SOCPackedResourceSet.subtract
+                (ourResources, SOCPackedResourceSet.fromResourceSet(targetResources));
+            long neededRsrcs = SOCPackedResourceSet.subtract(ourResources, leftOvers);
 
             /**
              * figure out the order of resources from
@@ -125,10 +112,10 @@ public class DiscardStrategy {
                 while ((discards.getTotal() < numDiscards) && (curRsrc < 5))
                 {
                     //log.debug("(1) dis.tot="+discards.getTotal()+" curRsrc="+curRsrc);
-                    if (leftOvers.contains(resourceOrder[curRsrc]))
+                    if (SOCPackedResourceSet.contains(leftOvers, resourceOrder[curRsrc]))
                     {
                         discards.add(1, resourceOrder[curRsrc]);
-                        leftOvers.subtract(1, resourceOrder[curRsrc]);
+                        leftOvers = SOCPackedResourceSet.subtract(leftOvers, 1, resourceOrder[curRsrc]);
 
                         // keep looping at this resource until finished
                     }
@@ -146,10 +133,10 @@ public class DiscardStrategy {
                 while ((discards.getTotal() < numDiscards) && (curRsrc < 5))
                 {
                     //log.debug("(2) dis.tot="+discards.getTotal()+" curRsrc="+curRsrc);
-                    if (neededRsrcs.contains(resourceOrder[curRsrc]))
+                    if (SOCPackedResourceSet.contains(neededRsrcs, resourceOrder[curRsrc]))
                     {
                         discards.add(1, resourceOrder[curRsrc]);
-                        neededRsrcs.subtract(1, resourceOrder[curRsrc]);
+                        neededRsrcs = SOCPackedResourceSet.subtract(neededRsrcs, 1, resourceOrder[curRsrc]);
                     }
                     else
                     {
@@ -0,0 +1,270 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2013 JSettlers contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.robot;
+
+import java.util.Arrays;
+import java.util.Vector;
+
+import soc.game.SOCBoard;
+import soc.game.SOCCity;
+import soc.game.SOCGame;
+import soc.game.SOCPlayer;
+import soc.game.SOCPlayingPiece;
+import soc.game.SOCSettlement;
+import soc.util.SortedIntMap;
+
+/**
+ * A robot brain's table of each player's expected production from each land hex,
+ * which is how much that player would lose each roll while the robber is on that hex.
+ * Kept up to date as settlements and cities are placed, so that {@link RobberStrategy}
+ * can look up any hex's impact on any player without recalculating production.
+ *<P>
+ * Impact is measured in 36ths of a resource per dice roll: The number of ways to roll
+ * the hex's dice number (5 for a 6 or 8, 1 for a 2 or 12), times 1 for each adjacent settlement
+ * and 2 for each adjacent city.  A settlement on a 6-hex and an 8-hex has an impact of 5 on each.
+ * A gold hex counts as 1 resource.  Deserts and other hexes without a dice number have no impact.
+ *<P>
+ * Each brain has its own table, because each brain has its own copy of the game.
+ * The table is built from the board and pieces the first time it's used,
+ * since the board layout isn't known when the brain is created; after that,
+ * the brain calls {@link #setPiece(SOCPlayingPiece)} and {@link #removePiece(int)}
+ * as pieces are placed or cancelled, and {@link #hexRevealed(int)} when a hex hidden by fog is revealed.
+ * Setting a node's piece is idempotent, so it's safe to call for a piece already counted while the table was built.
+ *<P>
+ * Not thread-safe: Meant to be used only by its brain's thread.
+ *
+ * @since 2.0.00
+ */
+public class HexImpactTable
+{
+    /** Our game */
+    private final SOCGame game;
+
+    /** Land hex coordinates in ascending order, or null if the table hasn't been built yet. */
+    private int[] hexes;
+
+    /** Number of ways to roll each hex's dice number; same indexes as {@link #hexes}. */
+    private int[] hexWays;
+
+    /** Impact per player per hex, same indexes as {@link #hexes}: <tt>impact[pn][hexIndex]</tt>. */
+    private int[][] impact;
+
+    /**
+     * Settlement and city node coordinates counted in {@link #impact}.
+     * Each value is <tt>(playerNumber << 2) | level</tt>, where level is 1 for a settlement or 2 for a city.
+     */
+    private final SortedIntMap<Integer> nodePieces = new SortedIntMap<Integer>();
+
+    /**
+     * Create a table for this game.
+     * The table will be built from the game's board and pieces when first used.
+     * @param game  Our brain's game
+     */
+    public HexImpactTable(final SOCGame game)
+    {
+        this.game = game;
+    }
+
+    /**
+     * Number of ways to roll a dice number with 2 dice.
+     * @param diceNum  Dice number on a hex
+     * @return  1 to 5 for 2 to 12, or 0 for 7 or any other number
+     */
+    public static int getDiceWays(final int diceNum)
+    {
+        if ((diceNum < 2) || (diceNum > 12) || (diceNum == 7))
+            return 0;
+
+        return 6 - Math.abs(7 - diceNum);
+    }
+
+    /**
+     * Build the table if needed from the board's land hexes and all players' settlements and cities.
+     * @return  True if built, false if the board has no land hexes yet
+     */
+    private boolean ensureBuilt()
+    {
+        if (hexes != null)
+            return true;
+
+        final SOCBoard board = game.getBoard();
+        final int[] landHexes = board.getLandHexCoords();
+        if (landHexes == null)
+            return false;
+
+        final int[] sorted = new int[landHexes.length];
+        System.arraycopy(landHexes, 0, sorted, 0, landHexes.length);
+        Arrays.sort(sorted);
+        hexWays = new int[sorted.length];
+        for (int i = 0; i < sorted.length; ++i)
+            hexWays[i] = getDiceWays(board.getNumberOnHexFromCoord(sorted[i]));
+        impact = new int[game.maxPlayers][sorted.length];
+        hexes = sorted;
+
+        for (int pn = 0; pn < game.maxPlayers; ++pn)
+        {
+            final SOCPlayer pl = game.getPlayer(pn);
+            for (SOCSettlement se : pl.getSettlements())
+                setNode(pn, se.getCoordinates(), 1);
+            for (SOCCity ci : pl.getCities())
+                setNode(pn, ci.getCoordinates(), 2);
+        }
+
+        return true;
+    }
+
+    /**
+     * Count a newly placed settlement or city, replacing any piece counted at its node.
+     * Other piece types are ignored.
+     * @param piece  A settlement or city which has been placed
+     */
+    public void setPiece(final SOCPlayingPiece piece)
+    {
+        final int level;
+        switch (piece.getType())
+        {
+        case SOCPlayingPiece.SETTLEMENT:
+            level = 1;
+            break;
+
+        case SOCPlayingPiece.CITY:
+            level = 2;
+            break;
+
+        default:
+            return;
+        }
+
+        if (ensureBuilt())
+            setNode(piece.getPlayerNumber(), piece.getCoordinates(), level);
+    }
+
+    /**
+     * Remove the settlement or city counted at a node, such as a cancelled settlement placement.
+     * @param nodeCoord  Node coordinate; does nothing if no piece is counted there
+     */
+    public void removePiece(final int nodeCoord)
+    {
+        if (ensureBuilt())
+            setNode(0, nodeCoord, 0);
+    }
+
+    /**
+     * Set the piece level at a node and update the impact of its adjacent hexes.
+     * @param pn  Piece's player number; ignored if <tt>level</tt> is 0
+     * @param node  Node coordinate
+     * @param level  1 for a settlement, 2 for a city, 0 for no piece
+     */
+    private void setNode(final int pn, final int node, final int level)
+    {
+        final Integer prev = nodePieces.get(node);
+        if (prev != null)
+        {
+            final int p = prev.intValue();
+            if ((level != 0) && (p == ((pn << 2) | level)))
+                return;  // already counted
+            addToAdjacentHexes(p >> 2, node, -(p & 3));
+        }
+
+        if (level == 0)
+        {
+            nodePieces.remove(node);
+            return;
+        }
+
+        nodePieces.put(node, Integer.valueOf((pn << 2) | level));
+        addToAdjacentHexes(pn, node, level);
+    }
+
+    /**
+     * Add to a player's impact on each land hex adjacent to a node.
+     * @param pn  Player number
+     * @param node  Node coordinate
+     * @param mult  Number of resources per roll to add, such as 2 for a city or -1 to remove a settlement
+     */
+    private void addToAdjacentHexes(final int pn, final int node, final int mult)
+    {
+        final Vector<Integer> adjacs = game.getBoard().getAdjacentHexesToNode(node);
+        if (adjacs == null)
+            return;
+
+        final int[] pImpact = impact[pn];
+        for (Integer hex : adjacs)
+        {
+            final int i = Arrays.binarySearch(hexes, hex.intValue());
+            if (i >= 0)
+                pImpact[i] += mult * hexWays[i];
+        }
+    }
+
+    /**
+     * Update the table for a hex hidden by fog which has been revealed, since its dice number has changed.
+     * Call after the game's board has been updated.
+     * @param hexCoord  Coordinate of the revealed hex
+     */
+    public void hexRevealed(final int hexCoord)
+    {
+        if (hexes == null)
+            return;  // not built yet; will be built from the revealed board
+
+        final SOCBoard board = game.getBoard();
+        final int i = Arrays.binarySearch(hexes, hexCoord);
+        if (i < 0)
+        {
+            // not a land hex when the table was built; rebuild with the new land hexes
+            hexes = null;
+            nodePieces.clear();
+            return;
+        }
+
+        final int ways = getDiceWays(board.getNumberOnHexFromCoord(hexCoord));
+        final int delta = ways - hexWays[i];
+        if (delta == 0)
+            return;
+
+        hexWays[i] = ways;
+        final int[] nodes = board.getAdjacentNodesToHex(hexCoord);
+        for (int j = 0; j < nodes.length; ++j)
+        {
+            final Integer piece = nodePieces.get(nodes[j]);
+            if (piece != null)
+            {
+                final int p = piece.intValue();
+                impact[p >> 2][i] += (p & 3) * delta;
+            }
+        }
+    }
+
+    /**
+     * Get a player's expected production from a hex, which the robber would block.
+     * @param pn  Player number
+     * @param hexCoord  Hex coordinate
+     * @return  Impact in 36ths of a resource per roll, or 0 if <tt>hexCoord</tt> isn't a land hex
+     */
+    public int getImpact(final int pn, final int hexCoord)
+    {
+        if (! ensureBuilt())
+            return 0;
+
+        final int i = Arrays.binarySearch(hexes, hexCoord);
+        return (i >= 0) ? impact[pn][i] : 0;
+    }
+
+}
@@ -0,0 +1,1069 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2013 JSettlers contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.robot;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import soc.disableDebug.D;
+import soc.game.SOCBoard;
+import soc.game.SOCDevCardConstants;
+import soc.game.SOCGame;
+import soc.game.SOCPlayer;
+import soc.game.SOCPlayingPiece;
+import soc.game.SOCResourceConstants;
+import soc.game.SOCResourceSet;
+import soc.game.SOCSettlement;
+import soc.util.SOCSplittableRandom;
+
+/**
+ * Decision maker for {@link MonteCarloRobotBrain}: Picks what to build next
+ * by running many random playouts of the rest of the game for each candidate piece.
+ *<P>
+ * {@link #planStuff(int)} first plans as usual with {@link SOCRobotDM}, which finds the
+ * favorite settlement, city, and road we could build now, and whether to buy a card.
+ * Then for each candidate, it runs playouts: Each playout builds that candidate first, then plays
+ * every seated player's turns in order until someone wins.  Each turn rolls random dice, everyone
+ * collects their production, and the player whose turn it is greedily builds cities, settlements
+ * with the roads they need, and cards, trading with the bank or their ports when needed.
+ * The candidate whose playouts we win most often replaces the building plan;
+ * ties go to the one with more VP when its playouts ended.
+ *<P>
+ * The playouts don't play on a fork of the {@link SOCGame}; they use a simple model of the game:
+ *<UL>
+ * <LI> Each player's production per hex from their settlements and cities, the possible settlements
+ *      their {@link SOCPlayerTracker} knows about and the roads each one needs, and their port trade ratios.
+ *      A settlement built by anyone takes its node and the nodes next to it from all players.
+ * <LI> Opponents' resources we don't know are dealt out at random for each playout.
+ * <LI> Rolling a 7 makes everyone with more than 7 resources discard half. Then the roller, and anyone
+ *      who buys a knight card, moves the robber to the hex which hurts the other players most,
+ *      weighted by their VP, and steals a random resource from the leader there.
+ *      The hex with the robber produces nothing.
+ * <LI> Cards bought are victory points or knights in their usual proportions; knights count toward largest army.
+ *</UL>
+ * Longest road doesn't change during a playout, opponents' unknown VP cards aren't counted,
+ * and players don't trade with each other.
+ * A game can be forked by serializing it, as {@link SOCRobotDM} does to score candidates in parallel,
+ * but that takes a few milliseconds, more than a whole playout on this model,
+ * so only a few dozen playouts per candidate would fit in the time limit.
+ *<P>
+ * To compare these robots with the built-in ones, run {@code soc.server.MonteCarloBenchmark}.
+ *<P>
+ * Playouts run in parallel on {@link SOCRobotDM#getScoringPool()}, and stop at the time limit given to
+ * the constructor or when our {@link SOCRobotDM#decisionBudget} runs out, whichever is first.
+ * Games on the large sea board, and turns where we'll play a Road Building card, use {@link SOCRobotDM}'s plan.
+ *
+ * @since 2.0.00
+ */
+public class MonteCarloDM extends SOCRobotDM
+{
+    /** Default number of playouts to run for each candidate piece. */
+    public static final int DEFAULT_ROLLOUTS_PER_CANDIDATE = 400;
+
+    /** Default time limit for all of one plan's playouts, in milliseconds. */
+    public static final int DEFAULT_ROLLOUT_MAX_MILLIS = 500;
+
+    /**
+     * Maximum number of rounds of turns in a playout.
+     * A playout which nobody wins by then is scored by our VP.
+     */
+    private static final int ROLLOUT_MAX_ROUNDS = 100;
+
+    /** Fraction of dev cards which are victory point cards, for playouts which buy cards: 5 of 25. */
+    private static final float VP_CARD_FRACTION = 5f / 25f;
+
+    /** Fraction of dev cards which are knights, for playouts which buy cards: 14 of 25. */
+    private static final float KNIGHT_CARD_FRACTION = 14f / 25f;
+
+    /** Index of each resource in the playout arrays is resource type - 1, for {@link SOCResourceConstants#CLAY} to WOOD. */
+    private static final int NRES = SOCResourceConstants.WOOD;
+
+    /** Resources to build each piece type, indexed by {@link #ROAD} etc. */
+    private static final int[][] COSTS = new int[4][];
+
+    /** Index into {@link #COSTS}. */
+    private static final int ROAD = 0, SETTLEMENT = 1, CITY = 2, CARD = 3;
+
+    static
+    {
+        final SOCResourceSet[] sets =
+            { SOCGame.ROAD_SET, SOCGame.SETTLEMENT_SET, SOCGame.CITY_SET, SOCGame.CARD_SET };
+        for (int i = 0; i < sets.length; ++i)
+        {
+            COSTS[i] = new int[NRES];
+            for (int r = 0; r < NRES; ++r)
+                COSTS[i][r] = sets[i].getAmount(r + 1);
+        }
+    }
+
+    /** Number of playouts to run for each candidate piece; 0 to always use {@link SOCRobotDM}'s plan. */
+    private final int rolloutsPerCandidate;
+
+    /**
+     * Time limit for all of one plan's playouts, in milliseconds.
+     * Candidates are scored with the playouts finished by then.
+     */
+    private final int rolloutMaxMillis;
+
+    /** Random seeds for each plan's playout tasks; split from the brain's generator, so repeatable if it's seeded. */
+    private final Random seeds;
+
+    /**
+     * Create a decision maker for a brain, with {@link #DEFAULT_ROLLOUTS_PER_CANDIDATE}
+     * and {@link #DEFAULT_ROLLOUT_MAX_MILLIS}.
+     * @param br  the robot brain
+     */
+    public MonteCarloDM(SOCRobotBrain br)
+    {
+        this(br, DEFAULT_ROLLOUTS_PER_CANDIDATE, DEFAULT_ROLLOUT_MAX_MILLIS);
+    }
+
+    /**
+     * Create a decision maker for a brain.
+     * @param br  the robot brain
+     * @param rolloutsPerCandidate  Number of playouts to run for each candidate piece,
+     *     or 0 to always use {@link SOCRobotDM}'s plan
+     * @param rolloutMaxMillis  Time limit for all of one plan's playouts, in milliseconds
+     */
+    public MonteCarloDM(SOCRobotBrain br, final int rolloutsPerCandidate, final int rolloutMaxMillis)
+    {
+        super(br);
+        this.rolloutsPerCandidate = rolloutsPerCandidate;
+        this.rolloutMaxMillis = rolloutMaxMillis;
+        seeds = br.rand.split();
+    }
+
+    /**
+     * Make building plans with {@link SOCRobotDM#planStuff(int)}, then choose among the candidate
+     * pieces it scored by running playouts.  See class javadoc for details.
+     * Both share one {@link SOCRobotDM#decisionBudget}.
+     * @param strategy  an integer that determines which strategy is used (SMART_STRATEGY | FAST_STRATEGY)
+     */
+    @Override
+    public void planStuff(final int strategy)
+    {
+        decisionBudget.begin(DecisionTimeBudget.PLAN);
+        try
+        {
+            super.planStuff(strategy);
+            planWithPlayouts();
+        }
+        finally
+        {
+            decisionBudget.end();
+        }
+    }
+
+    /**
+     * Choose among the candidate pieces found by {@link SOCRobotDM#planStuff(int)} by running playouts,
+     * and replace the building plan with the best one.
+     */
+    private void planWithPlayouts()
+    {
+        if (game.hasSeaBoard || (rolloutsPerCandidate <= 0))
+            return;
+        if ((! ourPlayerData.hasPlayedDevCard())
+            && ourPlayerData.getInventory().hasPlayable(SOCDevCardConstants.ROADS))
+            return;  // keep the plan's 2 roads for the Road Building card
+
+        Vector<SOCPossiblePiece> candidates = new Vector<SOCPossiblePiece>();
+        if ((favoriteSettlement != null) && favoriteSettlement.getNecessaryRoads().isEmpty()
+            && (ourPlayerData.getNumPieces(SOCPlayingPiece.SETTLEMENT) > 0))
+            candidates.addElement(favoriteSettlement);
+        if ((favoriteCity != null) && (ourPlayerData.getNumPieces(SOCPlayingPiece.CITY) > 0))
+            candidates.addElement(favoriteCity);
+        if ((favoriteRoad != null) && favoriteRoad.isRoadNotShip()
+            && (ourPlayerData.getNumPieces(SOCPlayingPiece.ROAD) > 0))
+            candidates.addElement(favoriteRoad);
+        if ((game.getNumDevCards() > 0) && ! game.isSpecialBuilding()
+            && (game.getCurrentPlayerNumber() == ourPlayerData.getPlayerNumber()))
+            candidates.addElement((possibleCard != null) ? possibleCard : new SOCPossibleCard(ourPlayerData, 1));
+
+        if (candidates.size() < 2)
+            return;
+
+        final Playout model = new Playout(this);
+        final long[][] totals = runPlayouts(model, candidates);
+
+        int best = -1;
+        float bestWins = 0f, bestVP = 0f;
+        for (int i = 0; i < candidates.size(); ++i)
+        {
+            final long done = totals[i][2];
+            if (done == 0)
+                continue;
+            final float wins = (float) totals[i][0] / done, vp = (float) totals[i][1] / done;
+            D.ebugPrintln("MC: " + candidates.elementAt(i) + " win rate " + wins + ", avg VP " + vp
+                + " in " + done + " playouts");
+            if ((best == -1) || (wins > bestWins) || ((wins == bestWins) && (vp > bestVP)))
+            {
+                best = i;
+                bestWins = wins;
+                bestVP = vp;
+            }
+        }
+        if (best == -1)
+            return;
+
+        final SOCPossiblePiece chosen = candidates.elementAt(best);
+        if (buildingPlan.isEmpty() || (buildingPlan.peek() != chosen))
+        {
+            D.ebugPrintln("MC: replacing plan with " + chosen);
+            buildingPlan.clear();
+            buildingPlan.push(chosen);
+        }
+    }
+
+    /**
+     * Run the playouts for each candidate, split into one task per pool thread.
+     * @param model  Starting state for the playouts
+     * @param candidates  Candidate pieces to build first
+     * @return  For each candidate, the totals from {@link Playout#run(SOCPossiblePiece, int, Random, long)}:
+     *     playouts we won, our VP at the end of each playout, and playouts finished
+     */
+    private long[][] runPlayouts(final Playout model, final Vector<SOCPossiblePiece> candidates)
+    {
+        final int nCand = candidates.size();
+        final long deadline = Math.min
+            (System.currentTimeMillis() + rolloutMaxMillis, decisionBudget.getDeadline());
+        final ExecutorService pool = getScoringPool();
+        final int nTasks = (pool != null) ? Runtime.getRuntime().availableProcessors() : 1;
+        final int perTask = (rolloutsPerCandidate + nTasks - 1) / nTasks;
+
+        final long[][] totals = new long[nCand][3];
+
+        Vector<Future<long[]>> futures = new Vector<Future<long[]>>();
+        for (int c = 0; c < nCand; ++c)
+        {
+            final SOCPossiblePiece cand = candidates.elementAt(c);
+            for (int t = 0; t < nTasks; ++t)
+            {
+                final long seed = seeds.nextLong();
+                Callable<long[]> task = new Callable<long[]>()
+                {
+                    public long[] call()
+                    {
+                        return model.run(cand, perTask, new SOCSplittableRandom(seed), deadline);
+                    }
+                };
+
+                if (pool != null)
+                {
+                    futures.addElement(pool.submit(task));
+                } else {
+                    try
+                    {
+                        add(totals[c], task.call());
+                    }
+                    catch (Exception e) {}
+                }
+            }
+        }
+
+        for (int i = 0; i < futures.size(); ++i)
+        {
+            try
+            {
+                add(totals[i / nTasks], futures.elementAt(i).get());
+            }
+            catch (Exception e)
+            {
+                D.ebugPrintln("MC: playout task failed: " + e);
+            }
+        }
+
+        return totals;
+    }
+
+    /** Add each element of <tt>b</tt> into <tt>a</tt>. */
+    private static void add(final long[] a, final long[] b)
+    {
+        for (int i = 0; i < a.length; ++i)
+            a[i] += b[i];
+    }
+
+    /**
+     * Starting state and rules for playouts, copied from the game and our player trackers when planning.
+     * Read-only once built, so playout tasks can share it; each playout works on its own {@link State}.
+     *<P>
+     * Players are indexed in turn order starting with us at index 0.
+     * Hexes are indexed from 0 for each land hex which produces resources.
+     * Nodes are indexed from 0 for each node with a settlement or possible settlement.
+     */
+    private static final class Playout
+    {
+        /** Number of players */
+        final int np;
+
+        /** Each player's known resources, <tt>[player][rtype - 1]</tt> */
+        final int[][] resources;
+
+        /** Number of each opponent's resources we don't know the type of */
+        final int[] unknown;
+
+        /** Resources each player gives up per resource received in a bank or port trade, <tt>[player][rtype - 1]</tt> */
+        final int[][] tradeRatio;
+
+        /** Each player's VP: Our total, and opponents' public VP */
+        final int[] vp;
+
+        /** VP needed to win */
+        final int vpToWin;
+
+        /** Each player's pieces left, <tt>[player][{@link #ROAD}, {@link #SETTLEMENT} or {@link #CITY}]</tt> */
+        final int[][] piecesLeft;
+
+        /** Dev cards left to buy */
+        final int cardsLeft;
+
+        /** Knights each player has played */
+        final int[] knights;
+
+        /** Player with largest army, or -1 */
+        final int armyPlayer;
+
+        /** Dice number and resource type - 1 of each hex */
+        final int[] hexDice, hexRes;
+
+        /** Hexes for each dice number: <tt>diceHexes[dice]</tt> */
+        final int[][] diceHexes;
+
+        /** Hex with the robber, or -1 if it's on a hex which doesn't produce */
+        final int robberHex;
+
+        /** Resources each player receives when each hex produces, <tt>[player][hex]</tt> */
+        final int[][] hexProd;
+
+        /** Hexes next to each node */
+        final int[][] nodeHexes;
+
+        /** Production of each node, weighted by dice probability, for picking the best node */
+        final int[] nodeWeight;
+
+        /** Each node and the indexed nodes next to it, which a settlement at that node takes from all players */
+        final int[][] nodeBlocks;
+
+        /** Each player's settlements, which could become cities, as node indexes */
+        final int[][] settlements;
+
+        /** Each player's possible settlements, as node indexes */
+        final int[][] settleNodes;
+
+        /** Edge coordinates of the roads each player's possible settlement needs: <tt>[player][i][]</tt>; may be empty */
+        final int[][][] settleRoads;
+
+        /** Node coordinate of each node index, while building this model */
+        private final Vector<Integer> nodeCoords = new Vector<Integer>();
+
+        /** Node index of each node coordinate, while building this model */
+        private final HashMap<Integer, Integer> nodeIndexes = new HashMap<Integer, Integer>();
+
+        Playout(final MonteCarloDM dm)
+        {
+            final SOCGame game = dm.game;
+            final SOCBoard board = game.getBoard();
+
+            final int ourPN = dm.ourPlayerData.getPlayerNumber();
+            final int[] pns = new int[game.maxPlayers];
+            int n = 0;
+            for (int i = 0; i < game.maxPlayers; ++i)
+            {
+                final int pn = (ourPN + i) % game.maxPlayers;
+                if ((pn == ourPN) || ! game.isSeatVacant(pn))
+                    pns[n++] = pn;
+            }
+            np = n;
+
+            // hexes
+            final int[] landHexes = board.getLandHexCoords();
+            final HashMap<Integer, Integer> hexIndexes = new HashMap<Integer, Integer>();
+            int[] hd = new int[landHexes.length], hr = new int[landHexes.length];
+            int nHex = 0;
+            for (int i = 0; i < landHexes.length; ++i)
+            {
+                final int dice = board.getNumberOnHexFromCoord(landHexes[i]);
+                final int rtype = board.getHexTypeFromCoord(landHexes[i]);
+                if ((dice > 0) && (rtype >= SOCResourceConstants.CLAY) && (rtype <= SOCResourceConstants.WOOD))
+                {
+                    hexIndexes.put(Integer.valueOf(landHexes[i]), Integer.valueOf(nHex));
+                    hd[nHex] = dice;
+                    hr[nHex] = rtype - 1;
+                    ++nHex;
+                }
+            }
+            hexDice = new int[nHex];
+            hexRes = new int[nHex];
+            System.arraycopy(hd, 0, hexDice, 0, nHex);
+            System.arraycopy(hr, 0, hexRes, 0, nHex);
+            diceHexes = new int[13][];
+            for (int dice = 2; dice <= 12; ++dice)
+            {
+                int c = 0;
+                for (int h = 0; h < nHex; ++h)
+                    if (hexDice[h] == dice)
+                        ++c;
+                diceHexes[dice] = new int[c];
+                c = 0;
+                for (int h = 0; h < nHex; ++h)
+                    if (hexDice[h] == dice)
+                        diceHexes[dice][c++] = h;
+            }
+            final Integer rh = hexIndexes.get(Integer.valueOf(board.getRobberHex()));
+            robberHex = (rh != null) ? rh.intValue() : -1;
+
+            // players
+            resources = new int[np][NRES];
+            unknown = new int[np];
+            tradeRatio = new int[np][NRES];
+            vp = new int[np];
+            vpToWin = game.vp_winner;
+            piecesLeft = new int[np][3];
+            cardsLeft = game.getNumDevCards();
+            knights = new int[np];
+            hexProd = new int[np][nHex];
+            settlements = new int[np][];
+            settleNodes = new int[np][];
+            settleRoads = new int[np][][];
+            final SOCPlayer armyPl = game.getPlayerWithLargestArmy();
+            int ap = -1;
+            for (int p = 0; p < np; ++p)
+            {
+                final SOCPlayer pl = game.getPlayer(pns[p]);
+                if (pl == armyPl)
+                    ap = p;
+
+                final SOCResourceSet rs = pl.getResources();
+                for (int r = 0; r < NRES; ++r)
+                {
+                    resources[p][r] = rs.getAmount(r + 1);
+                    if (pl.getPortFlag(r + 1))
+                        tradeRatio[p][r] = 2;
+                    else if (pl.getPortFlag(SOCBoard.MISC_PORT))
+                        tradeRatio[p][r] = 3;
+                    else
+                        tradeRatio[p][r] = 4;
+                }
+                if (p > 0)
+                    unknown[p] = rs.getAmount(SOCResourceConstants.UNKNOWN);
+
+                vp[p] = (p == 0) ? pl.getTotalVP() : pl.getPublicVP();
+                piecesLeft[p][ROAD] = pl.getNumPieces(SOCPlayingPiece.ROAD);
+                piecesLeft[p][SETTLEMENT] = pl.getNumPieces(SOCPlayingPiece.SETTLEMENT);
+                piecesLeft[p][CITY] = pl.getNumPieces(SOCPlayingPiece.CITY);
+                knights[p] = pl.getNumKnights();
+
+                final Vector<SOCSettlement> setts = pl.getSettlements();
+                settlements[p] = new int[setts.size()];
+                for (int i = 0; i < settlements[p].length; ++i)
+                    settlements[p][i] = nodeIndex(setts.elementAt(i).getCoordinates());
+                for (SOCPlayingPiece pp : pl.getPieces())
+                {
+                    if ((pp.getType() != SOCPlayingPiece.SETTLEMENT) && (pp.getType() != SOCPlayingPiece.CITY))
+                        continue;
+                    final int amount = (pp.getType() == SOCPlayingPiece.CITY) ? 2 : 1;
+                    for (Integer hex : board.getAdjacentHexesToNode(pp.getCoordinates()))
+                    {
+                        final Integer h = hexIndexes.get(hex);
+                        if (h != null)
+                            hexProd[p][h.intValue()] += amount;
+                    }
+                }
+
+                final SOCPlayerTracker tr = dm.playerTrackers.get(Integer.valueOf(pns[p]));
+                final int nps = (tr != null) ? tr.getPossibleSettlements().size() : 0;
+                settleNodes[p] = new int[nps];
+                settleRoads[p] = new int[nps][];
+                if (nps == 0)
+                    continue;
+                int i = 0;
+                for (SOCPossibleSettlement ps : tr.getPossibleSettlements().values())
+                {
+                    settleNodes[p][i] = nodeIndex(ps.getCoordinates());
+                    settleRoads[p][i] = necessaryRoads(ps);
+                    ++i;
+                }
+            }
+            armyPlayer = ap;
+
+            // nodes
+            final int nNodes = nodeCoords.size();
+            nodeHexes = new int[nNodes][];
+            nodeWeight = new int[nNodes];
+            nodeBlocks = new int[nNodes][];
+            for (int i = 0; i < nNodes; ++i)
+            {
+                final int node = nodeCoords.elementAt(i).intValue();
+
+                final Vector<Integer> hexes = board.getAdjacentHexesToNode(node);
+                int[] nh = new int[hexes.size()];
+                int c = 0;
+                for (Integer hex : hexes)
+                {
+                    final Integer h = hexIndexes.get(hex);
+                    if (h != null)
+                    {
+                        nh[c++] = h.intValue();
+                        nodeWeight[i] += SOCNumberProbabilities.INT_VALUES[hexDice[h.intValue()]];
+                    }
+                }
+                nodeHexes[i] = trim(nh, c);
+
+                final Vector<Integer> adjacent = board.getAdjacentNodesToNode(node);
+                int[] nb = new int[1 + adjacent.size()];
+                nb[0] = i;
+                c = 1;
+                for (Integer adj : adjacent)
+                {
+                    final Integer j = nodeIndexes.get(adj);
+                    if (j != null)
+                        nb[c++] = j.intValue();
+                }
+                nodeBlocks[i] = trim(nb, c);
+            }
+        }
+
+        /**
+         * Get a node's index, adding it if new.  For use while building this model.
+         * @param node  Node coordinate
+         * @return  Its index in {@link #nodeHexes} etc
+         */
+        private int nodeIndex(final int node)
+        {
+            final Integer key = Integer.valueOf(node);
+            Integer idx = nodeIndexes.get(key);
+            if (idx == null)
+            {
+                idx = Integer.valueOf(nodeCoords.size());
+                nodeIndexes.put(key, idx);
+                nodeCoords.addElement(key);
+            }
+
+            return idx.intValue();
+        }
+
+        /**
+         * Get the roads a possible settlement needs, following the first chain
+         * of necessary roads back to its player's road network.
+         * @param ps  Possible settlement
+         * @return  Edge coordinates of the roads it needs; may be empty
+         */
+        private static int[] necessaryRoads(final SOCPossibleSettlement ps)
+        {
+            final int[] edges = new int[ps.getNumberOfNecessaryRoads()];
+            int nEdges = 0;
+            Vector<SOCPossibleRoad> nr = ps.getNecessaryRoads();
+            while (! nr.isEmpty() && (nEdges < edges.length))
+            {
+                final SOCPossibleRoad rd = nr.firstElement();
+                edges[nEdges++] = rd.getCoordinates();
+                nr = rd.getNecessaryRoads();
+            }
+
+            return trim(edges, nEdges);
+        }
+
+        /** Get the first <tt>n</tt> elements of <tt>a</tt>, or <tt>a</tt> itself if that's all of it. */
+        private static int[] trim(final int[] a, final int n)
+        {
+            if (n == a.length)
+                return a;
+
+            final int[] t = new int[n];
+            System.arraycopy(a, 0, t, 0, n);
+            return t;
+        }
+
+        /**
+         * Get a node's index, if it's in this model.
+         * @param node  Node coordinate
+         * @return  Its index, or -1
+         */
+        int findNode(final int node)
+        {
+            final Integer idx = nodeIndexes.get(Integer.valueOf(node));
+            return (idx != null) ? idx.intValue() : -1;
+        }
+
+        /**
+         * Run playouts which build <tt>first</tt> before anything else.
+         * @param first  Candidate piece to build first
+         * @param n  Number of playouts to run
+         * @param rand  Random source for this task
+         * @param deadline  Stop before starting a playout at or after this time
+         * @return  Number of playouts we won, total of our VP at the end of each playout,
+         *     and number of playouts finished
+         */
+        long[] run(final SOCPossiblePiece first, final int n, final Random rand, final long deadline)
+        {
+            long wins = 0, totalVP = 0;
+            int done = 0;
+            for (; done < n; ++done)
+            {
+                if (System.currentTimeMillis() >= deadline)
+                    break;
+                final State st = new State(rand);
+                if (st.play(first) == 0)
+                    ++wins;
+                totalVP += st.vp[0];
+            }
+
+            return new long[]{ wins, totalVP, done };
+        }
+
+        /**
+         * One playout's state, starting from a copy of the model's.
+         */
+        private final class State
+        {
+            final Random rand;
+            final int[][] res = new int[np][];
+            final int[][] prod = new int[np][];
+            final int[][] left = new int[np][];
+            final int[] vp = Playout.this.vp.clone();
+            final int[] knights = Playout.this.knights.clone();
+            int armyPlayer = Playout.this.armyPlayer;
+            int cardsLeft = Playout.this.cardsLeft;
+            int robberHex = Playout.this.robberHex;
+
+            /** Each player's settlements; <tt>nSett[p]</tt> of each are in use */
+            final int[][] sett = new int[np][];
+            final int[] nSett = new int[np];
+
+            /** Each player's roads built during the playout; <tt>nRoads[p]</tt> of each are in use */
+            final int[][] roads = new int[np][];
+            final int[] nRoads = new int[np];
+
+            /** Nodes taken by a settlement, or next to one, during the playout */
+            final boolean[] blocked = new boolean[nodeHexes.length];
+
+            /** Candidate piece we'll build before anything else, until we can pay for it; or null */
+            SOCPossiblePiece pending;
+
+            State(final Random rand)
+            {
+                this.rand = rand;
+                for (int p = 0; p < np; ++p)
+                {
+                    res[p] = resources[p].clone();
+                    for (int u = unknown[p]; u > 0; --u)
+                        ++res[p][rand.nextInt(NRES)];
+                    prod[p] = hexProd[p].clone();
+                    left[p] = piecesLeft[p].clone();
+                    sett[p] = new int[settlements[p].length + settleNodes[p].length];
+                    System.arraycopy(settlements[p], 0, sett[p], 0, settlements[p].length);
+                    nSett[p] = settlements[p].length;
+                    roads[p] = new int[left[p][ROAD]];
+                }
+            }
+
+            /**
+             * Play out the game: Build <tt>first</tt> and anything else we can this turn,
+             * then play turns in order until someone wins or {@link MonteCarloDM#ROLLOUT_MAX_ROUNDS}.
+             * @param first  Candidate piece for us to build first
+             * @return  Index of the player who won, or -1 if nobody did
+             */
+            int play(final SOCPossiblePiece first)
+            {
+                pending = first;
+                if (build(0))
+                    return 0;
+
+                for (int turn = 1; turn <= ROLLOUT_MAX_ROUNDS * np; ++turn)
+                {
+                    final int p = turn % np;
+                    roll(p);
+                    if (build(p))
+                        return p;
+                }
+
+                return -1;
+            }
+
+            /**
+             * Roll the dice for player <tt>p</tt>'s turn: Everyone collects their production,
+             * or on 7, discards and <tt>p</tt> moves the robber.
+             */
+            private void roll(final int p)
+            {
+                final int dice = 2 + rand.nextInt(6) + rand.nextInt(6);
+                if (dice == 7)
+                {
+                    for (int q = 0; q < np; ++q)
+                        discardHalf(res[q]);
+                    moveRobber(p);
+                    return;
+                }
+
+                final int[] hexes = diceHexes[dice];
+                for (int i = 0; i < hexes.length; ++i)
+                {
+                    final int h = hexes[i];
+                    if (h == robberHex)
+                        continue;
+                    final int r = hexRes[h];
+                    for (int q = 0; q < np; ++q)
+                        res[q][r] += prod[q][h];
+                }
+            }
+
+            /**
+             * Player <tt>p</tt> moves the robber to the hex where the other players produce the most,
+             * weighted by dice probability and their VP, skipping hexes where <tt>p</tt> produces.
+             * Then steals a random resource from the player there with the most VP.
+             */
+            private void moveRobber(final int p)
+            {
+                int bestH = -1, bestScore = 0;
+                for (int h = 0; h < hexDice.length; ++h)
+                {
+                    if ((h == robberHex) || (prod[p][h] > 0))
+                        continue;
+                    int score = 0;
+                    for (int q = 0; q < np; ++q)
+                        score += prod[q][h] * (1 + vp[q]);
+                    score *= SOCNumberProbabilities.INT_VALUES[hexDice[h]];
+                    if (score > bestScore)
+                    {
+                        bestScore = score;
+                        bestH = h;
+                    }
+                }
+                if (bestH == -1)
+                    return;
+                robberHex = bestH;
+
+                int victim = -1;
+                for (int q = 0; q < np; ++q)
+                    if ((q != p) && (prod[q][bestH] > 0) && (total(res[q]) > 0)
+                        && ((victim == -1) || (vp[q] > vp[victim])))
+                        victim = q;
+                if (victim != -1)
+                    ++res[p][takeRandom(res[victim])];
+            }
+
+            /**
+             * Player <tt>p</tt> builds as much as it can this turn.
+             * If it's us and {@link #pending} can't be paid for yet, ends the turn without building anything else.
+             * @param p  Player index
+             * @return  True if <tt>p</tt> won
+             */
+            private boolean build(final int p)
+            {
+                final int[] r = res[p], ratio = tradeRatio[p], lf = left[p];
+                for (;;)
+                {
+                    if ((p == 0) && (pending != null))
+                    {
+                        final int ptype = pending.getType();
+                        int node = -1;
+                        if ((ptype == SOCPossiblePiece.SETTLEMENT) || (ptype == SOCPossiblePiece.CITY))
+                        {
+                            node = findNode(pending.getCoordinates());
+                            if ((ptype == SOCPossiblePiece.SETTLEMENT) && (node != -1) && blocked[node])
+                            {
+                                pending = null;  // someone built there first
+                                continue;
+                            }
+                        }
+
+                        final int cost = (ptype == SOCPossiblePiece.SETTLEMENT) ? SETTLEMENT
+                            : (ptype == SOCPossiblePiece.CITY) ? CITY
+                            : (ptype == SOCPossiblePiece.ROAD) ? ROAD : CARD;
+                        if (! pay(r, ratio, COSTS[cost], null, 0))
+                            return false;
+
+                        if (ptype == SOCPossiblePiece.SETTLEMENT)
+                        {
+                            --lf[SETTLEMENT];
+                            ++vp[p];
+                            if (node != -1)
+                                settle(p, node);
+                        }
+                        else if (ptype == SOCPossiblePiece.CITY)
+                        {
+                            int i = nSett[p] - 1;
+                            while ((i >= 0) && (sett[p][i] != node))
+                                --i;
+                            if (i >= 0)
+                            {
+                                upgrade(p, i);
+                            } else {
+                                --lf[CITY];
+                                ++lf[SETTLEMENT];
+                                ++vp[p];
+                            }
+                        }
+                        else if (ptype == SOCPossiblePiece.ROAD)
+                        {
+                            --lf[ROAD];
+                            roads[p][nRoads[p]++] = pending.getCoordinates();
+                        }
+                        else
+                        {
+                            buyCard(p);
+                        }
+                        pending = null;
+                    }
+                    else if ((nSett[p] > 0) && (lf[CITY] > 0) && pay(r, ratio, COSTS[CITY], null, 0))
+                    {
+                        // upgrade the most productive settlement
+                        int bestI = 0, bestW = -1;
+                        for (int i = 0; i < nSett[p]; ++i)
+                        {
+                            final int w = nodeWeight[sett[p][i]];
+                            if (w > bestW)
+                            {
+                                bestW = w;
+                                bestI = i;
+                            }
+                        }
+                        upgrade(p, bestI);
+                    }
+                    else if (! greedySettlement(p))
+                    {
+                        if ((cardsLeft <= 0) || ! pay(r, ratio, COSTS[CARD], null, 0))
+                            return false;
+                        buyCard(p);
+                    }
+
+                    if (vp[p] >= vpToWin)
+                        return true;
+                }
+            }
+
+            /**
+             * Try to build player <tt>p</tt>'s most productive possible settlement, with the roads it needs.
+             * Prefers settlements needing fewer roads.  Skips nodes already taken.
+             * @return  True if built
+             */
+            private boolean greedySettlement(final int p)
+            {
+                final int[] lf = left[p];
+                if (lf[SETTLEMENT] <= 0)
+                    return false;
+
+                final int[] nodes = settleNodes[p];
+                int bestI = -1, bestNeeded = 0;
+                float bestW = -1f;
+                for (int i = 0; i < nodes.length; ++i)
+                {
+                    if (blocked[nodes[i]])
+                        continue;
+                    final int needed = roadsNeeded(settleRoads[p][i], roads[p], nRoads[p]);
+                    if (needed > lf[ROAD])
+                        continue;
+                    final float w = nodeWeight[nodes[i]] / (1f + needed);
+                    if (w > bestW)
+                    {
+                        bestW = w;
+                        bestI = i;
+                        bestNeeded = needed;
+                    }
+                }
+                if (bestI == -1)
+                    return false;
+
+                if (! pay(res[p], tradeRatio[p], COSTS[SETTLEMENT], COSTS[ROAD], bestNeeded))
+                    return false;
+
+                final int[] edges = settleRoads[p][bestI];
+                for (int j = 0; j < edges.length; ++j)
+                    if (! contains(roads[p], nRoads[p], edges[j]))
+                        roads[p][nRoads[p]++] = edges[j];
+                lf[ROAD] -= bestNeeded;
+                --lf[SETTLEMENT];
+                ++vp[p];
+                settle(p, nodes[bestI]);
+
+                return true;
+            }
+
+            /** Place player <tt>p</tt>'s settlement at a node: Take it and its neighbors, and add its production. */
+            private void settle(final int p, final int node)
+            {
+                final int[] nb = nodeBlocks[node];
+                for (int j = 0; j < nb.length; ++j)
+                    blocked[nb[j]] = true;
+                final int[] nh = nodeHexes[node];
+                for (int j = 0; j < nh.length; ++j)
+                    ++prod[p][nh[j]];
+                sett[p][nSett[p]++] = node;
+            }
+
+            /** Upgrade player <tt>p</tt>'s settlement <tt>sett[p][i]</tt> to a city, which was already paid for. */
+            private void upgrade(final int p, final int i)
+            {
+                final int[] nh = nodeHexes[sett[p][i]];
+                for (int j = 0; j < nh.length; ++j)
+                    ++prod[p][nh[j]];
+                sett[p][i] = sett[p][--nSett[p]];
+                --left[p][CITY];
+                ++left[p][SETTLEMENT];
+                ++vp[p];
+            }
+
+            /**
+             * Player <tt>p</tt> draws a dev card, which was already paid for.
+             * A VP card counts at once; a knight is played at once, moving the robber
+             * and maybe taking largest army.
+             */
+            private void buyCard(final int p)
+            {
+                --cardsLeft;
+                final float f = rand.nextFloat();
+                if (f < VP_CARD_FRACTION)
+                {
+                    ++vp[p];
+                }
+                else if (f < VP_CARD_FRACTION + KNIGHT_CARD_FRACTION)
+                {
+                    moveRobber(p);
+                    ++knights[p];
+                    if ((knights[p] >= 3) && (armyPlayer != p)
+                        && ((armyPlayer == -1) || (knights[p] > knights[armyPlayer])))
+                    {
+                        if (armyPlayer != -1)
+                            vp[armyPlayer] -= 2;
+                        vp[p] += 2;
+                        armyPlayer = p;
+                    }
+                }
+            }
+
+            /** Discard half of these resources at random if there are more than 7, as when a 7 is rolled. */
+            private void discardHalf(final int[] r)
+            {
+                final int t = total(r);
+                if (t <= 7)
+                    return;
+
+                for (int n = t / 2; n > 0; --n)
+                    takeRandom(r);
+            }
+
+            /**
+             * Remove one resource at random.
+             * @param r  Resources; total must be more than 0
+             * @return  Index of the resource removed
+             */
+            private int takeRandom(final int[] r)
+            {
+                int pick = rand.nextInt(total(r));
+                for (int i = 0; i < NRES; ++i)
+                {
+                    if (pick < r[i])
+                    {
+                        --r[i];
+                        return i;
+                    }
+                    pick -= r[i];
+                }
+
+                return 0;  // not reached
+            }
+        }
+
+        /** Total of these resources. */
+        private static int total(final int[] r)
+        {
+            int t = 0;
+            for (int i = 0; i < NRES; ++i)
+                t += r[i];
+
+            return t;
+        }
+
+        /**
+         * Count how many of a possible settlement's roads haven't been built yet.
+         * @param edges  Roads it needs
+         * @param roads  Roads built during the playout
+         * @param nRoads  Number of roads in <tt>roads</tt>
+         * @return  Number of <tt>edges</tt> not in <tt>roads</tt>
+         */
+        private static int roadsNeeded(final int[] edges, final int[] roads, final int nRoads)
+        {
+            int needed = 0;
+            for (int j = 0; j < edges.length; ++j)
+                if (! contains(roads, nRoads, edges[j]))
+                    ++needed;
+
+            return needed;
+        }
+
+        /** Is <tt>x</tt> in the first <tt>n</tt> elements of <tt>a</tt>? */
+        private static boolean contains(final int[] a, final int n, final int x)
+        {
+            for (int i = 0; i < n; ++i)
+                if (a[i] == x)
+                    return true;
+
+            return false;
+        }
+
+        /**
+         * Pay for a piece, making bank or port trades if needed.
+         * @param res  Player's resources; changed only if they can pay
+         * @param tradeRatio  Player's trade ratios, from {@link #tradeRatio}
+         * @param cost  Cost of the piece
+         * @param cost2  Cost of other pieces bought with it, or null
+         * @param n2  Number of <tt>cost2</tt> pieces bought
+         * @return  True if paid
+         */
+        private static boolean pay
+            (final int[] res, final int[] tradeRatio, final int[] cost, final int[] cost2, final int n2)
+        {
+            int deficit = 0, surplusTrades = 0;
+            for (int r = 0; r < NRES; ++r)
+            {
+                final int need = cost[r] + ((cost2 != null) ? n2 * cost2[r] : 0);
+                final int have = res[r] - need;
+                if (have < 0)
+                    deficit -= have;
+                else
+                    surplusTrades += have / tradeRatio[r];
+            }
+            if (deficit > surplusTrades)
+                return false;
+
+            for (int r = 0; r < NRES; ++r)
+                res[r] -= cost[r] + ((cost2 != null) ? n2 * cost2[r] : 0);
+
+            // trade surplus for the missing resources
+            for (int r = 0; (r < NRES) && (deficit > 0); ++r)
+            {
+                while ((deficit > 0) && (res[r] >= tradeRatio[r]))
+                {
+                    res[r] -= tradeRatio[r];
+                    --deficit;
+                }
+            }
+            for (int r = 0; r < NRES; ++r)
+                if (res[r] < 0)
+                    res[r] = 0;  // received from trades
+
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2013 JSettlers contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.robot;
+
+import soc.game.SOCGame;
+import soc.message.SOCMessage;
+import soc.util.CappedQueue;
+import soc.util.SOCRobotParameters;
+
+/**
+ * Robot brain which picks what to build next with Monte Carlo playouts;
+ * see {@link MonteCarloDM}.  Otherwise plays the same as {@link SOCRobotBrain}.
+ * Run it with {@link MonteCarloRobotClient}.
+ *
+ * @since 2.0.00
+ */
+public class MonteCarloRobotBrain extends SOCRobotBrain
+{
+    /**
+     * Create a brain to play a game.
+     * @param rc  the robot client
+     * @param params  the robot parameters
+     * @param ga  the game we're playing
+     * @param mq  the message queue
+     */
+    public MonteCarloRobotBrain
+        (SOCRobotClient rc, SOCRobotParameters params, SOCGame ga, CappedQueue<SOCMessage> mq)
+    {
+        super(rc, params, ga, mq);
+    }
+
+    /**
+     * Create our {@link MonteCarloDM} decision maker.
+     */
+    @Override
+    protected SOCRobotDM createDecisionMaker()
+    {
+        return new MonteCarloDM(this);
+    }
+
+}
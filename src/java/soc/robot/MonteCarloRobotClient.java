@@ -0,0 +1,80 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2013 JSettlers contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.robot;
+
+import soc.game.SOCGame;
+import soc.message.SOCMessage;
+import soc.util.CappedQueue;
+import soc.util.SOCRobotParameters;
+import soc.util.Version;
+
+/**
+ * Robot client which plays with {@link MonteCarloRobotBrain}s.
+ * Connects to the server like {@link SOCRobotClient}, and tells the server
+ * its brain class name, so the server treats it as a third-party robot.
+ *
+ * @since 2.0.00
+ */
+public class MonteCarloRobotClient extends SOCRobotClient
+{
+    /**
+     * Constructor for connecting to the specified host, on the specified port
+     *
+     * @param h  host
+     * @param p  port
+     * @param nn nickname for robot
+     * @param pw password for robot
+     * @param co  cookie for robot connections to server
+     */
+    public MonteCarloRobotClient(final String h, final int p, final String nn, final String pw, final String co)
+    {
+        super(h, p, nn, pw, co);
+        rbclass = MonteCarloRobotBrain.class.getName();
+    }
+
+    /**
+     * Create a {@link MonteCarloRobotBrain} to play a game.
+     */
+    @Override
+    protected SOCRobotBrain createBrain
+        (final SOCRobotParameters params, final SOCGame ga, final CappedQueue<SOCMessage> mq)
+    {
+        return new MonteCarloRobotBrain(this, params, ga, mq);
+    }
+
+    /**
+     * Main method.
+     * @param args  Expected arguments: server hostname, port, bot username, bot password, server cookie
+     */
+    public static void main(String[] args)
+    {
+        if (args.length < 5)
+        {
+            System.err.println("Java Settlers Monte Carlo robotclient " + Version.version() +
+                    ", build " + Version.buildnum());
+            System.err.println("usage: java soc.robot.MonteCarloRobotClient host port_number userid password cookie");
+            return;
+        }
+
+        MonteCarloRobotClient ex1 = new MonteCarloRobotClient(args[0], Integer.parseInt(args[1]), args[2], args[3], args[4]);
+        ex1.init();
+    }
+
+}
@@ -132,7 +132,7 @@ public class OpeningBuildStrategy {
         int bestProbTotal;
         boolean[] ports = new boolean[SOCBoard.WOOD_PORT + 1];
         SOCBuildingSpeedEstimate estimate = new SOCBuildingSpeedEstimate();
-        final int[] prob = SOCNumberProbabilities.INT_VALUES;
+        final BoardNodeValues nodeValues = BoardNodeValues.forGame(game);
 
         bestProbTotal = 0;
 
@@ -145,51 +145,51 @@ public class OpeningBuildStrategy {
             final int firstNode = ourPotentialSettlements[i];
             // assert: ourPlayerData.isPotentialSettlement(firstNode)
 
-            final Integer firstNodeInt = new Integer(firstNode);
-
             //
-            // this is just for testing purposes
+            // this is just for testing purposes;
+            // the pair search below doesn't use these estimates
             //
-            log.debug("FIRST NODE -----------");
-            log.debug("firstNode = " + board.nodeCoordToString(firstNode));
+            if (D.ebugOn)
+            {
+                log.debug("FIRST NODE -----------");
+                log.debug("firstNode = " + board.nodeCoordToString(firstNode));
 
-            StringBuffer sb = new StringBuffer();
-            sb.append("numbers:[");
+                StringBuffer sb = new StringBuffer();
+                sb.append("numbers:[");
 
-            playerNumbers.clear();
-            probTotal = playerNumbers.updateNumbersAndProbability
-                (firstNode, board, prob, sb);
+                playerNumbers.clear();
+                probTotal = nodeValues.updateNumbersAndProbability
+                    (board, firstNode, playerNumbers, sb);
 
-            sb.append("]");
-            log.debug(sb.toString());
-            sb = new StringBuffer();
-            sb.append("ports: ");
+                sb.append("]");
+                log.debug(sb.toString());
+                sb = new StringBuffer();
+                sb.append("ports: ");
 
-            for (int portType = SOCBoard.MISC_PORT;
-                     portType <= SOCBoard.WOOD_PORT; portType++)
-            {
-                ports[portType] = (board.getPortCoordinates(portType).contains(firstNodeInt));
+                final int firstPortType = nodeValues.getPortType(board, firstNode);
+                for (int portType = SOCBoard.MISC_PORT;
+                         portType <= SOCBoard.WOOD_PORT; portType++)
+                {
+                    ports[portType] = (portType == firstPortType);
 
-                sb.append(ports[portType] + "  ");
-            }
+                    sb.append(ports[portType] + "  ");
+                }
 
-            log.debug(sb.toString());
-            log.debug("probTotal = " + probTotal);
-            estimate.recalculateEstimates(playerNumbers);
-            speed = 0;
-            allTheWay = false;
+                log.debug(sb.toString());
+                log.debug("probTotal = " + probTotal);
+                estimate.recalculateEstimates(playerNumbers);
+                speed = 0;
+                allTheWay = false;
 
-            try
-            {
-                speed += estimate.calculateRollsAndRsrcFast(emptySet, SOCGame.SETTLEMENT_SET, 300, ports).getRolls();
-                speed += estimate.calculateRollsAndRsrcFast(emptySet, SOCGame.CITY_SET, 300, ports).getRolls();
-                speed += estimate.calculateRollsAndRsrcFast(emptySet, SOCGame.CARD_SET, 300, ports).getRolls();
-                speed += estimate.calculateRollsAndRsrcFast(emptySet, SOCGame.ROAD_SET, 300, ports).getRolls();
-            }
-            catch (CutoffExceededException e) {}
+                try
+                {
+                    speed += estimate.calculateRollsAndRsrcFast(emptySet, SOCGame.SETTLEMENT_SET, 300, ports).getRolls();
+                    speed += estimate.calculateRollsAndRsrcFast(emptySet, SOCGame.CITY_SET, 300, ports).getRolls();
+                    speed += estimate.calculateRollsAndRsrcFast(emptySet, SOCGame.CARD_SET, 300, ports).getRolls();
+                    speed += estimate.calculateRollsAndRsrcFast(emptySet, SOCGame.ROAD_SET, 300, ports).getRolls();
+                }
+                catch (CutoffExceededException e) {}
 
-            if (D.ebugOn)
-            {
                 final int[] rolls = estimate.getEstimatesFromNothingFast(ports, 300);
                 sb = new StringBuffer();
                 sb.append(" road: " + rolls[SOCBuildingSpeedEstimate.ROAD]);
@@ -222,20 +222,25 @@ public class OpeningBuildStrategy {
                 /**
                  * get the numbers for these settlements
                  */
-                sb = new StringBuffer();
-                sb.append("numbers:[");
+                StringBuffer sb = (D.ebugOn) ? new StringBuffer() : null;
+                if (sb != null)
+                    sb.append("numbers:[");
 
                 playerNumbers.clear();
-                probTotal = playerNumbers.updateNumbersAndProbability
-                    (firstNode, board, prob, sb);
+                probTotal = nodeValues.updateNumbersAndProbability
+                    (board, firstNode, playerNumbers, sb);
 
-                sb.append("] [");
+                if (sb != null)
+                    sb.append("] [");
 
-                probTotal += playerNumbers.updateNumbersAndProbability
-                    (secondNode, board, prob, sb);
+                probTotal += nodeValues.updateNumbersAndProbability
+                    (board, secondNode, playerNumbers, sb);
 
-                sb.append("]");
-                log.debug(sb.toString());
+                if (sb != null)
+                {
+                    sb.append("]");
+                    log.debug(sb.toString());
+                }
 
                 /**
                  * see if the settlements are on any ports
@@ -244,10 +249,10 @@ public class OpeningBuildStrategy {
                 //sb.append("ports: ");
 
                 Arrays.fill(ports, false);
-                int portType = board.getPortTypeFromNodeCoord(firstNode);
+                int portType = nodeValues.getPortType(board, firstNode);
                 if (portType != -1)
                     ports[portType] = true;
-                portType = board.getPortTypeFromNodeCoord(secondNode);
+                portType = nodeValues.getPortType(board, secondNode);
                 if (portType != -1)
                     ports[portType] = true;
 
@@ -337,14 +342,13 @@ public class OpeningBuildStrategy {
          * choose which settlement to place first
          */
         playerNumbers.clear();
-        playerNumbers.updateNumbers(firstSettlement, board);
-
-        final Integer firstSettlementInt = new Integer(firstSettlement);
+        nodeValues.updateNumbersAndProbability(board, firstSettlement, playerNumbers, null);
 
+        final int firstPortType = nodeValues.getPortType(board, firstSettlement);
         for (int portType = SOCBoard.MISC_PORT; portType <= SOCBoard.WOOD_PORT;
                  portType++)
         {
-            ports[portType] = (board.getPortCoordinates(portType).contains(firstSettlementInt));
+            ports[portType] = (portType == firstPortType);
         }
 
         estimate.recalculateEstimates(playerNumbers);
@@ -358,14 +362,13 @@ public class OpeningBuildStrategy {
         firstSpeed += estimate.calculateRollsFast(emptySet, SOCGame.ROAD_SET, cutoff, ports);
 
         playerNumbers.clear();
-        playerNumbers.updateNumbers(secondSettlement, board);
-
-        final Integer secondSettlementInt = new Integer(secondSettlement);
+        nodeValues.updateNumbersAndProbability(board, secondSettlement, playerNumbers, null);
 
+        final int secondPortType = nodeValues.getPortType(board, secondSettlement);
         for (int portType = SOCBoard.MISC_PORT; portType <= SOCBoard.WOOD_PORT;
                  portType++)
         {
-            ports[portType] = (board.getPortCoordinates(portType).contains(secondSettlementInt));
+            ports[portType] = (portType == secondPortType);
         }
 
         estimate.recalculateEstimates(playerNumbers);
@@ -404,7 +407,7 @@ public class OpeningBuildStrategy {
         SOCBuildingSpeedEstimate estimate = new SOCBuildingSpeedEstimate();
         int probTotal;
         int bestProbTotal;
-        final int[] prob = SOCNumberProbabilities.INT_VALUES;
+        final BoardNodeValues nodeValues = BoardNodeValues.forGame(game);
         final int firstNode = firstSettlement;
 
         bestProbTotal = 0;
@@ -428,10 +431,10 @@ public class OpeningBuildStrategy {
             StringBuffer sb = new StringBuffer();
             sb.append("numbers: ");
             playerNumbers.clear();
-            probTotal = playerNumbers.updateNumbersAndProbability
-                (firstNode, board, prob, sb);
-            probTotal += playerNumbers.updateNumbersAndProbability
-                (secondNode, board, prob, sb);
+            probTotal = nodeValues.updateNumbersAndProbability
+                (board, firstNode, playerNumbers, sb);
+            probTotal += nodeValues.updateNumbersAndProbability
+                (board, secondNode, playerNumbers, sb);
 
             /**
              * see if the settlements are on any ports
@@ -439,10 +442,10 @@ public class OpeningBuildStrategy {
             //sb.append("ports: ");
 
             Arrays.fill(ports, false);
-            int portType = board.getPortTypeFromNodeCoord(firstNode);
+            int portType = nodeValues.getPortType(board, firstNode);
             if (portType != -1)
                 ports[portType] = true;
-            portType = board.getPortTypeFromNodeCoord(secondNode);
+            portType = nodeValues.getPortType(board, secondNode);
             if (portType != -1)
                 ports[portType] = true;
 
@@ -881,8 +884,10 @@ public class OpeningBuildStrategy {
      * This is based on the board and doesn't change when pieces are placed.
      * Cached after the first call, as {@link #resourceEstimates}.
      *<P>
-     * Calls each hex's {@link SOCBoard#getHexTypeFromCoord(int)}, ignores all hex types besides
-     * the usual {@link SOCBoard#CLAY_HEX} through {@link SOCBoard#WOOD_HEX} and {@link SOCBoardLarge#GOLD_HEX}. 
+     * Ignores all hex types besides the usual {@link SOCBoard#CLAY_HEX} through
+     * {@link SOCBoard#WOOD_HEX} and {@link SOCBoardLarge#GOLD_HEX}.
+     * Calculated once per game by {@link BoardNodeValues#getResourceRarity()}
+     * and shared with the game's other robots, so don't change the contents.
      *
      * @return an array of rarity numbers, where
      *         estimates[SOCBoard.CLAY_HEX] == the clay rarity,
@@ -891,51 +896,7 @@ public class OpeningBuildStrategy {
     public int[] estimateResourceRarity()
     {
         if (resourceEstimates == null)
-        {
-            final SOCBoard board = game.getBoard();
-            final int[] numberWeights = SOCNumberProbabilities.INT_VALUES;
-
-            resourceEstimates = new int[SOCResourceConstants.UNKNOWN];  // uses 1 to 5 (CLAY to WOOD)
-            resourceEstimates[0] = 0;
-
-            // look at each hex
-            if (board.getBoardEncodingFormat() <= SOCBoard.BOARD_ENCODING_6PLAYER)
-            {
-                // v1 or v2 encoding
-                final int L = board.getNumberLayout().length;
-                for (int i = 0; i < L; i++)
-                {
-                    final int hexNumber = board.getNumberOnHexFromNumber(i);
-                    if (hexNumber > 0)
-                        resourceEstimates[board.getHexTypeFromNumber(i)] += numberWeights[hexNumber];
-                }
-            } else {
-                // v3 encoding
-                final int[] hcoord = board.getLandHexCoords();
-                if (hcoord != null)
-                {
-                    final int L = hcoord.length;
-                    for (int i = 0; i < L; i++)
-                    {
-                        final int hexNumber = board.getNumberOnHexFromCoord(hcoord[i]);
-                        if (hexNumber == 0)
-                            continue;
-
-                        final int htype = board.getHexTypeFromCoord(hcoord[i]);
-                        if (htype == SOCBoardLarge.GOLD_HEX)
-                        {
-                            // Count gold as all resource types
-                            for (int ht = SOCBoard.CLAY_HEX; ht <= SOCBoard.WOOD_HEX; ++ht)
-                                resourceEstimates[ht] += numberWeights[hexNumber];
-                        }
-                        else if ((htype >= 0) && (htype <= SOCBoard.WOOD_HEX))
-                        {
-                            resourceEstimates[htype] += numberWeights[hexNumber];
-                        }
-                    }
-                }
-            }
-        }
+            resourceEstimates = BoardNodeValues.forGame(game).getResourceRarity();
 
         //D.ebugPrint("Resource Estimates = ");
         //for (int i = 1; i < 6; i++)
@@ -1025,6 +986,7 @@ public class OpeningBuildStrategy {
         final int[] numRating = SOCNumberProbabilities.INT_VALUES;
         final SOCPlayerNumbers playerNumbers = (player != null) ? player.getNumbers() : null;
         final SOCBoard board = game.getBoard();
+        final BoardNodeValues nodeValues = BoardNodeValues.forGame(game);
 
         // 80 is highest practical score (40 if player == null)
         final int maxScore = (player != null) ? 80 : 40;
@@ -1039,26 +1001,18 @@ public class OpeningBuildStrategy {
             //log.debug("BSN - looking at node "+Integer.toHexString(node.intValue()));
             oldScore = nodes.get(node).intValue();
 
-            int score = 0;
-            Enumeration<Integer> hexesEnum = board.getAdjacentHexesToNode(node.intValue()).elements();
+            final int nodeCoord = node.intValue();
+            int score = nodeValues.getProbability(board, nodeCoord);
 
-            while (hexesEnum.hasMoreElements())
+            if (playerNumbers != null)
             {
-                final int hex = hexesEnum.nextElement().intValue();
-                final int number = board.getNumberOnHexFromCoord(hex);
-                score += numRating[number];
-
-                if ((number != 0) && (playerNumbers != null) && ! playerNumbers.hasNumber(number))
-                {
-                    /**
-                     * add a bonus for numbers that the player doesn't already have
-                     */
-
-                    //log.debug("ADDING BONUS FOR NOT HAVING "+number);
-                    score += numRating[number];
-                }
-
-                //log.debug(" -- -- Adding "+numRating[board.getNumberOnHexFromCoord(hex)]);
+                /**
+                 * add a bonus for numbers that the player doesn't already have
+                 */
+                final int[] diceNums = nodeValues.getDiceNumbers(board, nodeCoord);
+                for (int i = 0; i < diceNums.length; ++i)
+                    if (! playerNumbers.hasNumber(diceNums[i]))
+                        score += numRating[diceNums[i]];
             }
 
             /*
@@ -41,9 +41,68 @@ public class RobberStrategy {
 
    /**
     * Determine the best hex to move the robber.
+    * Calls {@link #getBestRobberHex(SOCGame, SOCPlayer, HashMap, Random, DecisionTimeBudget)}
+    * without a time budget.
     */
    public static int getBestRobberHex
        (SOCGame game, SOCPlayer ourPlayerData, HashMap<Integer, SOCPlayerTracker> playerTrackers, Random rand)
+   {
+       return getBestRobberHex(game, ourPlayerData, playerTrackers, rand, null);
+   }
+
+   /**
+    * Determine the best hex to move the robber.
+    * Calls {@link #getBestRobberHex(SOCGame, SOCPlayer, HashMap, Random, DecisionTimeBudget, HexImpactTable)}
+    * without a hex impact table.
+    * @param budget  Our brain's decision time budget, or null for no limit
+    * @since 2.0.00
+    */
+   public static int getBestRobberHex
+       (SOCGame game, SOCPlayer ourPlayerData, HashMap<Integer, SOCPlayerTracker> playerTrackers, Random rand,
+        final DecisionTimeBudget budget)
+   {
+       return getBestRobberHex(game, ourPlayerData, playerTrackers, rand, budget, null);
+   }
+
+   /**
+    * Determine the best hex to move the robber.
+    *<P>
+    * With a <tt>hexImpact</tt> table, picks the hex blocking the most production from our opponents,
+    * weighted toward those closest to winning; see {@link #getBestRobberHexByImpact(SOCGame, SOCPlayer, int[], HexImpactTable)}.
+    * Without one, picks the hex which most slows the opponent closest to winning,
+    * by building speed estimates; see {@link #getBestRobberHexBySpeed(SOCGame, SOCPlayer, int[], DecisionTimeBudget)}.
+    * If <tt>budget</tt> runs out while checking the hexes, uses the best hex found so far.
+    *
+    * @param budget  Our brain's decision time budget, or null for no limit
+    * @param hexImpact  Our brain's hex impact table, or null to use building speed estimates
+    * @since 2.0.00
+    */
+   public static int getBestRobberHex
+       (SOCGame game, SOCPlayer ourPlayerData, HashMap<Integer, SOCPlayerTracker> playerTrackers, Random rand,
+        final DecisionTimeBudget budget, final HexImpactTable hexImpact)
+   {
+       if (budget != null)
+           budget.begin(DecisionTimeBudget.ROBBER);
+       try
+       {
+           return getBestRobberHexAux(game, ourPlayerData, playerTrackers, rand, budget, hexImpact);
+       }
+       finally
+       {
+           if (budget != null)
+               budget.end();
+       }
+   }
+
+   /**
+    * Body of {@link #getBestRobberHex(SOCGame, SOCPlayer, HashMap, Random, DecisionTimeBudget, HexImpactTable)}.
+    * @param budget  Decision time budget, already begun, or null
+    * @param hexImpact  Hex impact table, or null
+    * @since 2.0.00
+    */
+   private static int getBestRobberHexAux
+       (SOCGame game, SOCPlayer ourPlayerData, HashMap<Integer, SOCPlayerTracker> playerTrackers, Random rand,
+        final DecisionTimeBudget budget, final HexImpactTable hexImpact)
    {
        log.debug("%%% MOVEROBBER");
 
@@ -78,6 +137,113 @@ public class RobberStrategy {
            }
        }
 
+       final boolean skipDeserts = game.isGameOptionSet("RD");  // can't move robber to desert
+       SOCBoard gboard = (skipDeserts ? game.getBoard() : null);
+
+       int bestHex = (hexImpact != null)
+           ? getBestRobberHexByImpact(game, ourPlayerData, winGameETAs, hexImpact)
+           : getBestRobberHexBySpeed(game, ourPlayerData, winGameETAs, budget);
+       log.debug("%%% bestHex = " + Integer.toHexString(bestHex));
+
+        /**
+         * Pick a spot at random if we can't decide.
+         * Don't pick deserts if the game option is set.
+         * Don't pick one of our hexes if at all possible.
+         * It's not likely we'll need to pick one of our hexes
+         * (we try 30 times to avoid it), so there isn't code here
+         * to pick the 'least bad' one.
+         * (TODO) consider that: It would be late in the game
+         *       if the board's that crowded with pieces.
+         *       Use similar algorithm as picking for opponent,
+         *       but apply it worst vs best.
+         */
+        if (bestHex == prevRobberHex)
+        {
+            int numRand = 0;
+            while ((bestHex == prevRobberHex)
+                   || (skipDeserts
+                       && (gboard.getHexTypeFromCoord(bestHex) == SOCBoard.DESERT_HEX ))
+                   || ((numRand < 30)
+                       && ourPlayerData.getNumbers().hasNoResourcesForHex(bestHex)))
+            {
+                bestHex = hexes[Math.abs(rand.nextInt()) % hexes.length];
+                log.debug("%%% random pick = " + Integer.toHexString(bestHex));
+                ++numRand;
+            }
+        }
+
+       return bestHex;
+   }
+
+   /**
+    * Find the hex where the robber would block the most production from our opponents,
+    * weighted toward the players closest to winning: Each opponent's production from a hex,
+    * from <tt>hexImpact</tt>, is divided by their estimated turns to win the game,
+    * so blocking a player who'd win twice as soon counts twice as much.
+    * Skips hexes we have production from, the robber's current hex, and deserts if game option "RD" is set.
+    * Each hex is a lookup in the table, so there's no time budget to check.
+    * @param winGameETAs  Each player's estimated turns to win the game
+    * @param hexImpact  Our brain's hex impact table
+    * @return  The best hex, or the robber's current hex if no other hex blocks any opponent's production
+    * @since 2.0.00
+    */
+   private static int getBestRobberHexByImpact
+       (final SOCGame game, final SOCPlayer ourPlayerData, final int[] winGameETAs, final HexImpactTable hexImpact)
+   {
+       final int ourPlayerNumber = ourPlayerData.getPlayerNumber();
+       final float[] weights = new float[game.maxPlayers];
+       for (int pn = 0; pn < game.maxPlayers; ++pn)
+           if ((pn != ourPlayerNumber) && ! game.isSeatVacant(pn))
+               weights[pn] = 1f / Math.max(1, winGameETAs[pn]);
+
+       final SOCBoard board = game.getBoard();
+       final int[] hexes = board.getLandHexCoords();
+       final int prevRobberHex = board.getRobberHex();
+       final boolean skipDeserts = game.isGameOptionSet("RD");
+       int bestHex = prevRobberHex;
+       float bestScore = 0f;
+
+       for (int i = 0; i < hexes.length; i++)
+       {
+           final int hex = hexes[i];
+           if ((hex == prevRobberHex)
+               || ! ourPlayerData.getNumbers().hasNoResourcesForHex(hex)
+               || (skipDeserts && (board.getHexTypeFromCoord(hex) == SOCBoard.DESERT_HEX)))
+               continue;
+
+           float score = 0f;
+           for (int pn = 0; pn < weights.length; ++pn)
+               if (weights[pn] > 0f)
+                   score += weights[pn] * hexImpact.getImpact(pn, hex);
+
+           if (score > bestScore)
+           {
+               bestHex = hex;
+               bestScore = score;
+               log.debug("bestHex = " + Integer.toHexString(bestHex) + ", score = " + score);
+           }
+       }
+
+       return bestHex;
+   }
+
+   /**
+    * Find the hex where the robber would most slow the opponent closest to winning,
+    * by the total of that victim's building speed estimates.
+    * Only hexes where the victim has production need an estimate;
+    * the others would all slow the victim the same amount, so one estimate is shared by all of them.
+    * If <tt>budget</tt> runs out while checking the hexes, uses the best hex found so far.
+    * Skips hexes we have production from, the robber's current hex, and deserts if game option "RD" is set.
+    * @param winGameETAs  Each player's estimated turns to win the game
+    * @param budget  Decision time budget, already begun, or null
+    * @return  The best hex, or the robber's current hex if no hex slows the victim
+    * @since 2.0.00
+    */
+   private static int getBestRobberHexBySpeed
+       (final SOCGame game, final SOCPlayer ourPlayerData, final int[] winGameETAs, final DecisionTimeBudget budget)
+   {
+       final int[] hexes = game.getBoard().getLandHexCoords();
+       final int prevRobberHex = game.getBoard().getRobberHex();
        final int ourPlayerNumber = ourPlayerData.getPlayerNumber();
        int victimNum = -1;
 
@@ -108,6 +274,7 @@ public class RobberStrategy {
        SOCBuildingSpeedEstimate estimate = new SOCBuildingSpeedEstimate();
        int bestHex = prevRobberHex;
        int worstSpeed = 0;
+       int unblockedSpeed = -1;  // victim's speed if the robber is on none of their hexes; calculated when needed
        final boolean skipDeserts = game.isGameOptionSet("RD");  // can't move robber to desert
        SOCBoard gboard = (skipDeserts ? game.getBoard() : null);
 
@@ -121,15 +288,16 @@ public class RobberStrategy {
                    && ourPlayerData.getNumbers().hasNoResourcesForHex(hexes[i])
                    && ! (skipDeserts && (gboard.getHexTypeFromCoord(hexes[i]) == SOCBoard.DESERT_HEX )))
            {
-               estimate.recalculateEstimates(victim.getNumbers(), hexes[i]);
-
-               int[] speeds = estimate.getEstimatesFromNothingFast(victim.getPortFlags());
-               int totalSpeed = 0;
-
-               for (int j = SOCBuildingSpeedEstimate.MIN;
-                        j < SOCBuildingSpeedEstimate.MAXPLUSONE; j++)
+               final boolean victimHasHex = ! victim.getNumbers().hasNoResourcesForHex(hexes[i]);
+               final int totalSpeed;
+               if (victimHasHex || (unblockedSpeed == -1))
                {
-                   totalSpeed += speeds[j];
+                   estimate.recalculateEstimates(victim.getNumbers(), hexes[i]);
+                   totalSpeed = totalSpeedFromNothing(estimate, victim);
+                   if (! victimHasHex)
+                       unblockedSpeed = totalSpeed;
+               } else {
+                   totalSpeed = unblockedSpeed;
                }
 
                log.debug("total Speed = " + totalSpeed);
@@ -141,39 +309,39 @@ public class RobberStrategy {
                    log.debug("bestHex = " + Integer.toHexString(bestHex));
                    log.debug("worstSpeed = " + worstSpeed);
                }
+
+               if (victimHasHex && (budget != null) && budget.isExpired())
+               {
+                   log.debug("time budget reached; using best hex so far");
+                   break;
+               }
            }
        }
 
-       log.debug("%%% bestHex = " + Integer.toHexString(bestHex));
+       return bestHex;
+   }
 
-        /**
-         * Pick a spot at random if we can't decide.
-         * Don't pick deserts if the game option is set.
-         * Don't pick one of our hexes if at all possible.
-         * It's not likely we'll need to pick one of our hexes
-         * (we try 30 times to avoid it), so there isn't code here
-         * to pick the 'least bad' one.
-         * (TODO) consider that: It would be late in the game
-         *       if the board's that crowded with pieces.
-         *       Use similar algorithm as picking for opponent,
-         *       but apply it worst vs best.
-         */
-        if (bestHex == prevRobberHex)
-        {
-            int numRand = 0;
-            while ((bestHex == prevRobberHex)
-                   || (skipDeserts
-                       && (gboard.getHexTypeFromCoord(bestHex) == SOCBoard.DESERT_HEX ))
-                   || ((numRand < 30)
-                       && ourPlayerData.getNumbers().hasNoResourcesForHex(bestHex)))
-            {
-                bestHex = hexes[Math.abs(rand.nextInt()) % hexes.length];
-                log.debug("%%% random pick = " + Integer.toHexString(bestHex));
-                ++numRand;
-            }
-        }
+   /**
+    * Total a player's estimated rolls to build each piece type from nothing,
+    * as a measure of their building speed: Higher totals are slower.
+    * @param estimate  Estimate already calculated from the player's numbers
+    *     with {@link SOCBuildingSpeedEstimate#recalculateEstimates(soc.game.SOCPlayerNumbers, int)}
+    * @param pl  Player, for their port flags
+    * @return  Total of {@link SOCBuildingSpeedEstimate#getEstimatesFromNothingFast(boolean[])} for all piece types
+    * @since 2.0.00
+    */
+   private static int totalSpeedFromNothing(final SOCBuildingSpeedEstimate estimate, final SOCPlayer pl)
+   {
+       int[] speeds = estimate.getEstimatesFromNothingFast(pl.getPortFlags());
+       int totalSpeed = 0;
 
-       return bestHex;
+       for (int j = SOCBuildingSpeedEstimate.MIN;
+                j < SOCBuildingSpeedEstimate.MAXPLUSONE; j++)
+       {
+           totalSpeed += speeds[j];
+       }
+
+       return totalSpeed;
    }
 
    /**
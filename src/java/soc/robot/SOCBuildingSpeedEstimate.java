@@ -26,6 +26,7 @@ import soc.disableDebug.D;
 import soc.game.SOCBoard;
 import soc.game.SOCGame;
 import soc.game.SOCPlayer;
+import soc.game.SOCPackedResourceSet;
 import soc.game.SOCPlayerNumbers;
 import soc.game.SOCResourceConstants;
 import soc.game.SOCResourceSet;
@@ -473,278 +474,165 @@ public class SOCBuildingSpeedEstimate
     protected final int calculateRollsFast
         (final SOCResourceSet startingResources, final SOCResourceSet targetResources, final int cutoff, final boolean[] ports)
     {
-        try
-        {
-            SOCResSetBuildTimePair pair = calculateRollsAndRsrcFast(startingResources, targetResources, cutoff, ports);
-            return pair.getRolls();
-        }
-        catch (CutoffExceededException e)
-        {
-            return cutoff;
-        }
+        return calculateRollsFast
+            (SOCPackedResourceSet.fromResourceSet(startingResources),
+             SOCPackedResourceSet.fromResourceSet(targetResources), cutoff, ports);
     }
 
     /**
-     * this figures out how many rolls it would take this
-     * player to get the target set of resources given
-     * a starting set
-     *<P>
-     * Before v2.0.00, this was {@code calculateRollsFast}.
+     * Figures out how many rolls it would take this player to get the target resources,
+     * given a starting set, without allocating any objects.
+     * Same calculation as {@link #calculateRollsFast(SOCResourceSet, SOCResourceSet, int, boolean[])},
+     * with resource sets packed by {@link SOCPackedResourceSet}, for callers like
+     * {@link SOCRobotNegotiator} which estimate many possible trades in a row.
      *
-     * @param startingResources   the starting resources
-     * @param targetResources     the target resources
-     * @param cutoff              throw an exception if the total speed is greater than this
-     * @param ports               a list of port flags
+     * @param startingResources  the starting resources, packed
+     * @param targetResources    the target resources, packed; should have no unknown resources
+     * @param cutoff             maximum number of rolls
+     * @param ports              a list of port flags
+     * @return  the number of rolls, or {@code cutoff} if that maximum is reached
+     * @since 2.0.00
+     */
+    public final int calculateRollsFast
+        (final long startingResources, final long targetResources, final int cutoff, final boolean[] ports)
+    {
+        final int rolls = calculateRollsPacked(startingResources, targetResources, cutoff, ports, null);
+        return (rolls >= 0) ? rolls : cutoff;
+    }
+
+    /**
+     * Calculation for {@link #calculateRollsAndRsrcFast(SOCResourceSet, SOCResourceSet, int, boolean[])}
+     * and {@link #calculateRollsFast(long, long, int, boolean[])} on packed resource sets.
      *
-     * @return the number of rolls, and startingResources after any trading
-     * @throws CutoffExceededException  if total number of rolls &gt; {@code cutoff}
-     * @see #calculateRollsFast(SOCResourceSet, SOCResourceSet, int, boolean[])
+     * @param ourResources     the starting resources, packed
+     * @param targetResources  the target resources, packed
+     * @param cutoff           maximum number of rolls
+     * @param ports            a list of port flags
+     * @param resourcesAfter   if not null, element 0 is set to our resources when the target is reached
+     * @return  the number of rolls, or -1 if the total number of rolls &gt; {@code cutoff}
+     * @since 2.0.00
      */
-    protected SOCResSetBuildTimePair calculateRollsAndRsrcFast
-        (final SOCResourceSet startingResources, final SOCResourceSet targetResources, final int cutoff, final boolean[] ports)
-        throws CutoffExceededException
+    private int calculateRollsPacked
+        (long ourResources, final long targetResources, final int cutoff, final boolean[] ports,
+         final long[] resourcesAfter)
     {
-        //D.ebugPrintln("calculateRolls");
-        //D.ebugPrintln("  start: "+startingResources);
-        //D.ebugPrintln("  target: "+targetResources);
-        SOCResourceSet ourResources = startingResources.copy();
         int rolls = 0;
 
-        if (!ourResources.contains(targetResources))
-        {
-            /**
-             * do any possible trading with the bank/ports
-             */
-            for (int giveResource = SOCResourceConstants.CLAY;
-                    giveResource <= SOCResourceConstants.WOOD;
-                    giveResource++)
-            {
-                /**
-                 * find the ratio at which we can trade
-                 */
-                int tradeRatio;
-
-                if (ports[giveResource])
-                {
-                    tradeRatio = 2;
-                }
-                else if (ports[SOCBoard.MISC_PORT])
-                {
-                    tradeRatio = 3;
-                }
-                else
-                {
-                    tradeRatio = 4;
-                }
-
-                /**
-                 * get the target resources
-                 */
-                int numTrades = (ourResources.getAmount(giveResource) - targetResources.getAmount(giveResource)) / tradeRatio;
-
-                //D.ebugPrintln("))) ***");
-                //D.ebugPrintln("))) giveResource="+giveResource);
-                //D.ebugPrintln("))) tradeRatio="+tradeRatio);
-                //D.ebugPrintln("))) ourResources="+ourResources);
-                //D.ebugPrintln("))) targetResources="+targetResources);
-                //D.ebugPrintln("))) numTrades="+numTrades);
-                for (int trades = 0; trades < numTrades; trades++)
-                {
-                    /**
-                     * find the most needed resource by looking at
-                     * which of the resources we still need takes the
-                     * longest to aquire
-                     */
-                    int mostNeededResource = -1;
-
-                    for (int resource = SOCResourceConstants.CLAY;
-                            resource <= SOCResourceConstants.WOOD;
-                            resource++)
-                    {
-                        if (ourResources.getAmount(resource) < targetResources.getAmount(resource))
-                        {
-                            if (mostNeededResource < 0)
-                            {
-                                mostNeededResource = resource;
-                            }
-                            else
-                            {
-                                if (rollsPerResource[resource] > rollsPerResource[mostNeededResource])
-                                {
-                                    mostNeededResource = resource;
-                                }
-                            }
-                        }
-                    }
-
-                    /**
-                     * make the trade
-                     */
-
-                    //D.ebugPrintln("))) want to trade "+tradeRatio+" "+giveResource+" for a "+mostNeededResource);
-                    if ((mostNeededResource != -1) && (ourResources.getAmount(giveResource) >= tradeRatio))
-                    {
-                        //D.ebugPrintln("))) trading...");
-                        ourResources.add(1, mostNeededResource);
-
-                        if (ourResources.getAmount(giveResource) < tradeRatio)
-                        {
-                            System.err.println("@@@ rsrcs=" + ourResources);
-                            System.err.println("@@@ tradeRatio=" + tradeRatio);
-                            System.err.println("@@@ giveResource=" + giveResource);
-                            System.err.println("@@@ target=" + targetResources);
-                        }
-
-                        ourResources.subtract(tradeRatio, giveResource);
-
-                        //D.ebugPrintln("))) ourResources="+ourResources);
-                    }
-
-                    if (ourResources.contains(targetResources))
-                    {
-                        break;
-                    }
-                }
+        if (! SOCPackedResourceSet.contains(ourResources, targetResources))
+            ourResources = tradeWithBank(ourResources, targetResources, ports);
 
-                if (ourResources.contains(targetResources))
-                {
-                    break;
-                }
-            }
-        }
-
-        while (!ourResources.contains(targetResources))
+        while (! SOCPackedResourceSet.contains(ourResources, targetResources))
         {
-            //D.ebugPrintln("roll: "+rolls);
-            //D.ebugPrintln("resources: "+ourResources);
             rolls++;
-
             if (rolls > cutoff)
-            {
-                //D.ebugPrintln("startingResources="+startingResources+"\ntargetResources="+targetResources+"\ncutoff="+cutoff+"\nourResources="+ourResources);
-                throw new CutoffExceededException();
-            }
+                return -1;
 
+            /**
+             * get our resources for the roll
+             */
             for (int resource = SOCResourceConstants.CLAY;
                     resource <= SOCResourceConstants.WOOD; resource++)
             {
-                //D.ebugPrintln("resource: "+resource);
-                //D.ebugPrintln("rollsPerResource: "+rollsPerResource[resource]);
-
-                /**
-                 * get our resources for the roll
-                 */
                 if ((rollsPerResource[resource] == 0) || ((rolls % rollsPerResource[resource]) == 0))
-                {
-                    ourResources.add(1, resource);
-                }
+                    ourResources = SOCPackedResourceSet.add(ourResources, 1, resource);
             }
 
-            if (!ourResources.contains(targetResources))
-            {
-                /**
-                 * do any possible trading with the bank/ports
-                 */
-                for (int giveResource = SOCResourceConstants.CLAY;
-                        giveResource <= SOCResourceConstants.WOOD;
-                        giveResource++)
-                {
-                    /**
-                     * find the ratio at which we can trade
-                     */
-                    int tradeRatio;
-
-                    if (ports[giveResource])
-                    {
-                        tradeRatio = 2;
-                    }
-                    else if (ports[SOCBoard.MISC_PORT])
-                    {
-                        tradeRatio = 3;
-                    }
-                    else
-                    {
-                        tradeRatio = 4;
-                    }
-
-                    /**
-                     * get the target resources
-                     */
-                    int numTrades = (ourResources.getAmount(giveResource) - targetResources.getAmount(giveResource)) / tradeRatio;
-
-                    //D.ebugPrintln("))) ***");
-                    //D.ebugPrintln("))) giveResource="+giveResource);
-                    //D.ebugPrintln("))) tradeRatio="+tradeRatio);
-                    //D.ebugPrintln("))) ourResources="+ourResources);
-                    //D.ebugPrintln("))) targetResources="+targetResources);
-                    //D.ebugPrintln("))) numTrades="+numTrades);
-                    for (int trades = 0; trades < numTrades; trades++)
-                    {
-                        /**
-                         * find the most needed resource by looking at
-                         * which of the resources we still need takes the
-                         * longest to aquire
-                         */
-                        int mostNeededResource = -1;
-
-                        for (int resource = SOCResourceConstants.CLAY;
-                                resource <= SOCResourceConstants.WOOD;
-                                resource++)
-                        {
-                            if (ourResources.getAmount(resource) < targetResources.getAmount(resource))
-                            {
-                                if (mostNeededResource < 0)
-                                {
-                                    mostNeededResource = resource;
-                                }
-                                else
-                                {
-                                    if (rollsPerResource[resource] > rollsPerResource[mostNeededResource])
-                                    {
-                                        mostNeededResource = resource;
-                                    }
-                                }
-                            }
-                        }
-
-                        /**
-                         * make the trade
-                         */
-
-                        //D.ebugPrintln("))) want to trade "+tradeRatio+" "+giveResource+" for a "+mostNeededResource);
-                        if ((mostNeededResource != -1) && (ourResources.getAmount(giveResource) >= tradeRatio))
-                        {
-                            //D.ebugPrintln("))) trading...");
-                            ourResources.add(1, mostNeededResource);
+            if (! SOCPackedResourceSet.contains(ourResources, targetResources))
+                ourResources = tradeWithBank(ourResources, targetResources, ports);
+        }
 
-                            if (ourResources.getAmount(giveResource) < tradeRatio)
-                            {
-                                System.err.println("@@@ rsrcs=" + ourResources);
-                                System.err.println("@@@ tradeRatio=" + tradeRatio);
-                                System.err.println("@@@ giveResource=" + giveResource);
-                                System.err.println("@@@ target=" + targetResources);
-                            }
+        if (resourcesAfter != null)
+            resourcesAfter[0] = ourResources;
 
-                            ourResources.subtract(tradeRatio, giveResource);
+        return rolls;
+    }
 
-                            //D.ebugPrintln("))) ourResources="+ourResources);
-                        }
+    /**
+     * Do any possible trading with the bank/ports, giving our resources beyond the target amounts
+     * for the most needed resource: the one we still need which takes the longest to acquire.
+     * Used by {@link #calculateRollsPacked(long, long, int, boolean[], long[])}.
+     * @param ourResources  our resources, packed
+     * @param targetResources  the target resources, packed
+     * @param ports  a list of port flags
+     * @return  our resources after trading
+     * @since 2.0.00
+     */
+    private long tradeWithBank(long ourResources, final long targetResources, final boolean[] ports)
+    {
+        for (int giveResource = SOCResourceConstants.CLAY;
+                giveResource <= SOCResourceConstants.WOOD;
+                giveResource++)
+        {
+            final int tradeRatio;
+            if (ports[giveResource])
+                tradeRatio = 2;
+            else if (ports[SOCBoard.MISC_PORT])
+                tradeRatio = 3;
+            else
+                tradeRatio = 4;
 
-                        if (ourResources.contains(targetResources))
-                        {
-                            break;
-                        }
-                    }
+            final int numTrades = (SOCPackedResourceSet.getAmount(ourResources, giveResource)
+                - SOCPackedResourceSet.getAmount(targetResources, giveResource)) / tradeRatio;
+            for (int trades = 0; trades < numTrades; trades++)
+            {
+                int mostNeededResource = -1;
+                for (int resource = SOCResourceConstants.CLAY;
+                        resource <= SOCResourceConstants.WOOD;
+                        resource++)
+                {
+                    if ((SOCPackedResourceSet.getAmount(ourResources, resource)
+                           < SOCPackedResourceSet.getAmount(targetResources, resource))
+                        && ((mostNeededResource < 0)
+                            || (rollsPerResource[resource] > rollsPerResource[mostNeededResource])))
+                        mostNeededResource = resource;
+                }
 
-                    if (ourResources.contains(targetResources))
-                    {
-                        break;
-                    }
+                if ((mostNeededResource != -1)
+                    && (SOCPackedResourceSet.getAmount(ourResources, giveResource) >= tradeRatio))
+                {
+                    ourResources = SOCPackedResourceSet.add(ourResources, 1, mostNeededResource);
+                    ourResources = SOCPackedResourceSet.subtract(ourResources, tradeRatio, giveResource);
                 }
+
+                if (SOCPackedResourceSet.contains(ourResources, targetResources))
+                    return ourResources;
             }
+
+            if (SOCPackedResourceSet.contains(ourResources, targetResources))
+                return ourResources;
         }
 
-        return (new SOCResSetBuildTimePair(ourResources, rolls));
+        return ourResources;
+    }
+
+    /**
+     * this figures out how many rolls it would take this
+     * player to get the target set of resources given
+     * a starting set
+     *<P>
+     * Before v2.0.00, this was {@code calculateRollsFast}.
+     *
+     * @param startingResources   the starting resources
+     * @param targetResources     the target resources
+     * @param cutoff              throw an exception if the total speed is greater than this
+     * @param ports               a list of port flags
+     *
+     * @return the number of rolls, and startingResources after any trading
+     * @throws CutoffExceededException  if total number of rolls &gt; {@code cutoff}
+     * @see #calculateRollsFast(SOCResourceSet, SOCResourceSet, int, boolean[])
+     */
+    protected SOCResSetBuildTimePair calculateRollsAndRsrcFast
+        (final SOCResourceSet startingResources, final SOCResourceSet targetResources, final int cutoff, final boolean[] ports)
+        throws CutoffExceededException
+    {
+        final long[] ourResources = new long[1];
+        final int rolls = calculateRollsPacked
+            (SOCPackedResourceSet.fromResourceSet(startingResources),
+             SOCPackedResourceSet.fromResourceSet(targetResources), cutoff, ports, ourResources);
+        if (rolls < 0)
+            throw new CutoffExceededException();
+
+        return (new SOCResSetBuildTimePair(SOCPackedResourceSet.toResourceSet(ourResources[0]), rolls));
     }
 
     /**
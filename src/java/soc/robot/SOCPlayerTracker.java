@@ -41,13 +41,15 @@ import soc.game.SOCShip;
 
 import soc.util.Pair;
 import soc.util.Queue;
+import soc.util.SortedIntMap;
 
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Stack;
-import java.util.TreeMap;
 import java.util.Vector;
 
 
@@ -103,6 +105,21 @@ public class SOCPlayerTracker
      */
     static protected int LR_CALC_LEVEL = 2;
 
+    /**
+     * If true, {@link SOCRobotBrain} checks the threats maintained incrementally
+     * by {@link #clearThreatsNear(BitSet, HashMap)} and {@link #updateThreats(HashMap)}
+     * after each piece placement, by calling {@link #verifyThreats(HashMap)}
+     * to compare them against a full recalculation. Slow; for debugging only.
+     * @since 2.0.00
+     */
+    public static boolean VERIFY_THREATS = false;
+
+    /**
+     * Number of mismatches found by {@link #verifyThreats(HashMap)} in this JVM.
+     * @since 2.0.00
+     */
+    private static int verifyThreatsMismatchCount = 0;
+
     /** The robot brain using this tracker */
     protected final SOCRobotBrain brain;
 
@@ -114,24 +131,61 @@ public class SOCPlayerTracker
 
     /**
      * Possible near-future settlements for this player.
-     * Key = {@link Integer} node coordinate, value = {@link SOCPossibleSettlement}.
+     * Key = node coordinate, value = {@link SOCPossibleSettlement}.
      * Expanded in {@link #addOurNewRoadOrShip(SOCRoad, HashMap, int)}
      * via {@link #expandRoadOrShip(SOCPossibleRoad, SOCPlayer, SOCPlayer, HashMap, int)}.
      * Also updated in {@link #addNewSettlement(SOCSettlement, HashMap)},
      * {@link #cancelWrongSettlement(SOCSettlement)}, a few other places.
      */
-    protected TreeMap<Integer, SOCPossibleSettlement> possibleSettlements;
+    protected SortedIntMap<SOCPossibleSettlement> possibleSettlements;
 
     /**
      * Includes both roads and ships.
-     * Key = {@link Integer} edge coordinate, value = {@link SOCPossibleRoad} or {@link SOCPossibleShip}
+     * Key = edge coordinate, value = {@link SOCPossibleRoad} or {@link SOCPossibleShip}
      * Expanded in {@link #addOurNewRoadOrShip(SOCRoad, HashMap, int)}
      * via {@link #expandRoadOrShip(SOCPossibleRoad, SOCPlayer, SOCPlayer, HashMap, int)}.
      */
-    protected TreeMap<Integer, SOCPossibleRoad> possibleRoads;
+    protected SortedIntMap<SOCPossibleRoad> possibleRoads;
+
+    /** Key = node coordinate, value = {@link SOCPossibleCity} */
+    protected SortedIntMap<SOCPossibleCity> possibleCities;
+
+    /**
+     * Is this a lightweight tracker?  Piece placements don't update a lightweight tracker's
+     * possible pieces ({@link #possibleRoads}, {@link #possibleSettlements}, {@link #possibleCities}),
+     * they only set {@link #graphStale}.  The possible pieces are rebuilt from the player's
+     * pieces when next needed, by {@link #getPossibleSettlements()} or {@link #recalcWinGameETA()} for example.
+     *<P>
+     * A lightweight tracker's possible pieces have no threats, and no conflicts with other players' possible
+     * settlements.  Other trackers' threat and conflict updates skip lightweight trackers.
+     * @see #isLightweight()
+     * @since 2.0.00
+     */
+    private final boolean lightweight;
 
-    /** Key = {@link Integer} node coordinate, value = {@link SOCPossibleCity} */
-    protected TreeMap<Integer, SOCPossibleCity> possibleCities;
+    /**
+     * If {@link #lightweight}, true if pieces have been placed since the possible pieces were last built,
+     * so they must be rebuilt by {@link #ensureGraph()} before use.  Always false if not lightweight.
+     * @since 2.0.00
+     */
+    private boolean graphStale;
+
+    /**
+     * Nodes where this tracker's possible settlements were added or removed or had their necessary roads change
+     * since {@link #updateThreats(HashMap)} last ran. Read by every tracker's {@link #clearThreatsNear(BitSet, HashMap)}
+     * to find the possible pieces whose threats may have changed, without scanning all of them.
+     * @see #changedRoadEdges
+     * @since 2.0.00
+     */
+    private final BitSet changedSettlementNodes = new BitSet();
+
+    /**
+     * Edges where this tracker's possible roads or ships were added or removed or had their necessary roads change
+     * since {@link #updateThreats(HashMap)} last ran.
+     * @see #changedSettlementNodes
+     * @since 2.0.00
+     */
+    private final BitSet changedRoadEdges = new BitSet();
 
     protected int longestRoadETA;
     protected int roadsToGo;
@@ -160,20 +214,37 @@ public class SOCPlayerTracker
     boolean inUse;
 
     /**
-     * Constructor.
+     * Constructor for a full (not lightweight) tracker.
      *
      * @param pl  the player being tracked
      * @param br  the robot brain using this tracker
      */
     public SOCPlayerTracker(SOCPlayer pl, SOCRobotBrain br)
+    {
+        this(pl, br, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param pl  the player being tracked
+     * @param br  the robot brain using this tracker
+     * @param lightweight  If true, don't update possible pieces as pieces are placed; rebuild them when needed.
+     *     Meant for other players' trackers when the brain's strategy doesn't plan with their possible pieces.
+     *     See {@link #isLightweight()}.
+     * @since 2.0.00
+     */
+    public SOCPlayerTracker(SOCPlayer pl, SOCRobotBrain br, final boolean lightweight)
     {
         inUse = false;
+        this.lightweight = lightweight;
+        graphStale = lightweight;
         brain = br;
         player = pl;
         playerNumber = pl.getPlayerNumber();
-        possibleRoads = new TreeMap<Integer, SOCPossibleRoad>();
-        possibleSettlements = new TreeMap<Integer, SOCPossibleSettlement>();
-        possibleCities = new TreeMap<Integer, SOCPossibleCity>();
+        possibleRoads = new SortedIntMap<SOCPossibleRoad>();
+        possibleSettlements = new SortedIntMap<SOCPossibleSettlement>();
+        possibleCities = new SortedIntMap<SOCPossibleCity>();
         longestRoadETA = 500;
         roadsToGo = 20;
         largestArmyETA = 500;
@@ -185,18 +256,40 @@ public class SOCPlayerTracker
      * Copy constructor.
      *<P>
      * Note: Does NOT copy connections between possible pieces
+     *<P>
+     * The copy is a full tracker, even if {@code pt} is {@link #isLightweight() lightweight}.
      *
      * @param pt  the player tracker
      */
     public SOCPlayerTracker(SOCPlayerTracker pt)
     {
+        this(pt, pt.getPlayer());
+    }
+
+    /**
+     * Copy constructor which tracks the same seat's player in a copy of the game,
+     * such as a fork used to score candidate pieces on another thread.
+     * The copied possible pieces also belong to {@code pl}.
+     *<P>
+     * Note: Does NOT copy connections between possible pieces
+     *<P>
+     * The copy is a full tracker, even if {@code pt} is {@link #isLightweight() lightweight}.
+     *
+     * @param pt  the player tracker
+     * @param pl  the player to track in the copy, in the same seat as {@code pt}'s player
+     * @since 2.0.00
+     */
+    public SOCPlayerTracker(SOCPlayerTracker pt, SOCPlayer pl)
+    {
+        pt.ensureGraph();
         inUse = false;
+        lightweight = false;
         brain = pt.getBrain();
-        player = pt.getPlayer();
+        player = pl;
         playerNumber = player.getPlayerNumber();
-        possibleRoads = new TreeMap<Integer, SOCPossibleRoad>();
-        possibleSettlements = new TreeMap<Integer, SOCPossibleSettlement>();
-        possibleCities = new TreeMap<Integer, SOCPossibleCity>();
+        possibleRoads = new SortedIntMap<SOCPossibleRoad>(pt.possibleRoads.size());
+        possibleSettlements = new SortedIntMap<SOCPossibleSettlement>(pt.possibleSettlements.size());
+        possibleCities = new SortedIntMap<SOCPossibleCity>(pt.possibleCities.size());
         longestRoadETA = pt.getLongestRoadETA();
         roadsToGo = pt.getRoadsToGo();
         largestArmyETA = pt.getLargestArmyETA();
@@ -217,19 +310,22 @@ public class SOCPlayerTracker
                 posRoadCopy = new SOCPossibleShip((SOCPossibleShip) posRoad);
             else
                 posRoadCopy = new SOCPossibleRoad(posRoad);
-            possibleRoads.put(new Integer(posRoadCopy.getCoordinates()), posRoadCopy);
+            posRoadCopy.player = pl;
+            possibleRoads.put(posRoadCopy.getCoordinates(), posRoadCopy);
         }
 
         for (SOCPossibleSettlement posSettlement : pt.getPossibleSettlements().values())
         {
             SOCPossibleSettlement posSettlementCopy = new SOCPossibleSettlement(posSettlement);
-            possibleSettlements.put(new Integer(posSettlementCopy.getCoordinates()), posSettlementCopy);
+            posSettlementCopy.player = pl;
+            possibleSettlements.put(posSettlementCopy.getCoordinates(), posSettlementCopy);
         }
 
         for (SOCPossibleCity posCity : pt.getPossibleCities().values())
         {
             SOCPossibleCity posCityCopy = new SOCPossibleCity(posCity);
-            possibleCities.put(new Integer(posCityCopy.getCoordinates()), posCityCopy);
+            posCityCopy.player = pl;
+            possibleCities.put(posCityCopy.getCoordinates(), posCityCopy);
         }
     }
 
@@ -242,6 +338,25 @@ public class SOCPlayerTracker
      * param trackers  player trackers for each player
      */
     public static HashMap<Integer, SOCPlayerTracker> copyPlayerTrackers(HashMap<Integer, SOCPlayerTracker> trackers)
+    {
+        return copyPlayerTrackers(trackers, null);
+    }
+
+    /**
+     * make copies of player trackers, optionally tracking the players of a copy of their game,
+     * and then make connections between copied pieces.
+     * Reads but doesn't change {@code trackers}, as long as none of them are
+     * {@link #isLightweight() lightweight} with stale possible pieces.
+     *<P>
+     * Note: not copying threats
+     *
+     * @param trackers  player trackers for each player
+     * @param forGame  Copy of the trackers' game, such as one made with Java serialization,
+     *     whose players the copies will track; or {@code null} to track the same players as {@code trackers}
+     * @since 2.0.00
+     */
+    public static HashMap<Integer, SOCPlayerTracker> copyPlayerTrackers
+        (HashMap<Integer, SOCPlayerTracker> trackers, final SOCGame forGame)
     {
         HashMap<Integer, SOCPlayerTracker> trackersCopy = new HashMap<Integer, SOCPlayerTracker>(trackers.size());  // == SOCGame.MAXPLAYERS
 
@@ -253,7 +368,9 @@ public class SOCPlayerTracker
         while (trackersIter.hasNext())
         {
             SOCPlayerTracker pt = trackersIter.next();
-            trackersCopy.put(new Integer(pt.getPlayer().getPlayerNumber()), new SOCPlayerTracker(pt));
+            final int pn = pt.getPlayer().getPlayerNumber();
+            trackersCopy.put(new Integer(pn),
+                new SOCPlayerTracker(pt, (forGame != null) ? forGame.getPlayer(pn) : pt.getPlayer()));
         }
 
         //
@@ -269,14 +386,14 @@ public class SOCPlayerTracker
 
             //D.ebugPrintln(">>>> Player num for tracker is "+tracker.getPlayer().getPlayerNumber());
             //D.ebugPrintln(">>>> Player num for trackerCopy is "+trackerCopy.getPlayer().getPlayerNumber());
-            TreeMap<Integer, SOCPossibleRoad> possibleRoads = tracker.getPossibleRoads();
-            TreeMap<Integer, SOCPossibleRoad> possibleRoadsCopy = trackerCopy.getPossibleRoads();
-            TreeMap<Integer, SOCPossibleSettlement> possibleSettlements = tracker.getPossibleSettlements();
-            TreeMap<Integer, SOCPossibleSettlement> possibleSettlementsCopy = trackerCopy.getPossibleSettlements();
+            SortedIntMap<SOCPossibleRoad> possibleRoads = tracker.getPossibleRoads();
+            SortedIntMap<SOCPossibleRoad> possibleRoadsCopy = trackerCopy.getPossibleRoads();
+            SortedIntMap<SOCPossibleSettlement> possibleSettlements = tracker.getPossibleSettlements();
+            SortedIntMap<SOCPossibleSettlement> possibleSettlementsCopy = trackerCopy.getPossibleSettlements();
 
             for (SOCPossibleRoad posRoad : possibleRoads.values())
             {
-                SOCPossibleRoad posRoadCopy = possibleRoadsCopy.get(new Integer(posRoad.getCoordinates()));
+                SOCPossibleRoad posRoadCopy = possibleRoadsCopy.get(posRoad.getCoordinates());
 
                 //D.ebugPrintln(">>> posRoad     : "+posRoad);
                 //D.ebugPrintln(">>> posRoadCopy : "+posRoadCopy);
@@ -288,7 +405,7 @@ public class SOCPlayerTracker
                     // now find the copy of this necessary road and
                     // add it to the pos road copy's nec road list
                     //
-                    SOCPossibleRoad necRoadCopy = possibleRoadsCopy.get(new Integer(necRoad.getCoordinates()));
+                    SOCPossibleRoad necRoadCopy = possibleRoadsCopy.get(necRoad.getCoordinates());
 
                     if (necRoadCopy != null)
                     {
@@ -312,7 +429,7 @@ public class SOCPlayerTracker
                     case SOCPossiblePiece.SHIP:  // fall through to ROAD
                     case SOCPossiblePiece.ROAD:
 
-                        SOCPossibleRoad newPosRoadCopy = possibleRoadsCopy.get(new Integer(newPos.getCoordinates()));
+                        SOCPossibleRoad newPosRoadCopy = possibleRoadsCopy.get(newPos.getCoordinates());
 
                         if (newPosRoadCopy != null)
                         {
@@ -327,7 +444,7 @@ public class SOCPlayerTracker
 
                     case SOCPossiblePiece.SETTLEMENT:
 
-                        SOCPossibleSettlement newPosSettlementCopy = possibleSettlementsCopy.get(new Integer(newPos.getCoordinates()));
+                        SOCPossibleSettlement newPosSettlementCopy = possibleSettlementsCopy.get(newPos.getCoordinates());
 
                         if (newPosSettlementCopy != null)
                         {
@@ -346,7 +463,7 @@ public class SOCPlayerTracker
 
             for (SOCPossibleSettlement posSet : possibleSettlements.values())
             {
-                SOCPossibleSettlement posSetCopy = possibleSettlementsCopy.get(new Integer(posSet.getCoordinates()));
+                SOCPossibleSettlement posSetCopy = possibleSettlementsCopy.get(posSet.getCoordinates());
 
                 //D.ebugPrintln(">>> posSet     : "+posSet);
                 //D.ebugPrintln(">>> posSetCopy : "+posSetCopy);
@@ -358,7 +475,7 @@ public class SOCPlayerTracker
                     // now find the copy of this necessary road and
                     // add it to the pos settlement copy's nec road list
                     //
-                    SOCPossibleRoad necRoadCopy = possibleRoadsCopy.get(new Integer(necRoad.getCoordinates()));
+                    SOCPossibleRoad necRoadCopy = possibleRoadsCopy.get(necRoad.getCoordinates());
 
                     if (necRoadCopy != null)
                     {
@@ -386,7 +503,7 @@ public class SOCPlayerTracker
                     }
                     else
                     {
-                        SOCPossibleSettlement conflictCopy = trackerCopy2.getPossibleSettlements().get(new Integer(conflict.getCoordinates()));
+                        SOCPossibleSettlement conflictCopy = trackerCopy2.getPossibleSettlements().get(conflict.getCoordinates());
 
                         if (conflictCopy == null)
                         {
@@ -448,30 +565,84 @@ public class SOCPlayerTracker
         return player;
     }
 
+    /**
+     * Is this a lightweight tracker, which rebuilds its possible pieces when needed
+     * instead of updating them as each piece is placed?
+     * Its possible pieces have no threats, and no conflicts with other players' possible settlements.
+     * @return true if lightweight
+     * @see #SOCPlayerTracker(SOCPlayer, SOCRobotBrain, boolean)
+     * @since 2.0.00
+     */
+    public boolean isLightweight()
+    {
+        return lightweight;
+    }
+
     /**
      * @return the list of possible roads and ships
      */
-    public TreeMap<Integer, SOCPossibleRoad> getPossibleRoads()
+    public SortedIntMap<SOCPossibleRoad> getPossibleRoads()
     {
+        ensureGraph();
         return possibleRoads;
     }
 
     /**
      * @return the list of possible settlements
      */
-    public TreeMap<Integer, SOCPossibleSettlement> getPossibleSettlements()
+    public SortedIntMap<SOCPossibleSettlement> getPossibleSettlements()
     {
+        ensureGraph();
         return possibleSettlements;
     }
 
     /**
      * @return the list of possible cities
      */
-    public TreeMap<Integer, SOCPossibleCity> getPossibleCities()
+    public SortedIntMap<SOCPossibleCity> getPossibleCities()
     {
+        ensureGraph();
         return possibleCities;
     }
 
+    /**
+     * If this {@link #isLightweight() lightweight} tracker's possible pieces are stale,
+     * rebuild them from the player's current settlements, cities, roads and ships.
+     * Not linked to other trackers: The rebuilt possible pieces have no threats,
+     * and conflicts only with this player's other possible settlements.
+     * @since 2.0.00
+     */
+    private void ensureGraph()
+    {
+        if (! graphStale)
+            return;
+
+        graphStale = false;  // before rebuilding, since the add methods call getPossibleSettlements()
+
+        possibleRoads.clear();
+        possibleSettlements.clear();
+        possibleCities.clear();
+
+        HashMap<Integer, SOCPlayerTracker> onlyThis = new HashMap<Integer, SOCPlayerTracker>(1);
+        onlyThis.put(Integer.valueOf(playerNumber), this);
+
+        for (SOCSettlement se : player.getSettlements())
+            addOurNewSettlement(se, onlyThis);
+        for (SOCCity ci : player.getCities())
+        {
+            final int coord = ci.getCoordinates();
+            addOurNewSettlement(new SOCSettlement(player, coord, null), onlyThis);
+            possibleCities.remove(coord);
+        }
+        for (SOCRoad rd : player.getRoads())
+            addOurNewRoadOrShip(rd, onlyThis, EXPAND_LEVEL);
+
+        for (SOCPossibleSettlement ps : possibleSettlements.values())
+            ps.updateSpeedup();
+        for (SOCPossibleCity pc : possibleCities.values())
+            pc.updateSpeedup();
+    }
+
     /**
      * @return the longest road eta
      */
@@ -534,6 +705,12 @@ public class SOCPlayerTracker
      */
     public void addNewRoadOrShip(SOCRoad road, HashMap<Integer, SOCPlayerTracker> trackers)
     {
+        if (lightweight)
+        {
+            graphStale = true;
+            return;
+        }
+
         if (road.getPlayerNumber() == playerNumber)
         {
             addOurNewRoadOrShip(road, trackers, EXPAND_LEVEL);
@@ -553,6 +730,12 @@ public class SOCPlayerTracker
      */
     public void cancelWrongRoadOrShip(SOCRoad road)
     {
+        if (lightweight)
+        {
+            graphStale = true;
+            return;
+        }
+
         addTheirNewRoadOrShip(road, true);
 
         //
@@ -572,7 +755,8 @@ public class SOCPlayerTracker
                 // if so, remove it
                 //
                 //D.ebugPrintln("$$$ removing (wrong) "+Integer.toHexString(road.getCoordinates()));
-                possibleRoads.remove(new Integer(pr.getCoordinates()));
+                possibleRoads.remove(pr.getCoordinates());
+                roadThreatsChanged(pr.getCoordinates());
                 removeFromNecessaryRoads(pr);
 
                 break;
@@ -614,7 +798,8 @@ public class SOCPlayerTracker
                 // if so, remove it
                 //
                 //D.ebugPrintln("$$$ removing "+Integer.toHexString(road.getCoordinates()));
-                possibleRoads.remove(new Integer(pr.getCoordinates()));
+                possibleRoads.remove(pr.getCoordinates());
+                roadThreatsChanged(pr.getCoordinates());
                 removeFromNecessaryRoads(pr);
 
                 break;
@@ -660,6 +845,7 @@ public class SOCPlayerTracker
                     SOCPossibleSettlement newPosSet = new SOCPossibleSettlement(player, adjNode.intValue(), null);
                     newPosSet.setNumberOfNecessaryRoads(0);
                     possibleSettlements.put(adjNode, newPosSet);
+                    settlementThreatsChanged(newPosSet.getCoordinates());
                     updateSettlementConflicts(newPosSet, trackers);
                 }
             }
@@ -777,7 +963,8 @@ public class SOCPlayerTracker
         //
         for (SOCPossibleRoad newPR : newPossibleRoads)
         {
-            possibleRoads.put(new Integer(newPR.getCoordinates()), newPR);
+            possibleRoads.put(newPR.getCoordinates(), newPR);
+            roadThreatsChanged(newPR.getCoordinates());
         }
 
         //
@@ -862,6 +1049,7 @@ public class SOCPlayerTracker
                         //D.ebugPrintln("$$$ adding road "+Integer.toHexString(targetRoad.getCoordinates())+" to the settlement "+Integer.toHexString(posSet.getCoordinates()));
                         posSet.getNecessaryRoads().addElement(targetRoad);
                         targetRoad.addNewPossibility(posSet);
+                        settlementThreatsChanged(posSet.getCoordinates());
 
                         //
                         // update settlement's numberOfNecessaryRoads if this road reduces it
@@ -885,6 +1073,7 @@ public class SOCPlayerTracker
                     newPosSet.setNumberOfNecessaryRoads(targetRoad.getNumberOfNecessaryRoads() + 1);
                     possibleSettlements.put(adjNode, newPosSet);
                     targetRoad.addNewPossibility(newPosSet);
+                    settlementThreatsChanged(newPosSet.getCoordinates());
                     updateSettlementConflicts(newPosSet, trackers);
                 }
             }
@@ -993,6 +1182,7 @@ public class SOCPlayerTracker
                             //D.ebugPrintln("$$$    adding "+Integer.toHexString(targetRoad.getCoordinates())+" to nr list");
                             nr.addElement(targetRoad);
                             targetRoad.addNewPossibility(pr);
+                            roadThreatsChanged(pr.getCoordinates());
 
                             //
                             // update this road's numberOfNecessaryRoads if the target road reduces it
@@ -1043,7 +1233,8 @@ public class SOCPlayerTracker
             while (newPREnum.hasMoreElements())
             {
                 SOCPossibleRoad newPR = newPREnum.nextElement();
-                possibleRoads.put(new Integer(newPR.getCoordinates()), newPR);
+                possibleRoads.put(newPR.getCoordinates(), newPR);
+                roadThreatsChanged(newPR.getCoordinates());
             }
 
             //
@@ -1084,13 +1275,14 @@ public class SOCPlayerTracker
          */
         D.ebugPrintln("$$$ addTheirNewRoadOrShip : " + road);
 
-        Integer roadCoordinates = new Integer(road.getCoordinates());
+        final int roadCoordinates = road.getCoordinates();
         SOCPossibleRoad pr = possibleRoads.get(roadCoordinates);
 
         if (pr != null)
         {
             //D.ebugPrintln("$$$ removing road at "+Integer.toHexString(pr.getCoordinates()));
             possibleRoads.remove(roadCoordinates);
+            roadThreatsChanged(roadCoordinates);
             removeFromNecessaryRoads(pr);
             removeDependents(pr);
         }
@@ -1286,6 +1478,8 @@ public class SOCPlayerTracker
         while (trackersIter.hasNext())
         {
             SOCPlayerTracker tracker = trackersIter.next();
+            if (tracker.lightweight && (tracker != this))
+                continue;  // has no conflicts with other players
 
             /**
              * first look at the node that the possible settlement is on
@@ -1295,7 +1489,7 @@ public class SOCPlayerTracker
              */
             if (tracker.getPlayer().getPlayerNumber() != ps.getPlayer().getPlayerNumber())
             {
-                SOCPossibleSettlement posSet = tracker.getPossibleSettlements().get(new Integer(ps.getCoordinates()));
+                SOCPossibleSettlement posSet = tracker.getPossibleSettlements().get(ps.getCoordinates());
 
                 if (posSet != null)
                 {
@@ -1335,13 +1529,20 @@ public class SOCPlayerTracker
     {
         //D.ebugPrintln("%$% settlement owner ="+settlement.getPlayer().getPlayerNumber());
         //D.ebugPrintln("%$% tracker owner ="+player.getPlayerNumber());
+        if (lightweight)
+        {
+            graphStale = true;
+            return;
+        }
+
         if (settlement.getPlayerNumber() == playerNumber)
         {
             addOurNewSettlement(settlement, trackers);
         }
         else
         {
-            addTheirNewSettlement(settlement, false);
+            final SOCPlayerTracker settlerTracker = trackers.get(Integer.valueOf(settlement.getPlayerNumber()));
+            addTheirNewSettlement(settlement, false, (settlerTracker != null) && settlerTracker.lightweight);
         }
     }
 
@@ -1354,6 +1555,12 @@ public class SOCPlayerTracker
      */
     public void cancelWrongSettlement(SOCSettlement settlement)
     {
+        if (lightweight)
+        {
+            graphStale = true;
+            return;
+        }
+
         addTheirNewSettlement(settlement, true);
 
         /**
@@ -1363,10 +1570,11 @@ public class SOCPlayerTracker
          * see if the new settlement was a possible settlement in
          * the list.  if so, remove it.
          */
-        Integer settlementCoords = new Integer(settlement.getCoordinates());
+        final int settlementCoords = settlement.getCoordinates();
         SOCPossibleSettlement ps = possibleSettlements.get(settlementCoords);
         D.ebugPrintln("$$$ removing (wrong) " + Integer.toHexString(settlement.getCoordinates()));
         possibleSettlements.remove(settlementCoords);
+        settlementThreatsChanged(settlementCoords);
         removeFromNecessaryRoads(ps);
 
     }
@@ -1394,7 +1602,7 @@ public class SOCPlayerTracker
         D.ebugPrintln("$$$ addOurNewSettlement : " + settlement);
         SOCBoard board = player.getGame().getBoard();
 
-        final Integer settlementCoords = new Integer(settlement.getCoordinates());
+        final int settlementCoords = settlement.getCoordinates();
 
         /**
          * add a new possible city
@@ -1421,6 +1629,7 @@ public class SOCPlayerTracker
              */
             D.ebugPrintln("$$$ removing " + Integer.toHexString(settlement.getCoordinates()));
             possibleSettlements.remove(settlementCoords);
+            settlementThreatsChanged(settlementCoords);
             removeFromNecessaryRoads(ps);
 
             /**
@@ -1438,7 +1647,7 @@ public class SOCPlayerTracker
                 if (tracker != null)
                 {
                     D.ebugPrintln("$$$ removing " + Integer.toHexString(conflict.getCoordinates()));
-                    tracker.getPossibleSettlements().remove(new Integer(conflict.getCoordinates()));
+                    tracker.getPossibleSettlements().remove(conflict.getCoordinates());
                     removeFromNecessaryRoads(conflict);
 
                     /**
@@ -1470,6 +1679,9 @@ public class SOCPlayerTracker
             while (trackersIter.hasNext())
             {
                 SOCPlayerTracker tracker = trackersIter.next();
+                if (tracker.lightweight && (tracker != this))
+                    continue;  // will rebuild its possible pieces when needed
+
                 SOCPossibleSettlement posSet = tracker.getPossibleSettlements().get(settlementCoords);
                 D.ebugPrintln("$$$ tracker for player " + tracker.getPlayer().getPlayerNumber());
 
@@ -1538,7 +1750,7 @@ public class SOCPlayerTracker
                 {
                     SOCPossibleSettlement pset = trashEnum.nextElement();
                     D.ebugPrintln("$$$ removing " + Integer.toHexString(pset.getCoordinates()) + " owned by " + pset.getPlayer().getPlayerNumber());
-                    tracker.getPossibleSettlements().remove(new Integer(pset.getCoordinates()));
+                    tracker.getPossibleSettlements().remove(pset.getCoordinates());
                     removeFromNecessaryRoads(pset);
                 }
 
@@ -1597,6 +1809,7 @@ public class SOCPlayerTracker
                     // A way out to a new island
                     SOCPossibleShip newPS = new SOCPossibleShip(player, edge, null);
                     possibleRoads.put(edge, newPS);
+                    roadThreatsChanged(edge);
                     System.err.println("L1383: new possible ship at edge 0x"
                         + Integer.toHexString(edge) + " from coastal settle 0x"
                         + Integer.toHexString(settlementCoords));
@@ -1615,7 +1828,8 @@ public class SOCPlayerTracker
                 // (Make sure this isn't initial placement, where nothing has adjacent roads)
                 for (SOCPossibleRoad pr : possibleNewIslandRoads)
                 {
-                    possibleRoads.put(Integer.valueOf(pr.getCoordinates()), pr);
+                    possibleRoads.put(pr.getCoordinates(), pr);
+                    roadThreatsChanged(pr.getCoordinates());
                     System.err.println("L1396: new possible road at edge 0x"
                         + Integer.toHexString(pr.getCoordinates()) + " from coastal settle 0x"
                         + Integer.toHexString(settlementCoords));
@@ -1652,6 +1866,23 @@ public class SOCPlayerTracker
      *     If so, this method call will cancel its placement within the tracker data.
      */
     public void addTheirNewSettlement(SOCSettlement settlement, boolean isCancel)
+    {
+        addTheirNewSettlement(settlement, isCancel, false);
+    }
+
+    /**
+     * add another player's new settlement, or cancel our own bad settlement.
+     * See {@link #addTheirNewSettlement(SOCSettlement, boolean)}.
+     *
+     * @param settlement  the new settlement
+     * @param isCancel Is this our own robot's settlement placement, rejected by the server?
+     * @param settlerIsLightweight  True if the settling player's tracker {@link #isLightweight()}.
+     *     Its possible settlements don't threaten our possible roads, so look at the board
+     *     to see which of our possible roads the new settlement cuts off.
+     * @since 2.0.00
+     */
+    private void addTheirNewSettlement
+        (SOCSettlement settlement, final boolean isCancel, final boolean settlerIsLightweight)
     {
         /**
          * this doesn't need to remove conflicts between settlements
@@ -1668,6 +1899,31 @@ public class SOCPlayerTracker
         //D.ebugPrintln();
         D.ebugPrintln("$$$ addTheirNewSettlement : " + settlement);
 
+        if (settlerIsLightweight && ! isCancel)
+        {
+            /**
+             * the settler's tracker would have removed our possible settlements
+             * at and next to the new settlement in addOurNewSettlement
+             */
+            final int settleCoord = settlement.getCoordinates();
+            Vector<Integer> nodes = new Vector<Integer>(player.getGame().getBoard().getAdjacentNodesToNode(settleCoord));
+            nodes.addElement(Integer.valueOf(settleCoord));
+
+            for (Integer node : nodes)
+            {
+                SOCPossibleSettlement posSet = possibleSettlements.get(node.intValue());
+                if (posSet == null)
+                    continue;
+
+                D.ebugPrintln("$$$ removing " + Integer.toHexString(posSet.getCoordinates()));
+                for (SOCPossibleSettlement conflict : posSet.getConflicts())
+                    conflict.removeConflict(posSet);
+                possibleSettlements.remove(node.intValue());
+                settlementThreatsChanged(node.intValue());
+                removeFromNecessaryRoads(posSet);
+            }
+        }
+
         Vector<SOCPossibleRoad> prTrash = new Vector<SOCPossibleRoad>();
         Vector<SOCPossibleRoad> nrTrash = new Vector<SOCPossibleRoad>();
         Vector<Integer> adjEdges = player.getGame().getBoard().getAdjacentEdgesToNode(settlement.getCoordinates());
@@ -1712,6 +1968,26 @@ public class SOCPlayerTracker
                                 break;
                             }
                         }
+
+                        if (settlerIsLightweight && ! prTrash.contains(pr))
+                        {
+                            // Would have been threatened if one of our roads or ships meets it at the new settlement
+                            final SOCBoard board = player.getGame().getBoard();
+                            for (Integer edge2 : adjEdges)
+                            {
+                                if (edge2.intValue() == edge1.intValue())
+                                    continue;
+
+                                final SOCRoad rd = board.roadAtEdge(edge2.intValue());
+                                if ((rd != null) && (rd.getPlayerNumber() == playerNumber))
+                                {
+                                    D.ebugPrintln("$$$ new settlement cuts off road at " + Integer.toHexString(pr.getCoordinates()));
+                                    prTrash.addElement(pr);
+
+                                    break;
+                                }
+                            }
+                        }
                     }
                 }
                 else
@@ -1752,6 +2028,7 @@ public class SOCPlayerTracker
                             SOCPossibleRoad nrTrashRoad = nrTrashEnum.nextElement();
                             pr.getNecessaryRoads().removeElement(nrTrashRoad);
                             nrTrashRoad.getNewPossibilities().removeElement(pr);
+                            roadThreatsChanged(pr.getCoordinates());
                         }
 
                         if (pr.getNecessaryRoads().isEmpty())
@@ -1771,7 +2048,8 @@ public class SOCPlayerTracker
             while (prTrashEnum.hasMoreElements())
             {
                 SOCPossibleRoad prt = prTrashEnum.nextElement();
-                possibleRoads.remove(new Integer(prt.getCoordinates()));
+                possibleRoads.remove(prt.getCoordinates());
+                roadThreatsChanged(prt.getCoordinates());
                 removeFromNecessaryRoads(prt);
                 removeDependents(prt);
             }
@@ -1818,7 +2096,8 @@ public class SOCPlayerTracker
                     if (nr.isEmpty())
                     {
                         //D.ebugPrintln("$$$ removing this road");
-                        possibleRoads.remove(new Integer(newPos.getCoordinates()));
+                        possibleRoads.remove(newPos.getCoordinates());
+                        roadThreatsChanged(newPos.getCoordinates());
                         removeFromNecessaryRoads((SOCPossibleRoad) newPos);
                         removeDependents((SOCPossibleRoad) newPos);
                     }
@@ -1841,6 +2120,10 @@ public class SOCPlayerTracker
                         }
 
                         ((SOCPossibleRoad) newPos).setNumberOfNecessaryRoads(smallest);
+
+                        // its threats depend on its necessary roads; see clearThreatsNear
+                        newPos.clearThreats();
+                        roadThreatsChanged(newPos.getCoordinates());
                     }
                 }
 
@@ -1860,7 +2143,8 @@ public class SOCPlayerTracker
                     if (nr.isEmpty())
                     {
                         //D.ebugPrintln("$$$ removing this settlement");
-                        possibleSettlements.remove(new Integer(newPos.getCoordinates()));
+                        possibleSettlements.remove(newPos.getCoordinates());
+                        settlementThreatsChanged(newPos.getCoordinates());
                         removeFromNecessaryRoads((SOCPossibleSettlement) newPos);
 
                         /**
@@ -1893,6 +2177,10 @@ public class SOCPlayerTracker
                         }
 
                         ((SOCPossibleSettlement) newPos).setNumberOfNecessaryRoads(smallest);
+
+                        // its threats depend on its necessary roads; see clearThreatsNear
+                        newPos.clearThreats();
+                        settlementThreatsChanged(newPos.getCoordinates());
                     }
                 }
 
@@ -1958,12 +2246,18 @@ public class SOCPlayerTracker
         if (city == null)
             return;      // just in case; should not happen
 
+        if (lightweight)
+        {
+            graphStale = true;
+            return;
+        }
+
         /**
          * There is no addTheirNewCity method.
          * Just remove our potential city, since it was wrongly placed.
          * remove the possible city from the list
          */
-        possibleCities.remove(new Integer(city.getCoordinates()));
+        possibleCities.remove(city.getCoordinates());
     }
 
     /**
@@ -1974,10 +2268,16 @@ public class SOCPlayerTracker
      */
     public void addOurNewCity(SOCCity city)
     {
+        if (lightweight)
+        {
+            graphStale = true;
+            return;
+        }
+
         /**
          * remove the possible city from the list
          */
-        possibleCities.remove(new Integer(city.getCoordinates()));
+        possibleCities.remove(city.getCoordinates());
     }
 
     /**
@@ -1990,11 +2290,15 @@ public class SOCPlayerTracker
         /**
          * add the possible city to the list
          */
-        possibleCities.put(new Integer(city.getCoordinates()), city);
+        possibleCities.put(city.getCoordinates(), city);
     }
 
     /**
      * update threats for pieces that need to be updated
+     * (pieces whose {@link SOCPossiblePiece#isThreatUpdated()} is false).
+     *<P>
+     * After a piece is placed, call {@link #clearThreatsNear(BitSet, HashMap)} for each tracker
+     * to mark the pieces needing an update, then call this method for each tracker.
      *
      * @param trackers  all of the player trackers
      */
@@ -2002,12 +2306,30 @@ public class SOCPlayerTracker
     {
         //D.ebugPrintln("&&&& updateThreats");
 
+        // every tracker's clearThreatsNear has read these by now
+        changedSettlementNodes.clear();
+        changedRoadEdges.clear();
+
+        if (lightweight)
+            return;  // lightweight trackers don't track threats
+
         /**
          * check roads that need updating and don't have necessary roads
          */
         SOCBoard board = player.getGame().getBoard();
         Iterator<SOCPossibleRoad> posRoadsIter = possibleRoads.values().iterator();
 
+        /**
+         * edges of the player's roads and ships, for quick lookup instead of searching player.getRoads()
+         */
+        final BitSet realRoadEdges = new BitSet();
+        for (SOCRoad realRoad : player.getRoads())
+        {
+            final int edge = realRoad.getCoordinates();
+            if (edge >= 0)
+                realRoadEdges.set(edge);
+        }
+
         while (posRoadsIter.hasNext())
         {
             SOCPossibleRoad posRoad = posRoadsIter.next();
@@ -2025,54 +2347,48 @@ public class SOCPlayerTracker
                 while (adjEdgeEnum.hasMoreElements())
                 {
                     final int adjEdge = adjEdgeEnum.nextElement().intValue();
-                    Enumeration<SOCRoad> realRoadEnum = player.getRoads().elements();
 
-                    while (realRoadEnum.hasMoreElements())
+                    if ((adjEdge >= 0) && realRoadEdges.get(adjEdge))
                     {
-                        SOCRoad realRoad = realRoadEnum.nextElement();
+                        /**
+                         * found a supporting road, now find the node between
+                         * the supporting road and the possible road
+                         */
+                        final int[] adjNodesToRealRoad = board.getAdjacentNodesToEdge_arr(adjEdge);
 
-                        if (adjEdge == realRoad.getCoordinates())
+                        for (int pi = 0; pi < 2; ++pi)
                         {
-                            /**
-                             * found a supporting road, now find the node between
-                             * the supporting road and the possible road
-                             */
-                            final int[] adjNodesToRealRoad = realRoad.getAdjacentNodes();
+                            final int adjNodeToPosRoad = adjNodesToPosRoad[pi];
 
-                            for (int pi = 0; pi < 2; ++pi)
+                            for (int ri = 0; ri < 2; ++ri)
                             {
-                                final int adjNodeToPosRoad = adjNodesToPosRoad[pi];
+                                final int adjNodeToRealRoad = adjNodesToRealRoad[ri];
 
-                                for (int ri = 0; ri < 2; ++ri)
+                                if (adjNodeToPosRoad == adjNodeToRealRoad)
                                 {
-                                    final int adjNodeToRealRoad = adjNodesToRealRoad[ri];
+                                    /**
+                                     * we found the common node
+                                     * now see if there is a possible enemy settlement
+                                     */
+                                    final int adjNodeToPosRoadInt = adjNodeToPosRoad;
+                                    Iterator<SOCPlayerTracker> trackersIter = trackers.values().iterator();
 
-                                    if (adjNodeToPosRoad == adjNodeToRealRoad)
+                                    while (trackersIter.hasNext())
                                     {
-                                        /**
-                                         * we found the common node
-                                         * now see if there is a possible enemy settlement
-                                         */
-                                        final Integer adjNodeToPosRoadInt = new Integer(adjNodeToPosRoad);
-                                        Iterator<SOCPlayerTracker> trackersIter = trackers.values().iterator();
-
-                                        while (trackersIter.hasNext())
+                                        SOCPlayerTracker tracker = trackersIter.next();
+
+                                        if ((tracker.getPlayer().getPlayerNumber() != playerNumber) && ! tracker.lightweight)
                                         {
-                                            SOCPlayerTracker tracker = trackersIter.next();
+                                            SOCPossibleSettlement posEnemySet = tracker.getPossibleSettlements().get(adjNodeToPosRoadInt);
 
-                                            if (tracker.getPlayer().getPlayerNumber() != playerNumber)
+                                            if (posEnemySet != null)
                                             {
-                                                SOCPossibleSettlement posEnemySet = tracker.getPossibleSettlements().get(adjNodeToPosRoadInt);
+                                                /**
+                                                 * we found a settlement that threatens our possible road
+                                                 */
 
-                                                if (posEnemySet != null)
-                                                {
-                                                    /**
-                                                     * we found a settlement that threatens our possible road
-                                                     */
-
-                                                    //D.ebugPrintln("&&&& adding threat from settlement at "+Integer.toHexString(posEnemySet.getCoordinates()));
-                                                    posRoad.addThreat(posEnemySet);
-                                                }
+                                                //D.ebugPrintln("&&&& adding threat from settlement at "+Integer.toHexString(posEnemySet.getCoordinates()));
+                                                posRoad.addThreat(posEnemySet);
                                             }
                                         }
                                     }
@@ -2091,9 +2407,9 @@ public class SOCPlayerTracker
                 {
                     SOCPlayerTracker tracker = trackersIter.next();
 
-                    if (tracker.getPlayer().getPlayerNumber() != playerNumber)
+                    if ((tracker.getPlayer().getPlayerNumber() != playerNumber) && ! tracker.lightweight)
                     {
-                        SOCPossibleRoad posEnemyRoad = tracker.getPossibleRoads().get(new Integer(posRoad.getCoordinates()));
+                        SOCPossibleRoad posEnemyRoad = tracker.getPossibleRoads().get(posRoad.getCoordinates());
 
                         if (posEnemyRoad != null)
                         {
@@ -2185,9 +2501,9 @@ public class SOCPlayerTracker
                 {
                     SOCPlayerTracker tracker = trackersIter.next();
 
-                    if (tracker.getPlayer().getPlayerNumber() != playerNumber)
+                    if ((tracker.getPlayer().getPlayerNumber() != playerNumber) && ! tracker.lightweight)
                     {
-                        SOCPossibleRoad posEnemyRoad = tracker.getPossibleRoads().get(Integer.valueOf(posRoad.getCoordinates()));
+                        SOCPossibleRoad posEnemyRoad = tracker.getPossibleRoads().get(posRoad.getCoordinates());
 
                         if (posEnemyRoad != null)
                         {
@@ -2232,13 +2548,13 @@ public class SOCPlayerTracker
                                  * the node between the two possible roads
                                  */
                                 trackersIter = trackers.values().iterator();
-                                final Integer adjNodeInt = new Integer(adjNode1);
+                                final int adjNodeInt = adjNode1;
 
                                 while (trackersIter.hasNext())
                                 {
                                     SOCPlayerTracker tracker = trackersIter.next();
 
-                                    if (tracker.getPlayer().getPlayerNumber() != playerNumber)
+                                    if ((tracker.getPlayer().getPlayerNumber() != playerNumber) && ! tracker.lightweight)
                                     {
                                         SOCPossibleSettlement posEnemySet = tracker.getPossibleSettlements().get(adjNodeInt);
 
@@ -2285,9 +2601,9 @@ public class SOCPlayerTracker
                 {
                     SOCPlayerTracker tracker = trackersIter.next();
 
-                    if (tracker.getPlayer().getPlayerNumber() != playerNumber)
+                    if ((tracker.getPlayer().getPlayerNumber() != playerNumber) && ! tracker.lightweight)
                     {
-                        SOCPossibleSettlement posEnemySet = tracker.getPossibleSettlements().get(new Integer(posSet.getCoordinates()));
+                        SOCPossibleSettlement posEnemySet = tracker.getPossibleSettlements().get(posSet.getCoordinates());
 
                         if (posEnemySet != null)
                         {
@@ -2361,6 +2677,317 @@ public class SOCPlayerTracker
         }
     }
 
+    /**
+     * Note that this tracker's possible settlement at a node was added or removed,
+     * or its necessary roads changed, for {@link #clearThreatsNear(BitSet, HashMap)}.
+     * @param node  the possible settlement's node coordinate
+     * @since 2.0.00
+     */
+    private void settlementThreatsChanged(final int node)
+    {
+        if (node >= 0)
+            changedSettlementNodes.set(node);
+    }
+
+    /**
+     * Note that this tracker's possible road or ship at an edge was added or removed,
+     * or its necessary roads changed, for {@link #clearThreatsNear(BitSet, HashMap)}.
+     * @param edge  the possible road or ship's edge coordinate
+     * @since 2.0.00
+     */
+    private void roadThreatsChanged(final int edge)
+    {
+        if (edge >= 0)
+            changedRoadEdges.set(edge);
+    }
+
+    /**
+     * Get the nodes near a newly placed or cancelled piece, whose possible pieces' threats
+     * may have changed because of that piece. Used with {@link #clearThreatsNear(BitSet, HashMap)}.
+     * Includes all nodes within a few roads of the piece, enough to cover the new possible pieces
+     * added by {@link #EXPAND_LEVEL} and {@link #EXPAND_LEVEL_SHIP_EXTRA} and the pieces they threaten.
+     *
+     * @param board  the game board
+     * @param piece  the piece which was placed or cancelled: settlement, city, road or ship
+     * @return  the set of nearby node coordinates
+     * @since 2.0.00
+     */
+    public static BitSet getThreatUpdateNodes(final SOCBoard board, final SOCPlayingPiece piece)
+    {
+        final BitSet nodes = new BitSet();
+        Vector<Integer> frontier = new Vector<Integer>();
+
+        final int coord = piece.getCoordinates();
+        switch (piece.getType())
+        {
+        case SOCPlayingPiece.SHIP:  // fall through to ROAD
+        case SOCPlayingPiece.ROAD:
+            {
+                final int[] edgeNodes = board.getAdjacentNodesToEdge_arr(coord);
+                for (int i = 0; i < 2; ++i)
+                {
+                    final int node = edgeNodes[i];
+                    if ((node >= 0) && ! nodes.get(node))
+                    {
+                        nodes.set(node);
+                        frontier.addElement(Integer.valueOf(node));
+                    }
+                }
+            }
+            break;
+
+        default:
+            if (coord >= 0)
+            {
+                nodes.set(coord);
+                frontier.addElement(Integer.valueOf(coord));
+            }
+        }
+
+        final int radius = EXPAND_LEVEL + EXPAND_LEVEL_SHIP_EXTRA + 3;
+        for (int dist = 0; (dist < radius) && ! frontier.isEmpty(); ++dist)
+        {
+            Vector<Integer> nextFrontier = new Vector<Integer>();
+            for (Integer nodeInt : frontier)
+            {
+                final int[] adjNodes = board.getAdjacentNodesToNode_arr(nodeInt.intValue());
+                for (int i = 0; i < adjNodes.length; ++i)
+                {
+                    final int node = adjNodes[i];
+                    if ((node >= 0) && ! nodes.get(node))
+                    {
+                        nodes.set(node);
+                        nextFrontier.addElement(Integer.valueOf(node));
+                    }
+                }
+            }
+            frontier = nextFrontier;
+        }
+
+        return nodes;
+    }
+
+    /**
+     * After a piece is placed or cancelled, and all trackers have been updated for it,
+     * clear the threats of only those possible pieces which may need them recalculated
+     * by {@link #updateThreats(HashMap)}. This avoids clearing and recalculating
+     * every possible piece's threats in every tracker after each placement.
+     *<P>
+     * Cleared here, found by looking up their coordinates instead of scanning all possible pieces:
+     *<UL>
+     * <LI> Possible roads and settlements at or touching {@code nearNodes}
+     * <LI> Those at or touching a spot where any tracker's possible piece was added or removed or had its
+     *      necessary roads change since the last {@code updateThreats}: New pieces, and pieces whose threats
+     *      were (or now would be) one of another player's possible pieces there.
+     *      Trackers note these spots as they update their possible pieces.
+     * <LI> Everything connected to those pieces through necessary roads or new possibilities,
+     *      because threats are inherited along those connections
+     *</UL>
+     * Call this for every tracker before calling {@code updateThreats} for any of them,
+     * since {@code updateThreats} forgets the tracker's changed spots.
+     * To check this against a full recalculation, see {@link #VERIFY_THREATS}.
+     *
+     * @param nearNodes  Nodes near the placed piece, from {@link #getThreatUpdateNodes(SOCBoard, SOCPlayingPiece)}
+     * @param trackers  all of the player trackers
+     * @since 2.0.00
+     */
+    public void clearThreatsNear(final BitSet nearNodes, final HashMap<Integer, SOCPlayerTracker> trackers)
+    {
+        if (lightweight)
+            return;
+
+        final SOCBoard board = player.getGame().getBoard();
+        final HashSet<SOCPossiblePiece> dirty = new HashSet<SOCPossiblePiece>();
+        final Stack<SOCPossiblePiece> toVisit = new Stack<SOCPossiblePiece>();
+
+        for (int node = nearNodes.nextSetBit(0); node >= 0; node = nearNodes.nextSetBit(node + 1))
+            addDirtyAtNode(board, node, dirty, toVisit);
+
+        for (SOCPlayerTracker tr : trackers.values())
+        {
+            if (tr.lightweight)
+                continue;
+
+            final BitSet nodes = tr.changedSettlementNodes, edges = tr.changedRoadEdges;
+            for (int node = nodes.nextSetBit(0); node >= 0; node = nodes.nextSetBit(node + 1))
+                addDirtyAtNode(board, node, dirty, toVisit);
+            for (int edge = edges.nextSetBit(0); edge >= 0; edge = edges.nextSetBit(edge + 1))
+            {
+                SOCPossibleRoad pr = possibleRoads.get(edge);
+                if ((pr != null) && dirty.add(pr))
+                    toVisit.push(pr);
+            }
+        }
+
+        // Visit everything connected to the dirty pieces.
+        // Necessary roads and new possibilities are kept in step with each other,
+        // so following both reaches every piece which inherits a dirty piece's threats.
+        while (! toVisit.empty())
+        {
+            final SOCPossiblePiece pp = toVisit.pop();
+            final Vector<SOCPossibleRoad> necRoads =
+                (pp instanceof SOCPossibleRoad)
+                ? ((SOCPossibleRoad) pp).getNecessaryRoads()
+                : ((SOCPossibleSettlement) pp).getNecessaryRoads();
+            for (SOCPossibleRoad nr : necRoads)
+                if (dirty.add(nr))
+                    toVisit.push(nr);
+
+            if (pp instanceof SOCPossibleRoad)
+            {
+                for (SOCPossiblePiece np : ((SOCPossibleRoad) pp).getNewPossibilities())
+                {
+                    if (((np instanceof SOCPossibleRoad) || (np instanceof SOCPossibleSettlement))
+                        && dirty.add(np))
+                        toVisit.push(np);
+                }
+            }
+        }
+
+        for (SOCPossiblePiece pp : dirty)
+            pp.clearThreats();
+    }
+
+    /**
+     * For {@link #clearThreatsNear(BitSet, HashMap)}, add this tracker's possible settlement at a node
+     * and possible roads and ships touching it to the dirty set, if they aren't already there.
+     * @param board  the game board
+     * @param node  node coordinate
+     * @param dirty  possible pieces whose threats will be cleared
+     * @param toVisit  dirty pieces whose connected pieces haven't been visited yet
+     * @since 2.0.00
+     */
+    private void addDirtyAtNode
+        (final SOCBoard board, final int node, final HashSet<SOCPossiblePiece> dirty, final Stack<SOCPossiblePiece> toVisit)
+    {
+        final SOCPossibleSettlement ps = possibleSettlements.get(node);
+        if ((ps != null) && dirty.add(ps))
+            toVisit.push(ps);
+
+        final int[] edges = board.getAdjacentEdgesToNode_arr(node);
+        for (int i = 0; i < edges.length; ++i)
+        {
+            if (edges[i] < 0)
+                continue;
+
+            final SOCPossibleRoad pr = possibleRoads.get(edges[i]);
+            if ((pr != null) && dirty.add(pr))
+                toVisit.push(pr);
+        }
+    }
+
+    /**
+     * Check the threats maintained by {@link #clearThreatsNear(BitSet, HashMap)} and {@link #updateThreats(HashMap)}
+     * against a full recalculation done on a copy of the trackers.  If any possible road or settlement's
+     * threats differ, prints details with {@link D#ebugPrintln(String)} and recalculates all threats in {@code trackers}.
+     * Slow; for debugging only. Called when {@link #VERIFY_THREATS} is set.
+     *<P>
+     * {@link #isLightweight() Lightweight} trackers have no threats, so they're left out of the check.
+     *
+     * @param trackers  all of the player trackers, after calling {@code updateThreats} for each
+     * @return  true if all threats matched
+     * @see #getVerifyThreatsMismatchCount()
+     * @since 2.0.00
+     */
+    public static boolean verifyThreats(HashMap<Integer, SOCPlayerTracker> trackers)
+    {
+        for (SOCPlayerTracker tr : trackers.values())
+        {
+            if (tr.lightweight)
+            {
+                HashMap<Integer, SOCPlayerTracker> fullTrackers = new HashMap<Integer, SOCPlayerTracker>();
+                for (SOCPlayerTracker tr2 : trackers.values())
+                    if (! tr2.lightweight)
+                        fullTrackers.put(Integer.valueOf(tr2.playerNumber), tr2);
+                trackers = fullTrackers;
+
+                break;
+            }
+        }
+
+        // Copies don't copy threats, so this is a full recalculation
+        HashMap<Integer, SOCPlayerTracker> trackersCopy = copyPlayerTrackers(trackers);
+        for (SOCPlayerTracker trCopy : trackersCopy.values())
+            trCopy.updateThreats(trackersCopy);
+
+        boolean allMatch = true;
+        for (SOCPlayerTracker tr : trackers.values())
+        {
+            final SOCPlayerTracker trCopy = trackersCopy.get(Integer.valueOf(tr.playerNumber));
+            for (SOCPossibleRoad pr : tr.possibleRoads.values())
+            {
+                SOCPossibleRoad prCopy = trCopy.possibleRoads.get(pr.getCoordinates());
+                if ((prCopy == null) || ! threatKeys(pr).equals(threatKeys(prCopy)))
+                {
+                    allMatch = false;
+                    D.ebugPrintln("verifyThreats: pn " + tr.playerNumber + " road/ship 0x"
+                        + Integer.toHexString(pr.getCoordinates()) + ": threats " + threatKeys(pr)
+                        + ", expected " + ((prCopy != null) ? threatKeys(prCopy) : null));
+                }
+            }
+            for (SOCPossibleSettlement ps : tr.possibleSettlements.values())
+            {
+                SOCPossibleSettlement psCopy = trCopy.possibleSettlements.get(ps.getCoordinates());
+                if ((psCopy == null) || ! threatKeys(ps).equals(threatKeys(psCopy)))
+                {
+                    allMatch = false;
+                    D.ebugPrintln("verifyThreats: pn " + tr.playerNumber + " settlement 0x"
+                        + Integer.toHexString(ps.getCoordinates()) + ": threats " + threatKeys(ps)
+                        + ", expected " + ((psCopy != null) ? threatKeys(psCopy) : null));
+                }
+            }
+        }
+
+        if (! allMatch)
+        {
+            synchronized (SOCPlayerTracker.class)
+            {
+                ++verifyThreatsMismatchCount;
+            }
+
+            // recover by recalculating everything
+            for (SOCPlayerTracker tr : trackers.values())
+            {
+                for (SOCPossibleRoad pr : tr.possibleRoads.values())
+                    pr.clearThreats();
+                for (SOCPossibleSettlement ps : tr.possibleSettlements.values())
+                    ps.clearThreats();
+            }
+            for (SOCPlayerTracker tr : trackers.values())
+                tr.updateThreats(trackers);
+        }
+
+        return allMatch;
+    }
+
+    /**
+     * Get a possible piece's threats as a set of keys which can be compared
+     * across copies of the trackers: player number, piece type, and coordinates.
+     * @param pp  a possible piece
+     * @return  the set of keys for its threats
+     * @since 2.0.00
+     */
+    private static HashSet<Integer> threatKeys(final SOCPossiblePiece pp)
+    {
+        HashSet<Integer> keys = new HashSet<Integer>();
+        for (SOCPossiblePiece threat : pp.getThreats())
+            keys.add(Integer.valueOf((threat.getPlayer().getPlayerNumber() << 20)
+                | (threat.getType() << 16) | (threat.getCoordinates() & 0xFFFF)));
+
+        return keys;
+    }
+
+    /**
+     * Get the number of threat mismatches found by {@link #verifyThreats(HashMap)}
+     * since this JVM started.
+     * @return  the number of mismatches
+     * @since 2.0.00
+     */
+    public static synchronized int getVerifyThreatsMismatchCount()
+    {
+        return verifyThreatsMismatchCount;
+    }
+
     /**
      * Calculate the longest road ETA.
      * Always 500 or more if {@link SOCGameOption#K_SC_0RVP} is set.
@@ -2370,6 +2997,7 @@ public class SOCPlayerTracker
         // TODO handle ships here (different resources, etc)
 
         D.ebugPrintln("===  recalcLongestRoadETA for player " + playerNumber);
+        ensureGraph();
 
         final int roadETA;
         SOCBuildingSpeedEstimate bse = new SOCBuildingSpeedEstimate(player.getNumbers());
@@ -2517,6 +3145,7 @@ public class SOCPlayerTracker
      */
     public void updateLRValues()
     {
+        ensureGraph();
         SOCPlayer dummy = new SOCPlayer(player);
         int lrLength = player.getLongestRoadLength();
 
@@ -2686,6 +3315,7 @@ public class SOCPlayerTracker
      */
     public void recalcWinGameETA()
     {
+        ensureGraph();
         int oldWGETA = winGameETA;
 
         try
@@ -2771,10 +3401,10 @@ public class SOCPlayerTracker
                 haveLR = true;
             }
 
-            TreeMap<Integer, SOCPossibleSettlement> posSetsCopy =
-                new TreeMap<Integer, SOCPossibleSettlement>(possibleSettlements);
-            TreeMap<Integer, SOCPossibleCity> posCitiesCopy =
-                new TreeMap<Integer, SOCPossibleCity>(possibleCities);
+            SortedIntMap<SOCPossibleSettlement> posSetsCopy =
+                new SortedIntMap<SOCPossibleSettlement>(possibleSettlements);
+            SortedIntMap<SOCPossibleCity> posCitiesCopy =
+                new SortedIntMap<SOCPossibleCity>(possibleCities);
 
             int points = player.getTotalVP();
             int fastestETA;
@@ -2906,7 +3536,7 @@ public class SOCPlayerTracker
                     {
                         needLR = true;
 
-                        if (brain.getDRecorder().isOn())
+                        if ((brain != null) && brain.getDRecorder().isOn())
                         {
                             brain.getDRecorder().record(fastestETA + ": Longest Road");
                         }
@@ -2915,21 +3545,21 @@ public class SOCPlayerTracker
                     {
                         needLA = true;
 
-                        if (brain.getDRecorder().isOn())
+                        if ((brain != null) && brain.getDRecorder().isOn())
                         {
                             brain.getDRecorder().record(fastestETA + ": Largest Army");
                         }
                     }
                     else if ((cityPiecesLeft > 0) && (citySpotsLeft > 0) && (cityETA == fastestETA))
                     {
-                        if (brain.getDRecorder().isOn())
+                        if ((brain != null) && brain.getDRecorder().isOn())
                         {
                             brain.getDRecorder().record(fastestETA + ": City");
                         }
                     }
                     else if (chosenSet != null)
                     {
-                        if (brain.getDRecorder().isOn())
+                        if ((brain != null) && brain.getDRecorder().isOn())
                         {
                             brain.getDRecorder().record(fastestETA + ": Stlmt at "
                                 + board.nodeCoordToString(chosenSet.getCoordinates()));
@@ -3196,14 +3826,14 @@ public class SOCPlayerTracker
 
                                 if ((i == 0) && (chosenSet[0] != null))
                                 {
-                                    posSetsCopy.remove(new Integer(chosenSet[0].getCoordinates()));
+                                    posSetsCopy.remove(chosenSet[0].getCoordinates());
 
                                     Enumeration<SOCPossibleSettlement> conflicts = chosenSet[0].getConflicts().elements();
 
                                     while (conflicts.hasMoreElements())
                                     {
                                         SOCPossibleSettlement conflict = conflicts.nextElement();
-                                        Integer conflictInt = new Integer(conflict.getCoordinates());
+                                        final int conflictInt = conflict.getCoordinates();
                                         SOCPossibleSettlement possibleConflict = posSetsCopy.get(conflictInt);
 
                                         if (possibleConflict != null)
@@ -3229,14 +3859,14 @@ public class SOCPlayerTracker
                             }
                         }
 
-                        posSetsCopy.put(new Integer(chosenSet[0].getCoordinates()), chosenSet[0]);
+                        posSetsCopy.put(chosenSet[0].getCoordinates(), chosenSet[0]);
 
                         Iterator<SOCPossibleSettlement> posSetsToPutBackIter = posSetsToPutBack.iterator();
 
                         while (posSetsToPutBackIter.hasNext())
                         {
                             SOCPossibleSettlement tmpPosSet = posSetsToPutBackIter.next();
-                            posSetsCopy.put(new Integer(tmpPosSet.getCoordinates()), tmpPosSet);
+                            posSetsCopy.put(tmpPosSet.getCoordinates(), tmpPosSet);
                         }
 
                         if (canBuild2Settlements && (twoSettlements <= fastestETA))
@@ -3611,8 +4241,8 @@ public class SOCPlayerTracker
                     if ((settlementPiecesLeft > 1) && (posSetsCopy.size() > 1)
                         && canBuild2Settlements && (fastestETA == twoSettlements))
                     {
-                        Integer chosenSet0Int = new Integer(chosenSet[0].getCoordinates());
-                        Integer chosenSet1Int = new Integer(chosenSet[1].getCoordinates());
+                        final int chosenSet0Int = chosenSet[0].getCoordinates();
+                        final int chosenSet1Int = chosenSet[1].getCoordinates();
                         posSetsCopy.remove(chosenSet0Int);
                         posSetsCopy.remove(chosenSet1Int);
                         posCitiesCopy.put(chosenSet0Int, new SOCPossibleCity(player, chosenSet[0].getCoordinates()));
@@ -3626,7 +4256,7 @@ public class SOCPlayerTracker
                         while (conflicts.hasMoreElements())
                         {
                             SOCPossibleSettlement conflict = conflicts.nextElement();
-                            Integer conflictInt = new Integer(conflict.getCoordinates());
+                            final int conflictInt = conflict.getCoordinates();
                             posSetsCopy.remove(conflictInt);
                         }
 
@@ -3635,7 +4265,7 @@ public class SOCPlayerTracker
                         while (conflicts.hasMoreElements())
                         {
                             SOCPossibleSettlement conflict = conflicts.nextElement();
-                            Integer conflictInt = new Integer(conflict.getCoordinates());
+                            final int conflictInt = conflict.getCoordinates();
                             posSetsCopy.remove(conflictInt);
                         }
 
@@ -3665,7 +4295,7 @@ public class SOCPlayerTracker
                         D.ebugPrintln("WWW    settlement 1: " + board.nodeCoordToString(chosenSet[0].getCoordinates()));
                         D.ebugPrintln("WWW    settlement 2: " + board.nodeCoordToString(chosenSet[1].getCoordinates()));
 
-                        if (brain.getDRecorder().isOn())
+                        if ((brain != null) && brain.getDRecorder().isOn())
                         {
                             brain.getDRecorder().record
                                 (fastestETA + ": Stlmt at " + board.nodeCoordToString(chosenSet[0].getCoordinates())
@@ -3678,7 +4308,7 @@ public class SOCPlayerTracker
                                && ! posSetsCopy.isEmpty()  )
                              && (fastestETA == oneOfEach))
                     {
-                        Integer chosenSet0Int = new Integer(chosenSet[0].getCoordinates());
+                        final int chosenSet0Int = chosenSet[0].getCoordinates();
                         posSetsCopy.remove(chosenSet0Int);
 
                         if (chosenSet[0].getCoordinates() != chosenCity[0].getCoordinates())
@@ -3686,7 +4316,7 @@ public class SOCPlayerTracker
                             posCitiesCopy.put(chosenSet0Int, new SOCPossibleCity(player, chosenSet[0].getCoordinates()));
                         }
 
-                        posCitiesCopy.remove(new Integer(chosenCity[0].getCoordinates()));
+                        posCitiesCopy.remove(chosenCity[0].getCoordinates());
                         cityPiecesLeft -= 1;
 
                         //
@@ -3697,7 +4327,7 @@ public class SOCPlayerTracker
                         while (conflicts.hasMoreElements())
                         {
                             SOCPossibleSettlement conflict = conflicts.nextElement();
-                            Integer conflictInt = new Integer(conflict.getCoordinates());
+                            final int conflictInt = conflict.getCoordinates();
                             posSetsCopy.remove(conflictInt);
                         }
 
@@ -3721,7 +4351,7 @@ public class SOCPlayerTracker
                         D.ebugPrintln("WWW    settlement at " + board.nodeCoordToString(chosenSet[0].getCoordinates()));
                         D.ebugPrintln("WWW    city at " + board.nodeCoordToString(chosenCity[0].getCoordinates()));
 
-                        if (brain.getDRecorder().isOn())
+                        if ((brain != null) && brain.getDRecorder().isOn())
                         {
                             if (fastestETA == settlementBeforeCity)
                             {
@@ -3739,7 +4369,7 @@ public class SOCPlayerTracker
                     }
                     else if ((cityPiecesLeft > 1) && (citySpotsLeft > 1) && (fastestETA == twoCities))
                     {
-                        posCitiesCopy.remove(new Integer(chosenCity[0].getCoordinates()));
+                        posCitiesCopy.remove(chosenCity[0].getCoordinates());
 
                         //
                         // update our building speed estimate
@@ -3812,7 +4442,7 @@ public class SOCPlayerTracker
                         }
                         else
                         {
-                            posCitiesCopy.remove(new Integer(chosenCity[1].getCoordinates()));
+                            posCitiesCopy.remove(chosenCity[1].getCoordinates());
                         }
 
                         settlementPiecesLeft += 2;
@@ -3830,7 +4460,7 @@ public class SOCPlayerTracker
                         D.ebugPrintln("WWW    city 1: " + board.nodeCoordToString(chosenCity[0].getCoordinates()));
                         D.ebugPrintln("WWW    city 2: " + board.nodeCoordToString(chosenCity[1].getCoordinates()));
 
-                        if (brain.getDRecorder().isOn())
+                        if ((brain != null) && brain.getDRecorder().isOn())
                         {
                             brain.getDRecorder().record
                                 (fastestETA + ": City at " + board.nodeCoordToString(chosenCity[0].getCoordinates())
@@ -3842,7 +4472,7 @@ public class SOCPlayerTracker
                         needLR = true;
                         D.ebugPrintln("WWW  * take longest road");
 
-                        if (brain.getDRecorder().isOn())
+                        if ((brain != null) && brain.getDRecorder().isOn())
                         {
                             brain.getDRecorder().record(fastestETA + ": Longest Road");
                         }
@@ -3852,7 +4482,7 @@ public class SOCPlayerTracker
                         needLA = true;
                         D.ebugPrintln("WWW  * take largest army");
 
-                        if (brain.getDRecorder().isOn())
+                        if ((brain != null) && brain.getDRecorder().isOn())
                         {
                             brain.getDRecorder().record(fastestETA + ": Largest Army");
                         }
@@ -3862,7 +4492,7 @@ public class SOCPlayerTracker
 
             D.ebugPrintln("WWW TOTAL WGETA FOR PLAYER " + playerNumber + " = " + winGameETA);
 
-            if (brain.getDRecorder().isOn())
+            if ((brain != null) && brain.getDRecorder().isOn())
             {
                 brain.getDRecorder().record("Total WGETA for " + player.getName() + " = " + winGameETA);
                 brain.getDRecorder().record("--------------------");
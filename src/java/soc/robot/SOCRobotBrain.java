@@ -63,6 +63,7 @@ import soc.message.SOCPlayerElement;
 import soc.message.SOCPutPiece;
 import soc.message.SOCRejectOffer;
 import soc.message.SOCResourceCount;
+import soc.message.SOCRevealFogHex;
 import soc.message.SOCSetPlayedDevCard;
 import soc.message.SOCSetTurn;
 import soc.message.SOCSimpleAction;
@@ -71,14 +72,14 @@ import soc.message.SOCTurn;
 
 import soc.util.CappedQueue;
 import soc.util.DebugRecorder;
-import soc.util.Queue;
 import soc.util.SOCRobotParameters;
+import soc.util.SOCSplittableRandom;
 
+import java.util.BitSet;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
-import java.util.Random;
 import java.util.Stack;
 import java.util.Vector;
 
@@ -145,9 +146,9 @@ public class SOCRobotBrain extends Thread
     protected int curState;
 
     /**
-     * Random number generator
+     * Random number generator, from {@link SOCRobotClient#newBrainRandom(String)}
      */
-    protected Random rand = new Random();
+    protected SOCSplittableRandom rand;
 
     /**
      * The client we are hooked up to
@@ -262,6 +263,20 @@ public class SOCRobotBrain extends Thread
      */
     public static int MAX_DENIED_BUILDING_PER_TURN = 3;
 
+    /**
+     * Time limit for {@link #searchBankTrades(SOCResourceSet, SOCResourceSet)}'s search of bank and port trade chains, in milliseconds.
+     * When it's reached, the best outcome found so far is used.
+     * @since 2.0.00
+     */
+    public static int TRADE_SEARCH_MAX_MILLIS = 200;
+
+    /**
+     * Maximum size in bits of {@link #searchBankTrades(SOCResourceSet, SOCResourceSet)}'s visited-states bitmap.
+     * If our resources would need a larger one, fewer trades in a row are searched.
+     * @since 2.0.00
+     */
+    public static final int TRADE_SEARCH_MAX_STATES = 1 << 22;
+
     /**
      * these are the two resources that we want
      * when we play a discovery dev card
@@ -283,6 +298,31 @@ public class SOCRobotBrain extends Thread
      */
     protected SOCRobotDM decisionMaker;
 
+    /**
+     * Time budget for each of our decisions, shared by {@link #decisionMaker},
+     * {@link #negotiator} and robber placement.
+     * Created in the constructor from {@link SOCRobotParameters#getDecisionTimeBudget()}.
+     * @since 2.0.00
+     */
+    protected final DecisionTimeBudget decisionBudget;
+
+    /**
+     * Each player's production from each land hex, for robber placement.
+     * Updated in {@link #trackNewSettlement(SOCSettlement, boolean)} and {@link #trackNewCity(SOCCity, boolean)},
+     * and when a {@link SOCMessage#REVEALFOGHEX} is received.
+     * Created in {@link #setOurPlayerData()}.
+     * @since 2.0.00
+     */
+    protected HexImpactTable hexImpact;
+
+    /**
+     * Recent decisions of this brain: Candidates, plans, robber placement, trades,
+     * and the time each took.  Always recorded; cheap because records aren't formatted
+     * until {@link DecisionTrace#getRecordsText()}.
+     * @since 2.0.00
+     */
+    protected final DecisionTrace decisionTrace;
+
     /**
      * The data and code that determines how we negotiate.
      * {@link SOCRobotNegotiator#setTargetPiece(int, SOCPossiblePiece)}
@@ -596,7 +636,10 @@ public class SOCRobotBrain extends Thread
     public SOCRobotBrain(SOCRobotClient rc, SOCRobotParameters params, SOCGame ga, CappedQueue<SOCMessage> mq)
     {
         client = rc;
+        rand = rc.newBrainRandom(ga.getName());
         robotParameters = params.copyIfOptionChanged(ga.getGameOptions());
+        decisionBudget = new DecisionTimeBudget(robotParameters.getDecisionTimeBudget());
+        decisionTrace = new DecisionTrace(DecisionTrace.DEFAULT_CAPACITY);
         game = ga;
         gameIs6Player = (ga.maxPlayers > 4);
         pauseFaster = gameIs6Player;
@@ -717,11 +760,29 @@ public class SOCRobotBrain extends Thread
         }
         if (null == playerTrackers.get(new Integer(pn)))
         {
-            SOCPlayerTracker tracker = new SOCPlayerTracker(game.getPlayer(pn), this);
+            SOCPlayerTracker tracker = createOtherPlayerTracker(pn);
             playerTrackers.put(new Integer(pn), tracker);
         }
     }
 
+    /**
+     * Create a tracker for another player.
+     * {@link SOCRobotDM#FAST_STRATEGY} doesn't plan with other players' possible pieces,
+     * so if that's our strategy, the tracker is {@link SOCPlayerTracker#isLightweight() lightweight}:
+     * It rebuilds the player's possible pieces only when something like
+     * {@link RobberStrategy} or {@link SOCRobotNegotiator} needs them,
+     * instead of updating them for every piece placed.
+     *
+     * @param pn  Player number, not our own
+     * @return  a new tracker for player {@code pn}
+     * @since 2.0.00
+     */
+    protected SOCPlayerTracker createOtherPlayerTracker(final int pn)
+    {
+        final boolean lightweight = (robotParameters.getStrategyType() == SOCRobotDM.FAST_STRATEGY);
+        return new SOCPlayerTracker(game.getPlayer(pn), this, lightweight);
+    }
+
     /**
      * @return the game data
      */
@@ -746,6 +807,38 @@ public class SOCRobotBrain extends Thread
         return buildingPlan;
     }
 
+    /**
+     * Create our {@link #decisionMaker}; called from {@link #setOurPlayerData()}.
+     * Brain subclasses which plan differently can override this to use their own
+     * {@link SOCRobotDM} subclass.
+     * @return  a new decision maker for this brain
+     * @since 2.0.00
+     */
+    protected SOCRobotDM createDecisionMaker()
+    {
+        return new SOCRobotDM(this);
+    }
+
+    /**
+     * Get the time budget for each of our decisions, and its statistics.
+     * @return the decision time budget
+     * @since 2.0.00
+     */
+    public DecisionTimeBudget getDecisionBudget()
+    {
+        return decisionBudget;
+    }
+
+    /**
+     * Get the trace of our recent decisions.
+     * @return the decision trace
+     * @since 2.0.00
+     */
+    public DecisionTrace getDecisionTrace()
+    {
+        return decisionTrace;
+    }
+
     /**
      * @return the decision maker
      */
@@ -825,15 +918,16 @@ public class SOCRobotBrain extends Thread
         {
             if ((pn != ourPlayerNumber) && ! game.isSeatVacant(pn))
             {
-                SOCPlayerTracker tracker = new SOCPlayerTracker(game.getPlayer(pn), this);
+                SOCPlayerTracker tracker = createOtherPlayerTracker(pn);
                 playerTrackers.put(new Integer(pn), tracker);
             }
         }
 
-        decisionMaker = new SOCRobotDM(this);
+        decisionMaker = createDecisionMaker();
         negotiator = new SOCRobotNegotiator(this);
         openingBuildStrategy = new OpeningBuildStrategy(game, ourPlayerData);
         monopolyStrategy = new MonopolyStrategy(game, ourPlayerData);
+        hexImpact = new HexImpactTable(game);
 
         dummyCancelPlayerData = new SOCPlayer(-2, game);
 
@@ -1220,6 +1314,12 @@ public class SOCRobotBrain extends Thread
                         handleCANCELBUILDREQUEST((SOCCancelBuildRequest) mes);
                         break;
 
+                    case SOCMessage.REVEALFOGHEX:
+                        // The client already revealed the hex in our game's board
+                        if (hexImpact != null)
+                            hexImpact.hexRevealed(((SOCRevealFogHex) mes).getParam1());
+                        break;
+
                     case SOCMessage.MOVEROBBER:
                         {
                         //
@@ -3044,13 +3144,28 @@ public class SOCRobotBrain extends Thread
      *  {@link SOCRobotDM#planStuff(int)} <BR>
      *  {@link #buildingPlan} <BR>
      *  {@link #lastTarget} <BR>
-     *  {@link SOCRobotNegotiator#setTargetPiece(int, SOCPossiblePiece)}
+     *  {@link SOCRobotNegotiator#setTargetPiece(int, SOCPossiblePiece)} <BR>
+     *  {@link #decisionTrace} records of the candidates and plan
      *
      * @since 1.1.08
      */
     private final void planBuilding()
     {
-        decisionMaker.planStuff(robotParameters.getStrategyType());
+        final int strategy = robotParameters.getStrategyType();
+        decisionTrace.record(DecisionTrace.PLAN_START, strategy, game.getRoundCount(),
+            ourPlayerData.getTotalVP(), ourPlayerData.getResources().getTotal());
+        final int hits = decisionBudget.getBudgetHitCount(DecisionTimeBudget.PLAN);
+        final long startTime = System.nanoTime();
+
+        decisionMaker.planStuff(strategy);
+
+        final int micros = (int) ((System.nanoTime() - startTime) / 1000);
+        decisionMaker.traceCandidates(decisionTrace);
+        final int planSize = buildingPlan.size();
+        for (int i = 0; i < planSize; ++i)
+            decisionTrace.recordPiece(DecisionTrace.PLAN_PIECE, buildingPlan.get(planSize - 1 - i), i);
+        decisionTrace.record(DecisionTrace.PLAN_END, micros,
+            (decisionBudget.getBudgetHitCount(DecisionTimeBudget.PLAN) != hits) ? 1 : 0, planSize, 0);
 
         if (!buildingPlan.empty())
         {
@@ -3283,24 +3398,18 @@ public class SOCRobotBrain extends Thread
                 tracker.cancelWrongSettlement(newSettlement);
         }
 
+        if (! isCancel)
+            hexImpact.setPiece(newSettlement);
+        else
+            hexImpact.removePiece(newSettlement.getCoordinates());
+
+        final BitSet nearNodes = SOCPlayerTracker.getThreatUpdateNodes(game.getBoard(), newSettlement);
         trackersIter = playerTrackers.values().iterator();
 
         while (trackersIter.hasNext())
         {
             SOCPlayerTracker tracker = trackersIter.next();
-            Iterator<SOCPossibleRoad> posRoadsIter = tracker.getPossibleRoads().values().iterator();
-
-            while (posRoadsIter.hasNext())
-            {
-                posRoadsIter.next().clearThreats();
-            }
-
-            Iterator<SOCPossibleSettlement> posSetsIter = tracker.getPossibleSettlements().values().iterator();
-
-            while (posSetsIter.hasNext())
-            {
-                posSetsIter.next().clearThreats();
-            }
+            tracker.clearThreatsNear(nearNodes, playerTrackers);
         }
 
         trackersIter = playerTrackers.values().iterator();
@@ -3311,6 +3420,9 @@ public class SOCRobotBrain extends Thread
             tracker.updateThreats(playerTrackers);
         }
 
+        if (SOCPlayerTracker.VERIFY_THREATS)
+            SOCPlayerTracker.verifyThreats(playerTrackers);
+
         if (isCancel)
         {
             return;  // <--- Early return, nothing else to do ---
@@ -3380,6 +3492,9 @@ public class SOCRobotBrain extends Thread
 
             if (tracker.getPlayer().getPlayerNumber() == pNum)
             {
+                if (tracker.isLightweight())
+                    break;  // speedups are updated when its possible pieces are rebuilt
+
                 Iterator<SOCPossibleSettlement> posSetsIter = tracker.getPossibleSettlements().values().iterator();
 
                 while (posSetsIter.hasNext())
@@ -3402,6 +3517,9 @@ public class SOCRobotBrain extends Thread
 
             if (tracker.getPlayer().getPlayerNumber() == pNum)
             {
+                if (tracker.isLightweight())
+                    break;  // speedups are updated when its possible pieces are rebuilt
+
                 Iterator<SOCPossibleCity> posCitiesIter = tracker.getPossibleCities().values().iterator();
 
                 while (posCitiesIter.hasNext())
@@ -3441,6 +3559,11 @@ public class SOCRobotBrain extends Thread
             }
         }
 
+        if (! isCancel)
+            hexImpact.setPiece(newCity);
+        else
+            hexImpact.setPiece(new SOCSettlement(newCity.getPlayer(), newCity.getCoordinates(), null));
+
         if (isCancel)
         {
             return;  // <--- Early return, nothing else to do ---
@@ -3457,6 +3580,9 @@ public class SOCRobotBrain extends Thread
 
             if (tracker.getPlayer().getPlayerNumber() == newCityPN)
             {
+                if (tracker.isLightweight())
+                    break;  // speedups are updated when its possible pieces are rebuilt
+
                 Iterator<SOCPossibleSettlement> posSetsIter = tracker.getPossibleSettlements().values().iterator();
 
                 while (posSetsIter.hasNext())
@@ -3479,6 +3605,9 @@ public class SOCRobotBrain extends Thread
 
             if (tracker.getPlayer().getPlayerNumber() == newCityPN)
             {
+                if (tracker.isLightweight())
+                    break;  // speedups are updated when its possible pieces are rebuilt
+
                 Iterator<SOCPossibleCity> posCitiesIter = tracker.getPossibleCities().values().iterator();
 
                 while (posCitiesIter.hasNext())
@@ -3529,6 +3658,7 @@ public class SOCRobotBrain extends Thread
             tracker.releaseMonitor();
         }
 
+        final BitSet nearNodes = SOCPlayerTracker.getThreatUpdateNodes(game.getBoard(), newRoad);
         trackersIter = playerTrackers.values().iterator();
 
         while (trackersIter.hasNext())
@@ -3538,19 +3668,7 @@ public class SOCRobotBrain extends Thread
 
             try
             {
-                Iterator<SOCPossibleRoad> posRoadsIter = tracker.getPossibleRoads().values().iterator();
-
-                while (posRoadsIter.hasNext())
-                {
-                    posRoadsIter.next().clearThreats();
-                }
-
-                Iterator<SOCPossibleSettlement> posSetsIter = tracker.getPossibleSettlements().values().iterator();
-
-                while (posSetsIter.hasNext())
-                {
-                    posSetsIter.next().clearThreats();
-                }
+                tracker.clearThreatsNear(nearNodes, playerTrackers);
             }
             catch (Exception e)
             {
@@ -3598,6 +3716,9 @@ public class SOCRobotBrain extends Thread
 
             tracker.releaseMonitor();
         }
+
+        if (SOCPlayerTracker.VERIFY_THREATS)
+            SOCPlayerTracker.verifyThreats(playerTrackers);
     }
 
     /**
@@ -3931,7 +4052,12 @@ public class SOCRobotBrain extends Thread
      */
     protected void moveRobber()
     {
-        final int bestHex = RobberStrategy.getBestRobberHex(game, ourPlayerData, playerTrackers, rand);
+        final int hits = decisionBudget.getBudgetHitCount(DecisionTimeBudget.ROBBER);
+        final long startTime = System.nanoTime();
+        final int bestHex = RobberStrategy.getBestRobberHex
+            (game, ourPlayerData, playerTrackers, rand, decisionBudget, hexImpact);
+        decisionTrace.record(DecisionTrace.ROBBER, bestHex, (int) ((System.nanoTime() - startTime) / 1000),
+            (decisionBudget.getBudgetHitCount(DecisionTimeBudget.ROBBER) != hits) ? 1 : 0, 0);
         D.ebugPrintln("!!! MOVING ROBBER !!!");
         client.moveRobber(game, ourPlayerData, bestHex);
         pause(2000);
@@ -3995,119 +4121,32 @@ public class SOCRobotBrain extends Thread
      * do some trading -- this method is obsolete and not called.
      * Instead see {@link #makeOffer(SOCPossiblePiece)}, {@link #considerOffer(SOCTradeOffer)},
      * etc, and the javadoc for {@link #negotiator}.
+     *<P>
+     * Makes the shortest chain of bank and port trades to the resource set which scores best
+     * with {@link #scoreTradeOutcome(SOCResourceSet)}, found by {@link #searchBankTrades(SOCResourceSet, SOCResourceSet)}.
+     * Before v2.0.00 this built a {@link SOCTradeTree} and compared each new node to all others.
      */
     protected void tradeStuff()
     {
-        /**
-         * make a tree of all the possible trades that we can
-         * make with the bank or ports
-         */
-        SOCTradeTree treeRoot = new SOCTradeTree(ourPlayerData.getResources(), (SOCTradeTree) null);
-        Hashtable<SOCResourceSet, SOCTradeTree> treeNodes = new Hashtable<SOCResourceSet, SOCTradeTree>();
-        treeNodes.put(treeRoot.getResourceSet(), treeRoot);
-
-        Queue<SOCTradeTree> queue = new Queue<SOCTradeTree>();
-        queue.put(treeRoot);
-
-        while (!queue.empty())
-        {
-            SOCTradeTree currentTreeNode = queue.get();
-
-            //D.ebugPrintln("%%% Expanding "+currentTreeNode.getResourceSet());
-            expandTradeTreeNode(currentTreeNode, treeNodes);
-
-            Enumeration<SOCTradeTree> childrenEnum = currentTreeNode.getChildren().elements();
-
-            while (childrenEnum.hasMoreElements())
-            {
-                SOCTradeTree child = childrenEnum.nextElement();
-
-                //D.ebugPrintln("%%% Child "+child.getResourceSet());
-                if (child.needsToBeExpanded())
-                {
-                    /**
-                     * make a new table entry
-                     */
-                    treeNodes.put(child.getResourceSet(), child);
-                    queue.put(child);
-                }
-            }
-        }
-
-        /**
-         * find the best trade result and then perform the trades
-         */
-        SOCResourceSet bestTradeOutcome = null;
-        int bestTradeScore = -1;
-        Enumeration<SOCResourceSet> possibleTrades = treeNodes.keys();
-
-        while (possibleTrades.hasMoreElements())
-        {
-            SOCResourceSet possibleTradeOutcome = possibleTrades.nextElement();
-
-            //D.ebugPrintln("%%% "+possibleTradeOutcome);
-            int score = scoreTradeOutcome(possibleTradeOutcome);
-
-            if (score > bestTradeScore)
-            {
-                bestTradeOutcome = possibleTradeOutcome;
-                bestTradeScore = score;
-            }
-        }
-
-        /**
-         * find the trade outcome in the tree, then follow
-         * the chain of parents until you get to the root
-         * all the while pushing the outcomes onto a stack.
-         * then pop outcomes off of the stack and perfoem
-         * the trade to get each outcome
-         */
-        Stack<SOCTradeTree> stack = new Stack<SOCTradeTree>();
-        SOCTradeTree cursor = treeNodes.get(bestTradeOutcome);
-
-        while (cursor != treeRoot)
-        {
-            stack.push(cursor);
-            cursor = cursor.getParent();
-        }
+        final int[] chain = searchBankTrades(ourPlayerData.getResources(), null);
+        if (chain == null)
+            return;
 
         SOCResourceSet give = new SOCResourceSet();
         SOCResourceSet get = new SOCResourceSet();
-        SOCTradeTree currTreeNode;
-        SOCTradeTree prevTreeNode;
-        prevTreeNode = treeRoot;
-
-        while (!stack.empty())
+        for (int i = 0; i < chain.length; ++i)
         {
-            currTreeNode = stack.pop();
-            give.setAmounts(prevTreeNode.getResourceSet());
-            give.subtract(currTreeNode.getResourceSet());
-            get.setAmounts(currTreeNode.getResourceSet());
-            get.subtract(prevTreeNode.getResourceSet());
-
-            /**
-             * get rid of the negative numbers
-             */
-            for (int rt = SOCResourceConstants.CLAY;
-                    rt <= SOCResourceConstants.WOOD; rt++)
-            {
-                if (give.getAmount(rt) < 0)
-                {
-                    give.setAmount(0, rt);
-                }
-
-                if (get.getAmount(rt) < 0)
-                {
-                    get.setAmount(0, rt);
-                }
-            }
+            final int giveType = chain[i] >> 3, getType = chain[i] & 0x07;
+            give.clear();
+            give.setAmount(getBankTradeRatio(giveType), giveType);
+            get.clear();
+            get.setAmount(1, getType);
 
             //D.ebugPrintln("Making bank trade:");
             //D.ebugPrintln("give: "+give);
             //D.ebugPrintln("get: "+get);
             client.bankTrade(game, give, get);
             pause(2000);
-            prevTreeNode = currTreeNode;
         }
     }
 
@@ -4116,7 +4155,10 @@ public class SOCRobotBrain extends Thread
      *
      * @param currentTreeNode   the tree node that we're expanding
      * @param table  the table of all of the nodes in the tree except this one
+     * @deprecated Since v2.0.00 {@link #tradeStuff()} doesn't build a {@link SOCTradeTree};
+     *     it calls {@link #searchBankTrades(SOCResourceSet, SOCResourceSet)} instead.
      */
+    @Deprecated
     protected void expandTradeTreeNode(SOCTradeTree currentTreeNode, Hashtable<SOCResourceSet,SOCTradeTree> table)
     {
         /**
@@ -4199,6 +4241,193 @@ public class SOCRobotBrain extends Thread
         }
     }
 
+
+    /**
+     * Get our trade ratio for giving a resource type to the bank or a port.
+     * @param rtype  Resource type, such as {@link SOCResourceConstants#CLAY}
+     * @return  2 if we have that type's 2:1 port, 3 if we have a 3:1 port, otherwise 4
+     * @since 2.0.00
+     */
+    private int getBankTradeRatio(final int rtype)
+    {
+        if (ourPlayerData.getPortFlag(rtype))
+            return 2;
+        else if (ourPlayerData.getPortFlag(SOCBoard.MISC_PORT))
+            return 3;
+        else
+            return 4;
+    }
+
+    /**
+     * Search all chains of bank and port trades from a set of our resources, breadth-first.
+     * Each resource set is packed into an int as a mixed-radix number, which is also its index
+     * into a visited-states bitmap, so sets reached by more than one chain aren't expanded again.
+     * The search stops early with its best-so-far result after {@link #TRADE_SEARCH_MAX_MILLIS}
+     * or at {@link #decisionBudget}'s deadline, whichever is sooner.
+     *
+     * @param resources  Resources to trade from, usually {@link #ourPlayerData}'s current resources
+     * @param targetResources  Resources to reach, or {@code null} to find the resource set which scores best
+     *     with {@link #scoreTradeOutcome(SOCResourceSet)}, scoring each reachable set once
+     * @return  The shortest chain of trades to {@code targetResources} or the best-scoring set,
+     *     each one (give type &lt;&lt; 3) | get type, with the give amount from {@link #getBankTradeRatio(int)}.
+     *     Empty if no trades are needed or none improve the score.
+     *     {@code null} if {@code targetResources} can't be reached, or we can't trade or have too many resources to search.
+     * @since 2.0.00
+     */
+    protected int[] searchBankTrades(final SOCResourceSet resources, final SOCResourceSet targetResources)
+    {
+        final int[] have = new int[SOCResourceConstants.WOOD + 1];
+        final int[] tradeRatio = new int[SOCResourceConstants.WOOD + 1];
+        int total = 0;
+        for (int rt = SOCResourceConstants.CLAY; rt <= SOCResourceConstants.WOOD; rt++)
+        {
+            have[rt] = resources.getAmount(rt);
+            total += have[rt];
+            tradeRatio[rt] = getBankTradeRatio(rt);
+        }
+
+        if ((targetResources != null) && resources.contains(targetResources))
+            return new int[0];
+
+        /**
+         * Each trade gives away at least 2 resources, so we can't make more than total / 2 trades,
+         * and can't have more than have[rt] + maxTrades of any resource type.
+         * Limit the chain length if needed to keep the bitmap size reasonable.
+         */
+        int maxTrades = total / 2;
+        final int[] radix = new int[SOCResourceConstants.WOOD + 1];
+        final int[] place = new int[SOCResourceConstants.WOOD + 1];
+        long numStates;
+        for (;;)
+        {
+            numStates = 1;
+            for (int rt = SOCResourceConstants.CLAY; rt <= SOCResourceConstants.WOOD; rt++)
+            {
+                radix[rt] = have[rt] + maxTrades + 1;
+                place[rt] = (int) numStates;
+                numStates *= radix[rt];
+            }
+
+            if ((numStates <= TRADE_SEARCH_MAX_STATES) || (maxTrades == 0))
+                break;
+            --maxTrades;
+        }
+        if ((maxTrades == 0) || (numStates > TRADE_SEARCH_MAX_STATES))
+            return null;  // <--- Early return: can't trade, or too many resources to search ---
+
+        /**
+         * The breadth-first queue, in parallel arrays indexed by discovery order:
+         * packed resource set, index of the parent state, number of trades to reach it,
+         * the trade from its parent (give type * 8 + get type), and its cached score.
+         */
+        int cap = (int) Math.min(numStates, 1024);
+        int[] states = new int[cap], parents = new int[cap], depths = new int[cap],
+            trades = new int[cap], scores = new int[cap];
+        final BitSet visited = new BitSet((int) numStates);
+        final SOCResourceSet outcome = new SOCResourceSet();
+
+        int root = 0;
+        for (int rt = SOCResourceConstants.CLAY; rt <= SOCResourceConstants.WOOD; rt++)
+            root += have[rt] * place[rt];
+        states[0] = root;
+        parents[0] = -1;
+        if (targetResources == null)
+            scores[0] = scoreTradeOutcome(resources);
+        visited.set(root);
+        int n = 1, best = 0;
+        boolean found = false;  // if targetResources != null, has it been reached?
+
+        final long deadline = Math.min
+            (System.currentTimeMillis() + TRADE_SEARCH_MAX_MILLIS, decisionBudget.getDeadline());
+        for (int head = 0; (head < n) && ! found; ++head)
+        {
+            if (System.currentTimeMillis() >= deadline)
+            {
+                D.ebugPrintln("searchBankTrades: time limit reached after " + n + " states");
+                break;
+            }
+
+            final int state = states[head];
+            if (depths[head] >= maxTrades)
+                continue;
+
+            for (int give = SOCResourceConstants.CLAY; (give <= SOCResourceConstants.WOOD) && ! found; give++)
+            {
+                if ((state / place[give]) % radix[give] < tradeRatio[give])
+                    continue;  // not enough to trade
+
+                for (int get = SOCResourceConstants.CLAY; get <= SOCResourceConstants.WOOD; get++)
+                {
+                    if ((get == give) || ((state / place[get]) % radix[get] == radix[get] - 1))
+                        continue;
+
+                    final int next = state - (tradeRatio[give] * place[give]) + place[get];
+                    if (visited.get(next))
+                        continue;
+                    visited.set(next);
+
+                    if (n == cap)
+                    {
+                        cap *= 2;
+                        states = growIntArray(states, cap);
+                        parents = growIntArray(parents, cap);
+                        depths = growIntArray(depths, cap);
+                        trades = growIntArray(trades, cap);
+                        scores = growIntArray(scores, cap);
+                    }
+
+                    for (int rt = SOCResourceConstants.CLAY; rt <= SOCResourceConstants.WOOD; rt++)
+                        outcome.setAmount((next / place[rt]) % radix[rt], rt);
+
+                    states[n] = next;
+                    parents[n] = head;
+                    depths[n] = depths[head] + 1;
+                    trades[n] = (give << 3) | get;
+                    if (targetResources == null)
+                    {
+                        scores[n] = scoreTradeOutcome(outcome);
+                        if (scores[n] > scores[best])
+                            best = n;
+                    }
+                    else if (outcome.contains(targetResources))
+                    {
+                        best = n;  // breadth-first, so this is a shortest chain
+                        found = true;
+                        break;
+                    }
+                    ++n;
+                }
+            }
+        }
+
+        if ((targetResources != null) && ! found)
+            return null;
+
+        /**
+         * follow the chain of parents from the best outcome back to our current resources
+         */
+        final int numTrades = depths[best];
+        final int[] chain = new int[numTrades];
+        for (int i = numTrades - 1, cursor = best; i >= 0; --i, cursor = parents[cursor])
+            chain[i] = trades[cursor];
+
+        return chain;
+    }
+
+    /**
+     * Copy an int array into a larger one.
+     * @param a  Array to copy
+     * @param newLength  New length, at least <tt>a.length</tt>
+     * @return  A new array with <tt>a</tt>'s contents and zeroes after them
+     * @since 2.0.00
+     */
+    private static int[] growIntArray(final int[] a, final int newLength)
+    {
+        int[] b = new int[newLength];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+
     /**
      * evaluate a trade outcome by calculating how much you could build with it
      *
@@ -4242,6 +4471,11 @@ public class SOCRobotBrain extends Thread
 
     /**
      * Make bank trades or port trades to get the target resources, if possible.
+     * Usually makes the trade from {@link SOCRobotNegotiator#getOfferToBank(SOCResourceSet, SOCResourceSet)}.
+     * That looks only one trade ahead, and sometimes gives away resources the target needs,
+     * betting on getting them back by a later roll. So if {@link #searchBankTrades(SOCResourceSet, SOCResourceSet)}
+     * finds a chain of trades which reaches the target now, and the negotiator has no trade or its trade
+     * would leave the target out of reach this turn, makes the first trade of that chain instead.
      *
      * @param targetResources  the resources that we want
      * @return true if we sent a request to trade, false if
@@ -4256,8 +4490,36 @@ public class SOCRobotBrain extends Thread
         }
 
         SOCTradeOffer bankTrade = negotiator.getOfferToBank(targetResources, ourPlayerData.getResources());
+        if ((bankTrade != null) && ! ourPlayerData.getResources().contains(bankTrade.getGiveSet()))
+            bankTrade = null;
 
-        if ((bankTrade != null) && (ourPlayerData.getResources().contains(bankTrade.getGiveSet())))
+        final int[] chain = searchBankTrades(ourPlayerData.getResources(), targetResources);
+        if ((chain != null) && (chain.length > 0))
+        {
+            boolean useChain = (bankTrade == null);
+            if (! useChain)
+            {
+                SOCResourceSet afterTrade = ourPlayerData.getResources().copy();
+                afterTrade.subtract(bankTrade.getGiveSet());
+                afterTrade.add(bankTrade.getGetSet());
+                useChain = (searchBankTrades(afterTrade, targetResources) == null);
+            }
+
+            if (useChain)
+            {
+                final int giveType = chain[0] >> 3, getType = chain[0] & 0x07;
+                SOCResourceSet give = new SOCResourceSet();
+                give.setAmount(getBankTradeRatio(giveType), giveType);
+                SOCResourceSet get = new SOCResourceSet();
+                get.setAmount(1, getType);
+                client.bankTrade(game, give, get);
+                pause(2000);
+
+                return true;
+            }
+        }
+
+        if (bankTrade != null)
         {
             client.bankTrade(game, bankTrade.getGiveSet(), bankTrade.getGetSet());
             pause(2000);
@@ -4268,6 +4530,21 @@ public class SOCRobotBrain extends Thread
         return false;
     }
 
+    /**
+     * Add a {@link DecisionTrace#TRADE} record to {@link #decisionTrace}.
+     * @param tradeKind  {@link DecisionTrace#TRADE_MAKE}, {@link DecisionTrace#TRADE_CONSIDER}
+     *     or {@link DecisionTrace#TRADE_COUNTER}
+     * @param result  1 if an offer was made, 0 if not, or the response code from considering an offer
+     * @param startTime  Decision's start time, from {@link System#nanoTime()}
+     * @param hitsBefore  {@link #decisionBudget}'s {@link DecisionTimeBudget#TRADE} budget hit count before the decision
+     * @since 2.0.00
+     */
+    private void traceTrade(final int tradeKind, final int result, final long startTime, final int hitsBefore)
+    {
+        decisionTrace.record(DecisionTrace.TRADE, tradeKind, result, (int) ((System.nanoTime() - startTime) / 1000),
+            (decisionBudget.getBudgetHitCount(DecisionTimeBudget.TRADE) != hitsBefore) ? 1 : 0);
+    }
+
     /**
      * Consider a trade offer made by another player.
      *
@@ -4288,7 +4565,18 @@ public class SOCRobotBrain extends Thread
 
             if (offeredTo[ourPlayerNumber])
             {
-                response = negotiator.considerOffer2(offer, ourPlayerNumber);
+                final int hits = decisionBudget.getBudgetHitCount(DecisionTimeBudget.TRADE);
+                final long startTime = System.nanoTime();
+                decisionBudget.begin(DecisionTimeBudget.TRADE);
+                try
+                {
+                    response = negotiator.considerOffer2(offer, ourPlayerNumber);
+                }
+                finally
+                {
+                    decisionBudget.end();
+                }
+                traceTrade(DecisionTrace.TRADE_CONSIDER, response, startTime, hits);
             }
         }
 
@@ -4307,7 +4595,19 @@ public class SOCRobotBrain extends Thread
     protected boolean makeOffer(SOCPossiblePiece target)
     {
         boolean result = false;
-        SOCTradeOffer offer = negotiator.makeOffer(target);
+        SOCTradeOffer offer;
+        final int hits = decisionBudget.getBudgetHitCount(DecisionTimeBudget.TRADE);
+        final long startTime = System.nanoTime();
+        decisionBudget.begin(DecisionTimeBudget.TRADE);
+        try
+        {
+            offer = negotiator.makeOffer(target);
+        }
+        finally
+        {
+            decisionBudget.end();
+        }
+        traceTrade(DecisionTrace.TRADE_MAKE, (offer != null) ? 1 : 0, startTime, hits);
         ourPlayerData.setCurrentOffer(offer);
         negotiator.resetWantsAnotherOffer();
 
@@ -4344,7 +4644,19 @@ public class SOCRobotBrain extends Thread
     protected boolean makeCounterOffer(SOCTradeOffer offer)
     {
         boolean result = false;
-        SOCTradeOffer counterOffer = negotiator.makeCounterOffer(offer);
+        SOCTradeOffer counterOffer;
+        final int hits = decisionBudget.getBudgetHitCount(DecisionTimeBudget.TRADE);
+        final long startTime = System.nanoTime();
+        decisionBudget.begin(DecisionTimeBudget.TRADE);
+        try
+        {
+            counterOffer = negotiator.makeCounterOffer(offer);
+        }
+        finally
+        {
+            decisionBudget.end();
+        }
+        traceTrade(DecisionTrace.TRADE_COUNTER, (counterOffer != null) ? 1 : 0, startTime, hits);
         ourPlayerData.setCurrentOffer(counterOffer);
 
         if (counterOffer != null)
@@ -36,6 +36,7 @@ import soc.server.genericServer.LocalStringServerSocket;
 import soc.util.CappedQueue;
 import soc.util.CutoffExceededException;
 import soc.util.SOCRobotParameters;
+import soc.util.SOCSplittableRandom;
 import soc.util.Version;
 
 import java.io.DataInputStream;
@@ -200,6 +201,21 @@ public class SOCRobotClient extends SOCDisplaylessPlayerClient
      */
     SOCRobotResetThread resetThread;
 
+    /**
+     * Robot brain class name sent to the server in our {@link SOCImARobot IMAROBOT} message:
+     * {@link SOCImARobot#RBCLASS_BUILTIN} unless a subclass plays with another brain
+     * from {@link #createBrain(SOCRobotParameters, SOCGame, CappedQueue)}.
+     * @since 2.0.00
+     */
+    protected String rbclass = SOCImARobot.RBCLASS_BUILTIN;
+
+    /**
+     * If not null, the base seed for new brains' random numbers.
+     * @see #setRandomSeed(long)
+     * @since 2.0.00
+     */
+    private volatile Long randomSeed;
+
     /**
      * Have we printed the initial welcome msg from server?
      * Suppress further ones (disconnect-reconnect).
@@ -270,7 +286,7 @@ public class SOCRobotClient extends SOCDisplaylessPlayerClient
             //resetThread = new SOCRobotResetThread(this);
             //resetThread.start();
             put(SOCVersion.toCmd(Version.versionNumber(), Version.version(), Version.buildnum(), null));
-            put(SOCImARobot.toCmd(nickname, cookie, SOCImARobot.RBCLASS_BUILTIN));
+            put(SOCImARobot.toCmd(nickname, cookie, rbclass));
         }
         catch (Exception e)
         {
@@ -310,7 +326,7 @@ public class SOCRobotClient extends SOCDisplaylessPlayerClient
             //resetThread = new SOCRobotResetThread(this);
             //resetThread.start();
             put(SOCVersion.toCmd(Version.versionNumber(), Version.version(), Version.buildnum(), null));
-            put(SOCImARobot.toCmd(nickname, cookie, SOCImARobot.RBCLASS_BUILTIN));
+            put(SOCImARobot.toCmd(nickname, cookie, rbclass));
         }
         catch (Exception e)
         {
@@ -522,13 +538,15 @@ public class SOCRobotClient extends SOCDisplaylessPlayerClient
              */
             case SOCMessage.BOARDLAYOUT:
                 handleBOARDLAYOUT((SOCBoardLayout) mes);  // in soc.client.SOCDisplaylessPlayerClient
+                buildBoardNodeValues(((SOCBoardLayout) mes).getGame());
                 break;
 
             /**
              * receive a board layout (new format, as of 20091104 (v 1.1.08))
              */
             case SOCMessage.BOARDLAYOUT2:
-                handleBOARDLAYOUT2(games, (SOCBoardLayout2) mes);  // in soc.client.SOCDisplaylessPlayerClient
+                if (handleBOARDLAYOUT2(games, (SOCBoardLayout2) mes))  // in soc.client.SOCDisplaylessPlayerClient
+                    buildBoardNodeValues(((SOCBoardLayout2) mes).getGame());
                 break;
 
             /**
@@ -798,9 +816,11 @@ public class SOCRobotClient extends SOCDisplaylessPlayerClient
             /**
              * reveal a hidden hex on the board.
              * Added 2012-11-08 for v2.0.00.
+             * The brain also gets it, to update its hex impact table.
              */
             case SOCMessage.REVEALFOGHEX:
                 super.handleREVEALFOGHEX((SOCRevealFogHex) mes);
+                handlePutBrainQ((SOCRevealFogHex) mes);
                 break;
 
             /**
@@ -978,10 +998,69 @@ public class SOCRobotClient extends SOCDisplaylessPlayerClient
         CappedQueue<SOCMessage> brainQ = new CappedQueue<SOCMessage>();
         brainQs.put(gaName, brainQ);
 
-        SOCRobotBrain rb = new SOCRobotBrain(this, currentRobotParameters, ga, brainQ);
+        SOCRobotBrain rb = createBrain(currentRobotParameters, ga, brainQ);
         robotBrains.put(gaName, rb);
     }
 
+    /**
+     * Build the {@link BoardNodeValues} board analysis for a game after its board layout arrives.
+     * The analysis is shared by all robots in this JVM playing in that game, so the
+     * first robot to get the layout builds it and the others reuse it.
+     * @param gaName  Game name
+     * @since 2.0.00
+     */
+    protected void buildBoardNodeValues(final String gaName)
+    {
+        final SOCGame ga = games.get(gaName);
+        if (ga != null)
+            BoardNodeValues.forGame(ga);
+    }
+
+    /**
+     * Create a robot brain to play a game.  Called when the server authorizes us to join a game.
+     * Robot client subclasses can override this to play with a {@link SOCRobotBrain} subclass,
+     * such as {@link MonteCarloRobotClient}.
+     *
+     * @param params  the robot parameters
+     * @param ga  the game to play
+     * @param mq  the brain's message queue
+     * @return  a new brain, whose thread has not been started yet
+     * @since 2.0.00
+     */
+    protected SOCRobotBrain createBrain
+        (final SOCRobotParameters params, final SOCGame ga, final CappedQueue<SOCMessage> mq)
+    {
+        return new SOCRobotBrain(this, params, ga, mq);
+    }
+
+    /**
+     * Seed the random numbers of this robot's brains in games it joins from now on,
+     * so that simulations are repeatable.  Each brain's seed is derived from this seed,
+     * the game name, and this robot's nickname.  By default each brain gets a new unique seed.
+     * @param seed  Base seed for new brains
+     * @since 2.0.00
+     */
+    public void setRandomSeed(final long seed)
+    {
+        randomSeed = Long.valueOf(seed);
+    }
+
+    /**
+     * Create the random number generator for a new brain, seeded from {@link #setRandomSeed(long)} if called.
+     * Called from the {@link SOCRobotBrain} constructor.
+     * @param gaName  Name of the brain's game
+     * @return  a new generator for the brain
+     * @since 2.0.00
+     */
+    SOCSplittableRandom newBrainRandom(final String gaName)
+    {
+        final Long seed = randomSeed;
+        if (seed == null)
+            return new SOCSplittableRandom();
+
+        return new SOCSplittableRandom(SOCSplittableRandom.seedFor(seed.longValue(), gaName + '/' + nickname));
+    }
+
     /**
      * handle the "join game" message
      * @param mes  the message
@@ -1317,6 +1396,29 @@ public class SOCRobotClient extends SOCDisplaylessPlayerClient
             }
         }
 
+        else if (dcmd.startsWith(":trace"))
+        {
+            SOCRobotBrain brain = robotBrains.get(mes.getGame());
+
+            if (brain != null)
+            {
+                // ":trace" or ":trace n": Send the last 20 or n records
+                int n = 20;
+                String[] tokens = dcmd.split(" ");
+                if (tokens.length > 1)
+                {
+                    try
+                    {
+                        n = Integer.parseInt(tokens[1].trim());
+                    }
+                    catch (NumberFormatException e) { }
+                }
+
+                SOCGame ga = games.get(mes.getGame());
+                sendRecordsText(ga, brain.getDecisionTrace().getRecordsText(n));
+            }
+        }
+
         else if (dcmd.startsWith(":print-vars") || dcmd.startsWith(":pv"))
         {
             // TODO sendText, not print at server
@@ -1334,6 +1436,11 @@ public class SOCRobotClient extends SOCDisplaylessPlayerClient
             sendText(ga, "Clean brain kills:" + cleanBrainKills);
             sendText(ga, "Brains running: " + robotBrains.size());
 
+            SOCRobotBrain brain = robotBrains.get(mes.getGame());
+            if (brain != null)
+                sendText(ga, "Decision time budget hits/decisions: " + brain.getDecisionBudget());
+            sendText(ga, "All budget hits/decisions: " + DecisionTimeBudget.getTotalsString());
+
             Runtime rt = Runtime.getRuntime();
             sendText(ga, "Total Memory:" + rt.totalMemory());
             sendText(ga, "Free Memory:" + rt.freeMemory());
@@ -21,12 +21,23 @@
  **/
 package soc.robot;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.text.DecimalFormat;
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Stack;
 import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import soc.disableDebug.D;
 import soc.game.SOCBoard;
@@ -101,6 +112,29 @@ public class SOCRobotDM
   public static final int SMART_STRATEGY = 0;
   public static final int FAST_STRATEGY = 1;
 
+  /**
+   * Minimum number of candidate pieces to score in {@link #smartGameStrategy(int[])}
+   * before they're scored in parallel by {@link #scoreCandidatesInParallel(List, int[], int)}.
+   * Below this, the brain's thread scores them one at a time.
+   * Set to 0 to always score in parallel, or {@link Integer#MAX_VALUE} to never do so.
+   * @since 2.0.00
+   */
+  public static int PARALLEL_SCORING_MIN_CANDIDATES = 8;
+
+  /**
+   * Thread pool shared by all bots in this JVM to score candidate pieces
+   * in {@link #scoreCandidatesInParallel(List, int[], int)}; daemon threads,
+   * one per available processor. Created when first needed by {@link #getScoringPool()}.
+   * @since 2.0.00
+   */
+  private static ExecutorService scoringPool;
+
+  /**
+   * Number of threads in {@link #scoringPool}, or 0 if not created yet.
+   * @since 2.0.00
+   */
+  private static int scoringPoolSize;
+
   protected SOCRobotBrain brain;
   protected HashMap<Integer,SOCPlayerTracker> playerTrackers;
   protected SOCPlayerTracker ourPlayerTracker;
@@ -154,6 +188,15 @@ public class SOCRobotDM
   protected SOCPossibleCity favoriteCity;
   protected SOCPossibleCard possibleCard;
 
+  /**
+   * Time budget for {@link #planStuff(int)}: When it runs out,
+   * {@link #smartGameStrategy(int[])} stops scoring more candidate pieces
+   * and plans with the best ones scored so far.
+   * Same object as {@link SOCRobotBrain#getDecisionBudget()} if we have a brain.
+   * @since 2.0.00
+   */
+  protected DecisionTimeBudget decisionBudget;
+
 
   /**
    * constructor
@@ -182,6 +225,7 @@ public class SOCRobotDM
     leaderAdversarialFactor = params.getLeaderAdversarialFactor();
     devCardMultiplier = params.getDevCardMultiplier();
     threatMultiplier = params.getThreatMultiplier();
+    decisionBudget = brain.getDecisionBudget();
   }
 
 
@@ -215,6 +259,7 @@ public class SOCRobotDM
     leaderAdversarialFactor = params.getLeaderAdversarialFactor();
     devCardMultiplier = params.getDevCardMultiplier();
     threatMultiplier = params.getThreatMultiplier();
+    decisionBudget = new DecisionTimeBudget(params.getDecisionTimeBudget());
 
     threatenedRoads = new Vector<SOCPossibleRoad>();
     goodRoads = new Vector<SOCPossibleRoad>();
@@ -251,6 +296,38 @@ public class SOCRobotDM
     return possibleCard;
   }
 
+  /**
+   * Use another time budget for planning, such as the brain's budget
+   * for a simulator which plans for another player while considering a trade offer.
+   * @param budget  Decision time budget to use; not null
+   * @since 2.0.00
+   */
+  public void setDecisionBudget(final DecisionTimeBudget budget)
+  {
+    decisionBudget = budget;
+  }
+
+  /**
+   * Add the candidate pieces from the most recent {@link #planStuff(int)}
+   * to a decision trace, as {@link DecisionTrace#CANDIDATE} records:
+   * Threatened and good settlements and roads, the favorite city, and the possible card.
+   * @param trace  Trace to add to
+   * @since 2.0.00
+   */
+  public void traceCandidates(final DecisionTrace trace)
+  {
+    for (SOCPossibleSettlement ps : threatenedSettlements)
+      trace.recordPiece(DecisionTrace.CANDIDATE, ps, 0);
+    for (SOCPossibleSettlement ps : goodSettlements)
+      trace.recordPiece(DecisionTrace.CANDIDATE, ps, 0);
+    for (SOCPossibleRoad pr : threatenedRoads)
+      trace.recordPiece(DecisionTrace.CANDIDATE, pr, 0);
+    for (SOCPossibleRoad pr : goodRoads)
+      trace.recordPiece(DecisionTrace.CANDIDATE, pr, 0);
+    trace.recordPiece(DecisionTrace.CANDIDATE, favoriteCity, 0);
+    trace.recordPiece(DecisionTrace.CANDIDATE, possibleCard, 0);
+  }
+
   /**
    * make some building plans.
    * Called as needed by {@link SOCRobotBrain} and related strategy classes.
@@ -275,9 +352,30 @@ public class SOCRobotDM
    * <LI> If {@code SMART_STRATEGY} and we have a Road Building card, plan and push 2 roads onto {@code buildingPlan}
    *</UL>
    *
+   *<P>
+   * If {@link #decisionBudget} runs out, plans with the best pieces scored so far.
+   *
    * @param strategy  an integer that determines which strategy is used (SMART_STRATEGY | FAST_STRATEGY)
    */
   public void planStuff(final int strategy)
+  {
+    decisionBudget.begin(DecisionTimeBudget.PLAN);
+    try
+    {
+      planStuffWithinBudget(strategy);
+    }
+    finally
+    {
+      decisionBudget.end();
+    }
+  }
+
+  /**
+   * Body of {@link #planStuff(int)}, called after starting {@link #decisionBudget}.
+   * @param strategy  an integer that determines which strategy is used (SMART_STRATEGY | FAST_STRATEGY)
+   * @since 2.0.00
+   */
+  private void planStuffWithinBudget(final int strategy)
   {
       //long startTime = System.currentTimeMillis();
     D.ebugPrintln("PLANSTUFF");
@@ -1272,6 +1370,205 @@ public class SOCRobotDM
     return null;
   }
 
+  /**
+   * Get the shared {@link #scoringPool}, creating it if needed.
+   * Returns null if this JVM has only 1 processor, because scoring in parallel wouldn't help.
+   * Subclasses may also use the pool for other parallel planning work.
+   * @return  the pool, or null
+   * @since 2.0.00
+   */
+  protected static synchronized ExecutorService getScoringPool()
+  {
+    if (scoringPool == null)
+    {
+      final int nThreads = Runtime.getRuntime().availableProcessors();
+      if (nThreads < 2)
+        return null;
+
+      scoringPool = Executors.newFixedThreadPool(nThreads, new ThreadFactory()
+      {
+        private int n = 0;
+
+        public synchronized Thread newThread(Runnable r)
+        {
+          ++n;
+          Thread t = new Thread(r, "SOCRobotDM-scoring-" + n);
+          t.setDaemon(true);  // Don't wait on us to exit program
+          return t;
+        }
+      });
+      scoringPoolSize = nThreads;
+    }
+
+    return scoringPool;
+  }
+
+  /**
+   * Score candidate settlements, roads or ships in parallel on the shared scoring pool,
+   * if there are at least {@link #PARALLEL_SCORING_MIN_CANDIDATES} of them.
+   *<P>
+   * Each worker scores its share of the candidates on its own fork of {@link #game},
+   * deserialized from a copy made here, so the temporary pieces it places with
+   * {@link SOCGame#putTempPiece(SOCPlayingPiece)} can't affect the other workers or the brain.
+   * Just before scoring each candidate, the worker copies {@link #playerTrackers} to track the fork's players;
+   * candidates skipped because the decision budget ran out aren't copied.
+   * Candidates are assigned to workers by index, not by which worker is free,
+   * so the scores don't depend on thread timing. The caller adds them to the candidates
+   * in candidate order, the same order the serial loop would score them.
+   *<P>
+   * While the workers run, the brain's thread waits here; the workers only read
+   * {@link #game}, {@link #playerTrackers} and the candidates.
+   * Not used if the brain's debug recorder is on, since it records each candidate in turn.
+   *
+   * @param cands  Candidates to score: {@link SOCPossibleSettlement}s which need no roads,
+   *     or {@link SOCPossibleRoad}s and {@link SOCPossibleShip}s
+   * @param etas  ETA to build each candidate, in the same order as {@code cands}
+   * @param leadersCurrentWGETA  the leaders current WGETA
+   * @return  Each candidate's ETA bonus, calculated by {@link #calcCandidateETABonus(SOCPossiblePiece, int, int, SOCGame)},
+   *     or {@code null} if the caller should score them serially. If the decision budget ran out,
+   *     the candidates not scored have {@link Float#NaN}; the first candidate is always scored.
+   * @since 2.0.00
+   */
+  protected float[] scoreCandidatesInParallel
+      (final List<? extends SOCPossiblePiece> cands, final int[] etas, final int leadersCurrentWGETA)
+  {
+    final int n = cands.size();
+    if ((n < 2) || (n < PARALLEL_SCORING_MIN_CANDIDATES)
+        || ((brain != null) && brain.getDRecorder().isOn()))
+      return null;
+
+    final ExecutorService pool = getScoringPool();
+    if (pool == null)
+      return null;
+
+    final byte[] gameData;
+    try
+    {
+      final ByteArrayOutputStream bout = new ByteArrayOutputStream(32 * 1024);
+      final ObjectOutputStream oout = new ObjectOutputStream(bout);
+      oout.writeObject(game);
+      oout.flush();
+      gameData = bout.toByteArray();
+    }
+    catch (IOException e)
+    {
+      D.ebugPrintln("scoreCandidatesInParallel: can't fork game: " + e);
+      return null;
+    }
+
+    // Rebuild any stale lightweight trackers' possible pieces now, so the workers only read them
+    for (SOCPlayerTracker pt : playerTrackers.values())
+      pt.getPossibleSettlements();
+
+    final float[] scores = new float[n];
+    Arrays.fill(scores, Float.NaN);
+    final long deadline = decisionBudget.getDeadline();
+    final int nWorkers = Math.min(n, scoringPoolSize);
+    final Vector<Future<?>> futures = new Vector<Future<?>>(nWorkers);
+    for (int w = 0; w < nWorkers; ++w)
+    {
+      final int firstIndex = w;
+      futures.addElement(pool.submit(new Runnable()
+      {
+        public void run()
+        {
+          final SOCGame fork;
+          try
+          {
+            fork = (SOCGame) new ObjectInputStream(new ByteArrayInputStream(gameData)).readObject();
+          }
+          catch (Exception e)
+          {
+            // IOException or ClassNotFoundException: leave this worker's scores NaN
+            D.ebugPrintln("scoreCandidatesInParallel: can't fork game: " + e);
+            return;
+          }
+
+          for (int i = firstIndex; i < n; i += nWorkers)
+          {
+            if ((i > 0) && (System.currentTimeMillis() >= deadline))
+              break;
+
+            scores[i] = calcCandidateETABonus(cands.get(i), etas[i], leadersCurrentWGETA, fork);
+          }
+        }
+      }));
+    }
+
+    for (int w = 0; w < nWorkers; ++w)
+    {
+      try
+      {
+        futures.elementAt(w).get();
+      }
+      catch (Exception e)
+      {
+        // InterruptedException or ExecutionException: that worker's unscored candidates are NaN
+        D.ebugPrintln("scoreCandidatesInParallel: " + e);
+      }
+    }
+
+    if (Float.isNaN(scores[0]))
+      return null;  // first worker failed; caller will score serially
+
+    return scores;
+  }
+
+  /**
+   * Calculate the ETA bonus for one candidate on a fork of {@link #game},
+   * for a worker thread in {@link #scoreCandidatesInParallel(List, int[], int)}.
+   * Same calculation as the serial loop in {@link #scorePossibleSettlements(int, int)} for a settlement,
+   * or {@link #getWinGameETABonusForRoad(SOCPossibleRoad, int, int, HashMap)} for a road or ship,
+   * but doesn't change the candidate's score.
+   *
+   * @param posPiece  the possible settlement, road or ship to score
+   * @param eta  the eta to build {@code posPiece}
+   * @param leadersCurrentWGETA  the leaders current WGETA
+   * @param fork  this worker's copy of {@link #game}; temporary pieces are placed here and then removed
+   * @return  the ETA bonus to add to {@code posPiece}'s score
+   * @since 2.0.00
+   */
+  private float calcCandidateETABonus
+      (final SOCPossiblePiece posPiece, final int eta, final int leadersCurrentWGETA, final SOCGame fork)
+  {
+    final SOCPlayer pl = fork.getPlayer(ourPlayerNumber);
+    final boolean isSettlement = (posPiece.getType() == SOCPossiblePiece.SETTLEMENT);
+    final SOCPlayingPiece tmpPiece;
+    SOCResourceSet originalResources = null;
+    if (isSettlement)
+    {
+      tmpPiece = new SOCSettlement(pl, posPiece.getCoordinates(), fork.getBoard());
+    } else {
+      originalResources = pl.getResources().copy();
+      SOCBuildingSpeedEstimate estimate = new SOCBuildingSpeedEstimate(pl.getNumbers());
+      try {
+        SOCResSetBuildTimePair btp = estimate.calculateRollsAndRsrcFast
+            (pl.getResources(), SOCGame.ROAD_SET, 50, pl.getPortFlags());
+        btp.getResources().subtract(SOCGame.ROAD_SET);
+        pl.getResources().setAmounts(btp.getResources());
+      } catch (CutoffExceededException e) {
+        D.ebugPrintln("crap in calcCandidateETABonus - "+e);
+      }
+      tmpPiece = new SOCRoad(pl, posPiece.getCoordinates(), null);
+    }
+
+    HashMap<Integer, SOCPlayerTracker> trackersCopy = SOCPlayerTracker.copyPlayerTrackers(playerTrackers, fork);
+    SOCPlayerTracker.tryPutPieceNoCopy(tmpPiece, fork, trackersCopy);
+    SOCPlayerTracker.updateWinGameETAs(trackersCopy);
+    float score = calcWGETABonus(playerTrackers, trackersCopy);
+    if ((! isSettlement) && ! posPiece.getThreats().isEmpty())
+      score *= threatMultiplier;
+
+    SOCPlayerTracker.undoTryPutPiece(tmpPiece, fork);
+    if (originalResources != null)
+    {
+      pl.getResources().clear();
+      pl.getResources().add(originalResources);
+    }
+
+    return getETABonus(eta, leadersCurrentWGETA, score);
+  }
+
   /**
    * Plan building for the smart game strategy ({@link #SMART_STRATEGY}).
    * use WGETA to determine best move
@@ -1494,8 +1791,27 @@ public class SOCRobotDM
     ///
     if (ourPlayerData.getNumPieces(SOCPlayingPiece.ROAD) > 0)
     {
+      // Score in parallel if there are enough, otherwise one at a time in the loops below
+      final Vector<SOCPossibleRoad> roadCands = new Vector<SOCPossibleRoad>(threatenedRoads);
+      roadCands.addAll(goodRoads);
+      final int[] roadETAs = new int[roadCands.size()];
+      for (int i = 0; i < roadETAs.length; ++i)
+      {
+        if (i < threatenedRoads.size())
+          roadETAs[i] = buildingETAs[SOCBuildingSpeedEstimate.ROAD];
+        else
+          roadETAs[i] = buildingETAs[(roadCands.elementAt(i) instanceof SOCPossibleShip)
+              ? SOCBuildingSpeedEstimate.ROAD
+              : SOCBuildingSpeedEstimate.SHIP];
+      }
+      final float[] roadScores = scoreCandidatesInParallel(roadCands, roadETAs, leadersCurrentWGETA);
+      int roadIdx = 0;
+
       Iterator<SOCPossibleRoad> threatenedRoadIter = threatenedRoads.iterator();
       while (threatenedRoadIter.hasNext()) {
+	if ((favoriteRoad != null) && decisionBudget.isExpired())
+	  break;  // use the best road so far
+
 	SOCPossibleRoad threatenedRoad = threatenedRoadIter.next();
 	D.ebugPrintln("$$$$$ threatened road at "+Integer.toHexString(threatenedRoad.getCoordinates()));
 
@@ -1509,8 +1825,15 @@ public class SOCRobotDM
 	// see how building this piece impacts our winETA
 	//
 	threatenedRoad.resetScore();
-	float wgetaScore = getWinGameETABonusForRoad
-	    (threatenedRoad, buildingETAs[SOCBuildingSpeedEstimate.ROAD], leadersCurrentWGETA, playerTrackers);
+	float wgetaScore;
+	if ((roadScores != null) && ! Float.isNaN(roadScores[roadIdx])) {
+	  wgetaScore = roadScores[roadIdx];  // already scored in parallel
+	  threatenedRoad.addToScore(wgetaScore);
+	} else {
+	  wgetaScore = getWinGameETABonusForRoad
+	      (threatenedRoad, buildingETAs[SOCBuildingSpeedEstimate.ROAD], leadersCurrentWGETA, playerTrackers);
+	}
+	++roadIdx;
 	if ((brain != null) && (brain.getDRecorder().isOn())) {
 	  brain.getDRecorder().stopRecording();
 	}
@@ -1528,6 +1851,9 @@ public class SOCRobotDM
       Iterator<SOCPossibleRoad> goodRoadIter = goodRoads.iterator();
       while (goodRoadIter.hasNext())
       {
+	if ((favoriteRoad != null) && decisionBudget.isExpired())
+	  break;  // use the best road so far
+
 	SOCPossibleRoad goodRoad = goodRoadIter.next();
 	D.ebugPrintln("$$$$$ good road at "+Integer.toHexString(goodRoad.getCoordinates()));
 
@@ -1545,7 +1871,14 @@ public class SOCRobotDM
 	    (goodRoad instanceof SOCPossibleShip)
 	    ? SOCBuildingSpeedEstimate.ROAD
 	    : SOCBuildingSpeedEstimate.SHIP;
-	float wgetaScore = getWinGameETABonusForRoad(goodRoad, buildingETAs[etype], leadersCurrentWGETA, playerTrackers);
+	float wgetaScore;
+	if ((roadScores != null) && ! Float.isNaN(roadScores[roadIdx])) {
+	  wgetaScore = roadScores[roadIdx];  // already scored in parallel
+	  goodRoad.addToScore(wgetaScore);
+	} else {
+	  wgetaScore = getWinGameETABonusForRoad(goodRoad, buildingETAs[etype], leadersCurrentWGETA, playerTrackers);
+	}
+	++roadIdx;
 	if ((brain != null) && (brain.getDRecorder().isOn())) {
 	  brain.getDRecorder().stopRecording();
 	}
@@ -1586,6 +1919,9 @@ public class SOCRobotDM
       Iterator<SOCPossibleCity> posCitiesIter = ourPlayerTracker.getPossibleCities().values().iterator();
       while (posCitiesIter.hasNext())
       {
+	if ((favoriteCity != null) && decisionBudget.isExpired())
+	  break;  // use the best city so far
+
 	SOCPossibleCity posCity = posCitiesIter.next();
 	if ((brain != null) && (brain.getDRecorder().isOn())) {
 	  brain.getDRecorder().startRecording("CITY"+posCity.getCoordinates());
@@ -1930,9 +2266,25 @@ public class SOCRobotDM
     }
     */
 
+    // Score in parallel if there are enough, otherwise one at a time in the loop below
+    final Vector<SOCPossibleSettlement> setCands = new Vector<SOCPossibleSettlement>();
+    for (SOCPossibleSettlement posSet : ourPlayerTracker.getPossibleSettlements().values())
+      if (posSet.getNecessaryRoads().isEmpty())
+        setCands.addElement(posSet);
+    final int[] setETAs = new int[setCands.size()];
+    Arrays.fill(setETAs, settlementETA);
+    final float[] setScores = scoreCandidatesInParallel(setCands, setETAs, leadersCurrentWGETA);
+
+    int nScored = 0;
     Iterator<SOCPossibleSettlement> posSetsIter = ourPlayerTracker.getPossibleSettlements().values().iterator();
     while (posSetsIter.hasNext())
     {
+      if ((nScored > 0) && decisionBudget.isExpired())
+      {
+        D.ebugPrintln("*** time budget reached after scoring " + nScored + " settlements");
+        break;
+      }
+
       SOCPossibleSettlement posSet = posSetsIter.next();
       D.ebugPrintln("*** scoring possible settlement at "+Integer.toHexString(posSet.getCoordinates()));
       if (!threatenedSettlements.contains(posSet)) {
@@ -1951,39 +2303,45 @@ public class SOCRobotDM
 	//
 	//  no roads needed
 	//
-	//
-	//  get wgeta score
-	//
-        SOCBoard board = game.getBoard();
-	SOCSettlement tmpSet = new SOCSettlement(ourPlayerData, posSet.getCoordinates(), board);
-	if ((brain != null) && (brain.getDRecorder().isOn())) {
-	  brain.getDRecorder().startRecording("SETTLEMENT"+posSet.getCoordinates());
-	  brain.getDRecorder().record("Estimate value of settlement at "+board.nodeCoordToString(posSet.getCoordinates()));
-	}
+	if ((setScores != null) && ! Float.isNaN(setScores[nScored]))
+	{
+	  posSet.addToScore(setScores[nScored]);  // already scored in parallel
+	} else {
+	  //
+	  //  get wgeta score
+	  //
+	  SOCBoard board = game.getBoard();
+	  SOCSettlement tmpSet = new SOCSettlement(ourPlayerData, posSet.getCoordinates(), board);
+	  if ((brain != null) && (brain.getDRecorder().isOn())) {
+	    brain.getDRecorder().startRecording("SETTLEMENT"+posSet.getCoordinates());
+	    brain.getDRecorder().record("Estimate value of settlement at "+board.nodeCoordToString(posSet.getCoordinates()));
+	  }
 
-	HashMap<Integer, SOCPlayerTracker> trackersCopy = SOCPlayerTracker.tryPutPiece(tmpSet, game, playerTrackers);
-	SOCPlayerTracker.updateWinGameETAs(trackersCopy);
-	float wgetaScore = calcWGETABonus(playerTrackers, trackersCopy);
-	D.ebugPrintln("***  wgetaScore = "+wgetaScore);
+	  HashMap<Integer, SOCPlayerTracker> trackersCopy = SOCPlayerTracker.tryPutPiece(tmpSet, game, playerTrackers);
+	  SOCPlayerTracker.updateWinGameETAs(trackersCopy);
+	  float wgetaScore = calcWGETABonus(playerTrackers, trackersCopy);
+	  D.ebugPrintln("***  wgetaScore = "+wgetaScore);
 
-	D.ebugPrintln("*** ETA for settlement = "+settlementETA);
-	if ((brain != null) && (brain.getDRecorder().isOn())) {
-	  brain.getDRecorder().record("ETA = "+settlementETA);
-	}
+	  D.ebugPrintln("*** ETA for settlement = "+settlementETA);
+	  if ((brain != null) && (brain.getDRecorder().isOn())) {
+	    brain.getDRecorder().record("ETA = "+settlementETA);
+	  }
 
-	float etaBonus = getETABonus(settlementETA, leadersCurrentWGETA, wgetaScore);
-	D.ebugPrintln("etaBonus = "+etaBonus);
+	  float etaBonus = getETABonus(settlementETA, leadersCurrentWGETA, wgetaScore);
+	  D.ebugPrintln("etaBonus = "+etaBonus);
 
-	//posSet.addToScore(wgetaScore);
-	posSet.addToScore(etaBonus);
+	  //posSet.addToScore(wgetaScore);
+	  posSet.addToScore(etaBonus);
 
-	if ((brain != null) && (brain.getDRecorder().isOn())) {
-	  brain.getDRecorder().record("WGETA score = "+df1.format(wgetaScore));
-	  brain.getDRecorder().record("Total settlement score = "+df1.format(etaBonus));
-	  brain.getDRecorder().stopRecording();
-	}
+	  if ((brain != null) && (brain.getDRecorder().isOn())) {
+	    brain.getDRecorder().record("WGETA score = "+df1.format(wgetaScore));
+	    brain.getDRecorder().record("Total settlement score = "+df1.format(etaBonus));
+	    brain.getDRecorder().stopRecording();
+	  }
 
-	SOCPlayerTracker.undoTryPutPiece(tmpSet, game);
+	  SOCPlayerTracker.undoTryPutPiece(tmpSet, game);
+	}
+	++nScored;
       }
     }
   }
@@ -25,11 +25,13 @@ import soc.disableDebug.D;
 
 import soc.game.SOCBoard;
 import soc.game.SOCGame;
+import soc.game.SOCPackedResourceSet;
 import soc.game.SOCPlayer;
 import soc.game.SOCResourceConstants;
 import soc.game.SOCResourceSet;
 import soc.game.SOCTradeOffer;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -76,6 +78,52 @@ public class SOCRobotNegotiator
     protected Vector<SOCTradeOffer> offersMade;
     protected SOCPossiblePiece[] targetPieces;
 
+    /**
+     * Size of the {@link #etaMemoKeys} table; a power of 2.
+     * @since 2.0.00
+     */
+    private static final int ETA_MEMO_SIZE = 128;
+
+    /**
+     * Bit set in each used {@link #etaMemoKeys} key, above the bits of the packed resource set.
+     * @since 2.0.00
+     */
+    private static final long ETA_MEMO_USED = 1L << 62;
+
+    /**
+     * Player, target and estimate of the ETAs in {@link #etaMemoKeys}.
+     * {@link #getETAToTargetResources(SOCPlayer, SOCResourceSet, SOCResourceSet, SOCResourceSet, SOCBuildingSpeedEstimate)}
+     * clears the memo when called with others, which happens once per offer considered or made,
+     * since each of those creates its own estimate.
+     * @since 2.0.00
+     */
+    private SOCPlayer etaMemoPlayer;
+    private SOCResourceSet etaMemoTarget;
+    private SOCBuildingSpeedEstimate etaMemoEstimate;
+
+    /**
+     * Memo of ETAs to the target resources from each resource amounts we'd have after a possible trade,
+     * so that trades giving and getting the same resources in different orders are estimated only once.
+     * Open-addressed hash table: Keys are {@link SOCPackedResourceSet packed resource sets}
+     * with {@link #ETA_MEMO_USED} set, or 0 for an unused slot; {@link #etaMemoRolls} holds the ETA for each key.
+     * @since 2.0.00
+     */
+    private final long[] etaMemoKeys = new long[ETA_MEMO_SIZE];
+    private final int[] etaMemoRolls = new int[ETA_MEMO_SIZE];
+
+    /**
+     * Number of keys in {@link #etaMemoKeys}; cleared when half full.
+     * @since 2.0.00
+     */
+    private int etaMemoCount;
+
+    /**
+     * {@link #etaMemoTarget}, packed for
+     * {@link SOCBuildingSpeedEstimate#calculateRollsFast(long, long, int, boolean[])}.
+     * @since 2.0.00
+     */
+    private long etaTargetPacked;
+
     /**
      * constructor
      *
@@ -454,7 +502,7 @@ public class SOCRobotNegotiator
             ///
             int giveRsrcIdx = 0;
 
-            while ((giveRsrcIdx < notNeededRsrcCount) && (offer == null))
+            while ((giveRsrcIdx < notNeededRsrcCount) && (offer == null) && ! isSearchExpired())
             {
                 D.ebugPrintln("*** ourResources.getAmount(" + notNeededRsrc[giveRsrcIdx] + ") = " + ourResources.getAmount(notNeededRsrc[giveRsrcIdx]));
 
@@ -481,7 +529,7 @@ public class SOCRobotNegotiator
             {
                 int giveRsrcIdx1 = 0;
 
-                while ((giveRsrcIdx1 < neededRsrcCount) && (offer == null))
+                while ((giveRsrcIdx1 < neededRsrcCount) && (offer == null) && ! isSearchExpired())
                 {
                     D.ebugPrintln("*** ourResources.getAmount(" + neededRsrc[giveRsrcIdx1] + ") = " + ourResources.getAmount(neededRsrc[giveRsrcIdx1]));
                     D.ebugPrintln("*** targetResources.getAmount(" + neededRsrc[giveRsrcIdx1] + ") = " + targetResources.getAmount(neededRsrc[giveRsrcIdx1]));
@@ -523,11 +571,11 @@ public class SOCRobotNegotiator
                 int giveRsrcIdx1 = 0;
                 int giveRsrcIdx2 = 0;
 
-                while ((giveRsrcIdx1 < notNeededRsrcCount) && (offer == null))
+                while ((giveRsrcIdx1 < notNeededRsrcCount) && (offer == null) && ! isSearchExpired())
                 {
                     if (ourResources.contains(notNeededRsrc[giveRsrcIdx1]))
                     {
-                        while ((giveRsrcIdx2 < notNeededRsrcCount) && (offer == null))
+                        while ((giveRsrcIdx2 < notNeededRsrcCount) && (offer == null) && ! isSearchExpired())
                         {
                             giveResourceSet.clear();
                             giveResourceSet.add(1, notNeededRsrc[giveRsrcIdx1]);
@@ -553,7 +601,7 @@ public class SOCRobotNegotiator
 
                         giveRsrcIdx2 = 0;
 
-                        while ((giveRsrcIdx2 < neededRsrcCount) && (offer == null))
+                        while ((giveRsrcIdx2 < neededRsrcCount) && (offer == null) && ! isSearchExpired())
                         {
                             if (neededRsrc[giveRsrcIdx2] != neededRsrc[getRsrcIdx])
                             {
@@ -587,11 +635,11 @@ public class SOCRobotNegotiator
                 giveRsrcIdx1 = 0;
                 giveRsrcIdx2 = 0;
 
-                while ((giveRsrcIdx1 < neededRsrcCount) && (offer == null))
+                while ((giveRsrcIdx1 < neededRsrcCount) && (offer == null) && ! isSearchExpired())
                 {
                     if (leftovers.contains(neededRsrc[giveRsrcIdx1]) && (neededRsrc[giveRsrcIdx1] != neededRsrc[getRsrcIdx]))
                     {
-                        while ((giveRsrcIdx2 < notNeededRsrcCount) && (offer == null))
+                        while ((giveRsrcIdx2 < notNeededRsrcCount) && (offer == null) && ! isSearchExpired())
                         {
                             giveResourceSet.clear();
                             giveResourceSet.add(1, neededRsrc[giveRsrcIdx1]);
@@ -617,7 +665,7 @@ public class SOCRobotNegotiator
 
                         giveRsrcIdx2 = 0;
 
-                        while ((giveRsrcIdx2 < neededRsrcCount) && (offer == null))
+                        while ((giveRsrcIdx2 < neededRsrcCount) && (offer == null) && ! isSearchExpired())
                         {
                             if (neededRsrc[giveRsrcIdx2] != neededRsrc[getRsrcIdx])
                             {
@@ -668,7 +716,7 @@ public class SOCRobotNegotiator
                 getRsrcIdx2--;
             }
 
-            while ((getRsrcIdx2 >= 0) && (offer == null))
+            while ((getRsrcIdx2 >= 0) && (offer == null) && ! isSearchExpired())
             {
                 getResourceSet.clear();
                 getResourceSet.add(1, notNeededRsrc[getRsrcIdx2]);
@@ -681,7 +729,7 @@ public class SOCRobotNegotiator
                 {
                     int giveRsrcIdx1 = 0;
 
-                    while ((giveRsrcIdx1 < notNeededRsrcCount) && (offer == null))
+                    while ((giveRsrcIdx1 < notNeededRsrcCount) && (offer == null) && ! isSearchExpired())
                     {
                         if (leftovers.contains(notNeededRsrc[giveRsrcIdx1]) && (notNeededRsrc[giveRsrcIdx1] != notNeededRsrc[getRsrcIdx2]))
                         {
@@ -719,7 +767,7 @@ public class SOCRobotNegotiator
                 {
                     int giveRsrcIdx1 = 0;
 
-                    while ((giveRsrcIdx1 < neededRsrcCount) && (offer == null))
+                    while ((giveRsrcIdx1 < neededRsrcCount) && (offer == null) && ! isSearchExpired())
                     {
                         if (leftovers.contains(neededRsrc[giveRsrcIdx1]))
                         {
@@ -758,6 +806,19 @@ public class SOCRobotNegotiator
         return offer;
     }
 
+    /**
+     * Has our brain's {@link SOCRobotBrain#getDecisionBudget() decision time budget} run out?
+     * The searches in {@link #makeOffer(SOCPossiblePiece)} and {@link #makeCounterOffer(SOCTradeOffer)}
+     * take the first candidate offer which beats our BATNA, so they check this before each candidate
+     * and stop with the offer found so far, or none if no candidate has beaten the BATNA yet.
+     * @return  true if the budget has run out
+     * @since 2.0.00
+     */
+    private boolean isSearchExpired()
+    {
+        return brain.getDecisionBudget().isExpired();
+    }
+
     /**
      * aux function for make offer
      */
@@ -924,21 +985,63 @@ public class SOCRobotNegotiator
      */
     protected int getETAToTargetResources(SOCPlayer player, SOCResourceSet targetResources, SOCResourceSet giveSet, SOCResourceSet getSet, SOCBuildingSpeedEstimate estimate)
     {
-        SOCResourceSet ourResourcesCopy = player.getResources().copy();
-        D.ebugPrintln("*** giveSet = " + giveSet);
-        D.ebugPrintln("*** getSet = " + getSet);
-        ourResourcesCopy.subtract(giveSet);
-        ourResourcesCopy.add(getSet);
+        if ((player != etaMemoPlayer) || (targetResources != etaMemoTarget) || (estimate != etaMemoEstimate))
+        {
+            etaMemoPlayer = player;
+            etaMemoTarget = targetResources;
+            etaMemoEstimate = estimate;
+            etaTargetPacked = SOCPackedResourceSet.fromResourceSet(targetResources);
+            clearETAMemo();
+        }
+
+        // Same amounts as copying our resources, subtracting giveSet and adding getSet,
+        // without allocating a SOCResourceSet for each possible trade
+        final long ourResources = SOCPackedResourceSet.add
+            (SOCPackedResourceSet.subtract
+                (SOCPackedResourceSet.fromResourceSet(player.getResources()),
+                 SOCPackedResourceSet.fromResourceSet(giveSet)),
+             SOCPackedResourceSet.fromResourceSet(getSet));
+
+        final long key = ourResources | ETA_MEMO_USED;
+        int i = SOCPackedResourceSet.hashCode(ourResources) & (ETA_MEMO_SIZE - 1);
+        while (etaMemoKeys[i] != 0)
+        {
+            if (etaMemoKeys[i] == key)
+                return etaMemoRolls[i];
+            i = (i + 1) & (ETA_MEMO_SIZE - 1);
+        }
 
         final int offerBuildingTime =
-            estimate.calculateRollsFast(ourResourcesCopy, targetResources, 1000, player.getPortFlags());
+            estimate.calculateRollsFast(ourResources, etaTargetPacked, 1000, player.getPortFlags());
 
-        D.ebugPrintln("*** offerBuildingTime = " + offerBuildingTime);
-        D.ebugPrintln("*** ourResourcesCopy = " + ourResourcesCopy);
+        if (D.ebugOn)
+        {
+            D.ebugPrintln("*** giveSet = " + giveSet);
+            D.ebugPrintln("*** getSet = " + getSet);
+            D.ebugPrintln("*** offerBuildingTime = " + offerBuildingTime);
+        }
+
+        etaMemoKeys[i] = key;
+        etaMemoRolls[i] = offerBuildingTime;
+        if (++etaMemoCount >= ETA_MEMO_SIZE / 2)
+            clearETAMemo();
 
         return (offerBuildingTime);
     }
 
+    /**
+     * Clear the {@link #etaMemoKeys} table.
+     * @since 2.0.00
+     */
+    private void clearETAMemo()
+    {
+        if (etaMemoCount == 0)
+            return;
+
+        Arrays.fill(etaMemoKeys, 0L);
+        etaMemoCount = 0;
+    }
+
     /**
      * consider an offer made by another player
      *
@@ -1002,6 +1105,7 @@ public class SOCRobotNegotiator
         {
             Stack<SOCPossiblePiece> receiverBuildingPlan = new Stack<SOCPossiblePiece>();
             simulator = new SOCRobotDM(brain.getRobotParameters(), playerTrackers, receiverPlayerTracker, receiverPlayerData, receiverBuildingPlan);
+            simulator.setDecisionBudget(brain.getDecisionBudget());
 
             if (receiverNum == ourPlayerNumber)
             {
@@ -1033,6 +1137,7 @@ public class SOCRobotNegotiator
         {
             Stack<SOCPossiblePiece> senderBuildingPlan = new Stack<SOCPossiblePiece>();
             simulator = new SOCRobotDM(brain.getRobotParameters(), playerTrackers, senderPlayerTracker, senderPlayerData, senderBuildingPlan);
+            simulator.setDecisionBudget(brain.getDecisionBudget());
 
             if (senderNum == ourPlayerNumber)
             {
@@ -1100,6 +1205,13 @@ public class SOCRobotNegotiator
                         D.ebugPrintln("inARace == true (conflict with sender)");
                     }
                 }
+
+                if ((! inARace) && (receiverPlayerTracker.isLightweight() || senderPlayerTracker.isLightweight())
+                    && isRaceOnBoard(receiverTargetPiece, senderTargetPiece))
+                {
+                    inARace = true;
+                    D.ebugPrintln("inARace == true (board check for lightweight tracker)");
+                }
             }
 
             if (!inARace)
@@ -1176,6 +1288,41 @@ public class SOCRobotNegotiator
         return response;
     }
 
+    /**
+     * Are these two players' target pieces racing for the same spot, judging by the board alone?
+     * Used by {@link #considerOffer2(SOCTradeOffer, int)} when either player's tracker is
+     * {@link SOCPlayerTracker#isLightweight() lightweight}, because then their possible pieces
+     * have no threats or conflicts with each other.
+     * Settlements race if they're at the same or adjacent nodes, roads or ships if they're at the same edge,
+     * and a road or ship races a settlement at either end of its edge.
+     *
+     * @param receiverTarget  Receiver's target piece, a possible road, ship or settlement
+     * @param senderTarget  Sender's target piece
+     * @return  true if they're racing
+     * @since 2.0.00
+     */
+    private boolean isRaceOnBoard(final SOCPossiblePiece receiverTarget, final SOCPossiblePiece senderTarget)
+    {
+        final SOCBoard board = game.getBoard();
+        final int rCoord = receiverTarget.getCoordinates(), sCoord = senderTarget.getCoordinates();
+        final boolean rIsSettle = (receiverTarget.getType() == SOCPossiblePiece.SETTLEMENT),
+                      sIsSettle = (senderTarget.getType() == SOCPossiblePiece.SETTLEMENT);
+
+        if (rIsSettle && sIsSettle)
+            return (rCoord == sCoord) || board.getAdjacentNodesToNode(rCoord).contains(Integer.valueOf(sCoord));
+
+        final int sType = senderTarget.getType();
+        final boolean sIsRoad = (sType == SOCPossiblePiece.ROAD) || (sType == SOCPossiblePiece.SHIP);
+        if (! (sIsSettle || sIsRoad))
+            return false;
+        if (! (rIsSettle || sIsSettle))
+            return (rCoord == sCoord);  // both roads or ships
+
+        final int[] nodes = board.getAdjacentNodesToEdge_arr((rIsSettle) ? sCoord : rCoord);
+        final int node = (rIsSettle) ? rCoord : sCoord;
+        return (nodes[0] == node) || (nodes[1] == node);
+    }
+
     /**
      * consider an offer made by another player
      *
@@ -1580,6 +1727,7 @@ public class SOCRobotNegotiator
                 SOCRobotDM simulator;
                 D.ebugPrintln("**** our building plan is empty ****");
                 simulator = new SOCRobotDM(brain.getRobotParameters(), playerTrackers, ourPlayerTracker, ourPlayerData, ourBuildingPlan);
+                simulator.setDecisionBudget(brain.getDecisionBudget());
                 simulator.planStuff(strategyType);
             }
 
@@ -1758,7 +1906,7 @@ public class SOCRobotNegotiator
             ///
             int giveRsrcIdx = 0;
 
-            while ((giveRsrcIdx < notNeededRsrcCount) && (counterOffer == null))
+            while ((giveRsrcIdx < notNeededRsrcCount) && (counterOffer == null) && ! isSearchExpired())
             {
                 D.ebugPrintln("*** ourResources.getAmount(" + notNeededRsrc[giveRsrcIdx] + ") = " + ourResources.getAmount(notNeededRsrc[giveRsrcIdx]));
 
@@ -1782,7 +1930,7 @@ public class SOCRobotNegotiator
             {
                 int giveRsrcIdx1 = 0;
 
-                while ((giveRsrcIdx1 < neededRsrcCount) && (counterOffer == null))
+                while ((giveRsrcIdx1 < neededRsrcCount) && (counterOffer == null) && ! isSearchExpired())
                 {
                     D.ebugPrintln("*** ourResources.getAmount(" + neededRsrc[giveRsrcIdx1] + ") = " + ourResources.getAmount(neededRsrc[giveRsrcIdx1]));
                     D.ebugPrintln("*** targetResources.getAmount(" + neededRsrc[giveRsrcIdx1] + ") = " + targetResources.getAmount(neededRsrc[giveRsrcIdx1]));
@@ -1824,11 +1972,11 @@ public class SOCRobotNegotiator
                 int giveRsrcIdx1 = 0;
                 int giveRsrcIdx2 = 0;
 
-                while ((giveRsrcIdx1 < notNeededRsrcCount) && (counterOffer == null))
+                while ((giveRsrcIdx1 < notNeededRsrcCount) && (counterOffer == null) && ! isSearchExpired())
                 {
                     if (ourResources.contains(notNeededRsrc[giveRsrcIdx1]))
                     {
-                        while ((giveRsrcIdx2 < notNeededRsrcCount) && (counterOffer == null))
+                        while ((giveRsrcIdx2 < notNeededRsrcCount) && (counterOffer == null) && ! isSearchExpired())
                         {
                             giveResourceSet.clear();
                             giveResourceSet.add(1, notNeededRsrc[giveRsrcIdx1]);
@@ -1854,7 +2002,7 @@ public class SOCRobotNegotiator
 
                         giveRsrcIdx2 = 0;
 
-                        while ((giveRsrcIdx2 < neededRsrcCount) && (counterOffer == null))
+                        while ((giveRsrcIdx2 < neededRsrcCount) && (counterOffer == null) && ! isSearchExpired())
                         {
                             if (neededRsrc[giveRsrcIdx2] != neededRsrc[getRsrcIdx])
                             {
@@ -1888,11 +2036,11 @@ public class SOCRobotNegotiator
                 giveRsrcIdx1 = 0;
                 giveRsrcIdx2 = 0;
 
-                while ((giveRsrcIdx1 < neededRsrcCount) && (counterOffer == null))
+                while ((giveRsrcIdx1 < neededRsrcCount) && (counterOffer == null) && ! isSearchExpired())
                 {
                     if (leftovers.contains(neededRsrc[giveRsrcIdx1]) && (neededRsrc[giveRsrcIdx1] != neededRsrc[getRsrcIdx]))
                     {
-                        while ((giveRsrcIdx2 < notNeededRsrcCount) && (counterOffer == null))
+                        while ((giveRsrcIdx2 < notNeededRsrcCount) && (counterOffer == null) && ! isSearchExpired())
                         {
                             giveResourceSet.clear();
                             giveResourceSet.add(1, neededRsrc[giveRsrcIdx1]);
@@ -1918,7 +2066,7 @@ public class SOCRobotNegotiator
 
                         giveRsrcIdx2 = 0;
 
-                        while ((giveRsrcIdx2 < neededRsrcCount) && (counterOffer == null))
+                        while ((giveRsrcIdx2 < neededRsrcCount) && (counterOffer == null) && ! isSearchExpired())
                         {
                             if (neededRsrc[giveRsrcIdx2] != neededRsrc[getRsrcIdx])
                             {
@@ -1969,7 +2117,7 @@ public class SOCRobotNegotiator
                 getRsrcIdx2--;
             }
 
-            while ((getRsrcIdx2 >= 0) && (counterOffer == null))
+            while ((getRsrcIdx2 >= 0) && (counterOffer == null) && ! isSearchExpired())
             {
                 getResourceSet.clear();
                 getResourceSet.add(1, notNeededRsrc[getRsrcIdx2]);
@@ -1982,7 +2130,7 @@ public class SOCRobotNegotiator
                 {
                     int giveRsrcIdx1 = 0;
 
-                    while ((giveRsrcIdx1 < notNeededRsrcCount) && (counterOffer == null))
+                    while ((giveRsrcIdx1 < notNeededRsrcCount) && (counterOffer == null) && ! isSearchExpired())
                     {
                         if (leftovers.contains(notNeededRsrc[giveRsrcIdx1]) && (notNeededRsrc[giveRsrcIdx1] != notNeededRsrc[getRsrcIdx2]))
                         {
@@ -2020,7 +2168,7 @@ public class SOCRobotNegotiator
                 {
                     int giveRsrcIdx1 = 0;
 
-                    while ((giveRsrcIdx1 < neededRsrcCount) && (counterOffer == null))
+                    while ((giveRsrcIdx1 < neededRsrcCount) && (counterOffer == null) && ! isSearchExpired())
                     {
                         if (leftovers.contains(neededRsrc[giveRsrcIdx1]))
                         {
@@ -2073,7 +2221,7 @@ public class SOCRobotNegotiator
                 getRsrcIdx2--;
             }
 
-            while ((getRsrcIdx2 >= 0) && (counterOffer == null))
+            while ((getRsrcIdx2 >= 0) && (counterOffer == null) && ! isSearchExpired())
             {
                 getResourceSet.clear();
                 getResourceSet.add(2, notNeededRsrc[getRsrcIdx2]);
@@ -2086,7 +2234,7 @@ public class SOCRobotNegotiator
                 {
                     int giveRsrcIdx1 = 0;
 
-                    while ((giveRsrcIdx1 < notNeededRsrcCount) && (counterOffer == null))
+                    while ((giveRsrcIdx1 < notNeededRsrcCount) && (counterOffer == null) && ! isSearchExpired())
                     {
                         if (leftovers.contains(notNeededRsrc[giveRsrcIdx1]) && (notNeededRsrc[giveRsrcIdx1] != notNeededRsrc[getRsrcIdx2]))
                         {
@@ -2124,7 +2272,7 @@ public class SOCRobotNegotiator
                 {
                     int giveRsrcIdx1 = 0;
 
-                    while ((giveRsrcIdx1 < neededRsrcCount) && (counterOffer == null))
+                    while ((giveRsrcIdx1 < neededRsrcCount) && (counterOffer == null) && ! isSearchExpired())
                     {
                         if (leftovers.contains(neededRsrc[giveRsrcIdx1]))
                         {
@@ -2177,7 +2325,7 @@ public class SOCRobotNegotiator
                 getRsrcIdx2--;
             }
 
-            while ((getRsrcIdx2 >= 0) && (counterOffer == null))
+            while ((getRsrcIdx2 >= 0) && (counterOffer == null) && ! isSearchExpired())
             {
                 getResourceSet.clear();
                 getResourceSet.add(3, notNeededRsrc[getRsrcIdx2]);
@@ -2190,7 +2338,7 @@ public class SOCRobotNegotiator
                 {
                     int giveRsrcIdx1 = 0;
 
-                    while ((giveRsrcIdx1 < notNeededRsrcCount) && (counterOffer == null))
+                    while ((giveRsrcIdx1 < notNeededRsrcCount) && (counterOffer == null) && ! isSearchExpired())
                     {
                         if (leftovers.contains(notNeededRsrc[giveRsrcIdx1]) && (notNeededRsrc[giveRsrcIdx1] != notNeededRsrc[getRsrcIdx2]))
                         {
@@ -2228,7 +2376,7 @@ public class SOCRobotNegotiator
                 {
                     int giveRsrcIdx1 = 0;
 
-                    while ((giveRsrcIdx1 < neededRsrcCount) && (counterOffer == null))
+                    while ((giveRsrcIdx1 < neededRsrcCount) && (counterOffer == null) && ! isSearchExpired())
                     {
                         if (leftovers.contains(neededRsrc[giveRsrcIdx1]))
                         {
@@ -0,0 +1,169 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2013 JSettlers contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import soc.game.SOCBoard;
+import soc.game.SOCGame;
+import soc.game.SOCGameOption;
+import soc.game.SOCScenario;
+import soc.util.SOCSplittableRandom;
+
+/**
+ * Benchmark of board layout generation for each board type and scenario,
+ * and of starting a game with and without a layout from {@link SOCBoardLayoutPool}.
+ * For each layout, times making a board with {@link SOCGame#makeBoardLayout(Map, boolean, int, long)}
+ * (mostly {@link SOCBoard#makeNewBoard(Map)}) after a warmup,
+ * then prints the average, median, 99th percentile, and maximum in microseconds.
+ *<P>
+ * Usage: <tt>java soc.server.BoardLayoutBenchmark [-n iterations] [-w warmupIterations]</tt>
+ *
+ * @since 2.0.00
+ */
+public class BoardLayoutBenchmark
+{
+    /** Game options for each benchmarked layout, before the player count is added */
+    private static List<String> getLayoutOptions()
+    {
+        List<String> ol = new ArrayList<String>();
+        ol.add("");
+        ol.add("BC=t4");
+        ol.add("PLL=t");
+        ol.add("PLL=t,BC=t4");
+        for (String sc : SOCScenario.getAllKnownScenarios().keySet())
+            ol.add("SC=" + sc);
+
+        return ol;
+    }
+
+    /**
+     * Make a new game with these options, and a player in each seat so it can start.
+     * @param opts  Game options, adjusted by {@link SOCGameOption#adjustOptionsToKnown(Map, Map, boolean)}
+     * @return  the new game
+     */
+    private static SOCGame newGame(final Map<String, SOCGameOption> opts)
+    {
+        SOCGame ga = new SOCGame("bench", true, SOCGameOption.cloneOptions(opts));
+        for (int pn = 0; pn < ga.maxPlayers; ++pn)
+            ga.addPlayer("p" + pn, pn);
+
+        return ga;
+    }
+
+    /**
+     * Format timing stats for printing.
+     * @param nanos  Each iteration's time; will be sorted
+     * @return  Average, median, 99th percentile, and maximum, in microseconds
+     */
+    private static String stats(final long[] nanos)
+    {
+        Arrays.sort(nanos);
+        long sum = 0;
+        for (long t : nanos)
+            sum += t;
+        final int n = nanos.length;
+
+        return String.format("%8.1f %8.1f %8.1f %8.1f",
+            sum / 1000.0 / n, nanos[n / 2] / 1000.0, nanos[Math.min(n - 1, (n * 99) / 100)] / 1000.0, nanos[n - 1] / 1000.0);
+    }
+
+    /**
+     * Run the benchmark from the command line; see class javadoc for arguments.
+     * @param args  Command-line arguments
+     */
+    public static void main(String[] args)
+    {
+        int iters = 2000, warmup = 500;
+        try
+        {
+            for (int i = 0; i < args.length; ++i)
+            {
+                if (args[i].equals("-n"))
+                    iters = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-w"))
+                    warmup = Integer.parseInt(args[++i]);
+                else
+                    throw new IllegalArgumentException(args[i]);
+            }
+            if ((iters < 1) || (warmup < 0))
+                throw new IllegalArgumentException();
+        }
+        catch (RuntimeException e)
+        {
+            System.err.println("usage: java soc.server.BoardLayoutBenchmark [-n iterations] [-w warmupIterations]");
+            return;
+        }
+
+        SOCGame.boardFactory = new SOCBoardLargeAtServer.BoardFactoryAtServer();  // as the server does
+
+        System.out.println("Times in microseconds: avg, median, 99th percentile, max");
+        System.out.println(String.format("%-24s %-35s  %-35s  %s", "layout options",
+            "makeBoardLayout", "startGame", "startGame with pooled layout"));
+        for (final String os : getLayoutOptions())
+        {
+            for (int pl = 4; pl <= 6; pl += 2)
+            {
+                final String opstr = (os.length() > 0) ? (os + ",PL=" + pl) : ("PL=" + pl);
+                final Map<String, SOCGameOption> opts = SOCGameOption.parseOptionsToMap(opstr);
+                if ((opts == null) || (SOCGameOption.adjustOptionsToKnown(opts, null, true) != null))
+                {
+                    System.out.println(opstr + ": Unknown option or value; skipped");
+                    continue;
+                }
+
+                final SOCGame proto = newGame(opts);
+                final Map<String, SOCGameOption> gopts = proto.getGameOptions();
+                final long[] make = new long[iters], start = new long[iters], startPooled = new long[iters];
+
+                for (int i = -warmup; i < iters; ++i)
+                {
+                    final long seed = SOCSplittableRandom.newSeed();
+                    long t0 = System.nanoTime();
+                    SOCBoard b = SOCGame.makeBoardLayout(gopts, proto.hasSeaBoard, proto.maxPlayers, seed);
+                    long t1 = System.nanoTime();
+
+                    SOCGame ga = newGame(opts);
+                    long t2 = System.nanoTime();
+                    ga.startGame();
+                    long t3 = System.nanoTime();
+
+                    ga = newGame(opts);
+                    long t4 = System.nanoTime();
+                    ga.startGame(b, seed);
+                    long t5 = System.nanoTime();
+
+                    if (i >= 0)
+                    {
+                        make[i] = t1 - t0;
+                        start[i] = t3 - t2;
+                        startPooled[i] = t5 - t4;
+                    }
+                }
+
+                System.out.println(String.format("%-24s %s  %s  %s", opstr, stats(make), stats(start), stats(startPooled)));
+            }
+        }
+    }
+
+}
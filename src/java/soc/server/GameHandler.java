@@ -199,4 +199,16 @@ public abstract class GameHandler
      */
     public abstract boolean leaveGame(SOCGame ga, StringConnection c);
 
+    /**
+     * This game was just read from a checkpoint file by {@link SOCGameCheckpointer} after a server restart,
+     * and added to the server's game list; it has no members yet.
+     * Recreate any game state that isn't saved in the checkpoint, such as listeners.
+     * Robots' brains aren't saved, so vacate any robot seats. Human players can rejoin the game
+     * with their same nicknames; when the first one does, robots should be asked to fill those vacated seats.
+     *
+     * @param ga  The restored game
+     * @since 2.0.00
+     */
+    public abstract void gameRestored(SOCGame ga);
+
 }
@@ -0,0 +1,177 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2013 JSettlers contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.server;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.Vector;
+
+import soc.server.genericServer.LocalStringConnection;
+import soc.server.genericServer.StringConnection;
+
+/**
+ * Stress test of disconnecting many clients from {@link SOCGameListAtServer}.
+ * Creates some games, joins each client to 1 to 3 random games, and deletes a few games.
+ * Then checks each client's {@link SOCGameListAtServer#getMemberGameNames(StringConnection)}
+ * and {@link SOCGameListAtServer#memberGames(StringConnection, String)} against a scan of every game's members,
+ * and times removing all clients from their games: Once using that per-client index,
+ * and once on an identical game list by scanning every game for each client as the server did before 2.0.00.
+ *<P>
+ * Prints the number of index mismatches (should be 0), members left afterwards (should be 0), and both times.
+ * Exits with status 1 if there were any mismatches or members left.
+ *<P>
+ * Usage: <tt>java soc.server.GameListDisconnectBenchmark [-g games] [-c clients] [-s seed]</tt>
+ *
+ * @since 2.0.00
+ */
+public class GameListDisconnectBenchmark
+{
+    /**
+     * Create a game list with these games and clients, each client a member of 1 to 3 random games,
+     * then delete the first 1/15 of the games.
+     * @param conns  Clients to add as members
+     * @param numGames  Number of games to create
+     * @param seed  Random seed for picking each client's games
+     * @return  the new game list
+     */
+    private static SOCGameListAtServer makeGameList
+        (final StringConnection[] conns, final int numGames, final long seed)
+    {
+        final SOCGameListAtServer gl = new SOCGameListAtServer();
+        final Random rand = new Random(seed);
+        for (int g = 0; g < numGames; ++g)
+            gl.createGame("bench-" + g, "bench", null, null, new SOCGameHandler(null));
+        for (StringConnection c : conns)
+        {
+            final int n = 1 + rand.nextInt(3);
+            for (int k = 0; k < n; ++k)
+                gl.addMember(c, "bench-" + rand.nextInt(numGames));
+        }
+        for (int g = 0; g < numGames / 15; ++g)
+            gl.deleteGame("bench-" + g);
+
+        return gl;
+    }
+
+    /**
+     * Count the members of every game in this list.
+     * @param gl  Game list
+     * @return  Total number of members, counting a client once for each game it's in
+     */
+    private static int countMembers(final SOCGameListAtServer gl)
+    {
+        int n = 0;
+        for (String gaName : gl.getGameNames())
+            n += gl.getMembers(gaName).size();
+
+        return n;
+    }
+
+    /**
+     * Run the stress test from the command line; see class javadoc for arguments.
+     * @param args  Command-line arguments
+     */
+    public static void main(String[] args)
+    {
+        int numGames = 300, numClients = 1000;
+        long seed = 1;
+        try
+        {
+            for (int i = 0; i < args.length; ++i)
+            {
+                if (args[i].equals("-g"))
+                    numGames = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-c"))
+                    numClients = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-s"))
+                    seed = Long.parseLong(args[++i]);
+                else
+                    throw new IllegalArgumentException(args[i]);
+            }
+            if ((numGames < 1) || (numClients < 1))
+                throw new IllegalArgumentException();
+        }
+        catch (RuntimeException e)
+        {
+            System.err.println("usage: java soc.server.GameListDisconnectBenchmark [-g games] [-c clients] [-s seed]");
+            return;
+        }
+
+        final StringConnection[] conns = new StringConnection[numClients];
+        for (int i = 0; i < numClients; ++i)
+        {
+            conns[i] = new LocalStringConnection();
+            conns[i].setData("bench-" + i);
+        }
+
+        final SOCGameListAtServer gl = makeGameList(conns, numGames, seed),
+            glScanned = makeGameList(conns, numGames, seed);
+        final int membersBefore = countMembers(gl);
+
+        // Check each client's index entry against a scan of every game
+        int mismatches = 0;
+        for (StringConnection c : conns)
+        {
+            Set<String> scanned = new HashSet<String>();
+            for (String gaName : gl.getGameNames())
+                if (gl.getMembers(gaName).contains(c))
+                    scanned.add(gaName);
+
+            if (! scanned.equals(new HashSet<String>(gl.getMemberGameNames(c))))
+                ++mismatches;
+            if (gl.memberGames(c, null).size() != scanned.size())
+                ++mismatches;
+        }
+
+        // Disconnect every client using the index, as SOCServer.leaveAllGames does
+        final long t0 = System.nanoTime();
+        for (StringConnection c : conns)
+            for (String gaName : gl.getMemberGameNames(c))
+                gl.removeMember(c, gaName);
+        final long t1 = System.nanoTime();
+
+        // Disconnect every client by scanning all games, for comparison
+        final long t2 = System.nanoTime();
+        for (StringConnection c : conns)
+        {
+            for (String gaName : new Vector<String>(glScanned.getGameNames()))
+            {
+                Vector<StringConnection> members = glScanned.getMembers(gaName);
+                if ((members != null) && members.contains(c))
+                    glScanned.removeMember(c, gaName);
+            }
+        }
+        final long t3 = System.nanoTime();
+
+        int membersLeft = countMembers(gl) + countMembers(glScanned);
+        for (StringConnection c : conns)
+            membersLeft += gl.getMemberGameNames(c).size();
+
+        System.out.println(numClients + " clients, " + gl.getGameNames().size() + " games, "
+            + membersBefore + " memberships: " + mismatches + " index mismatches, " + membersLeft + " members left");
+        System.out.println(String.format("Disconnect all: %.1f ms using index, %.1f ms scanning all games",
+            (t1 - t0) / 1000000.0, (t3 - t2) / 1000000.0));
+
+        if ((mismatches != 0) || (membersLeft != 0))
+            System.exit(1);
+    }
+
+}
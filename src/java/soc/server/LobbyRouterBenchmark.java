@@ -0,0 +1,281 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2013 JSettlers contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import soc.message.SOCJoin;
+import soc.message.SOCJoinGame;
+import soc.message.SOCMessage;
+import soc.message.SOCNewGame;
+import soc.message.SOCNewGameWithOptions;
+import soc.message.SOCStatusMessage;
+import soc.message.SOCVersion;
+import soc.server.genericServer.LocalStringConnection;
+import soc.server.genericServer.LocalStringServerSocket;
+import soc.util.Version;
+
+/**
+ * Test harness and benchmark for {@link SOCLobbyRouter}, with its server nodes running in this JVM
+ * on {@link LocalStringServerSocket}s.  Starts the nodes and the router, then checks:
+ *<UL>
+ * <LI> Many clients at once each create a game: Each must see its game announced before
+ *      its join reply, and get that reply.  Prints join times in milliseconds
+ *      (average, median, 99th percentile, max), and how many games each node has.
+ * <LI> A client whose nickname is rejected by a node doesn't keep that nickname claimed at the router:
+ *      Once the node's user of that name leaves, another client can join with it.
+ *</UL>
+ * Prints each check's result, and exits with status 1 if any failed.
+ *<P>
+ * Usage: <tt>java soc.server.LobbyRouterBenchmark [-n nodes] [-c clients]</tt>
+ *
+ * @since 2.0.00
+ */
+public class LobbyRouterBenchmark
+{
+    /** Local string socket name for the router; each node's name is this plus "-node" and its index */
+    private static final String ROUTER_SOCKET = "SOCROUTERBENCH";
+
+    /** Milliseconds to wait for a node's or router's reply before giving up */
+    private static final int REPLY_TIMEOUT_MS = 10000;
+
+    /** Our {@link SOCVersion} message, sent by each client when it connects */
+    private static final String VERSION_MSG
+        = SOCVersion.toCmd(Version.versionNumber(), Version.version(), Version.buildnum(), null);
+
+    /**
+     * A test client, connected to the router or a node. Its thread keeps each received message.
+     */
+    private static final class Client extends Thread
+    {
+        final LocalStringConnection conn;
+
+        /** Each received message, in order. Synchronize on this list to use it. */
+        private final List<String> received = new ArrayList<String>();
+
+        /** Messages already looked at by {@link #waitFor(int, String)} */
+        private int seen;
+
+        /**
+         * Connect to a local string socket, and send {@link SOCVersion}.
+         * @param sockName  Router's or node's local socket name
+         * @throws Exception if can't connect
+         */
+        Client(final String sockName)
+            throws Exception
+        {
+            conn = LocalStringServerSocket.connectTo(sockName);
+            setDaemon(true);
+            start();
+            conn.put(VERSION_MSG);
+        }
+
+        public void run()
+        {
+            try
+            {
+                while (true)
+                {
+                    final String str = conn.readNext();
+                    synchronized (received)
+                    {
+                        received.add(str);
+                        received.notifyAll();
+                    }
+                }
+            }
+            catch (Exception e) {}  // EOF or closed
+        }
+
+        /**
+         * Wait for a message of this type about this game or channel, skipping others,
+         * or for any status message.
+         * @param mtype  Message type, such as {@link SOCMessage#JOINGAMEAUTH}
+         * @param name  Game or channel name to look for in the message, or null for any
+         * @return  The message, or a {@link SOCStatusMessage}, or null if none arrived within {@link #REPLY_TIMEOUT_MS}
+         */
+        String waitFor(final int mtype, final String name)
+        {
+            final long end = System.currentTimeMillis() + REPLY_TIMEOUT_MS;
+            synchronized (received)
+            {
+                while (true)
+                {
+                    while (seen < received.size())
+                    {
+                        final String str = received.get(seen++);
+                        final SOCMessage mes = SOCMessage.toMsg(str);
+                        if (mes == null)
+                            continue;
+                        if (mes.getType() == SOCMessage.STATUSMESSAGE)
+                            return str;
+                        if ((mes.getType() == mtype) && ((name == null) || str.contains(name)))
+                            return str;
+                    }
+
+                    final long wait = end - System.currentTimeMillis();
+                    if (wait <= 0)
+                        return null;
+                    try
+                    {
+                        received.wait(wait);
+                    }
+                    catch (InterruptedException e) {}
+                }
+            }
+        }
+
+        /**
+         * Has this game been announced to the client, in the messages looked at so far?
+         * @param gaName  Game name
+         * @return  true if a {@link SOCNewGame} or {@link SOCNewGameWithOptions} for <tt>gaName</tt> was seen
+         */
+        boolean sawNewGame(final String gaName)
+        {
+            synchronized (received)
+            {
+                for (int i = 0; i < seen; ++i)
+                {
+                    final SOCMessage mes = SOCMessage.toMsg(received.get(i));
+                    if (((mes instanceof SOCNewGame) && ((SOCNewGame) mes).getGame().equals(gaName))
+                        || ((mes instanceof SOCNewGameWithOptions)
+                            && ((SOCNewGameWithOptions) mes).getGame().equals(gaName)))
+                        return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * Run the harness from the command line; see class javadoc for arguments.
+     * @param args  Command-line arguments
+     * @throws Exception if the nodes or router can't be started
+     */
+    public static void main(String[] args)
+        throws Exception
+    {
+        int numNodes = 3, numClients = 30;
+        try
+        {
+            for (int i = 0; i < args.length; ++i)
+            {
+                if (args[i].equals("-n"))
+                    numNodes = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-c"))
+                    numClients = Integer.parseInt(args[++i]);
+                else
+                    throw new IllegalArgumentException(args[i]);
+            }
+            if ((numNodes < 1) || (numClients < 1))
+                throw new IllegalArgumentException();
+        }
+        catch (RuntimeException e)
+        {
+            System.err.println("usage: java soc.server.LobbyRouterBenchmark [-n nodes] [-c clients]");
+            return;
+        }
+
+        final SOCServer[] nodes = new SOCServer[numNodes];
+        final String[] nodeNames = new String[numNodes];
+        for (int i = 0; i < numNodes; ++i)
+        {
+            nodeNames[i] = ROUTER_SOCKET + "-node" + i;
+            nodes[i] = new SOCServer(nodeNames[i], numClients + 10, null, null);
+            nodes[i].setPriority(5);
+            nodes[i].start();
+        }
+        final SOCLobbyRouter router = new SOCLobbyRouter(ROUTER_SOCKET, nodeNames);
+        router.setPriority(5);
+        router.start();
+        Thread.sleep(1000);  // let the router's monitor links connect
+
+        boolean ok = true;
+
+        // Many clients create games at once
+        final Client[] clients = new Client[numClients];
+        for (int i = 0; i < numClients; ++i)
+            clients[i] = new Client(ROUTER_SOCKET);
+        final long[] joinNanos = new long[numClients];
+        int joined = 0, announcedFirst = 0;
+        for (int i = 0; i < numClients; ++i)
+            clients[i].conn.put(SOCJoinGame.toCmd("bench" + i, "", "-", "bench-" + i));
+        final long t0 = System.nanoTime();
+        for (int i = 0; i < numClients; ++i)
+        {
+            final String gaName = "bench-" + i;
+            final String reply = clients[i].waitFor(SOCMessage.JOINGAMEAUTH, gaName);
+            joinNanos[i] = System.nanoTime() - t0;
+            if ((reply == null) || (SOCMessage.toMsg(reply).getType() != SOCMessage.JOINGAMEAUTH))
+            {
+                System.out.println("Client " + i + ": No join reply: " + reply);
+                continue;
+            }
+
+            ++joined;
+            if (clients[i].sawNewGame(gaName))
+                ++announcedFirst;
+        }
+
+        Arrays.sort(joinNanos);
+        long sum = 0;
+        for (long t : joinNanos)
+            sum += t;
+        final StringBuilder perNode = new StringBuilder();
+        for (int i = 0; i < numNodes; ++i)
+            perNode.append(' ').append(nodes[i].gameList.getGameNames().size());
+        System.out.println(String.format
+            ("%d clients created games: %d joined, %d saw their game announced before their join reply",
+             numClients, joined, announcedFirst));
+        System.out.println(String.format
+            ("Join times in ms: avg %.1f, median %.1f, 99th percentile %.1f, max %.1f; games per node:%s",
+             sum / 1000000.0 / numClients, joinNanos[numClients / 2] / 1000000.0,
+             joinNanos[Math.min(numClients - 1, (numClients * 99) / 100)] / 1000000.0,
+             joinNanos[numClients - 1] / 1000000.0, perNode));
+        if ((joined != numClients) || (announcedFirst != numClients))
+            ok = false;
+
+        // A nickname rejected by a node isn't kept claimed at the router
+        final Client direct = new Client(nodeNames[0]);
+        direct.conn.put(SOCJoin.toCmd("taken", "", "-", "bench-chan"));
+        String reply = direct.waitFor(SOCMessage.JOINAUTH, "bench-chan");
+        final Client cliA = new Client(ROUTER_SOCKET), cliB = new Client(ROUTER_SOCKET);
+        cliA.conn.put(SOCJoin.toCmd("taken", "", "-", "bench-chan"));
+        final String replyA = cliA.waitFor(SOCMessage.JOINAUTH, "bench-chan");
+        direct.conn.disconnect();
+        Thread.sleep(500);
+        cliB.conn.put(SOCJoin.toCmd("taken", "", "-", "bench-chan"));
+        final String replyB = cliB.waitFor(SOCMessage.JOINAUTH, "bench-chan");
+        final boolean releasedOK = (reply != null) && (SOCMessage.toMsg(reply).getType() == SOCMessage.JOINAUTH)
+            && (replyA != null) && (SOCMessage.toMsg(replyA).getType() == SOCMessage.STATUSMESSAGE)
+            && (replyB != null) && (SOCMessage.toMsg(replyB).getType() == SOCMessage.JOINAUTH);
+        System.out.println("Nickname released after node rejected it: " + (releasedOK ? "OK" : "FAILED")
+            + " (node's reply to router client: " + replyA + "; next client's reply: " + replyB + ")");
+        if (! releasedOK)
+            ok = false;
+
+        System.out.println((ok) ? "All checks passed" : "Some checks FAILED");
+        System.exit((ok) ? 0 : 1);
+    }
+
+}
@@ -0,0 +1,469 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2013 JSettlers contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import soc.game.SOCGame;
+import soc.game.SOCPlayer;
+import soc.message.SOCMessage;
+import soc.robot.MonteCarloRobotBrain;
+import soc.robot.SOCRobotBrain;
+import soc.robot.SOCRobotClient;
+import soc.server.genericServer.StringConnection;
+import soc.util.CappedQueue;
+import soc.util.SOCRobotParameters;
+
+/**
+ * Head-to-head benchmark of {@link MonteCarloRobotBrain} against the built-in robot,
+ * played in this JVM on a {@link SOCServer} with a local stringport.
+ *<P>
+ * Plays each game twice, with the same game name so that the board and dice are seeded the same way:
+ * Once with a Monte Carlo robot against 3 built-in robots, and once as a control with another
+ * built-in robot in that seat. The seat rotates from game to game. Both kinds of robot
+ * use the same parameters, {@link SOCServer#ROBOT_PARAMS_SMARTER} unless <tt>-fast</tt> is given,
+ * and don't pause between actions. Robot thread timing can still make later turns differ
+ * between the two plays of a game.
+ *<P>
+ * Prints both win rates with their 95% confidence intervals; an equal robot wins about 1 in 4.
+ *<P>
+ * Usage: <tt>java soc.server.MonteCarloBenchmark [-n games] [-j parallelGames] [-t gameTimeoutSeconds]
+ * [-s randomSeed] [-fast]</tt>
+ *
+ * @since 2.0.00
+ */
+public class MonteCarloBenchmark
+{
+    /** Name of the stringport that the benchmark's server listens on. */
+    public static final String BENCHMARK_STRINGPORT = "SOCMCBENCH";
+
+    /** Nickname prefix for the 3 built-in robots in every game. */
+    private static final String BASE_BOT_PREFIX = "bench-base-";
+
+    /** Nickname of the Monte Carlo robot. */
+    private static final String MC_BOT = "bench-mc";
+
+    /** Nickname of the control robot, a built-in robot which takes the Monte Carlo robot's seat. */
+    private static final String CONTROL_BOT = "bench-control";
+
+    /** Number of players in each game. */
+    private static final int PLAYERS = 4;
+
+    /** How often to check running games for game over, in milliseconds. */
+    private static final int POLL_MILLIS = 50;
+
+    private final int games;
+    private final int parallelGames;
+    private final long gameTimeoutMillis;
+    private final long seed;
+    private final SOCRobotParameters params;
+
+    /** The benchmark's server, or null before {@link #run()}. */
+    private SOCServer server;
+
+    /**
+     * Create a benchmark.  Call {@link #run()} to play its games.
+     * @param params  Parameters for all robots
+     * @param games  Number of games to play with each of the Monte Carlo and control robots
+     * @param parallelGames  Maximum number of games to play at once
+     * @param gameTimeoutSeconds  Games not over after this many seconds are abandoned and count as losses
+     * @param seed  Random seed for the games and robots
+     */
+    public MonteCarloBenchmark
+        (final SOCRobotParameters params, final int games, final int parallelGames,
+         final int gameTimeoutSeconds, final long seed)
+    {
+        this.params = params;
+        this.games = games;
+        this.parallelGames = parallelGames;
+        this.gameTimeoutMillis = gameTimeoutSeconds * 1000L;
+        this.seed = seed;
+    }
+
+    /**
+     * Start the server and robots, then play the games.
+     * @return  Results: Index 0 for the Monte Carlo robot, 1 for the control robot
+     * @throws Exception  if the server or robots can't be started
+     */
+    public Result[] run()
+        throws Exception
+    {
+        server = new SOCServer(BENCHMARK_STRINGPORT, SOCServer.SOC_MAXCONN_DEFAULT, null, null);
+        server.setPriority(5);
+        server.setGameRandomSeed(seed);
+        server.start();
+
+        final String cookie = server.getRobotCookie();
+        String[] botNames = new String[PLAYERS + 1];
+        for (int i = 0; i < PLAYERS - 1; ++i)
+        {
+            botNames[i] = BASE_BOT_PREFIX + (i + 1);
+            startBot(new BenchmarkRobotClient(botNames[i], cookie, false));
+        }
+        botNames[PLAYERS - 1] = MC_BOT;
+        startBot(new BenchmarkRobotClient(MC_BOT, cookie, true));
+        botNames[PLAYERS] = CONTROL_BOT;
+        startBot(new BenchmarkRobotClient(CONTROL_BOT, cookie, false));
+        waitForBots(botNames);
+
+        Result[] results = { new Result(MC_BOT), new Result(CONTROL_BOT) };
+        for (int r = 0; r < results.length; ++r)
+        {
+            final long startTime = System.currentTimeMillis();
+            playGames(results[r]);
+            results[r].millis = System.currentTimeMillis() - startTime;
+            System.err.println(results[r]);
+        }
+
+        return results;
+    }
+
+    /**
+     * Start a robot client's thread.
+     * @param cli  Robot client to start
+     */
+    private void startBot(final SOCRobotClient cli)
+    {
+        cli.setRandomSeed(seed);
+        Thread th = new Thread(new SOCLocalRobotClient(cli));
+        th.setDaemon(true);
+        th.start();
+    }
+
+    /**
+     * Wait until all these robots have connected to {@link #server}.
+     * @param botNames  Robot nicknames
+     * @throws IllegalStateException  if they don't all connect within a few seconds
+     */
+    private void waitForBots(final String[] botNames)
+        throws IllegalStateException
+    {
+        for (int tries = 0; tries < 200; ++tries)
+        {
+            int found = 0;
+            synchronized (server.robots)
+            {
+                for (StringConnection rc : server.robots)
+                    for (String bn : botNames)
+                        if (bn.equals(rc.getData()))
+                            ++found;
+            }
+            if (found == botNames.length)
+                return;
+
+            try
+            {
+                Thread.sleep(POLL_MILLIS);
+            }
+            catch (InterruptedException e) {}
+        }
+
+        throw new IllegalStateException("Robots didn't connect");
+    }
+
+    /**
+     * Play {@link #games} games with a robot, at most {@link #parallelGames} at a time.
+     * Game <tt>i</tt> is named <tt>"bench-" + i</tt> and the robot sits in seat <tt>i % 4</tt>.
+     * @param res  Robot to play, and its results to add to
+     */
+    private void playGames(final Result res)
+    {
+        int nextGame = 0;
+        List<RunningGame> running = new ArrayList<RunningGame>();
+
+        while ((nextGame < games) || ! running.isEmpty())
+        {
+            while ((nextGame < games) && (running.size() < parallelGames))
+            {
+                running.add(startGame(res.botName, nextGame));
+                ++nextGame;
+            }
+
+            try
+            {
+                Thread.sleep(POLL_MILLIS);
+            }
+            catch (InterruptedException e) {}
+
+            final long now = System.currentTimeMillis();
+            for (int i = running.size() - 1; i >= 0; --i)
+            {
+                RunningGame rg = running.get(i);
+                SOCGame ga = server.getGame(rg.gaName);
+                boolean isOver = false;
+                int winnerPN = -1;
+                if (ga != null)
+                {
+                    // Check while holding the game's monitor, so the server isn't
+                    // still announcing the game over when we destroy the game
+                    ga.takeMonitor();
+                    try
+                    {
+                        isOver = (ga.getGameState() == SOCGame.OVER);
+                        if (isOver)
+                        {
+                            SOCPlayer winner = ga.getPlayerWithWin();
+                            if (winner != null)
+                                winnerPN = winner.getPlayerNumber();
+                        }
+                    }
+                    finally
+                    {
+                        ga.releaseMonitor();
+                    }
+                }
+                if (! (isOver || (now - rg.startTime > gameTimeoutMillis)))
+                    continue;
+
+                ++res.gamesPlayed;
+                if (! isOver)
+                    ++res.gamesTimedOut;
+                else if (winnerPN == rg.seat)
+                    ++res.gamesWon;
+
+                destroyGame(rg.gaName);
+                running.remove(i);
+            }
+        }
+    }
+
+    /**
+     * Start a game with a robot in seat <tt>gameNum % 4</tt> and the base robots in the others.
+     * @param botName  Robot to play
+     * @param gameNum  Game number, from 0
+     * @return  The new game's info
+     */
+    private RunningGame startGame(final String botName, final int gameNum)
+    {
+        final int seat = gameNum % PLAYERS;
+        String[] seats = new String[PLAYERS];
+        for (int pn = 0, b = 1; pn < PLAYERS; ++pn)
+        {
+            if (pn == seat)
+                seats[pn] = botName;
+            else
+                seats[pn] = BASE_BOT_PREFIX + (b++);
+        }
+
+        final String gaName = "bench-" + gameNum;
+        server.startRobotOnlyGame(gaName, null, seats);
+
+        return new RunningGame(gaName, seat);
+    }
+
+    /**
+     * Destroy a game and dismiss its robots.
+     * The benchmark's server has no human clients, so the deletion isn't broadcast.
+     * @param gaName  Game name
+     */
+    private void destroyGame(final String gaName)
+    {
+        server.gameList.takeMonitor();
+        try
+        {
+            server.destroyGame(gaName);
+        }
+        catch (Exception e)
+        {
+            System.err.println("Exception destroying game " + gaName + ": " + e);
+        }
+        server.gameList.releaseMonitor();
+    }
+
+    /**
+     * One robot's results.
+     */
+    public static class Result
+    {
+        /** The robot's nickname */
+        public final String botName;
+
+        /** Number of games played, won, and abandoned after the timeout */
+        public int gamesPlayed, gamesWon, gamesTimedOut;
+
+        /** Time taken to play all the games, in milliseconds */
+        public long millis;
+
+        Result(final String botName)
+        {
+            this.botName = botName;
+        }
+
+        /**
+         * @return  Fraction of games won, or 0 if none played
+         */
+        public double getWinRate()
+        {
+            return (gamesPlayed > 0) ? ((double) gamesWon) / gamesPlayed : 0.0;
+        }
+
+        /**
+         * Get the half-width of the win rate's 95% confidence interval, from the normal approximation.
+         * @return  Half-width, or 0 if no games played
+         */
+        public double getWinRateError()
+        {
+            if (gamesPlayed == 0)
+                return 0.0;
+            final double p = getWinRate();
+            return 1.96 * Math.sqrt(p * (1.0 - p) / gamesPlayed);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format
+                ("%s won %d/%d (%.1f%% +- %.1f%%), %d timed out, %.1f games/min",
+                 botName, gamesWon, gamesPlayed, 100 * getWinRate(), 100 * getWinRateError(),
+                 gamesTimedOut, (millis > 0) ? gamesPlayed * 60000.0 / millis : 0.0);
+        }
+    }
+
+    /**
+     * A game being played in {@link MonteCarloBenchmark#playGames(Result)}.
+     */
+    private static class RunningGame
+    {
+        final String gaName;
+
+        /** The benchmarked robot's player number */
+        final int seat;
+
+        /** Start time, from {@link System#currentTimeMillis()} */
+        final long startTime;
+
+        RunningGame(final String gaName, final int seat)
+        {
+            this.gaName = gaName;
+            this.seat = seat;
+            startTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Robot client which plays with the benchmark's parameters instead of the server's,
+     * and whose brains don't pause between actions.
+     */
+    private class BenchmarkRobotClient extends SOCRobotClient
+    {
+        /** If true, create {@link MonteCarloRobotBrain}s, otherwise {@link SOCRobotBrain}s. */
+        private final boolean monteCarlo;
+
+        BenchmarkRobotClient(final String nickname, final String cookie, final boolean monteCarlo)
+        {
+            super(BENCHMARK_STRINGPORT, nickname, "pw", cookie);
+            this.monteCarlo = monteCarlo;
+            if (monteCarlo)
+                rbclass = MonteCarloRobotBrain.class.getName();
+        }
+
+        @Override
+        protected SOCRobotBrain createBrain
+            (final SOCRobotParameters serverParams, final SOCGame ga, final CappedQueue<SOCMessage> mq)
+        {
+            final SOCRobotParameters p = params.copyIfOptionChanged(ga.getGameOptions());
+            if (monteCarlo)
+                return new MonteCarloRobotBrain(this, p, ga, mq)
+                {
+                    @Override
+                    public void pause(int msec)
+                    {
+                        Thread.yield();
+                    }
+                };
+
+            return new SOCRobotBrain(this, p, ga, mq)
+            {
+                @Override
+                public void pause(int msec)
+                {
+                    Thread.yield();
+                }
+            };
+        }
+    }
+
+    /**
+     * Print command-line usage to {@link System#err}.
+     */
+    private static void printUsage()
+    {
+        System.err.println("usage: java soc.server.MonteCarloBenchmark [-n games] [-j parallelGames]"
+            + " [-t gameTimeoutSeconds] [-s randomSeed] [-fast]");
+    }
+
+    /**
+     * Run the benchmark from the command line; see class javadoc for arguments.
+     * @param args  Command-line arguments
+     */
+    public static void main(String[] args)
+    {
+        int games = 100, timeout = 600;
+        int parallelGames = Runtime.getRuntime().availableProcessors();
+        long seed = System.currentTimeMillis();
+        boolean fast = false;
+
+        try
+        {
+            for (int i = 0; i < args.length; ++i)
+            {
+                final String a = args[i];
+                if (a.equals("-n"))
+                    games = Integer.parseInt(args[++i]);
+                else if (a.equals("-j"))
+                    parallelGames = Integer.parseInt(args[++i]);
+                else if (a.equals("-t"))
+                    timeout = Integer.parseInt(args[++i]);
+                else if (a.equals("-s"))
+                    seed = Long.parseLong(args[++i]);
+                else if (a.equals("-fast"))
+                    fast = true;
+                else
+                    throw new IllegalArgumentException(a);
+            }
+            if ((games < 1) || (parallelGames < 1))
+                throw new IllegalArgumentException();
+        }
+        catch (RuntimeException e)
+        {
+            printUsage();
+            return;
+        }
+
+        final SOCRobotParameters params = new SOCRobotParameters
+            (fast ? SOCServer.ROBOT_PARAMS_DEFAULT : SOCServer.ROBOT_PARAMS_SMARTER);
+        System.err.println("Benchmarking with " + params + (fast ? " (fast" : " (smart")
+            + " strategy), " + games + " games, random seed " + seed);
+
+        try
+        {
+            new MonteCarloBenchmark(params, games, parallelGames, timeout, seed).run();
+        }
+        catch (Exception e)
+        {
+            System.err.println("Benchmark failed: " + e);
+            e.printStackTrace();
+        }
+
+        System.exit(0);
+    }
+
+}
@@ -0,0 +1,593 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2013 JSettlers contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import soc.game.SOCGame;
+import soc.game.SOCPlayer;
+import soc.message.SOCMessage;
+import soc.robot.SOCRobotBrain;
+import soc.robot.SOCRobotClient;
+import soc.server.database.SOCDBHelper;
+import soc.server.genericServer.StringConnection;
+import soc.util.CappedQueue;
+import soc.util.SOCRobotParameters;
+
+/**
+ * Tool to tune {@link SOCRobotParameters} by having robots play many games against each other
+ * in this JVM, on a {@link SOCServer} with a local stringport.
+ *<P>
+ * The search is a simple evolution strategy: Each generation, several candidate parameter sets
+ * are made by randomly changing the best set found so far. Each candidate plays a number of games
+ * against 3 robots with the starting parameters, and the candidate with the best win rate
+ * becomes the new best.  The best set is also played again each generation, so its
+ * win rate is based on more games.  The size of the random changes grows when a candidate
+ * beats the best set and shrinks when none does.
+ *<P>
+ * Robots use the parameters given to the tuner, not those from the server or its database,
+ * and don't pause between actions, so games are much faster than with human players.
+ * Several games are played at once; after each generation, the tuner reports
+ * throughput in games per minute per available processor.
+ * The random seed also seeds each game's board, dice, and robots, so that
+ * a run's games start the same way each time it's run with that seed; robot thread timing
+ * can still make later turns differ.
+ *<P>
+ * When done, prints the best parameters and can save them in the database with
+ * {@link SOCDBHelper#saveRobotParams(String, SOCRobotParameters, long, long, int, int)}
+ * for robots which connect with those names; see {@link SOCDBHelper#retrieveRobotParams(String)}.
+ *<P>
+ * Usage: <tt>java soc.server.RobotParameterTuner [-g generations] [-p population] [-n gamesPerCandidate]
+ * [-j parallelGames] [-t gameTimeoutSeconds] [-s randomSeed] [-smart] [-save botname[,botname...] dbuser dbpass]</tt>
+ *
+ * @since 2.0.00
+ */
+public class RobotParameterTuner
+{
+    /** Name of the stringport that the tuner's server listens on. */
+    public static final String TUNER_STRINGPORT = "SOCTUNER";
+
+    /** Nickname prefix for the robots with the starting parameters. */
+    private static final String BASE_BOT_PREFIX = "tuner-base-";
+
+    /** Nickname prefix for the robots with candidate parameters. */
+    private static final String CANDIDATE_BOT_PREFIX = "tuner-cand-";
+
+    /** Number of robots with the starting parameters in each game. */
+    private static final int BASE_BOTS_PER_GAME = 3;
+
+    /** Minimum value of each tuned parameter, in {@link #toVector(SOCRobotParameters)} order. */
+    private static final float[] PARAM_MIN = { 40, 10, 0f, 0f, 0f, 0f, 0f };
+
+    /** Maximum value of each tuned parameter, in {@link #toVector(SOCRobotParameters)} order. */
+    private static final float[] PARAM_MAX = { 300, 100, 1f, 3f, 3f, 10f, 5f };
+
+    /** Starting size of the random changes, as a fraction of each parameter's range. */
+    private static final double SIGMA_START = 0.15;
+
+    /** How often to check running games for game over, in milliseconds. */
+    private static final int POLL_MILLIS = 50;
+
+    private final int generations;
+    private final int population;
+    private final int gamesPerCandidate;
+    private final int parallelGames;
+    private final long gameTimeoutMillis;
+    private final Random rand;
+
+    /** Parameters of the robots which the candidates play against; also the starting best parameters. */
+    private final SOCRobotParameters baseParams;
+
+    /** The tuner's server, or null before {@link #run()}. */
+    private SOCServer server;
+
+    /** Robot clients with candidate parameters, one per candidate; created in {@link #run()}. */
+    private TuningRobotClient[] candidateBots;
+
+    /** Game name counter, to make unique game names. */
+    private int gameNum;
+
+    /** Number of games finished (with a winner) and timed out. */
+    private int gamesFinished, gamesTimedOut;
+
+    /**
+     * Create a tuner.  Call {@link #run()} to tune.
+     * @param baseParams  Starting parameters; the candidates play against robots with these
+     * @param generations  Number of generations to search
+     * @param population  Number of candidates each generation, including the best so far
+     * @param gamesPerCandidate  Number of games each candidate plays per generation
+     * @param parallelGames  Maximum number of games to play at once
+     * @param gameTimeoutSeconds  Games not over after this many seconds are abandoned and count as losses
+     * @param rand  Random number generator for the search, and to seed the games and robots
+     */
+    public RobotParameterTuner
+        (final SOCRobotParameters baseParams, final int generations, final int population,
+         final int gamesPerCandidate, final int parallelGames, final int gameTimeoutSeconds, final Random rand)
+    {
+        this.baseParams = baseParams;
+        this.generations = generations;
+        this.population = population;
+        this.gamesPerCandidate = gamesPerCandidate;
+        this.parallelGames = parallelGames;
+        this.gameTimeoutMillis = gameTimeoutSeconds * 1000L;
+        this.rand = rand;
+    }
+
+    /**
+     * Start the server and robots, then search for the best parameters.
+     * @return  The best parameters found, with their games won and played
+     * @throws Exception  if the server or robots can't be started
+     */
+    public Result run()
+        throws Exception
+    {
+        server = new SOCServer(TUNER_STRINGPORT, SOCServer.SOC_MAXCONN_DEFAULT, null, null);
+        server.setPriority(5);
+        final long gameSeed = rand.nextLong();
+        server.setGameRandomSeed(gameSeed);
+        server.start();
+
+        final String cookie = server.getRobotCookie();
+        String[] botNames = new String[BASE_BOTS_PER_GAME + population];
+        for (int i = 0; i < BASE_BOTS_PER_GAME; ++i)
+        {
+            botNames[i] = BASE_BOT_PREFIX + (i + 1);
+            TuningRobotClient cli = new TuningRobotClient(botNames[i], cookie, baseParams);
+            cli.setRandomSeed(gameSeed);
+            startBot(cli);
+        }
+        candidateBots = new TuningRobotClient[population];
+        for (int i = 0; i < population; ++i)
+        {
+            botNames[BASE_BOTS_PER_GAME + i] = CANDIDATE_BOT_PREFIX + (i + 1);
+            candidateBots[i] = new TuningRobotClient(botNames[BASE_BOTS_PER_GAME + i], cookie, baseParams);
+            candidateBots[i].setRandomSeed(gameSeed);
+            startBot(candidateBots[i]);
+        }
+        waitForBots(botNames);
+
+        Result best = new Result(baseParams);
+        double sigma = SIGMA_START;
+        final long startTime = System.currentTimeMillis();
+        best.startTime = startTime;
+
+        for (int gen = 1; gen <= generations; ++gen)
+        {
+            Result[] cands = new Result[population];
+            cands[0] = best;
+            for (int i = 1; i < population; ++i)
+            {
+                cands[i] = new Result(mutate(best.params, sigma));
+                cands[i].startTime = System.currentTimeMillis();
+            }
+
+            playGeneration(cands);
+
+            Result genBest = best;
+            for (int i = 1; i < population; ++i)
+                if (cands[i].getWinRate() > genBest.getWinRate())
+                    genBest = cands[i];
+
+            if (genBest != best)
+            {
+                best = genBest;
+                sigma = Math.min(0.5, sigma * 1.2);
+            } else {
+                sigma = Math.max(0.01, sigma * 0.85);
+            }
+            best.endTime = System.currentTimeMillis();
+
+            final double minutes = (best.endTime - startTime) / 60000.0;
+            final int nCPU = Runtime.getRuntime().availableProcessors();
+            System.err.println
+                ("Generation " + gen + ": best win rate " + best.gamesWon + "/" + best.gamesPlayed
+                 + " with " + best.params
+                 + String.format("; %d games, %d timed out, %.1f games/min/core",
+                     gamesFinished + gamesTimedOut, gamesTimedOut,
+                     (minutes > 0) ? (gamesFinished + gamesTimedOut) / minutes / nCPU : 0.0));
+        }
+
+        return best;
+    }
+
+    /**
+     * Start a robot client's thread.
+     * @param cli  Robot client to start
+     */
+    private static void startBot(final SOCRobotClient cli)
+    {
+        Thread th = new Thread(new SOCLocalRobotClient(cli));
+        th.setDaemon(true);
+        th.start();
+    }
+
+    /**
+     * Wait until all these robots have connected to {@link #server}.
+     * @param botNames  Robot nicknames
+     * @throws IllegalStateException  if they don't all connect within a few seconds
+     */
+    private void waitForBots(final String[] botNames)
+        throws IllegalStateException
+    {
+        for (int tries = 0; tries < 200; ++tries)
+        {
+            int found = 0;
+            synchronized (server.robots)
+            {
+                for (StringConnection rc : server.robots)
+                    for (String bn : botNames)
+                        if (bn.equals(rc.getData()))
+                            ++found;
+            }
+            if (found == botNames.length)
+                return;
+
+            try
+            {
+                Thread.sleep(POLL_MILLIS);
+            }
+            catch (InterruptedException e) {}
+        }
+
+        throw new IllegalStateException("Robots didn't connect");
+    }
+
+    /**
+     * Play {@link #gamesPerCandidate} games for each candidate, at most {@link #parallelGames} at a time,
+     * and add their results to the candidates.
+     * @param cands  Candidates; each is played by the candidate robot with the same index
+     */
+    private void playGeneration(final Result[] cands)
+    {
+        for (int i = 0; i < cands.length; ++i)
+            candidateBots[i].params = cands[i].params;
+
+        // Game i is played by candidate (i % cands.length).
+        final int totalGames = cands.length * gamesPerCandidate;
+        int nextGame = 0;
+        List<RunningGame> running = new ArrayList<RunningGame>();
+
+        while ((nextGame < totalGames) || ! running.isEmpty())
+        {
+            while ((nextGame < totalGames) && (running.size() < parallelGames))
+            {
+                final int ci = nextGame % cands.length;
+                running.add(startGame(ci, nextGame / cands.length));
+                ++nextGame;
+            }
+
+            try
+            {
+                Thread.sleep(POLL_MILLIS);
+            }
+            catch (InterruptedException e) {}
+
+            final long now = System.currentTimeMillis();
+            for (int i = running.size() - 1; i >= 0; --i)
+            {
+                RunningGame rg = running.get(i);
+                SOCGame ga = server.getGame(rg.gaName);
+                boolean isOver = false;
+                int winnerPN = -1;
+                if (ga != null)
+                {
+                    // Check while holding the game's monitor, so the server isn't
+                    // still announcing the game over when we destroy the game
+                    ga.takeMonitor();
+                    try
+                    {
+                        isOver = (ga.getGameState() == SOCGame.OVER);
+                        if (isOver)
+                        {
+                            SOCPlayer winner = ga.getPlayerWithWin();
+                            if (winner != null)
+                                winnerPN = winner.getPlayerNumber();
+                        }
+                    }
+                    finally
+                    {
+                        ga.releaseMonitor();
+                    }
+                }
+                if (! (isOver || (now - rg.startTime > gameTimeoutMillis)))
+                    continue;
+
+                final Result cand = cands[rg.candidate];
+                ++cand.gamesPlayed;
+                if (isOver)
+                {
+                    ++gamesFinished;
+                    if (winnerPN == rg.candidateSeat)
+                        ++cand.gamesWon;
+                } else {
+                    ++gamesTimedOut;
+                }
+
+                destroyGame(rg.gaName);
+                running.remove(i);
+            }
+        }
+    }
+
+    /**
+     * Start a game with a candidate robot and {@link #BASE_BOTS_PER_GAME} base robots.
+     * The candidate's seat rotates with <tt>seatRotation</tt>.
+     * @param candidate  Index of the candidate robot in {@link #candidateBots}
+     * @param seatRotation  Seat number for the candidate, modulo the number of players
+     * @return  The new game's info
+     */
+    private RunningGame startGame(final int candidate, final int seatRotation)
+    {
+        final int nPlayers = BASE_BOTS_PER_GAME + 1;
+        final int candSeat = seatRotation % nPlayers;
+        String[] seats = new String[nPlayers];
+        for (int pn = 0, b = 1; pn < nPlayers; ++pn)
+        {
+            if (pn == candSeat)
+                seats[pn] = candidateBots[candidate].getNickname();
+            else
+                seats[pn] = BASE_BOT_PREFIX + (b++);
+        }
+
+        ++gameNum;
+        final String gaName = "tune-" + gameNum;
+        server.startRobotOnlyGame(gaName, null, seats);
+
+        return new RunningGame(gaName, candidate, candSeat);
+    }
+
+    /**
+     * Destroy a game and dismiss its robots.
+     * The tuner's server has no human clients, so the deletion isn't broadcast.
+     * @param gaName  Game name
+     */
+    private void destroyGame(final String gaName)
+    {
+        server.gameList.takeMonitor();
+        try
+        {
+            server.destroyGame(gaName);
+        }
+        catch (Exception e)
+        {
+            System.err.println("Exception destroying game " + gaName + ": " + e);
+        }
+        server.gameList.releaseMonitor();
+    }
+
+    /**
+     * Randomly change each tuned parameter by a normally distributed amount.
+     * Strategy type, trade flag, and decision time budget aren't changed.
+     * @param params  Parameters to change
+     * @param sigma  Standard deviation of each change, as a fraction of the parameter's range
+     * @return  New parameters; <tt>params</tt> isn't changed
+     */
+    private SOCRobotParameters mutate(final SOCRobotParameters params, final double sigma)
+    {
+        float[] v = toVector(params);
+        for (int i = 0; i < v.length; ++i)
+        {
+            float x = v[i] + (float) (rand.nextGaussian() * sigma * (PARAM_MAX[i] - PARAM_MIN[i]));
+            if (x < PARAM_MIN[i])
+                x = PARAM_MIN[i];
+            else if (x > PARAM_MAX[i])
+                x = PARAM_MAX[i];
+            v[i] = x;
+        }
+
+        return new SOCRobotParameters
+            (Math.round(v[0]), Math.round(v[1]), v[2], v[3], v[4], v[5], v[6],
+             params.getStrategyType(), params.getTradeFlag(), params.getDecisionTimeBudget());
+    }
+
+    /**
+     * Get the tuned parameters as a vector.
+     * @param params  Parameters
+     * @return  Max game length, max ETA, ETA bonus factor, adversarial factor,
+     *     leader adversarial factor, dev card multiplier, threat multiplier
+     */
+    private static float[] toVector(final SOCRobotParameters params)
+    {
+        return new float[]
+            {
+                params.getMaxGameLength(), params.getMaxETA(), params.getETABonusFactor(),
+                params.getAdversarialFactor(), params.getLeaderAdversarialFactor(),
+                params.getDevCardMultiplier(), params.getThreatMultiplier()
+            };
+    }
+
+    /**
+     * A candidate parameter set and its results.
+     */
+    public static class Result
+    {
+        /** The parameters */
+        public final SOCRobotParameters params;
+
+        /** Number of games played and won with {@link #params} */
+        public int gamesPlayed, gamesWon;
+
+        /** When these parameters were first and last tested, from {@link System#currentTimeMillis()} */
+        public long startTime, endTime;
+
+        Result(final SOCRobotParameters params)
+        {
+            this.params = params;
+        }
+
+        /**
+         * @return  Fraction of games won, or 0 if none played
+         */
+        public double getWinRate()
+        {
+            return (gamesPlayed > 0) ? ((double) gamesWon) / gamesPlayed : 0.0;
+        }
+    }
+
+    /**
+     * A game being played in {@link RobotParameterTuner#playGeneration(Result[])}.
+     */
+    private static class RunningGame
+    {
+        final String gaName;
+
+        /** Index of the game's candidate robot */
+        final int candidate;
+
+        /** The candidate robot's player number */
+        final int candidateSeat;
+
+        /** Start time, from {@link System#currentTimeMillis()} */
+        final long startTime;
+
+        RunningGame(final String gaName, final int candidate, final int candidateSeat)
+        {
+            this.gaName = gaName;
+            this.candidate = candidate;
+            this.candidateSeat = candidateSeat;
+            startTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Robot client which plays with the tuner's parameters instead of the server's,
+     * and whose brains don't pause between actions.
+     */
+    private static class TuningRobotClient extends SOCRobotClient
+    {
+        /** Parameters for new brains; changed by the tuner between generations. */
+        volatile SOCRobotParameters params;
+
+        TuningRobotClient(final String nickname, final String cookie, final SOCRobotParameters params)
+        {
+            super(TUNER_STRINGPORT, nickname, "pw", cookie);
+            this.params = params;
+        }
+
+        @Override
+        protected SOCRobotBrain createBrain
+            (final SOCRobotParameters serverParams, final SOCGame ga, final CappedQueue<SOCMessage> mq)
+        {
+            return new SOCRobotBrain(this, params.copyIfOptionChanged(ga.getGameOptions()), ga, mq)
+            {
+                @Override
+                public void pause(int msec)
+                {
+                    Thread.yield();
+                }
+            };
+        }
+    }
+
+    /**
+     * Print command-line usage to {@link System#err}.
+     */
+    private static void printUsage()
+    {
+        System.err.println("usage: java soc.server.RobotParameterTuner [-g generations] [-p population]"
+            + " [-n gamesPerCandidate] [-j parallelGames] [-t gameTimeoutSeconds] [-s randomSeed] [-smart]"
+            + " [-save botname[,botname...] dbuser dbpass]");
+    }
+
+    /**
+     * Run the tuner from the command line; see class javadoc for arguments.
+     * @param args  Command-line arguments
+     */
+    public static void main(String[] args)
+    {
+        int generations = 10, population = 6, gamesPerCandidate = 8, timeout = 600;
+        int parallelGames = Runtime.getRuntime().availableProcessors();
+        long seed = System.currentTimeMillis();
+        boolean smart = false;
+        String[] saveNames = null;
+        String dbUser = null, dbPass = null;
+
+        try
+        {
+            for (int i = 0; i < args.length; ++i)
+            {
+                final String a = args[i];
+                if (a.equals("-g"))
+                    generations = Integer.parseInt(args[++i]);
+                else if (a.equals("-p"))
+                    population = Integer.parseInt(args[++i]);
+                else if (a.equals("-n"))
+                    gamesPerCandidate = Integer.parseInt(args[++i]);
+                else if (a.equals("-j"))
+                    parallelGames = Integer.parseInt(args[++i]);
+                else if (a.equals("-t"))
+                    timeout = Integer.parseInt(args[++i]);
+                else if (a.equals("-s"))
+                    seed = Long.parseLong(args[++i]);
+                else if (a.equals("-smart"))
+                    smart = true;
+                else if (a.equals("-save"))
+                {
+                    saveNames = args[++i].split(",");
+                    dbUser = args[++i];
+                    dbPass = args[++i];
+                }
+                else
+                    throw new IllegalArgumentException(a);
+            }
+            if ((generations < 1) || (population < 2) || (gamesPerCandidate < 1) || (parallelGames < 1))
+                throw new IllegalArgumentException();
+        }
+        catch (RuntimeException e)
+        {
+            printUsage();
+            return;
+        }
+
+        final SOCRobotParameters base = new SOCRobotParameters
+            (smart ? SOCServer.ROBOT_PARAMS_SMARTER : SOCServer.ROBOT_PARAMS_DEFAULT);
+        System.err.println("Tuning from " + base + (smart ? " (smart" : " (fast")
+            + " strategy), random seed " + seed);
+
+        try
+        {
+            Result best = new RobotParameterTuner
+                (base, generations, population, gamesPerCandidate, parallelGames, timeout, new Random(seed)).run();
+
+            System.err.println("Best parameters: " + best.params + "  won " + best.gamesWon + "/" + best.gamesPlayed);
+
+            if (saveNames != null)
+            {
+                SOCDBHelper.initialize(dbUser, dbPass, null);
+                for (String bn : saveNames)
+                {
+                    if (SOCDBHelper.saveRobotParams
+                        (bn, best.params, best.startTime, best.endTime, best.gamesWon, best.gamesPlayed - best.gamesWon))
+                        System.err.println("Saved parameters for robot " + bn);
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            System.err.println("Tuning failed: " + e);
+            e.printStackTrace();
+        }
+
+        System.exit(0);
+    }
+
+}
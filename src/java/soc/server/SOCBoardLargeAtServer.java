@@ -724,9 +724,7 @@ public class SOCBoardLargeAtServer extends SOCBoardLarge
      *             because the land area has already been placed.
      * @throws IllegalArgumentException if <tt>landAreaPathRanges</tt> is null or has an uneven length, <BR>
      *             or if the total length of its land areas != <tt>numPath.length</tt>, <BR>
-     *             or if <tt>landHexType</tt> contains {@link #FOG_HEX}, <BR>
-     *             or if {@link SOCBoard#makeNewBoard_checkLandHexResourceClumps(Vector, int)}
-     *                 finds an invalid or uninitialized hex coordinate (hex type -1)
+     *             or if <tt>landHexType</tt> contains {@link #FOG_HEX}
      * @see #makeNewBoard_placeHexes(int[], int[], int[], boolean, boolean, int, SOCGameOption, String)
      */
     private final void makeNewBoard_placeHexes
@@ -734,6 +732,13 @@ public class SOCBoardLargeAtServer extends SOCBoardLarge
          final boolean shuffleLandHexes, final int[] landAreaPathRanges, final SOCGameOption optBC, final String scen)
         throws IllegalStateException, IllegalArgumentException
     {
+        // Shuffle copies, not the static layout arrays shared by all games,
+        // so that this layout depends only on rand's seed
+        if (shuffleLandHexes)
+            landHexType = landHexType.clone();
+        if (shuffleDiceNumbers)
+            number = number.clone();
+
         final boolean checkClumps = (optBC != null) && optBC.getBoolValue();
         final int clumpSize = checkClumps ? optBC.getIntValue() : 0;
         boolean clumpsNotOK = checkClumps;
@@ -765,11 +770,15 @@ public class SOCBoardLargeAtServer extends SOCBoardLarge
                       + ": total range length " + L + " should be " + numPath.length);
         }
 
-        // Shuffle, place, then check layout for clumps:
+        // Shuffle, check for clumps, then place:
 
         if (numPath.length > 0)
             cachedGetLandHexCoords = null;  // invalidate the previous cached set
 
+        // For clump check: Each hex's adjacent hex indexes within numPath;
+        // hexes placed in previous method calls are ignored
+        final int[][] adjac = (shuffleLandHexes && checkClumps) ? makeNewBoard_getHexAdjacencyIndexes(numPath) : null;
+
         do   // will re-do placement until clumpsNotOK is false
         {
             if (shuffleLandHexes)
@@ -789,6 +798,14 @@ public class SOCBoardLargeAtServer extends SOCBoardLarge
                         landHexType[i] = tmp;
                     }
                 }
+
+                if (checkClumps)
+                {
+                    // Swap hexes to break up any large clumps; if that doesn't work, shuffle again
+                    clumpsNotOK = makeNewBoard_breakUpLandHexResourceClumps(landHexType, adjac, clumpSize);
+                    if (clumpsNotOK)
+                        continue;
+                }
             }
 
             if (shuffleDiceNumbers)
@@ -860,20 +877,9 @@ public class SOCBoardLargeAtServer extends SOCBoardLarge
 
             }  // for (i in landHex)
 
-            if (shuffleLandHexes && checkClumps)
-            {
-                // Check the newly placed land area(s) for clumps;
-                // ones placed in previous method calls are ignored
-                Vector<Integer> unvisited = new Vector<Integer>();  // contains each hex's coordinate
-                for (int i = 0; i < landHexType.length; ++i)
-                    unvisited.addElement(new Integer(numPath[i]));
+            clumpsNotOK = false;  // placed; any clumps were broken up above
 
-                clumpsNotOK = makeNewBoard_checkLandHexResourceClumps(unvisited, clumpSize);
-            } else {
-                clumpsNotOK = false;
-            }
-
-            if (shuffleLandHexes && ! clumpsNotOK)
+            if (shuffleLandHexes)
             {
                 // Separate adjacent gold hexes.  Does not change numPath or redHexes, only hexLayoutLg.
                 //   In scenario SC_TTD, this also makes sure the main island's only GOLD_HEX is placed
@@ -881,7 +887,7 @@ public class SOCBoardLargeAtServer extends SOCBoardLarge
                 makeNewBoard_placeHexes_arrangeGolds(numPath, landAreaPathRanges, scen);
             }
 
-            if (shuffleDiceNumbers && ! clumpsNotOK)
+            if (shuffleDiceNumbers)
             {
                 // Separate adjacent "red numbers" (6s, 8s)
                 //   and make sure gold hex dice aren't too frequent
@@ -0,0 +1,302 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2013 JSettlers contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.server;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.TreeMap;
+
+import soc.game.SOCBoard;
+import soc.game.SOCGame;
+import soc.game.SOCGameOption;
+import soc.util.SOCSplittableRandom;
+
+/**
+ * Background thread which keeps a small pool of board layouts made ahead of time, so that
+ * starting a game can take a ready layout instead of calling {@link SOCBoard#makeNewBoard(Map)}
+ * on the server's message treater thread.  Large sea boards and scenarios take the longest to lay out,
+ * especially when game option "BC" (break up clumps) makes them retry.
+ *<P>
+ * Layouts depend on the game's options (including scenario and board size) and player count,
+ * so there's a separate pool for each combination; see {@link #getPoolKey(SOCGame)}.
+ * Pools are made on demand: When a game is created, {@link #expect(SOCGame)} starts filling a pool
+ * for its options, so a layout is usually ready by the time the game starts and calls {@link #take(SOCGame)}.
+ * Each pool holds at most {@code poolSize} layouts.  Only the {@code maxPools} most recently used
+ * pools are kept, so option combinations which are rarely played don't use memory for long.
+ *<P>
+ * Each layout is made with its own new seed, which the game takes as its own when it starts,
+ * so a game with a pooled layout is still repeatable from its {@link SOCGame#getRandomSeed()}.
+ *<P>
+ * The thread runs at minimum priority, and only while a pool needs refilling.
+ *
+ * @see SOCGame#startGame(SOCBoard, long)
+ * @see BoardLayoutBenchmark
+ * @since 2.0.00
+ */
+public class SOCBoardLayoutPool extends Thread
+{
+    /** Layouts to keep in each pool */
+    private final int poolSize;
+
+    /** Maximum number of pools (option combinations) to keep */
+    private final int maxPools;
+
+    private volatile boolean alive;
+
+    /**
+     * Each pool by its {@link #getPoolKey(SOCGame)}, in least-recently-used order.
+     * Synchronize on this {@code SOCBoardLayoutPool} to use it or its pools.
+     */
+    private final LinkedHashMap<String, Pool> pools;
+
+    /** Stats for {@link #getStatsString()}: Number of {@link #take(SOCGame)} calls which got a layout */
+    private long statHits;
+
+    /** Stats: Number of {@link #take(SOCGame)} calls which didn't */
+    private long statMisses;
+
+    /** Stats: Number of layouts made by this thread */
+    private long statMade;
+
+    /** Stats: Total nanoseconds making layouts */
+    private long statMakeNanos;
+
+    /**
+     * Create a board layout pool. Call {@link #start()} to begin making layouts.
+     *
+     * @param poolSize  how many layouts to keep ready for each combination of game options; at least 1
+     * @param maxPools  how many option combinations to keep layouts for; at least 1
+     */
+    public SOCBoardLayoutPool(final int poolSize, final int maxPools)
+    {
+        this.poolSize = Math.max(1, poolSize);
+        this.maxPools = Math.max(1, maxPools);
+        pools = new LinkedHashMap<String, Pool>(16, 0.75f, true);  // access order, for LRU
+        alive = true;
+        setName("boardLayoutPool");  // Thread name for debug
+        setPriority(Thread.MIN_PRIORITY);
+        try { setDaemon(true); } catch (Exception e) {}  // Don't wait on us to exit program
+    }
+
+    /**
+     * Make layouts for any pool which isn't full; wait when all are full.
+     */
+    public void run()
+    {
+        while (alive)
+        {
+            Pool p = null;
+            synchronized (this)
+            {
+                for (Pool ep : pools.values())
+                {
+                    if (ep.layouts.size() < poolSize)
+                    {
+                        p = ep;
+                        break;
+                    }
+                }
+
+                if (p == null)
+                {
+                    try
+                    {
+                        wait();
+                    }
+                    catch (InterruptedException e) {}
+
+                    continue;
+                }
+            }
+
+            final Layout lay;
+            final long t0 = System.nanoTime();
+            try
+            {
+                final long seed = SOCSplittableRandom.newSeed();
+                lay = new Layout(SOCGame.makeBoardLayout(p.opts, p.hasSeaBoard, p.maxPlayers, seed), seed);
+            }
+            catch (Throwable th)
+            {
+                // Shouldn't happen, since a game with these options was created; don't retry them
+                System.err.println("boardLayoutPool: Cannot make layout for " + p.key + ": " + th);
+                synchronized (this)
+                {
+                    pools.remove(p.key);
+                }
+                continue;
+            }
+            final long dt = System.nanoTime() - t0;
+
+            synchronized (this)
+            {
+                ++statMade;
+                statMakeNanos += dt;
+                if (pools.get(p.key) == p)  // not evicted meanwhile; get also marks it as recently used
+                    p.layouts.add(lay);
+            }
+        }
+    }
+
+    /**
+     * Stop making layouts. Any layouts in the pools are discarded.
+     */
+    public void stopPool()
+    {
+        alive = false;
+        synchronized (this)
+        {
+            pools.clear();
+            notifyAll();
+        }
+    }
+
+    /**
+     * A game has been created; start making layouts for its options if there's no pool for them yet,
+     * so one is ready when the game starts.
+     * @param ga  the new game, not yet started
+     */
+    public synchronized void expect(final SOCGame ga)
+    {
+        getPool(ga);
+    }
+
+    /**
+     * Take a ready board layout for this game, if the pool for its options has one.
+     * Either way, the pool is refilled in the background.
+     * To use it, call {@link SOCGame#startGame(SOCBoard, long)} with its board and seed.
+     * @param ga  the game, about to start
+     * @return  a layout for {@code ga}'s options and player count, from
+     *     {@link SOCGame#makeBoardLayout(Map, boolean, int, long)}; or {@code null} if none is ready
+     */
+    public synchronized Layout take(final SOCGame ga)
+    {
+        final Layout lay = getPool(ga).layouts.poll();
+        if (lay != null)
+            ++statHits;
+        else
+            ++statMisses;
+
+        return lay;
+    }
+
+    /**
+     * Get this game's pool, creating it and evicting the least recently used pool if needed.
+     * Wakes the layout thread if the pool isn't full.
+     * Call only while synchronized on this {@code SOCBoardLayoutPool}.
+     * @param ga  the game
+     * @return  the game's pool
+     */
+    private Pool getPool(final SOCGame ga)
+    {
+        final String key = getPoolKey(ga);
+        Pool p = pools.get(key);
+        if (p == null)
+        {
+            final Map<String, SOCGameOption> opts = ga.getGameOptions();
+            p = new Pool(key, (opts != null) ? SOCGameOption.cloneOptions(opts) : null, ga.hasSeaBoard, ga.maxPlayers);
+            pools.put(key, p);
+            if (pools.size() > maxPools)
+            {
+                Iterator<String> it = pools.keySet().iterator();
+                it.next();
+                it.remove();  // least recently used
+            }
+        }
+
+        if (p.layouts.size() < poolSize)
+            notifyAll();
+
+        return p;
+    }
+
+    /**
+     * Get stats for the server's *STATS* command.
+     * @return stats text, such as "Board layout pool: 95 hits, 5 misses (95% hit), 102 made (avg 410 us), 3 pools"
+     */
+    public synchronized String getStatsString()
+    {
+        final long takes = statHits + statMisses;
+        return "Board layout pool: " + statHits + " hits, " + statMisses + " misses ("
+            + ((takes > 0) ? (100 * statHits / takes) : 0) + "% hit), " + statMade + " made (avg "
+            + ((statMade > 0) ? (statMakeNanos / (1000 * statMade)) : 0) + " us), " + pools.size() + " pools";
+    }
+
+    /**
+     * Get the pool key for a game's layouts: Its player count, board type, and game options
+     * (which include the scenario and any non-default board size).
+     * @param ga  the game
+     * @return  the pool key
+     */
+    public static String getPoolKey(final SOCGame ga)
+    {
+        final Map<String, SOCGameOption> opts = ga.getGameOptions();
+        return ga.maxPlayers + (ga.hasSeaBoard ? "|sea|" : "|")
+            + SOCGameOption.packOptionsToString
+                ((opts != null) ? new TreeMap<String, SOCGameOption>(opts) : null, false);  // sorted by key
+    }
+
+    /**
+     * A board laid out ahead of time, and the seed it was laid out with.
+     */
+    public static final class Layout
+    {
+        /** The board, from {@link SOCGame#makeBoardLayout(Map, boolean, int, long)} */
+        public final SOCBoard board;
+
+        /** The board's seed, which the game will use as its own */
+        public final long seed;
+
+        Layout(final SOCBoard board, final long seed)
+        {
+            this.board = board;
+            this.seed = seed;
+        }
+    }
+
+    /**
+     * Ready layouts for one combination of game options.
+     */
+    private static final class Pool
+    {
+        final String key;
+
+        /** Options of the game which created this pool; not changed */
+        final Map<String, SOCGameOption> opts;
+
+        final boolean hasSeaBoard;
+
+        final int maxPlayers;
+
+        /** Ready layouts */
+        final LinkedList<Layout> layouts = new LinkedList<Layout>();
+
+        Pool(final String key, final Map<String, SOCGameOption> opts, final boolean hasSeaBoard, final int maxPlayers)
+        {
+            this.key = key;
+            this.opts = opts;
+            this.hasSeaBoard = hasSeaBoard;
+            this.maxPlayers = maxPlayers;
+        }
+    }
+
+}
@@ -102,6 +102,29 @@ public class SOCClientData
      */
     public String robot3rdPartyBrainClass;
 
+    /**
+     * For robots, the strategy type from the {@link soc.util.SOCRobotParameters} sent when they connected,
+     * such as {@link soc.robot.SOCRobotDM#FAST_STRATEGY}.
+     * Used to estimate the robot's load, see {@link SOCServer#getRobotLoad(soc.server.genericServer.StringConnection, java.util.Map)}.
+     * @since 2.0.00
+     */
+    public int robotStrategyType;
+
+    /**
+     * For robots, the time {@link SOCServerRobotPinger} sent its most recent ping, or 0 if the robot has replied.
+     * Same format as {@link System#currentTimeMillis()}.
+     * @see #robotPingRoundTripMillis
+     * @since 2.0.00
+     */
+    public volatile long robotPingSentMillis;
+
+    /**
+     * For robots, round-trip time in milliseconds of the most recent ping
+     * from {@link SOCServerRobotPinger}, or 0 if none yet.
+     * @since 2.0.00
+     */
+    public int robotPingRoundTripMillis;
+
     /**
      * Are we considering a request to disconnect this client?
      * If so, the time we sent a ping (and awaiting a reply).
@@ -0,0 +1,494 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2013 JSettlers contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import soc.game.SOCGame;
+import soc.game.SOCPlayer;
+import soc.util.Version;
+
+/**
+ * Wakes up every few seconds to save ("checkpoint") each active game to a file,
+ * so that if the server crashes or is restarted, its games can be restored
+ * with {@link SOCServer#PROP_JSETTLERS_CHECKPOINT_RESTORE}.
+ *<P>
+ * A game is checkpointed if it has started and isn't over, has at least one human player,
+ * and has changed since its last checkpoint (by {@link SOCGame#lastActionTime}).
+ * The game is serialized while holding {@link SOCGame#takeMonitor()}, so the snapshot is consistent;
+ * that lock is released before compressing and writing the file, which is done on this thread
+ * instead of the server's message treater thread.  Each file is written to a temporary name
+ * and then renamed, so a crash while writing leaves the previous checkpoint in place.
+ * Checkpoint files of games which are over or have been destroyed are deleted.
+ *<P>
+ * File format, gzipped: {@link #FILE_MAGIC}, {@link #FILE_FORMAT_VERSION}, server {@link Version#versionNumber()},
+ * checkpoint time in millis, game name (UTF), length of serialized game data, serialized {@link SOCGame},
+ * number of seats, each seat's human player's host (UTF, or "" if none or unknown).
+ * Checkpoints can only be restored by the same server version that wrote them.
+ *<P>
+ * The hosts let the server apply its usual nickname takeover rules when players rejoin a restored game:
+ * See {@link SOCServer#PROP_JSETTLERS_CHECKPOINT_RESTORE}.
+ *
+ * @see SOCGameTimeoutChecker
+ * @since 2.0.00
+ */
+public class SOCGameCheckpointer extends Thread
+{
+    /** First int in each checkpoint file: ASCII "JSCK" */
+    public static final int FILE_MAGIC = 0x4A53434B;
+
+    /** Checkpoint file format version, written after {@link #FILE_MAGIC} */
+    public static final int FILE_FORMAT_VERSION = 2;
+
+    /** Suffix of checkpoint filenames; the rest of the filename is the URL-encoded game name */
+    public static final String FILE_SUFFIX = ".ckpt";
+
+    private SOCServer server;
+    private final File dir;
+    private final int sleepMillis;
+    private volatile boolean alive;
+
+    /**
+     * Each checkpointed game's {@link SOCGame#lastActionTime} when its file was written,
+     * to skip unchanged games. Used only in {@link #checkpointAll()}.
+     */
+    private final HashMap<String, Long> checkpointedActionTimes = new HashMap<String, Long>();
+
+    /** Stats for {@link #getStatsString()}: Number of checkpoints written */
+    private long statNumWritten;
+
+    /** Stats: Total bytes written */
+    private long statBytesWritten;
+
+    /** Stats: Total nanoseconds serializing games, while holding their monitor */
+    private long statSnapshotNanos;
+
+    /** Stats: Total nanoseconds compressing and writing files */
+    private long statWriteNanos;
+
+    /**
+     * Create a game checkpointer. Call {@link #start()} to begin checkpointing.
+     *
+     * @param srv  the game server
+     * @param dir  directory for checkpoint files; will be created if needed
+     * @param seconds  how often to checkpoint changed games
+     * @throws IOException if {@code dir} doesn't exist and can't be created
+     */
+    public SOCGameCheckpointer(final SOCServer srv, final File dir, final int seconds)
+        throws IOException
+    {
+        if (! (dir.isDirectory() || dir.mkdirs()))
+            throw new IOException("Cannot create checkpoint directory " + dir);
+
+        server = srv;
+        this.dir = dir;
+        sleepMillis = 1000 * Math.max(1, seconds);
+        alive = true;
+        setName("gameCheckpointer");  // Thread name for debug
+        try { setDaemon(true); } catch (Exception e) {}  // Don't wait on us to exit program
+    }
+
+    /**
+     * Wakes up every few seconds to checkpoint changed games.
+     */
+    public void run()
+    {
+        while (alive)
+        {
+            try
+            {
+                sleep(sleepMillis);
+            }
+            catch (InterruptedException exc) {}
+
+            if (alive)
+                checkpointAll();
+        }
+    }
+
+    /**
+     * Stop checkpointing. Call {@link #checkpointAll()} afterwards to save the games one last time.
+     */
+    public void stopCheckpointing()
+    {
+        alive = false;
+        interrupt();
+    }
+
+    /**
+     * Checkpoint each active game which has changed since its last checkpoint,
+     * and delete the checkpoint files of games which are over or no longer exist.
+     * Usually called from this thread's {@link #run()}; may also be called while stopping the server.
+     */
+    public synchronized void checkpointAll()
+    {
+        final SOCGameListAtServer gameList = server.gameList;
+
+        // Remove checkpoints of games which no longer need one
+        final File[] files = listCheckpointFiles(dir);
+        for (int i = 0; i < files.length; ++i)
+        {
+            final String gaName = getGameName(files[i]);
+            final SOCGame ga = (gaName != null) ? gameList.getGameData(gaName) : null;
+            boolean keep = false;
+            try
+            {
+                keep = (ga != null) && isCheckpointable(ga);
+            }
+            catch (Exception e) {}  // game was destroyed while checking
+
+            if (! keep)
+            {
+                files[i].delete();
+                if (gaName != null)
+                    checkpointedActionTimes.remove(gaName);
+            }
+        }
+        for (Iterator<String> iter = checkpointedActionTimes.keySet().iterator(); iter.hasNext(); )
+            if (! gameList.isGame(iter.next()))
+                iter.remove();
+
+        // copy the list, since games may be created or destroyed while we're checkpointing
+        for (SOCGame ga : new ArrayList<SOCGame>(gameList.getGamesData()))
+        {
+            final String gaName = ga.getName();
+            final long actionTime = ga.lastActionTime;
+            final Long prevActionTime = checkpointedActionTimes.get(gaName);
+            if ((prevActionTime != null) && (prevActionTime.longValue() == actionTime))
+                continue;  // unchanged since last checkpoint
+
+            try
+            {
+                if (! isCheckpointable(ga))
+                    continue;
+
+                final long t0 = System.nanoTime();
+                final byte[] data = snapshot(ga);
+                final long t1 = System.nanoTime();
+                final String[] seatHosts = new String[ga.maxPlayers];
+                for (int pn = 0; pn < ga.maxPlayers; ++pn)
+                {
+                    final SOCPlayer pl = ga.getPlayer(pn);
+                    if (! (ga.isSeatVacant(pn) || pl.isRobot()))
+                        seatHosts[pn] = server.getPlayerHost(ga, pl.getName());
+                }
+                final int len = writeCheckpoint(dir, gaName, data, seatHosts);
+                final long t2 = System.nanoTime();
+
+                checkpointedActionTimes.put(gaName, Long.valueOf(actionTime));
+                ++statNumWritten;
+                statBytesWritten += len;
+                statSnapshotNanos += (t1 - t0);
+                statWriteNanos += (t2 - t1);
+            }
+            catch (Exception e)
+            {
+                System.err.println("Could not checkpoint game " + gaName + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * Should this game be checkpointed? True if it's started and not over, and has a human player.
+     * Robot-only games aren't checkpointed, since robots' brains aren't saved.
+     * @param ga  Game to check
+     * @return  true if {@code ga} should have a checkpoint
+     */
+    public static boolean isCheckpointable(final SOCGame ga)
+    {
+        final int gstate = ga.getGameState();
+        return (gstate >= SOCGame.START1A) && (gstate < SOCGame.OVER) && ga.hasHumanPlayers();
+    }
+
+    /**
+     * Get a short summary of checkpointing stats, for the {@code *STATS*} debug command.
+     * @return stats text, such as "Checkpoints written: 12 (avg 24810 bytes; lock held avg 410 us, write avg 2100 us)"
+     */
+    public synchronized String getStatsString()
+    {
+        if (statNumWritten == 0)
+            return "Checkpoints written: 0";
+
+        return "Checkpoints written: " + statNumWritten + " (avg " + (statBytesWritten / statNumWritten)
+            + " bytes; lock held avg " + (statSnapshotNanos / (1000 * statNumWritten))
+            + " us, write avg " + (statWriteNanos / (1000 * statNumWritten)) + " us)";
+    }
+
+    /**
+     * Serialize a game while holding its monitor, so no game action can happen during the snapshot.
+     * <b>Locks:</b> Takes and releases {@link SOCGame#takeMonitor()}; caller must not hold it.
+     * @param ga  Game to serialize
+     * @return  The game's serialized data
+     * @throws IOException if the game can't be serialized
+     * @see #serialize(SOCGame)
+     */
+    public static byte[] snapshot(final SOCGame ga)
+        throws IOException
+    {
+        ga.takeMonitor();
+        try
+        {
+            return serialize(ga);
+        }
+        finally
+        {
+            ga.releaseMonitor();
+        }
+    }
+
+    /**
+     * Serialize a game without taking its monitor.
+     * Call this instead of {@link #snapshot(SOCGame)} only if the caller already holds
+     * {@link SOCGame#takeMonitor()}, or no other thread can be changing the game.
+     * @param ga  Game to serialize
+     * @return  The game's serialized data
+     * @throws IOException if the game can't be serialized
+     */
+    public static byte[] serialize(final SOCGame ga)
+        throws IOException
+    {
+        final ByteArrayOutputStream bout = new ByteArrayOutputStream(32 * 1024);
+        final ObjectOutputStream oout = new ObjectOutputStream(bout);
+        oout.writeObject(ga);
+        oout.flush();
+
+        return bout.toByteArray();
+    }
+
+    /**
+     * Write a game's checkpoint file, replacing any previous checkpoint of that game.
+     * @param dir  Checkpoint directory
+     * @param gaName  Game name
+     * @param data  Serialized game data from {@link #snapshot(SOCGame)}
+     * @param seatHosts  Host of each seat's human player, or null for none or unknown;
+     *     or null if no hosts are known
+     * @return  Compressed size of the file written
+     * @throws IOException if the file can't be written
+     */
+    public static int writeCheckpoint(final File dir, final String gaName, final byte[] data, final String[] seatHosts)
+        throws IOException
+    {
+        final File f = new File(dir, getFileName(gaName));
+        final File tmp = new File(dir, f.getName() + ".tmp");
+
+        final DataOutputStream out = new DataOutputStream
+            (new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(tmp))));
+        try
+        {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_FORMAT_VERSION);
+            out.writeInt(Version.versionNumber());
+            out.writeLong(System.currentTimeMillis());
+            out.writeUTF(gaName);
+            out.writeInt(data.length);
+            out.write(data);
+            out.writeInt((seatHosts != null) ? seatHosts.length : 0);
+            if (seatHosts != null)
+                for (String h : seatHosts)
+                    out.writeUTF((h != null) ? h : "");
+        }
+        finally
+        {
+            out.close();
+        }
+
+        if (! tmp.renameTo(f))
+        {
+            // some platforms won't rename over an existing file
+            f.delete();
+            if (! tmp.renameTo(f))
+                throw new IOException("Cannot rename " + tmp + " to " + f);
+        }
+
+        return (int) f.length();
+    }
+
+    /**
+     * Read a game from a checkpoint file written by {@link #writeCheckpoint(File, String, byte[], String[])}.
+     * Before using the game, add it to the game list with
+     * {@link SOCGameListAtServer#addRestoredGame(SOCGame, GameHandler)}
+     * and call {@link GameHandler#gameRestored(SOCGame)}.
+     *
+     * @param f  Checkpoint file
+     * @return  The restored game and its players' hosts
+     * @throws IOException if the file can't be read, isn't a checkpoint,
+     *     or was written by a different server version
+     */
+    public static Checkpoint readCheckpoint(final File f)
+        throws IOException
+    {
+        final DataInputStream in = new DataInputStream
+            (new GZIPInputStream(new BufferedInputStream(new FileInputStream(f))));
+        final String gaName;
+        final byte[] data;
+        final String[] seatHosts;
+        try
+        {
+            if (in.readInt() != FILE_MAGIC)
+                throw new IOException("Not a checkpoint file");
+            final int fmt = in.readInt();
+            if (fmt != FILE_FORMAT_VERSION)
+                throw new IOException("Unknown checkpoint format " + fmt);
+            final int vers = in.readInt();
+            if (vers != Version.versionNumber())
+                throw new IOException("Checkpoint is from server version " + vers);
+            in.readLong();  // checkpoint time
+            gaName = in.readUTF();
+            data = new byte[in.readInt()];
+            in.readFully(data);
+            seatHosts = new String[in.readInt()];
+            for (int pn = 0; pn < seatHosts.length; ++pn)
+            {
+                final String h = in.readUTF();
+                if (h.length() > 0)
+                    seatHosts[pn] = h;
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+
+        final SOCGame ga = deserialize(data);
+        if (! gaName.equals(ga.getName()))
+            throw new IOException("Checkpoint game name mismatch: " + gaName);
+
+        return new Checkpoint(ga, seatHosts);
+    }
+
+    /**
+     * Deserialize a game from data written by {@link #serialize(SOCGame)} or {@link #snapshot(SOCGame)}.
+     * @param data  Serialized game data
+     * @return  The game
+     * @throws IOException if {@code data} can't be read or doesn't contain a game
+     */
+    public static SOCGame deserialize(final byte[] data)
+        throws IOException
+    {
+        try
+        {
+            return (SOCGame) new ObjectInputStream(new ByteArrayInputStream(data)).readObject();
+        }
+        catch (ClassNotFoundException e)
+        {
+            throw new IOException("Checkpoint class not found: " + e.getMessage());
+        }
+        catch (ClassCastException e)
+        {
+            throw new IOException("Checkpoint doesn't contain a game");
+        }
+    }
+
+    /**
+     * List the checkpoint files in a directory.
+     * @param dir  Checkpoint directory
+     * @return  The checkpoint files, or an empty array if none or if {@code dir} can't be read
+     */
+    public static File[] listCheckpointFiles(final File dir)
+    {
+        final File[] files = dir.listFiles(new FilenameFilter()
+        {
+            public boolean accept(File d, String name)
+            {
+                return name.endsWith(FILE_SUFFIX);
+            }
+        });
+
+        return (files != null) ? files : new File[0];
+    }
+
+    /**
+     * Get the checkpoint filename for a game.
+     * @param gaName  Game name
+     * @return  Filename within the checkpoint directory
+     */
+    private static String getFileName(final String gaName)
+    {
+        try
+        {
+            // '*' isn't a legal filename character on all platforms
+            return URLEncoder.encode(gaName, "UTF-8").replace("*", "%2A") + FILE_SUFFIX;
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new IllegalStateException("UTF-8");  // every JVM supports UTF-8
+        }
+    }
+
+    /**
+     * Get the game name from a checkpoint filename.
+     * @param f  Checkpoint file
+     * @return  Game name, or null if the filename can't be decoded
+     */
+    private static String getGameName(final File f)
+    {
+        final String fname = f.getName();
+        try
+        {
+            return URLDecoder.decode(fname.substring(0, fname.length() - FILE_SUFFIX.length()), "UTF-8");
+        }
+        catch (Exception e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * A game read from a checkpoint file by {@link #readCheckpoint(File)}, and its players' hosts.
+     */
+    public static final class Checkpoint
+    {
+        /** The restored game */
+        public final SOCGame game;
+
+        /**
+         * Host of each seat's human player when the game was checkpointed, or null for none or unknown.
+         * Has fewer than {@link SOCGame#maxPlayers} elements (maybe 0) if the checkpoint didn't include them.
+         */
+        public final String[] seatHosts;
+
+        Checkpoint(final SOCGame game, final String[] seatHosts)
+        {
+            this.game = game;
+            this.seatHosts = seatHosts;
+        }
+    }
+
+}
@@ -0,0 +1,607 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2013 JSettlers contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import soc.game.SOCGame;
+import soc.util.Version;
+
+/**
+ * Append-only log of each game's events, for post-mortems and replay with {@link SOCGameEventLogReplay}.
+ * Each game's log starts with a snapshot of the game when it starts, followed by every
+ * inbound game message from its clients in the order the server processed them,
+ * and server events such as dice results, seat changes, and forced end of turns.
+ * Game randomness after the start comes from the game's own {@link java.util.Random},
+ * which is saved in the snapshot, so replaying the inbound messages reproduces the game.
+ *<P>
+ * Records are appended to a memory-mapped file, so logging an event is a few buffer puts
+ * without a system call; the OS writes the pages sequentially in the background.
+ * The file is mapped in {@link #MAP_CHUNK_BYTES} chunks as it grows.
+ * When a game's log file ("segment") reaches the segment size, the log is rotated to a new segment
+ * which starts with a new snapshot, so each segment can be replayed without the earlier ones;
+ * only the newest few segments of each game are kept.  The log is closed when the game is destroyed.
+ *<P>
+ * Segment filenames are the URL-encoded game name, the game's start time in millis,
+ * and the segment number: {@code mygame-1389715200000-000.evlog}.
+ *<P>
+ * File format: Header, then records. Header: {@link #FILE_MAGIC}, {@link #FILE_FORMAT_VERSION},
+ * server {@link Version#versionNumber()}, segment number, game name (string).
+ * Each record: int length of the rest of the record, byte record type ({@link #REC_SNAPSHOT} etc),
+ * long time in millis, type-specific contents. Strings are an int byte length and UTF-8 bytes.
+ * A record length of 0 marks the end of a segment which wasn't closed normally.
+ *<UL>
+ * <LI> {@link #REC_SNAPSHOT}: byte reason ({@link #SNAPSHOT_START} or {@link #SNAPSHOT_ROTATE}),
+ *      int length, serialized {@link SOCGame} from {@link SOCGameCheckpointer#serialize(SOCGame)}
+ * <LI> {@link #REC_INBOUND}: string sender name, string message from client
+ * <LI> {@link #REC_EVENT}: string event, usually a message sent to the game, from {@link SOCServer#recordGameEvent(String, String)}
+ * <LI> {@link #REC_FORCE_END}: int player number, string player name
+ * <LI> {@link #REC_END}: no contents; game was destroyed
+ *</UL>
+ *
+ * @see SOCServer#PROP_JSETTLERS_EVENTLOG_DIR
+ * @since 2.0.00
+ */
+public class SOCGameEventLog
+{
+    /** First int in each log segment: ASCII "JSEL" */
+    public static final int FILE_MAGIC = 0x4A53454C;
+
+    /** Log file format version, written after {@link #FILE_MAGIC} */
+    public static final int FILE_FORMAT_VERSION = 1;
+
+    /** Suffix of log segment filenames */
+    public static final String FILE_SUFFIX = ".evlog";
+
+    /** Record type: Game snapshot */
+    public static final byte REC_SNAPSHOT = 1;
+
+    /** Record type: Inbound message from a client */
+    public static final byte REC_INBOUND = 2;
+
+    /** Record type: Server event */
+    public static final byte REC_EVENT = 3;
+
+    /** Record type: Server forced the end of a player's turn */
+    public static final byte REC_FORCE_END = 4;
+
+    /** Record type: Game destroyed, end of log */
+    public static final byte REC_END = 5;
+
+    /** {@link #REC_SNAPSHOT} reason: Game started, or restarted after a board reset */
+    public static final byte SNAPSHOT_START = 0;
+
+    /** {@link #REC_SNAPSHOT} reason: First record of a new segment after rotation */
+    public static final byte SNAPSHOT_ROTATE = 1;
+
+    /** Size of each memory-mapped region of a segment file; the file grows by this much at a time */
+    public static final int MAP_CHUNK_BYTES = 256 * 1024;
+
+    private final File dir;
+
+    /** Rotate a game's log to a new segment when its current segment is at least this long */
+    private final long segmentBytes;
+
+    /** Keep at most this many segments of each game */
+    private final int maxSegments;
+
+    /** Each game's open log, keyed by game name */
+    private final Hashtable<String, GameLog> logs = new Hashtable<String, GameLog>();
+
+    /** Stats for {@link #getStatsString()} */
+    private final AtomicLong statRecords = new AtomicLong(), statBytes = new AtomicLong(),
+        statAppendNanos = new AtomicLong(), statRotations = new AtomicLong();
+
+    /**
+     * Create a game event log writer.
+     * @param dir  directory for log files; will be created if needed
+     * @param segmentBytes  rotate each game's log to a new segment file at about this size
+     * @param maxSegments  keep at most this many segments per game; older segments are deleted
+     * @throws IOException if {@code dir} doesn't exist and can't be created
+     */
+    public SOCGameEventLog(final File dir, final long segmentBytes, final int maxSegments)
+        throws IOException
+    {
+        if (! (dir.isDirectory() || dir.mkdirs()))
+            throw new IOException("Cannot create event log directory " + dir);
+
+        this.dir = dir;
+        this.segmentBytes = Math.max(MAP_CHUNK_BYTES, segmentBytes);
+        this.maxSegments = Math.max(1, maxSegments);
+    }
+
+    /**
+     * This game has just started; open its log and write a {@link #SNAPSHOT_START} snapshot.
+     * If the game already has an open log, because its board was reset, writes the snapshot to that log.
+     *<P>
+     * <b>Locks:</b> Caller should hold {@link SOCGame#takeMonitor()} or otherwise
+     * be the only thread which can change the game.
+     * @param ga  Game which started
+     */
+    public void gameStarted(final SOCGame ga)
+    {
+        final String gaName = ga.getName();
+        try
+        {
+            final byte[] data = SOCGameCheckpointer.serialize(ga);
+
+            GameLog gl = logs.get(gaName);
+            if (gl == null)
+            {
+                gl = new GameLog(gaName, getFilePrefix(gaName, System.currentTimeMillis()));
+                gl.openSegment();
+                logs.put(gaName, gl);
+            }
+            gl.appendSnapshot(SNAPSHOT_START, data);
+        }
+        catch (IOException e)
+        {
+            System.err.println("Cannot write event log for game " + gaName + ": " + e);
+            gameDestroyed(gaName);
+        }
+    }
+
+    /**
+     * Record an inbound message from a client to this game, before the server processes it.
+     * If the game's log segment is full, rotate it first.
+     *<P>
+     * <b>Locks:</b> Must not hold {@link SOCGame#takeMonitor()}, which is taken if rotating.
+     * @param ga  Game for the message
+     * @param sender  Client's name
+     * @param cmd  Message from the client, as received
+     */
+    public void recordInbound(final SOCGame ga, final String sender, final String cmd)
+    {
+        final GameLog gl = logs.get(ga.getName());
+        if (gl == null)
+            return;
+
+        try
+        {
+            if (gl.getSegmentLength() >= segmentBytes)
+                rotate(ga, gl);
+            gl.appendStrings(REC_INBOUND, sender, cmd);
+        }
+        catch (IOException e)
+        {
+            System.err.println("Cannot write event log for game " + ga.getName() + ": " + e);
+            gameDestroyed(ga.getName());
+        }
+    }
+
+    /**
+     * Record a server event in this game, if it has a log.
+     * @param gaName  Game name
+     * @param event  Event text, usually a message sent to the game
+     */
+    public void recordEvent(final String gaName, final String event)
+    {
+        final GameLog gl = logs.get(gaName);
+        if (gl == null)
+            return;
+
+        try
+        {
+            gl.appendStrings(REC_EVENT, event, null);
+        }
+        catch (IOException e)
+        {
+            System.err.println("Cannot write event log for game " + gaName + ": " + e);
+            gameDestroyed(gaName);
+        }
+    }
+
+    /**
+     * Record that the server is ending a player's turn because they left or are inactive,
+     * from {@link SOCGameHandler#endGameTurnOrForce(SOCGame, int, String, soc.server.genericServer.StringConnection, boolean)}.
+     * @param gaName  Game name
+     * @param pn  Player number
+     * @param plName  Player name
+     */
+    public void recordForceEndTurn(final String gaName, final int pn, final String plName)
+    {
+        final GameLog gl = logs.get(gaName);
+        if (gl == null)
+            return;
+
+        try
+        {
+            gl.appendForceEnd(pn, plName);
+        }
+        catch (IOException e)
+        {
+            System.err.println("Cannot write event log for game " + gaName + ": " + e);
+            gameDestroyed(gaName);
+        }
+    }
+
+    /**
+     * This game is being destroyed; write {@link #REC_END} and close its log, if any.
+     * @param gaName  Game name
+     */
+    public void gameDestroyed(final String gaName)
+    {
+        final GameLog gl = logs.remove(gaName);
+        if (gl != null)
+            gl.close(true);
+    }
+
+    /**
+     * Close all games' logs, when the server is stopping.
+     * Doesn't write {@link #REC_END}, since the games weren't destroyed.
+     */
+    public void closeAll()
+    {
+        for (GameLog gl : new ArrayList<GameLog>(logs.values()))
+            gl.close(false);
+        logs.clear();
+    }
+
+    /**
+     * Get a short summary of event log stats, for the {@code *STATS*} debug command.
+     * @return stats text, such as "Event logs: 3 open, 4210 records, 512 KB, append avg 900 ns, 1 rotations"
+     */
+    public String getStatsString()
+    {
+        final long nRec = statRecords.get();
+        return "Event logs: " + logs.size() + " open, " + nRec + " records, " + (statBytes.get() / 1024)
+            + " KB, append avg " + ((nRec > 0) ? (statAppendNanos.get() / nRec) : 0)
+            + " ns, " + statRotations.get() + " rotations";
+    }
+
+    /**
+     * Rotate a game's log to a new segment, starting with a {@link #SNAPSHOT_ROTATE} snapshot.
+     * Deletes old segments past {@link #maxSegments}.
+     * <b>Locks:</b> Takes and releases {@link SOCGame#takeMonitor()}; caller must not hold it.
+     */
+    private void rotate(final SOCGame ga, final GameLog gl)
+        throws IOException
+    {
+        final byte[] data = SOCGameCheckpointer.snapshot(ga);
+        synchronized (gl)
+        {
+            gl.close(false);
+            ++gl.segment;
+            gl.openSegment();
+            gl.appendSnapshot(SNAPSHOT_ROTATE, data);
+
+            final int oldSeg = gl.segment - maxSegments;
+            if (oldSeg >= 0)
+                new File(dir, gl.getSegmentFileName(oldSeg)).delete();
+        }
+        statRotations.incrementAndGet();
+    }
+
+    /**
+     * Get the filename prefix for a game's log segments.
+     * @param gaName  Game name
+     * @param startTime  Time the log was opened
+     * @return  URL-encoded game name and start time, such as {@code "mygame-1389715200000"}
+     */
+    private static String getFilePrefix(final String gaName, final long startTime)
+    {
+        try
+        {
+            // '*' isn't a legal filename character on all platforms
+            return URLEncoder.encode(gaName, "UTF-8").replace("*", "%2A") + '-' + startTime;
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new IllegalStateException("UTF-8");  // every JVM supports UTF-8
+        }
+    }
+
+    /**
+     * Get the UTF-8 bytes of a string.
+     * @param s  String, or null for ""
+     */
+    private static byte[] utf8(final String s)
+    {
+        if (s == null)
+            return new byte[0];
+
+        try
+        {
+            return s.getBytes("UTF-8");
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new IllegalStateException("UTF-8");
+        }
+    }
+
+    /**
+     * Read all records of a log segment written by this class, for {@link SOCGameEventLogReplay}.
+     * Stops at the first record length of 0, if the segment wasn't closed normally.
+     * @param f  Log segment file
+     * @return  The segment's records, in order
+     * @throws IOException if the file can't be read or isn't an event log segment
+     *     from this server version
+     */
+    public static List<Record> readSegment(final File f)
+        throws IOException
+    {
+        final RandomAccessFile raf = new RandomAccessFile(f, "r");
+        try
+        {
+            final ByteBuffer buf = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            if (buf.getInt() != FILE_MAGIC)
+                throw new IOException("Not an event log: " + f);
+            final int fmt = buf.getInt();
+            if (fmt != FILE_FORMAT_VERSION)
+                throw new IOException("Unknown event log format " + fmt + ": " + f);
+            final int vers = buf.getInt();
+            if (vers != Version.versionNumber())
+                throw new IOException("Event log is from server version " + vers + ": " + f);
+            buf.getInt();  // segment number
+            getString(buf);  // game name
+
+            final List<Record> recs = new ArrayList<Record>();
+            while (buf.remaining() >= 4)
+            {
+                final int len = buf.getInt();
+                if (len <= 0)
+                    break;
+                final int end = buf.position() + len;
+
+                final Record rec = new Record(buf.get(), buf.getLong());
+                switch (rec.type)
+                {
+                case REC_SNAPSHOT:
+                    rec.num = buf.get();
+                    rec.data = new byte[buf.getInt()];
+                    buf.get(rec.data);
+                    break;
+
+                case REC_INBOUND:
+                    rec.str1 = getString(buf);
+                    rec.str2 = getString(buf);
+                    break;
+
+                case REC_EVENT:
+                    rec.str1 = getString(buf);
+                    break;
+
+                case REC_FORCE_END:
+                    rec.num = buf.getInt();
+                    rec.str1 = getString(buf);
+                    break;
+
+                default:
+                    // REC_END, or a newer type: no contents we know about
+                }
+                recs.add(rec);
+                buf.position(end);
+            }
+
+            return recs;
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+
+    /** Read a string written by {@link GameLog#putString(byte[])}. */
+    private static String getString(final ByteBuffer buf)
+        throws IOException
+    {
+        final byte[] b = new byte[buf.getInt()];
+        buf.get(b);
+        return new String(b, "UTF-8");
+    }
+
+    /**
+     * One record read from a log segment by {@link SOCGameEventLog#readSegment(File)}.
+     * Field contents depend on {@link #type}; see {@link SOCGameEventLog} class javadoc.
+     */
+    public static class Record
+    {
+        /** Record type, such as {@link SOCGameEventLog#REC_INBOUND} */
+        public final byte type;
+
+        /** Time of the record, from {@link System#currentTimeMillis()} */
+        public final long time;
+
+        /** Snapshot reason, or player number for {@link SOCGameEventLog#REC_FORCE_END} */
+        public int num;
+
+        /** Sender name, event text, or player name; or null */
+        public String str1;
+
+        /** Inbound message, or null */
+        public String str2;
+
+        /** Serialized game for {@link SOCGameEventLog#REC_SNAPSHOT}, or null */
+        public byte[] data;
+
+        Record(final byte type, final long time)
+        {
+            this.type = type;
+            this.time = time;
+        }
+    }
+
+    /**
+     * One game's open log: Its current segment file and memory-mapped region.
+     * Appends are synchronized on this object.
+     */
+    private final class GameLog
+    {
+        final String gaName;
+        final String filePrefix;
+
+        /** Current segment number, starting at 0 */
+        int segment;
+
+        private RandomAccessFile raf;
+        private FileChannel ch;
+
+        /** Currently mapped region of the segment file */
+        private MappedByteBuffer buf;
+
+        /** Position of {@link #buf} within the file */
+        private long bufStart;
+
+        GameLog(final String gaName, final String filePrefix)
+        {
+            this.gaName = gaName;
+            this.filePrefix = filePrefix;
+        }
+
+        String getSegmentFileName(final int seg)
+        {
+            final String s = Integer.toString(seg);
+            return filePrefix + ((seg < 10) ? "-00" : (seg < 100) ? "-0" : "-") + s + FILE_SUFFIX;
+        }
+
+        /** Open segment {@link #segment} and write its header. */
+        synchronized void openSegment()
+            throws IOException
+        {
+            raf = new RandomAccessFile(new File(dir, getSegmentFileName(segment)), "rw");
+            ch = raf.getChannel();
+            bufStart = 0;
+            buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, MAP_CHUNK_BYTES);
+
+            final byte[] name = utf8(gaName);
+            buf.putInt(FILE_MAGIC).putInt(FILE_FORMAT_VERSION).putInt(Version.versionNumber()).putInt(segment);
+            putString(name);
+        }
+
+        synchronized long getSegmentLength()
+        {
+            return (buf != null) ? bufStart + buf.position() : 0;
+        }
+
+        synchronized void appendSnapshot(final byte reason, final byte[] data)
+            throws IOException
+        {
+            final long t0 = System.nanoTime();
+            final int len = 1 + 8 + 1 + 4 + data.length;
+            startRecord(len, REC_SNAPSHOT);
+            buf.put(reason).putInt(data.length).put(data);
+            endRecord(len, t0);
+        }
+
+        /** Append a record of 1 or 2 strings; {@code s2} is omitted if null. */
+        synchronized void appendStrings(final byte type, final String s1, final String s2)
+            throws IOException
+        {
+            final long t0 = System.nanoTime();
+            final byte[] b1 = utf8(s1), b2 = (s2 != null) ? utf8(s2) : null;
+            final int len = 1 + 8 + 4 + b1.length + ((b2 != null) ? 4 + b2.length : 0);
+            startRecord(len, type);
+            putString(b1);
+            if (b2 != null)
+                putString(b2);
+            endRecord(len, t0);
+        }
+
+        synchronized void appendForceEnd(final int pn, final String plName)
+            throws IOException
+        {
+            final long t0 = System.nanoTime();
+            final byte[] b = utf8(plName);
+            final int len = 1 + 8 + 4 + 4 + b.length;
+            startRecord(len, REC_FORCE_END);
+            buf.putInt(pn);
+            putString(b);
+            endRecord(len, t0);
+        }
+
+        /**
+         * Map more of the file if needed, then write the record's length, type and time.
+         * @param len  Record length, not including the length int itself
+         * @param type  Record type
+         */
+        private void startRecord(final int len, final byte type)
+            throws IOException
+        {
+            if (buf == null)
+                throw new IOException("closed");
+
+            // keep 4 bytes for the end-marker length 0
+            if (buf.remaining() < 4 + len + 4)
+            {
+                bufStart += buf.position();
+                buf = ch.map(FileChannel.MapMode.READ_WRITE, bufStart, Math.max(MAP_CHUNK_BYTES, 4 + len + 4));
+            }
+            buf.putInt(len).put(type).putLong(System.currentTimeMillis());
+        }
+
+        private void endRecord(final int len, final long startNanos)
+        {
+            statRecords.incrementAndGet();
+            statBytes.addAndGet(4 + len);
+            statAppendNanos.addAndGet(System.nanoTime() - startNanos);
+        }
+
+        private void putString(final byte[] b)
+        {
+            buf.putInt(b.length).put(b);
+        }
+
+        /**
+         * Close the current segment, truncating the file to the data written.
+         * @param writeEnd  If true, write {@link #REC_END} first
+         */
+        synchronized void close(final boolean writeEnd)
+        {
+            if (buf == null)
+                return;
+
+            try
+            {
+                if (writeEnd)
+                {
+                    final long t0 = System.nanoTime();
+                    startRecord(1 + 8, REC_END);
+                    endRecord(1 + 8, t0);
+                }
+                final long len = bufStart + buf.position();
+                buf = null;
+                ch.truncate(len);
+            }
+            catch (IOException e)
+            {
+                // Some platforms can't truncate a mapped file; readers stop at the 0 length after the data
+            }
+
+            try
+            {
+                raf.close();
+            }
+            catch (IOException e) {}
+        }
+    }
+
+}
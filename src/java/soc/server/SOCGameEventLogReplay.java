@@ -0,0 +1,387 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2013 JSettlers contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import soc.game.SOCGame;
+import soc.game.SOCPlayer;
+import soc.message.SOCDiceResult;
+import soc.message.SOCLeaveGame;
+import soc.message.SOCMessage;
+import soc.message.SOCMessageForGame;
+import soc.message.SOCSitDown;
+import soc.server.genericServer.StringConnection;
+import soc.util.Version;
+
+/**
+ * Replay a game from its {@link SOCGameEventLog} segments, to reconstruct its state for a post-mortem.
+ * Starts from the first snapshot, then gives each logged inbound client message to a
+ * {@link SOCGameHandler} as the server did, without any clients or delays, so replay is much
+ * faster than the game was played. Seat changes and forced end of turns are applied from their events.
+ *<P>
+ * As a check, each logged dice roll is compared to the replayed game's dice, and each rotation
+ * snapshot to the replayed game's state; if a snapshot doesn't match, replay continues from the snapshot.
+ * Messages which the server handles itself instead of the game handler, such as chat, are skipped.
+ *<P>
+ * When done, prints a summary and the reconstructed game's state, and can write the game
+ * as a {@link SOCGameCheckpointer} file which a server can restore with
+ * {@link SOCServer#PROP_JSETTLERS_CHECKPOINT_RESTORE}, to look at it with a client.
+ *<P>
+ * Usage: <tt>java soc.server.SOCGameEventLogReplay [-n maxRecords] [-ckpt dir] [-v] segmentfile [segmentfile...]</tt>
+ *<BR>
+ * Segments are replayed in filename order, which is their logged order.
+ *
+ * @since 2.0.00
+ */
+public class SOCGameEventLogReplay
+{
+    /** Name of the stringport that the replay's server listens on. */
+    public static final String REPLAY_STRINGPORT = "SOCREPLAY";
+
+    private final SOCServer server;
+    private final SOCGameHandler handler;
+    private final boolean verbose;
+
+    /** Replay connection for each player or other sender name */
+    private final HashMap<String, StringConnection> conns = new HashMap<String, StringConnection>();
+
+    /** The game being replayed, or null before the first snapshot */
+    private SOCGame ga;
+
+    /** Replay counts for {@link #printSummary(long, long)} */
+    private int nRecords, nInbound, nSkipped, nDiceOK, nDiceBad, nSnapOK, nSnapBad;
+
+    /**
+     * Create a replay, with a server which has no clients.
+     * @param verbose  If true, print each record as it's replayed
+     * @throws Exception if the server can't be created
+     */
+    public SOCGameEventLogReplay(final boolean verbose)
+        throws Exception
+    {
+        server = new SOCServer(REPLAY_STRINGPORT, SOCServer.SOC_MAXCONN_DEFAULT, null, null);
+        server.gameTimeoutChecker.stopChecking();  // don't force-end replayed turns
+        handler = new SOCGameHandler(server);
+        this.verbose = verbose;
+    }
+
+    /**
+     * Replay a game's log records.
+     * @param recs  Records from {@link SOCGameEventLog#readSegment(File)}, in logged order
+     * @param maxRecords  Replay at most this many records
+     * @return  The replayed game, or null if {@code recs} has no snapshot
+     * @throws IOException if a snapshot can't be read
+     */
+    public SOCGame replay(final List<SOCGameEventLog.Record> recs, final int maxRecords)
+        throws IOException
+    {
+        for (SOCGameEventLog.Record rec : recs)
+        {
+            if (nRecords >= maxRecords)
+                break;
+            ++nRecords;
+            if (verbose)
+                System.out.println(rec.time + " " + rec.type + " " + rec.num
+                    + " " + ((rec.str1 != null) ? rec.str1 : "") + " " + ((rec.str2 != null) ? rec.str2 : ""));
+
+            if (rec.type == SOCGameEventLog.REC_SNAPSHOT)
+            {
+                replaySnapshot(rec);
+                continue;
+            }
+            if (ga == null)
+                continue;  // segment's snapshot was skipped or missing
+
+            switch (rec.type)
+            {
+            case SOCGameEventLog.REC_INBOUND:
+                replayInbound(rec.str1, rec.str2);
+                break;
+
+            case SOCGameEventLog.REC_EVENT:
+                replayEvent(rec.str1);
+                break;
+
+            case SOCGameEventLog.REC_FORCE_END:
+                handler.endGameTurnOrForce(ga, rec.num, rec.str1, getConnection(rec.str1), false);
+                break;
+
+            default:
+                // REC_END: nothing to do
+            }
+        }
+
+        return ga;
+    }
+
+    /**
+     * Start from this snapshot: The game's first, or after a board reset.
+     * For a rotation snapshot, check it against the replayed game and continue from the snapshot if different.
+     */
+    private void replaySnapshot(final SOCGameEventLog.Record rec)
+        throws IOException
+    {
+        final SOCGame snap = SOCGameCheckpointer.deserialize(rec.data);
+        if ((ga != null) && (rec.num == SOCGameEventLog.SNAPSHOT_ROTATE))
+        {
+            final String replayed = getStateSummary(ga), logged = getStateSummary(snap);
+            if (replayed.equals(logged))
+            {
+                ++nSnapOK;
+                return;
+            }
+
+            ++nSnapBad;
+            System.err.println("Rotation snapshot differs from replay; continuing from snapshot.\n  replayed: "
+                + replayed + "\n  snapshot: " + logged);
+        }
+
+        if (ga != null)
+            server.gameList.deleteGame(ga.getName());
+        ga = snap;
+        ga.pendingMessagesOut = new ArrayList<Object>();
+        ga.setScenarioEventListener(handler);
+        server.gameList.addRestoredGame(ga, handler);
+    }
+
+    /**
+     * Give this inbound message to the game handler, as if from its client.
+     * @param sender  Client name
+     * @param cmd  Message from client
+     */
+    private void replayInbound(final String sender, final String cmd)
+    {
+        final SOCMessage mes = SOCMessage.toMsg(cmd);
+        if (! (mes instanceof SOCMessageForGame))
+        {
+            ++nSkipped;
+            return;
+        }
+
+        ga.lastActionTime = System.currentTimeMillis();
+        if (handler.processCommand(ga, (SOCMessageForGame) mes, getConnection(sender)))
+            ++nInbound;
+        else
+            ++nSkipped;  // handled by the server itself, such as chat or sitdown
+    }
+
+    /**
+     * Apply or check this server event: Sit down or leave, or check the dice roll.
+     * @param event  Event text from {@link SOCServer#recordGameEvent(String, String)}
+     */
+    private void replayEvent(final String event)
+    {
+        final SOCMessage mes = SOCMessage.toMsg(event);
+        if (mes instanceof SOCSitDown)
+        {
+            final SOCSitDown sit = (SOCSitDown) mes;
+            final int pn = sit.getPlayerNumber();
+            if (! ga.isSeatVacant(pn))
+                ga.removePlayer(ga.getPlayer(pn).getName());  // robot being replaced
+            ga.addPlayer(sit.getNickname(), pn);
+            ga.getPlayer(pn).setRobotFlag(sit.isRobot(), false);
+        }
+        else if (mes instanceof SOCLeaveGame)
+        {
+            final String plName = ((SOCLeaveGame) mes).getNickname();
+            if (ga.getPlayer(plName) != null)
+                ga.removePlayer(plName);
+        }
+        else if (mes instanceof SOCDiceResult)
+        {
+            if (((SOCDiceResult) mes).getResult() == ga.getCurrentDice())
+                ++nDiceOK;
+            else
+            {
+                ++nDiceBad;
+                System.err.println("Dice differ: logged " + ((SOCDiceResult) mes).getResult()
+                    + ", replayed " + ga.getCurrentDice());
+            }
+        }
+    }
+
+    /**
+     * Get or create the replay connection for this client name.
+     * @param name  Client name
+     * @return  A connection which ignores everything sent to it
+     */
+    private StringConnection getConnection(final String name)
+    {
+        StringConnection c = conns.get(name);
+        if (c == null)
+        {
+            c = new ReplayConnection(name);
+            conns.put(name, c);
+        }
+
+        return c;
+    }
+
+    /**
+     * Print replay counts and the game's random seed and current state to {@link System#out}.
+     * @param replayNanos  Time spent replaying
+     * @param loggedMillis  Time span of the replayed records when logged
+     */
+    public void printSummary(final long replayNanos, final long loggedMillis)
+    {
+        final long replayMillis = replayNanos / 1000000;
+        System.out.println("Replayed " + nRecords + " records: " + nInbound + " inbound messages, "
+            + nSkipped + " skipped; dice checks " + nDiceOK + " ok, " + nDiceBad + " differ; snapshot checks "
+            + nSnapOK + " ok, " + nSnapBad + " differ");
+        System.out.println("Replay took " + replayMillis + " ms for " + (loggedMillis / 1000) + " seconds of play"
+            + ((replayMillis > 0) ? " (" + (loggedMillis / replayMillis) + "x real time)" : ""));
+        if (ga != null)
+        {
+            System.out.println("Game random seed " + ga.getRandomSeed());
+            System.out.println(getStateSummary(ga));
+        }
+    }
+
+    /**
+     * Summarize a game's state, to print or to compare a replayed game against a snapshot:
+     * Game state, current player, dice, and each player's name, VP, resources, pieces, and inventory.
+     * @param g  Game to summarize
+     * @return  Summary text
+     */
+    public static String getStateSummary(final SOCGame g)
+    {
+        StringBuilder sb = new StringBuilder(g.getName());
+        sb.append(": state ").append(g.getGameState()).append(", current player ").append(g.getCurrentPlayerNumber())
+          .append(", dice ").append(g.getCurrentDice());
+        for (int pn = 0; pn < g.maxPlayers; ++pn)
+        {
+            final SOCPlayer pl = g.getPlayer(pn);
+            sb.append("\n  ").append(pn).append(": ").append(g.isSeatVacant(pn) ? "(vacant)" : pl.getName())
+              .append(" VP ").append(pl.getTotalVP()).append(", resources ").append(pl.getResources())
+              .append(", pieces ").append(pl.getPieces().size())
+              .append(", items ").append(pl.getInventory().getTotal());
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * A connection for a replayed client, which ignores everything sent to it.
+     */
+    private static class ReplayConnection extends StringConnection
+    {
+        ReplayConnection(final String name)
+        {
+            data = name;
+            appData = new SOCClientData();
+            remoteVersion = Version.versionNumber();
+            remoteVersionKnown = true;
+        }
+
+        public String host() { return "replay"; }
+        public void put(String str) {}
+        public void run() {}
+        public boolean isConnected() { return true; }
+        public boolean connect() { return true; }
+        public void disconnect() {}
+        public void disconnectSoft() {}
+        public boolean isInputAvailable() { return false; }
+    }
+
+    /**
+     * Print command-line usage to {@link System#err}.
+     */
+    private static void printUsage()
+    {
+        System.err.println("usage: java soc.server.SOCGameEventLogReplay [-n maxRecords] [-ckpt dir] [-v]"
+            + " segmentfile [segmentfile...]");
+    }
+
+    /**
+     * Run a replay from the command line; see class javadoc for arguments.
+     * @param args  Command-line arguments
+     */
+    public static void main(String[] args)
+    {
+        int maxRecords = Integer.MAX_VALUE;
+        File ckptDir = null;
+        boolean verbose = false;
+        List<File> files = new ArrayList<File>();
+
+        try
+        {
+            for (int i = 0; i < args.length; ++i)
+            {
+                final String a = args[i];
+                if (a.equals("-n"))
+                    maxRecords = Integer.parseInt(args[++i]);
+                else if (a.equals("-ckpt"))
+                    ckptDir = new File(args[++i]);
+                else if (a.equals("-v"))
+                    verbose = true;
+                else if (a.startsWith("-"))
+                    throw new IllegalArgumentException(a);
+                else
+                    files.add(new File(a));
+            }
+            if (files.isEmpty())
+                throw new IllegalArgumentException();
+        }
+        catch (RuntimeException e)
+        {
+            printUsage();
+            return;
+        }
+
+        try
+        {
+            File[] fa = files.toArray(new File[files.size()]);
+            Arrays.sort(fa);
+            List<SOCGameEventLog.Record> recs = new ArrayList<SOCGameEventLog.Record>();
+            for (File f : fa)
+                recs.addAll(SOCGameEventLog.readSegment(f));
+
+            final SOCGameEventLogReplay rep = new SOCGameEventLogReplay(verbose);
+            final long t0 = System.nanoTime();
+            final SOCGame ga = rep.replay(recs, maxRecords);
+            final long replayNanos = System.nanoTime() - t0;
+
+            final int nRec = Math.min(maxRecords, recs.size());
+            final long loggedMillis = (nRec > 0) ? recs.get(nRec - 1).time - recs.get(0).time : 0;
+            rep.printSummary(replayNanos, loggedMillis);
+
+            if ((ga != null) && (ckptDir != null))
+            {
+                SOCGameCheckpointer.writeCheckpoint
+                    (ckptDir, ga.getName(), SOCGameCheckpointer.serialize(ga), null);  // players' hosts not logged
+                System.out.println("Wrote checkpoint of " + ga.getName() + " to " + ckptDir);
+            }
+        }
+        catch (Exception e)
+        {
+            System.err.println("Replay failed: " + e);
+            e.printStackTrace();
+        }
+
+        System.exit(0);
+    }
+
+}
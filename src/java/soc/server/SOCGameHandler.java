@@ -34,6 +34,7 @@ import java.util.Map;
 import java.util.Random;
 import java.util.StringTokenizer;
 import java.util.Vector;
+import java.util.WeakHashMap;
 
 import soc.debug.D;
 import soc.game.SOCBoard;
@@ -204,6 +205,24 @@ public class SOCGameHandler extends GameHandler
         "9 robber"
         };
 
+    /**
+     * Each game's cached messages for {@link #joinGame(SOCGame, StringConnection, boolean, boolean)},
+     * so that a game with many observers doesn't re-encode its large board layout for each one.
+     * Weak keys: A game's entry is dropped after the game is destroyed and garbage-collected.
+     * Synchronize on this map when using it.
+     * @see #getJoinCache(SOCGame)
+     * @since 2.0.00
+     */
+    private final WeakHashMap<SOCGame, JoinCache> joinCaches = new WeakHashMap<SOCGame, JoinCache>();
+
+    /**
+     * For each game restored from a checkpoint, the seats vacated by robots in {@link #gameRestored(SOCGame)},
+     * to be refilled by robots when the first human player rejoins. Weak keys like {@link #joinCaches}.
+     * Synchronize on this map when using it.
+     * @since 2.0.00
+     */
+    private final WeakHashMap<SOCGame, boolean[]> restoredGameBotSeats = new WeakHashMap<SOCGame, boolean[]>();
+
     public SOCGameHandler(final SOCServer server)
     {
         super(server);
@@ -945,7 +964,7 @@ public class SOCGameHandler extends GameHandler
                 srv.messageToPlayer(c, new SOCSetSeatLock(gameName, i, SOCGame.SeatLockState.LOCKED));  // old client
         }
 
-        c.put(getBoardLayoutMessage(gameData).toCmd());
+        c.put(getBoardLayoutCmd(gameData));
         //    No need to catch IllegalArgumentException:
         //    Since game is already started, getBoardLayoutMessage has previously
         //    been called for the creating player, and the board encoding is OK.
@@ -957,39 +976,7 @@ public class SOCGameHandler extends GameHandler
         if ((gameData.getGameState() == SOCGame.NEW)
             && (c.getVersion() >= SOCPotentialSettlements.VERSION_FOR_PLAYERNUM_ALL))
         {
-            final HashSet<Integer> psList = gameData.getPlayer(0).getPotentialSettlements();
-
-            // Some boards may have multiple land areas.
-            // See also below, and startGame which has very similar code.
-            final HashSet<Integer>[] lan;
-            final int pan;
-            boolean addedPsList = false;
-            if (gameData.hasSeaBoard)
-            {
-                final SOCBoardLarge bl = (SOCBoardLarge) gameData.getBoard();
-                lan = bl.getLandAreasLegalNodes();
-                pan = bl.getStartingLandArea();
-                if ((lan != null) && ! lan[pan].equals(psList))
-                {
-                    // If potentials != legals[startingLandArea], send as legals[0]
-                    lan[0] = psList;
-                    addedPsList = true;
-                }
-            } else {
-                lan = null;
-                pan = 0;
-            }
-
-            if (lan == null)
-            {
-                c.put(SOCPotentialSettlements.toCmd(gameName, -1, new Vector<Integer>(psList)));
-            } else {
-                c.put(SOCPotentialSettlements.toCmd
-                    (gameName, -1, pan, lan, SOCBoardLargeAtServer.getLegalSeaEdges(gameData, -1)));
-            }
-
-            if (addedPsList)
-                lan[0] = null;  // Undo change to game's copy of landAreasLegalNodes
+            c.put(joinGame_getNewGamePotentialSettlementsCmd(gameData));
 
             if (gameData.isGameOptionSet(SOCGameOption.K_SC_CLVI))
                 c.put(SOCPlayerElement.toCmd
@@ -1121,7 +1108,7 @@ public class SOCGameHandler extends GameHandler
 
                 // Some boards may have multiple land areas.
                 // Note: Assumes all players have same legal nodes.
-                // See also above, and startGame which has very similar code.
+                // See also joinGame_getNewGamePotentialSettlementsCmd, and startGame which has very similar code.
                 final HashSet<Integer>[] lan;
                 final int pan;
                 if (gameData.hasSeaBoard && (i == 0))
@@ -1226,17 +1213,17 @@ public class SOCGameHandler extends GameHandler
 
         /**
          * If we're rejoining and taking over a seat after a network problem,
+         * or rejoining our seat in a game restored from a checkpoint,
          * send our resource and hand information.
+         * The server has already checked that we're that player:
+         * See SOCServer.checkNickname and checkRestoredSeat.
          */
-        if (isTakingOver)
+        final SOCPlayer cliPl = (isReset) ? null : gameData.getPlayer((String) c.getData());
+        if (cliPl != null)
         {
-            SOCPlayer cliPl = gameData.getPlayer((String) c.getData());
-            if (cliPl != null)
-            {
-                int pn = cliPl.getPlayerNumber();
-                if ((pn != -1) && ! gameData.isSeatVacant(pn))
-                    sitDown_sendPrivateInfo(gameData, c, pn);
-            }
+            int pn = cliPl.getPlayerNumber();
+            if ((pn != -1) && ! gameData.isSeatVacant(pn))
+                sitDown_sendPrivateInfo(gameData, c, pn);
         }
 
         String membersCommand = null;
@@ -1283,6 +1270,31 @@ public class SOCGameHandler extends GameHandler
                 srv.messageToPlayerKeyed
                     (c, gameName, "member.join.game.started");  // "This game has started; no new players can sit down."
         }
+
+        if (cliPl != null)
+        {
+            // If a human player is rejoining a restored game, bring back its robots
+            final boolean[] botSeats;
+            synchronized (restoredGameBotSeats)
+            {
+                botSeats = restoredGameBotSeats.remove(gameData);
+            }
+            if (botSeats != null)
+            {
+                srv.gameList.takeMonitorForGame(gameName);
+                try
+                {
+                    for (int pn = 0; pn < botSeats.length; ++pn)
+                        if (botSeats[pn] && gameData.isSeatVacant(pn))
+                            findRobotAskJoinGame(gameData, pn);
+                }
+                catch (Exception e)
+                {
+                    D.ebugPrintStackTrace(e, "Exception in joinGame (restored game robots)");
+                }
+                srv.gameList.releaseMonitorForGame(gameName);
+            }
+        }
     }
 
     /**
@@ -1590,139 +1602,194 @@ public class SOCGameHandler extends GameHandler
                  * just in case, check game-version vs robots-version,
                  * like at new-game (readyGameAskRobotsJoin).
                  */
-                foundNoRobots = false;
-
-                srv.messageToGameKeyed(ga, false, "member.bot.join.fetching");  // "Fetching a robot player..."
+                foundNoRobots = findRobotAskJoinGame(ga, playerNumber);
+            }  // if (should try to find a robot)
 
-                if (srv.robots.isEmpty())
-                {
-                    srv.messageToGameKeyed(ga, false, "member.bot.join.no.bots.server");
-                        // "No robot can join the game, there are no robots on this server."
-                    foundNoRobots = true;
-                }
-                else if (ga.getClientVersionMinRequired() > Version.versionNumber())
+            /**
+             * What to do if no robot was found to fill their spot?
+             * Must keep the game going, might need to force-end current turn.
+             */
+            if (foundNoRobots)
+            {
+                final boolean stillActive = endGameTurnOrForce(ga, playerNumber, plName, c, true);
+                if (! stillActive)
                 {
-                    srv.messageToGameKeyed
-                        (ga, false, "member.bot.join.interror.version", ga.getClientVersionMinRequired());
-                        // "Internal error: The robots can't join this game; game's version {0} is newer than the robots.
-                    foundNoRobots = true;
+                    // force game destruction below
+                    gameHasHumanPlayer = false;
+                    gameHasObserver = false;
                 }
-                else
+            }
+        }
+
+        return ! (gameHasHumanPlayer || gameHasObserver);
+    }
+
+    // javadoc inherited from GameHandler
+    public void gameRestored(final SOCGame ga)
+    {
+        ga.pendingMessagesOut = new ArrayList<Object>();
+        ga.setScenarioEventListener(this);  // not serialized in the checkpoint
+
+        boolean[] botSeats = null;
+        for (int pn = 0; pn < ga.maxPlayers; ++pn)
+        {
+            if (ga.isSeatVacant(pn))
+                continue;
+            final SOCPlayer pl = ga.getPlayer(pn);
+            if (! pl.isRobot())
+                continue;
+
+            if (botSeats == null)
+                botSeats = new boolean[ga.maxPlayers];
+            botSeats[pn] = true;
+            ga.removePlayer(pl.getName());
+        }
+
+        if (botSeats != null)
+        {
+            synchronized (restoredGameBotSeats)
+            {
+                restoredGameBotSeats.put(ga, botSeats);
+            }
+        }
+    }
+
+    /**
+     * Ask a robot to join a game and sit in a vacant seat, usually to replace a human player who has left.
+     * Announces "Fetching a robot player..." to the game, then asks the least-loaded robot
+     * which isn't already playing or requested in this game, and records the request
+     * in {@link SOCServer#robotJoinRequests}.
+     *<P>
+     * <B>Locks:</b> Has {@link SOCGameList#takeMonitorForGame(String) gameList.takeMonitorForGame(gm)}
+     * when calling this method; does not have {@link SOCGame#takeMonitor()}.
+     *<P>
+     * Before v2.0.00 this code was part of {@link #leaveGame(SOCGame, StringConnection)}.
+     *
+     * @param ga  Game to join
+     * @param playerNumber  Vacant seat number for the robot
+     * @return  true if no robot could be asked: There are no robots on the server,
+     *     the game's version is too new, or all robots are already playing or requested
+     * @since 2.0.00
+     */
+    private boolean findRobotAskJoinGame(final SOCGame ga, final int playerNumber)
+    {
+        final String gm = ga.getName();
+        boolean foundNoRobots = false;
+
+        srv.messageToGameKeyed(ga, false, "member.bot.join.fetching");  // "Fetching a robot player..."
+
+        if (srv.robots.isEmpty())
+        {
+            srv.messageToGameKeyed(ga, false, "member.bot.join.no.bots.server");
+                // "No robot can join the game, there are no robots on this server."
+            foundNoRobots = true;
+        }
+        else if (ga.getClientVersionMinRequired() > Version.versionNumber())
+        {
+            srv.messageToGameKeyed
+                (ga, false, "member.bot.join.interror.version", ga.getClientVersionMinRequired());
+                // "Internal error: The robots can't join this game; game's version {0} is newer than the robots.
+            foundNoRobots = true;
+        }
+        else
+        {
+            /**
+             * request a robot that isn't already playing this game or
+             * is not already requested to play in this game
+             */
+            boolean nameMatch = false;
+            StringConnection robotConn = null;
+
+            final int[] robotIndexes = srv.robotShuffleForJoin();  // Least-loaded first, to distribute load
+
+            Vector<StringConnection> requests = srv.robotJoinRequests.get(gm);
+
+            for (int idx = 0; idx < srv.robots.size(); idx++)
+            {
+                robotConn = srv.robots.get(robotIndexes[idx]);
+                nameMatch = false;
+
+                for (int i = 0; i < ga.maxPlayers; i++)
                 {
-                    /**
-                     * request a robot that isn't already playing this game or
-                     * is not already requested to play in this game
-                     */
-                    boolean nameMatch = false;
-                    StringConnection robotConn = null;
-
-                    final int[] robotIndexes = srv.robotShuffleForJoin();  // Shuffle to distribute load
-    
-                    Vector<StringConnection> requests = srv.robotJoinRequests.get(gm);
-    
-                    for (int idx = 0; idx < srv.robots.size(); idx++)
+                    SOCPlayer pl = ga.getPlayer(i);
+
+                    if (pl != null)
                     {
-                        robotConn = srv.robots.get(robotIndexes[idx]);
-                        nameMatch = false;
-    
-                        for (int i = 0; i < ga.maxPlayers; i++)
-                        {
-                            SOCPlayer pl = ga.getPlayer(i);
-    
-                            if (pl != null)
-                            {
-                                String pname = pl.getName();
-    
-                                // D.ebugPrintln("CHECKING " + (String) robotConn.getData() + " == " + pname);
-    
-                                if ((pname != null) && (pname.equals(robotConn.getData())))
-                                {
-                                    nameMatch = true;
-    
-                                    break;
-                                }
-                            }
-                        }
-    
-                        if ((!nameMatch) && (requests != null))
-                        {
-                            Enumeration<StringConnection> requestsEnum = requests.elements();
-    
-                            while (requestsEnum.hasMoreElements())
-                            {
-                                StringConnection tempCon = requestsEnum.nextElement();
-    
-                                // D.ebugPrintln("CHECKING " + robotConn + " == " + tempCon);
-    
-                                if (tempCon == robotConn)
-                                {
-                                    nameMatch = true;
-                                }
-    
-                                break;
-                            }
-                        }
-    
-                        if (!nameMatch)
+                        String pname = pl.getName();
+
+                        // D.ebugPrintln("CHECKING " + (String) robotConn.getData() + " == " + pname);
+
+                        if ((pname != null) && (pname.equals(robotConn.getData())))
                         {
+                            nameMatch = true;
+
                             break;
                         }
                     }
-    
-                    if (!nameMatch)
+                }
+
+                if ((!nameMatch) && (requests != null))
+                {
+                    Enumeration<StringConnection> requestsEnum = requests.elements();
+
+                    while (requestsEnum.hasMoreElements())
                     {
-                        /**
-                         * make the request
-                         */
-                        D.ebugPrintln("@@@ JOIN GAME REQUEST for " + (String) robotConn.getData());
+                        StringConnection tempCon = requestsEnum.nextElement();
 
-                        if (ga.getSeatLock(playerNumber) != SOCGame.SeatLockState.UNLOCKED)
-                        {
-                            // make sure bot can sit
-                            ga.setSeatLock(playerNumber, SOCGame.SeatLockState.UNLOCKED);
-                            srv.messageToGameWithMon(gm, new SOCSetSeatLock(gm, playerNumber, SOCGame.SeatLockState.UNLOCKED));
-                        }
-                        robotConn.put(SOCRobotJoinGameRequest.toCmd(gm, playerNumber, ga.getGameOptions()));
+                        // D.ebugPrintln("CHECKING " + robotConn + " == " + tempCon);
 
-                        /**
-                         * record the request
-                         */
-                        if (requests == null)
+                        if (tempCon == robotConn)
                         {
-                            requests = new Vector<StringConnection>();
-                            requests.addElement(robotConn);
-                            srv.robotJoinRequests.put(gm, requests);
+                            nameMatch = true;
                         }
-                        else
-                        {
-                            requests.addElement(robotConn);
-                        }
-                    }
-                    else
-                    {
-                        srv.messageToGameKeyed(ga, false, "member.bot.join.cantfind");  // "*** Can't find a robot! ***"
-                        foundNoRobots = true;
+
+                        break;
                     }
                 }
-            }  // if (should try to find a robot)
 
-            /**
-             * What to do if no robot was found to fill their spot?
-             * Must keep the game going, might need to force-end current turn.
-             */
-            if (foundNoRobots)
+                if (!nameMatch)
+                {
+                    break;
+                }
+            }
+
+            if (!nameMatch)
             {
-                final boolean stillActive = endGameTurnOrForce(ga, playerNumber, plName, c, true);
-                if (! stillActive)
+                /**
+                 * make the request
+                 */
+                D.ebugPrintln("@@@ JOIN GAME REQUEST for " + (String) robotConn.getData());
+
+                if (ga.getSeatLock(playerNumber) != SOCGame.SeatLockState.UNLOCKED)
                 {
-                    // force game destruction below
-                    gameHasHumanPlayer = false;
-                    gameHasObserver = false;
+                    // make sure bot can sit
+                    ga.setSeatLock(playerNumber, SOCGame.SeatLockState.UNLOCKED);
+                    srv.messageToGameWithMon(gm, new SOCSetSeatLock(gm, playerNumber, SOCGame.SeatLockState.UNLOCKED));
+                }
+                robotConn.put(SOCRobotJoinGameRequest.toCmd(gm, playerNumber, ga.getGameOptions()));
+
+                /**
+                 * record the request
+                 */
+                if (requests == null)
+                {
+                    requests = new Vector<StringConnection>();
+                    requests.addElement(robotConn);
+                    srv.robotJoinRequests.put(gm, requests);
                 }
+                else
+                {
+                    requests.addElement(robotConn);
+                }
+            }
+            else
+            {
+                srv.messageToGameKeyed(ga, false, "member.bot.join.cantfind");  // "*** Can't find a robot! ***"
+                foundNoRobots = true;
             }
         }
 
-        return ! (gameHasHumanPlayer || gameHasObserver);
+        return foundNoRobots;
     }
 
     /**
@@ -2412,7 +2479,12 @@ public class SOCGameHandler extends GameHandler
          */
 
         ga.setScenarioEventListener(this);  // for playerEvent, gameEvent callbacks (since 2.0.00)
-        ga.startGame();
+        srv.seedNewGame(ga);
+        final SOCBoardLayoutPool.Layout premade = srv.takeBoardLayout(ga);
+        if (premade != null)
+            ga.startGame(premade.board, premade.seed);
+        else
+            ga.startGame();
 
         final int[][] legalSeaEdges;  // used on sea board; if null, all are legal
         if (ga.hasSeaBoard)
@@ -2537,6 +2609,8 @@ public class SOCGameHandler extends GameHandler
 
         srv.gameList.releaseMonitorForGame(gaName);
 
+        srv.recordGameStart(ga);  // before the first SOCTurn event
+
         /**
          * send the game state
          */
@@ -2636,6 +2710,123 @@ public class SOCGameHandler extends GameHandler
         }
     }
 
+    /**
+     * Get the encoded {@link #getBoardLayoutMessage(SOCGame) board layout message} for this game,
+     * from the game's {@link JoinCache} if the board layout hasn't changed since it was cached.
+     * The layout message depends on the game's minimum client version, not the joining client's.
+     *
+     * @param ga  the game
+     * @return  the board layout message, from {@link SOCMessage#toCmd()}
+     * @throw IllegalArgumentException  if game board's encoding is unrecognized
+     * @see SOCBoard#getLayoutVersion()
+     * @since 2.0.00
+     */
+    private String getBoardLayoutCmd(final SOCGame ga)
+        throws IllegalArgumentException
+    {
+        final int layoutVers = ga.getBoard().getLayoutVersion(),
+                  cliVersMin = ga.getClientVersionMinRequired();
+        final JoinCache jc = getJoinCache(ga);
+
+        synchronized (jc)
+        {
+            if ((jc.layoutCmd == null) || (jc.layoutVersion != layoutVers) || (jc.layoutCliVersMin != cliVersMin))
+            {
+                // read version before encoding: if board changes meanwhile, next call re-encodes
+                jc.layoutCmd = getBoardLayoutMessage(ga).toCmd();
+                jc.layoutVersion = layoutVers;
+                jc.layoutCliVersMin = cliVersMin;
+            }
+
+            return jc.layoutCmd;
+        }
+    }
+
+    /**
+     * For {@link #joinGame(SOCGame, StringConnection, boolean, boolean)} before the game has started,
+     * get the {@link SOCPotentialSettlements} message for all players (player number -1), which is
+     * sent to clients at or above {@link SOCPotentialSettlements#VERSION_FOR_PLAYERNUM_ALL}.
+     * Cached in the game's {@link JoinCache} until the board layout changes.
+     *
+     * @param ga  the game, in state {@link SOCGame#NEW}
+     * @return  the potential settlements message, from {@link SOCPotentialSettlements#toCmd(String, int, Vector)}
+     *     or a similar {@code toCmd} method
+     * @since 2.0.00
+     */
+    private String joinGame_getNewGamePotentialSettlementsCmd(final SOCGame ga)
+    {
+        final int layoutVers = ga.getBoard().getLayoutVersion();
+        final JoinCache jc = getJoinCache(ga);
+
+        synchronized (jc)
+        {
+            if ((jc.potentialsCmd != null) && (jc.potentialsLayoutVersion == layoutVers))
+                return jc.potentialsCmd;
+
+            final String gaName = ga.getName();
+            final HashSet<Integer> psList = ga.getPlayer(0).getPotentialSettlements();
+
+            // Some boards may have multiple land areas.
+            // See also joinGame, and startGame which has very similar code.
+            final HashSet<Integer>[] lan;
+            final int pan;
+            boolean addedPsList = false;
+            if (ga.hasSeaBoard)
+            {
+                final SOCBoardLarge bl = (SOCBoardLarge) ga.getBoard();
+                lan = bl.getLandAreasLegalNodes();
+                pan = bl.getStartingLandArea();
+                if ((lan != null) && ! lan[pan].equals(psList))
+                {
+                    // If potentials != legals[startingLandArea], send as legals[0]
+                    lan[0] = psList;
+                    addedPsList = true;
+                }
+            } else {
+                lan = null;
+                pan = 0;
+            }
+
+            final String cmd;
+            if (lan == null)
+            {
+                cmd = SOCPotentialSettlements.toCmd(gaName, -1, new Vector<Integer>(psList));
+            } else {
+                cmd = SOCPotentialSettlements.toCmd
+                    (gaName, -1, pan, lan, SOCBoardLargeAtServer.getLegalSeaEdges(ga, -1));
+            }
+
+            if (addedPsList)
+                lan[0] = null;  // Undo change to game's copy of landAreasLegalNodes
+
+            jc.potentialsCmd = cmd;
+            jc.potentialsLayoutVersion = layoutVers;
+
+            return cmd;
+        }
+    }
+
+    /**
+     * Get or create this game's {@link JoinCache} in {@link #joinCaches}.
+     * @param ga  the game
+     * @return  the game's cache; synchronize on it when using its fields
+     * @since 2.0.00
+     */
+    private JoinCache getJoinCache(final SOCGame ga)
+    {
+        synchronized (joinCaches)
+        {
+            JoinCache jc = joinCaches.get(ga);
+            if (jc == null)
+            {
+                jc = new JoinCache();
+                joinCaches.put(ga, jc);
+            }
+
+            return jc;
+        }
+    }
+
     /**
      * handle "put piece" message.
      *<P>
@@ -3083,7 +3274,9 @@ public class SOCGameHandler extends GameHandler
                  * If a gold hex is rolled, sendGameState will also say who
                  * must pick resources to gain (in a GAMETEXTMSG).
                  */
-                srv.messageToGame(gn, new SOCDiceResult(gn, ga.getCurrentDice()));
+                final SOCDiceResult diceMessage = new SOCDiceResult(gn, ga.getCurrentDice());
+                srv.messageToGame(gn, diceMessage);
+                srv.recordGameEvent(gn, diceMessage.toCmd());
                 if (ga.clientVersionLowest < SOCGameTextMsg.VERSION_FOR_DICE_RESULT_INSTEAD)
                 {
                     // backwards-compat: this text message is redundant to v2.0.00 and newer clients
@@ -5273,6 +5466,7 @@ public class SOCGameHandler extends GameHandler
         {
             srv.gameList.takeMonitorForGame(gaName);
         }
+        srv.recordGameForceEndTurn(gaName, plNumber, plName);
         final int cpn = ga.getCurrentPlayerNumber();
         final int gameState = ga.getGameState();
 
@@ -5697,4 +5891,29 @@ public class SOCGameHandler extends GameHandler
         ga.pendingMessagesOut.add(new SOCSVPTextMessage(gaName, pl.getPlayerNumber(), svp, desc));
     }
 
+    /**
+     * One game's cached encoded messages for {@link SOCGameHandler#joinGame(SOCGame, StringConnection, boolean, boolean)},
+     * each valid while the board's {@link SOCBoard#getLayoutVersion()} is unchanged.
+     * Synchronize on the cache when using its fields.
+     * @see SOCGameHandler#getJoinCache(SOCGame)
+     * @since 2.0.00
+     */
+    private static class JoinCache
+    {
+        /** Encoded board layout message, or null if not yet cached */
+        public String layoutCmd;
+
+        /** Board layout version and game's minimum client version when {@link #layoutCmd} was encoded */
+        public int layoutVersion, layoutCliVersMin;
+
+        /**
+         * Encoded potential settlements message for all players, sent before the game starts;
+         * null if not yet cached
+         */
+        public String potentialsCmd;
+
+        /** Board layout version when {@link #potentialsCmd} was encoded */
+        public int potentialsLayoutVersion;
+    }
+
 }
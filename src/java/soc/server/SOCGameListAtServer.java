@@ -62,6 +62,15 @@ public class SOCGameListAtServer extends SOCGameList
     /** synchronized map of game names to Vector of game members ({@link StringConnection}s) */
     protected Hashtable<String, Vector<StringConnection>> gameMembers;
 
+    /**
+     * Synchronized map of each game member's connection to the names of the games it's a member of.
+     * The reverse of {@link #gameMembers} and updated along with it, so that finding a connection's
+     * games doesn't need to search every game's member list.
+     * @see #getMemberGameNames(StringConnection)
+     * @since 2.0.00
+     */
+    protected Hashtable<StringConnection, Vector<String>> memberGameNames;
+
     /**
      * constructor
      */
@@ -69,6 +78,7 @@ public class SOCGameListAtServer extends SOCGameList
     {
         super();
         gameMembers = new Hashtable<String, Vector<StringConnection>>();
+        memberGameNames = new Hashtable<StringConnection, Vector<String>>();
     }
 
     /**
@@ -152,6 +162,7 @@ public class SOCGameListAtServer extends SOCGameList
         {
             final boolean firstMember = members.isEmpty();
             members.addElement(conn);
+            addMemberGameName(conn, gaName);
 
             // Check version range
             SOCGame ga = getGameData(gaName);
@@ -208,6 +219,7 @@ public class SOCGameListAtServer extends SOCGameList
         if ((members != null))
         {
             members.removeElement(conn);
+            removeMemberGameName(conn, gaName);
 
             // Check version of remaining members
             if (! members.isEmpty())
@@ -251,7 +263,7 @@ public class SOCGameListAtServer extends SOCGameList
 
         System.err.println("L212: replaceMemberAllGames(" + oldConn + ", " + newConn + ")");  // JM TEMP
         final boolean sameVersion = (oldConn.getVersion() == newConn.getVersion());
-        for (String gaName : getGameNames())
+        for (String gaName : getMemberGameNames(oldConn))
         {
             Vector<StringConnection> members = gameMembers.get(gaName);
             if ((members != null) && members.contains(oldConn))
@@ -264,6 +276,8 @@ public class SOCGameListAtServer extends SOCGameList
                     else
                         System.err.println("   ** not found");
                     members.addElement(newConn);
+                    removeMemberGameName(oldConn, gaName);
+                    addMemberGameName(newConn, gaName);
                 } else {
                     removeMember(oldConn, gaName);
                     addMember(newConn, gaName);
@@ -272,6 +286,62 @@ public class SOCGameListAtServer extends SOCGameList
         }
     }
 
+    /**
+     * Get the names of the games this connection is a member of.
+     * Uses an index kept up to date by {@link #addMember(StringConnection, String)}
+     * and other methods which change game membership.
+     *
+     * @param c  Connection
+     * @return  a new Vector of game names, in no particular order;
+     *     0-length if {@code c} isn't a member of any game or is null
+     * @see #memberGames(StringConnection, String)
+     * @since 2.0.00
+     */
+    public synchronized Vector<String> getMemberGameNames(final StringConnection c)
+    {
+        final Vector<String> gaNames = (c != null) ? memberGameNames.get(c) : null;
+        if (gaNames == null)
+            return new Vector<String>();
+
+        return new Vector<String>(gaNames);
+    }
+
+    /**
+     * Add a game to a member connection's entry in {@link #memberGameNames}.
+     * @param conn  Member's connection
+     * @param gaName  Game name
+     * @since 2.0.00
+     */
+    private synchronized void addMemberGameName(final StringConnection conn, final String gaName)
+    {
+        Vector<String> gaNames = memberGameNames.get(conn);
+        if (gaNames == null)
+        {
+            gaNames = new Vector<String>();
+            memberGameNames.put(conn, gaNames);
+        }
+        if (! gaNames.contains(gaName))
+            gaNames.addElement(gaName);
+    }
+
+    /**
+     * Remove a game from a member connection's entry in {@link #memberGameNames},
+     * and remove the entry if that was its last game.
+     * @param conn  Member's connection
+     * @param gaName  Game name
+     * @since 2.0.00
+     */
+    private synchronized void removeMemberGameName(final StringConnection conn, final String gaName)
+    {
+        final Vector<String> gaNames = memberGameNames.get(conn);
+        if (gaNames == null)
+            return;
+
+        gaNames.removeElement(gaName);
+        if (gaNames.isEmpty())
+            memberGameNames.remove(conn);
+    }
+
     /**
      * create a new game, and add to the list; game will expire in {@link #GAME_EXPIRE_MINUTES} minutes.
      * If a game already exists (per {@link #isGame(String)}), do nothing.
@@ -318,6 +388,43 @@ public class SOCGameListAtServer extends SOCGameList
         return game;
     }
 
+    /**
+     * Add a game restored from a checkpoint file, as read by {@link SOCGameCheckpointer#readCheckpoint(java.io.File)}.
+     * The game has no members yet. Its expiration is extended if needed, to give its players
+     * at least 30 minutes to reconnect. Caller should then call {@link GameHandler#gameRestored(SOCGame)}.
+     *
+     * @param game  Restored game
+     * @param handler  Game type handler for this game
+     * @return  true if added, false if a game with the same name already exists
+     * @throws IllegalArgumentException if {@code handler} is null
+     * @see #createGame(String, String, String, Map, GameHandler)
+     * @since 2.0.00
+     */
+    public synchronized boolean addRestoredGame(final SOCGame game, final GameHandler handler)
+        throws IllegalArgumentException
+    {
+        final String gaName = game.getName();
+        if (isGame(gaName))
+            return false;
+        if (handler == null)
+            throw new IllegalArgumentException("handler");
+
+        // Same board factory check as createGame
+        if ((SOCGame.boardFactory == null) || ! (SOCGame.boardFactory instanceof SOCBoardLargeAtServer))
+            SOCGame.boardFactory = new SOCBoardLargeAtServer.BoardFactoryAtServer();
+
+        gameMembers.put(gaName, new Vector<StringConnection>());
+
+        final long minExpire = System.currentTimeMillis() + (60 * 1000 * 30);
+        if (game.getExpiration() < minExpire)
+            game.setExpiration(minExpire);
+
+        gameInfo.put(gaName, new GameInfoAtServer(game.getGameOptions(), handler));
+        gameData.put(gaName, game);
+
+        return true;
+    }
+
     /**
      * Reset the board of this game, create a new game of same name,
      * same players, new layout.  The new "reset" board takes the place
@@ -359,6 +466,11 @@ public class SOCGameListAtServer extends SOCGameList
             reset = new SOCGameBoardReset(oldGame, getMembers(gaName));
             SOCGame rgame = reset.newGame;
 
+            // SOCGameBoardReset removed the robots from the member list
+            for (int pn = 0; pn < reset.robotConns.length; ++pn)
+                if (reset.wasRobot[pn] && (reset.robotConns[pn] != null))
+                    removeMemberGameName(reset.robotConns[pn], gaName);
+
             // As in createGame, set expiration timer to 90 min. from now
             rgame.setExpiration(new Date().getTime() + (60 * 1000 * GAME_EXPIRE_MINUTES));
 
@@ -397,6 +509,8 @@ public class SOCGameListAtServer extends SOCGameList
         Vector<StringConnection> members = gameMembers.get(gaName);
         if (members != null)
         {
+            for (StringConnection c : members)
+                removeMemberGameName(c, gaName);
             members.removeAllElements();
         }
     }
@@ -408,6 +522,7 @@ public class SOCGameListAtServer extends SOCGameList
      *<P>
      * This method helps determine if a client's connection can be
      * "taken over" after a network problem.  It synchronizes on <tt>gameData</tt>.
+     * Looks only at the player's games, from {@link #getMemberGameNames(StringConnection)}.
      *
      * @param  plConn   the previous connection of the player, which might be taken over
      * @return Minimum version, in same format as {@link SOCGame#getClientVersionMinRequired()},
@@ -417,13 +532,14 @@ public class SOCGameListAtServer extends SOCGameList
     public int playerGamesMinVersion(StringConnection plConn)
     {
         int minVers = 0;
+        final Vector<String> gaNames = getMemberGameNames(plConn);
 
         synchronized(gameData)
         {
-            for (SOCGame ga : getGamesData())
+            for (String gaName : gaNames)
             {
-                Vector<StringConnection> members = getMembers(ga.getName());
-                if ((members == null) || ! members.contains(plConn))
+                SOCGame ga = getGameData(gaName);
+                if (ga == null)
                     continue;
 
                 // plConn is a member of this game.
@@ -446,35 +562,30 @@ public class SOCGameListAtServer extends SOCGameList
      *           or a 0-length Vector, if member isn't in any game.
      *
      * @see #replaceMemberAllGames(StringConnection, StringConnection)
+     * @see #getMemberGameNames(StringConnection)
      * @since 1.1.08
      */
     public Vector<SOCGame> memberGames(StringConnection c, final String firstGameName)
     {
         Vector<SOCGame> cGames = new Vector<SOCGame>();
+        final Vector<String> gaNames = getMemberGameNames(c);
+        if (gaNames.isEmpty())
+            return cGames;
 
         synchronized(gameData)
         {
-            SOCGame firstGame = null;
-            if (firstGameName != null)
+            if ((firstGameName != null) && gaNames.remove(firstGameName))
             {
-                firstGame = getGameData(firstGameName);
+                SOCGame firstGame = getGameData(firstGameName);
                 if (firstGame != null)
-                {
-                    Vector<?> members = getMembers(firstGameName);
-                    if ((members != null) && members.contains(c))
-                        cGames.addElement(firstGame);
-                }
+                    cGames.addElement(firstGame);
             }
 
-            for (SOCGame ga : getGamesData())
+            for (String gaName : gaNames)
             {
-                if (ga == firstGame)
-                    continue;
-                Vector<?> members = getMembers(ga.getName());
-                if ((members == null) || ! members.contains(c))
-                    continue;
-
-                cGames.addElement(ga);
+                SOCGame ga = getGameData(gaName);
+                if (ga != null)
+                    cGames.addElement(ga);
             }
         }
 
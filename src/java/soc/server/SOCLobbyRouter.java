@@ -0,0 +1,1319 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2013 JSettlers contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.server;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TimerTask;
+import java.util.Vector;
+
+import soc.game.SOCGameOption;
+import soc.game.SOCVersionedItem;
+import soc.message.SOCDeleteGame;
+import soc.message.SOCGames;
+import soc.message.SOCGamesWithOptions;
+import soc.message.SOCJoin;
+import soc.message.SOCJoinGame;
+import soc.message.SOCMessage;
+import soc.message.SOCMessageForGame;
+import soc.message.SOCMessageTemplateJoinGame;
+import soc.message.SOCNewGame;
+import soc.message.SOCNewGameWithOptions;
+import soc.message.SOCNewGameWithOptionsRequest;
+import soc.message.SOCRejectConnection;
+import soc.message.SOCStatusMessage;
+import soc.message.SOCVersion;
+import soc.server.genericServer.LocalStringConnection;
+import soc.server.genericServer.LocalStringServerSocket;
+import soc.server.genericServer.Server;
+import soc.server.genericServer.StringConnection;
+import soc.util.SOCGameList;
+import soc.util.Version;
+
+/**
+ * Lobby router for running several server nodes, each an ordinary {@link SOCServer}
+ * hosting its own set of games, behind one address.  Clients connect to the router
+ * as if it were a server; it shows them the games of all nodes as one list, places each
+ * new game on the node with the fewest games, and forwards each client's game messages
+ * to the node hosting that game.  Each node runs its own robots.
+ *<P>
+ * Nodes need no changes: The router talks to them with the same messages and
+ * {@link StringConnection} framing that clients use.  For each node it keeps a "monitor" link,
+ * which learns the node's games from its game list and its {@link SOCNewGameWithOptions} and
+ * {@link SOCDeleteGame} announcements.  For each client, it opens a link to each node as needed,
+ * replays the client's {@link SOCVersion} there, and relays everything the node sends to the client
+ * except the node's own game-list messages; the router sends those from its aggregated list instead.
+ *<P>
+ * The first node is the client's "home" node, connected as soon as the client arrives: It
+ * answers the client's lobby messages, and hosts all chat channels and account requests.
+ * The client's nickname is claimed at the router when it first joins a game or channel, so that
+ * a nickname can't be used on two nodes by different clients; the claim is released if the node
+ * rejects the nickname or password.  Once accepted, the client's password is replayed
+ * to any node it joins later.  If a client's link to any node is lost, the client is disconnected.
+ * If a node's monitor link is lost, its games are removed from the list until it's back.
+ *<P>
+ * A node is named by its TCP <tt>host:port</tt>, or, for testing, by the name of a
+ * {@link LocalStringServerSocket} in the router's JVM; {@link LobbyRouterBenchmark} tests the router that way.
+ *<P>
+ * Usage: <tt>java soc.server.SOCLobbyRouter port nodehost:nodeport [nodehost:nodeport ...]</tt>
+ *
+ * @since 2.0.00
+ */
+public class SOCLobbyRouter extends Server
+{
+    private static final long serialVersionUID = 2000L;
+
+    /** Seconds between attempts to reconnect to a node whose monitor link was lost */
+    public static final int NODE_RECONNECT_SECONDS = 10;
+
+    /** Milliseconds to wait for a TCP connection to a node */
+    private static final int NODE_CONNECT_TIMEOUT_MS = 5000;
+
+    /**
+     * Milliseconds to keep a new game's placement before its node announces the game.
+     * If the node doesn't create it (bad options, for example), the placement is dropped after this.
+     */
+    private static final int PLACEMENT_PENDING_MS = 60 * 1000;
+
+    /** Status text when no node is available for a client */
+    private static final String MSG_NO_NODE = "No game server is available, please try again later.";
+
+    /** The nodes; the first is the home node for every client */
+    private final Node[] nodes;
+
+    /**
+     * Each game's placement, by game name, including new games not yet announced by their node.
+     * Synchronize on this map to use it or any {@link Node#gameCount}.
+     */
+    private final HashMap<String, GamePlacement> games = new HashMap<String, GamePlacement>();
+
+    /** Each nickname claimed by a client, with that client's session. Synchronize on this map to use it. */
+    private final HashMap<String, ClientSession> nicknames = new HashMap<String, ClientSession>();
+
+    /** Set by {@link #stopServer()}, so lost links aren't reconnected */
+    private volatile boolean stopping;
+
+    /**
+     * Create a router listening on a TCP port. Call {@link #start()} to start it.
+     * @param port  TCP port to listen on
+     * @param nodeAddrs  Each node's <tt>host:port</tt>, or the name of a {@link LocalStringServerSocket}
+     *     in this JVM; at least 1.  The first node is the home node.
+     * @throws IllegalArgumentException if <tt>nodeAddrs</tt> is empty or any address is malformed
+     */
+    public SOCLobbyRouter(final int port, final String[] nodeAddrs)
+        throws IllegalArgumentException
+    {
+        this(port, parseNodes(nodeAddrs));
+    }
+
+    /**
+     * Create a router listening on a {@link LocalStringServerSocket}, for testing in one JVM.
+     * Call {@link #start()} to start it.
+     * @param stringSocketName  Name of the local string socket to listen on
+     * @param nodeAddrs  Each node's <tt>host:port</tt> or local string socket name; see
+     *     {@link #SOCLobbyRouter(int, String[])}
+     * @throws IllegalArgumentException if <tt>nodeAddrs</tt> is empty or any address is malformed
+     */
+    public SOCLobbyRouter(final String stringSocketName, final String[] nodeAddrs)
+        throws IllegalArgumentException
+    {
+        this(stringSocketName, parseNodes(nodeAddrs));
+    }
+
+    private SOCLobbyRouter(final int port, final Node[] nodes)
+    {
+        super(port);
+        this.nodes = nodes;
+    }
+
+    private SOCLobbyRouter(final String stringSocketName, final Node[] nodes)
+    {
+        super(stringSocketName);
+        this.nodes = nodes;
+    }
+
+    /**
+     * Parse the node addresses given to the constructor.
+     * @param nodeAddrs  Node addresses
+     * @return  Nodes, in the same order
+     * @throws IllegalArgumentException if <tt>nodeAddrs</tt> is null or empty, or any address is malformed
+     */
+    private static Node[] parseNodes(final String[] nodeAddrs)
+        throws IllegalArgumentException
+    {
+        if ((nodeAddrs == null) || (nodeAddrs.length == 0))
+            throw new IllegalArgumentException("no nodes");
+
+        final Node[] nl = new Node[nodeAddrs.length];
+        for (int i = 0; i < nodeAddrs.length; ++i)
+        {
+            final String addr = nodeAddrs[i];
+            if ((addr == null) || (addr.length() == 0))
+                throw new IllegalArgumentException("node " + i);
+
+            final int colon = addr.lastIndexOf(':');
+            if (colon == -1)
+            {
+                nl[i] = new Node(i, null, -1, addr);
+            } else {
+                final int port;
+                try
+                {
+                    port = Integer.parseInt(addr.substring(colon + 1));
+                }
+                catch (NumberFormatException e)
+                {
+                    throw new IllegalArgumentException("node port: " + addr);
+                }
+                if ((colon == 0) || (port <= 0) || (port > 65535))
+                    throw new IllegalArgumentException("node address: " + addr);
+
+                nl[i] = new Node(i, addr.substring(0, colon), port, null);
+            }
+        }
+
+        return nl;
+    }
+
+    /**
+     * Connect the monitor link to each node, now that we're listening for clients.
+     */
+    @Override
+    protected void serverUp()
+    {
+        for (Node node : nodes)
+            connectMonitor(node);
+    }
+
+    /**
+     * Stop the router: Close the monitor links, then disconnect all clients, which closes their links to nodes.
+     */
+    @Override
+    public synchronized void stopServer()
+    {
+        stopping = true;
+        for (Node node : nodes)
+        {
+            final NodeLink mon = node.monitor;
+            if (mon != null)
+                mon.close();
+        }
+
+        super.stopServer();
+    }
+
+    /**
+     * Accept a new client; its version isn't known until it sends {@link SOCVersion}.
+     */
+    @Override
+    protected boolean newConnection1(StringConnection c)
+    {
+        c.setVersion(-1);
+        return true;
+    }
+
+    /**
+     * Set up the new client's session, and connect it to its home node.
+     * The home node's welcome messages are relayed to the client.
+     * If the home node can't be reached, {@link #linkClosed(NodeLink)} will reject the client.
+     */
+    @Override
+    protected void newConnection2(StringConnection c)
+    {
+        final ClientSession sess = new ClientSession(c, nodes.length);
+        c.setAppData(sess);
+
+        getLink(sess, nodes[0]);
+    }
+
+    /**
+     * A client has left: Close its links to nodes, so it leaves its games there, and release its nickname.
+     */
+    @Override
+    protected void leaveConnection(StringConnection c)
+    {
+        final ClientSession sess = (ClientSession) c.getAppData();
+        if (sess == null)
+            return;
+
+        final NodeLink[] links;
+        synchronized (sess)
+        {
+            sess.closed = true;
+            links = sess.links.clone();
+        }
+        for (NodeLink link : links)
+            if (link != null)
+                link.close();
+
+        synchronized (nicknames)
+        {
+            if ((sess.nickname != null) && (nicknames.get(sess.nickname) == sess))
+                nicknames.remove(sess.nickname);
+        }
+    }
+
+    /**
+     * Forward a message from a client to the node which should treat it:
+     * The node hosting its game, or for a new game the node with the fewest games,
+     * or for anything else the client's home node.
+     * Called from the treater thread; doesn't block, because each {@link NodeLink}
+     * connects and sends from its own thread.
+     */
+    @Override
+    public void processCommand(String str, StringConnection c)
+    {
+        final ClientSession sess = (ClientSession) c.getAppData();
+        if ((sess == null) || sess.closed)
+            return;
+
+        final SOCMessage mes = SOCMessage.toMsg(str);
+        if (mes == null)
+            return;  // unparseable; the node would ignore it too
+
+        Node node = nodes[0];  // channels, accounts, and anything else not for a game go to the home node
+        NodeLink link = null;
+        switch (mes.getType())
+        {
+        case SOCMessage.VERSION:
+            sess.versionMsg = str;
+            c.setVersion(((SOCVersion) mes).getVersionNumber());
+            sendToAllLinks(sess, str);
+            return;
+
+        case SOCMessage.LEAVEALL:
+            sendToAllLinks(sess, str);
+            return;
+
+        case SOCMessage.JOIN:
+            {
+                final SOCJoin jm = (SOCJoin) mes;
+                if (! claimNickname(sess, jm.getNickname(), jm.getPassword()))
+                    return;
+
+                link = getLink(sess, node);
+                if ((link != null) && ! link.joined)
+                {
+                    link.joined = true;
+                    if ((jm.getPassword().length() == 0) && (sess.password != null))
+                        str = SOCJoin.toCmd(jm.getNickname(), sess.password, jm.getHost(), jm.getChannel());
+                }
+            }
+            break;
+
+        case SOCMessage.JOINGAME:
+        case SOCMessage.NEWGAMEWITHOPTIONSREQUEST:
+            {
+                final SOCMessageTemplateJoinGame jm = (SOCMessageTemplateJoinGame) mes;
+                if (! claimNickname(sess, jm.getNickname(), jm.getPassword()))
+                    return;
+
+                node = placeGame(jm.getGame(), true);
+                if (node == null)
+                {
+                    c.put(SOCStatusMessage.toCmd(SOCStatusMessage.SV_NOT_OK_GENERIC, c.getVersion(), MSG_NO_NODE));
+                    return;
+                }
+
+                link = getLink(sess, node);
+                if ((link != null) && ! link.joined)
+                {
+                    // First join at this node: It needs the password, which the client sends only once
+                    link.joined = true;
+                    if ((jm.getPassword().length() == 0) && (sess.password != null))
+                    {
+                        if (mes instanceof SOCNewGameWithOptionsRequest)
+                            str = SOCNewGameWithOptionsRequest.toCmd
+                                (jm.getNickname(), sess.password, jm.getHost(), jm.getGame(),
+                                 ((SOCNewGameWithOptionsRequest) mes).getOptions());
+                        else
+                            str = SOCJoinGame.toCmd(jm.getNickname(), sess.password, jm.getHost(), jm.getGame());
+                    }
+                }
+            }
+            break;
+
+        default:
+            if (mes instanceof SOCMessageForGame)
+            {
+                final String gaName = ((SOCMessageForGame) mes).getGame();
+                if (gaName != null)
+                {
+                    final Node gaNode = placeGame(gaName, false);
+                    if (gaNode != null)
+                        node = gaNode;
+                }
+            }
+        }
+
+        if (link == null)
+            link = getLink(sess, node);
+        if (link != null)
+            link.put(str);
+    }
+
+    /**
+     * Claim a nickname for this client, unless another client has it.
+     * If the client has already been authenticated by a node, it can't change its nickname.
+     * If claimed, remember a non-empty password to replay at other nodes.
+     * Until a node accepts the nickname, the claim is only held while waiting for the node's reply;
+     * see {@link #releaseNickname(ClientSession)}.
+     * @param sess  Client's session
+     * @param nn  Nickname from the client's join request
+     * @param pw  Password from the join request, or ""
+     * @return  true if claimed; false if not, after sending the client a status message
+     */
+    private boolean claimNickname(final ClientSession sess, final String nn, final String pw)
+    {
+        synchronized (nicknames)
+        {
+            final ClientSession other = nicknames.get(nn);
+            if ((other != null) && (other != sess))
+            {
+                sess.conn.put(SOCStatusMessage.toCmd
+                    (SOCStatusMessage.SV_NAME_IN_USE, sess.conn.getVersion(), SOCServer.MSG_NICKNAME_ALREADY_IN_USE));
+                return false;
+            }
+
+            if ((sess.nickname != null) && ! sess.nickname.equals(nn))
+            {
+                if (sess.nameConfirmed)
+                {
+                    sess.conn.put(SOCStatusMessage.toCmd
+                        (SOCStatusMessage.SV_NOT_OK_GENERIC, sess.conn.getVersion(),
+                         "Already logged in as " + sess.nickname));
+                    return false;
+                }
+
+                nicknames.remove(sess.nickname);  // earlier attempt, not authenticated by any node
+            }
+
+            nicknames.put(nn, sess);
+            sess.nickname = nn;
+        }
+
+        if ((pw != null) && (pw.length() > 0))
+            sess.password = pw;
+
+        return true;
+    }
+
+    /**
+     * Release the client's nickname claim after a node has rejected its nickname or password,
+     * so another client can try that name, and forget the password since it may be the wrong one.
+     * Does nothing once a node has accepted the nickname.
+     * @param sess  Client's session
+     */
+    private void releaseNickname(final ClientSession sess)
+    {
+        synchronized (nicknames)
+        {
+            if (sess.nameConfirmed || (sess.nickname == null))
+                return;
+
+            if (nicknames.get(sess.nickname) == sess)
+                nicknames.remove(sess.nickname);
+            sess.nickname = null;
+        }
+
+        sess.password = null;
+    }
+
+    /**
+     * Find the node hosting a game, or place a new game on the node with the fewest games.
+     * @param gaName  Game name
+     * @param create  If true and the game isn't known, place it as a new game
+     * @return  The game's node, or null if not known and not <tt>create</tt>,
+     *     or if no node is connected to place it on
+     */
+    private Node placeGame(final String gaName, final boolean create)
+    {
+        synchronized (games)
+        {
+            GamePlacement gp = games.get(gaName);
+            if ((gp != null) && gp.pending && (System.currentTimeMillis() - gp.placedAt > PLACEMENT_PENDING_MS))
+            {
+                // node didn't create it
+                games.remove(gaName);
+                --gp.node.gameCount;
+                gp = null;
+            }
+            if (gp != null)
+                return gp.node;
+            if (! create)
+                return null;
+
+            Node best = null;
+            for (Node n : nodes)
+                if ((n.monitor != null) && ((best == null) || (n.gameCount < best.gameCount)))
+                    best = n;
+            if (best == null)
+                return null;
+
+            games.put(gaName, new GamePlacement(best, true, null, -1));
+            ++best.gameCount;
+
+            return best;
+        }
+    }
+
+    /**
+     * Get the client's link to a node, or start a new one and queue the client's {@link SOCVersion} to replay there.
+     * Doesn't wait for a new link to connect; messages are queued until it does.
+     * @param sess  Client's session
+     * @param node  Node to link to
+     * @return  The link, or null if the client has left
+     */
+    private NodeLink getLink(final ClientSession sess, final Node node)
+    {
+        NodeLink link;
+        synchronized (sess)
+        {
+            if (sess.closed)
+                return null;
+
+            link = sess.links[node.index];
+            if (link != null)
+                return link;
+
+            link = new NodeLink(node, sess);
+            sess.links[node.index] = link;
+        }
+
+        if (sess.versionMsg != null)
+            link.put(sess.versionMsg);
+        link.open();
+
+        return link;
+    }
+
+    /**
+     * Send a message to each node the client is linked to.
+     * @param sess  Client's session
+     * @param str  Message from the client
+     */
+    private void sendToAllLinks(final ClientSession sess, final String str)
+    {
+        final NodeLink[] links;
+        synchronized (sess)
+        {
+            links = sess.links.clone();
+        }
+        for (NodeLink link : links)
+            if (link != null)
+                link.put(str);
+    }
+
+    /**
+     * Relay a message from a node to the client whose link it came on.
+     * Game-list messages aren't relayed: The router sends its aggregated list in place of the
+     * home node's list, and announces new and deleted games from the monitor links.
+     * Only the home node's welcome and channel messages are relayed.
+     * A game created by this client is added to the list before relaying anything after its announcement,
+     * since the node may send the client's join reply before announcing the game on the monitor link.
+     * If the node rejects the client's nickname or password, the client's nickname claim is released.
+     * Called from the link's reader thread.
+     * @param link  Client's link to a node
+     * @param str  Message from the node
+     */
+    private void treatFromNode(final NodeLink link, final String str)
+    {
+        final ClientSession sess = link.session;
+        if (sess.closed)
+            return;
+
+        final boolean isHome = (link.node == nodes[0]);
+        final int mtype = getMessageType(str);
+        switch (mtype)
+        {
+        case SOCMessage.GAMES:
+        case SOCMessage.GAMESWITHOPTIONS:
+            if (isHome)
+                sess.conn.put(getGameListMessage(sess.conn.getVersion(), (mtype == SOCMessage.GAMESWITHOPTIONS)));
+            return;
+
+        case SOCMessage.NEWGAME:
+        case SOCMessage.NEWGAMEWITHOPTIONS:
+            addGameFromNode(link.node, SOCMessage.toMsg(str));  // ignored if already listed
+            return;
+
+        case SOCMessage.DELETEGAME:
+            return;
+
+        case SOCMessage.VERSION:
+        case SOCMessage.CHANNELS:
+        case SOCMessage.NEWCHANNEL:
+        case SOCMessage.DELETECHANNEL:
+            if (! isHome)
+                return;
+            break;
+
+        case SOCMessage.JOINAUTH:
+        case SOCMessage.JOINGAMEAUTH:
+            sess.nameConfirmed = true;
+            break;
+
+        case SOCMessage.STATUSMESSAGE:
+            {
+                final SOCMessage mes = SOCMessage.toMsg(str);
+                if (mes instanceof SOCStatusMessage)
+                {
+                    final int sv = ((SOCStatusMessage) mes).getStatusValue();
+                    if ((sv == SOCStatusMessage.SV_PW_WRONG) || (sv == SOCStatusMessage.SV_NAME_NOT_FOUND)
+                        || (sv == SOCStatusMessage.SV_NAME_IN_USE))
+                    {
+                        releaseNickname(sess);
+                        link.joined = false;  // resend the password with the client's next try
+                    }
+                }
+            }
+            break;
+        }
+
+        sess.conn.put(str);
+    }
+
+    /**
+     * Track a node's games from a message on its monitor link.
+     * Called from the link's reader thread.
+     * @param node  Node which sent the message
+     * @param str  Message from the node
+     */
+    private void treatFromMonitor(final Node node, final String str)
+    {
+        final SOCMessage mes = SOCMessage.toMsg(str);
+        if (mes == null)
+            return;
+
+        switch (mes.getType())
+        {
+        case SOCMessage.GAMESWITHOPTIONS:
+            {
+                final SOCGameList gl = ((SOCGamesWithOptions) mes).getGameList();
+                for (String gaName : gl.getGameNames())
+                    addGame(node, gaName, gl.getGameOptionsString(gaName), -1);
+            }
+            break;
+
+        case SOCMessage.NEWGAME:
+        case SOCMessage.NEWGAMEWITHOPTIONS:
+            addGameFromNode(node, mes);
+            break;
+
+        case SOCMessage.DELETEGAME:
+            removeGame(node, ((SOCDeleteGame) mes).getGame());
+            break;
+        }
+    }
+
+    /**
+     * Add a game announced by a node's {@link SOCNewGame} or {@link SOCNewGameWithOptions},
+     * from its monitor link or a client's link; see {@link #addGame(Node, String, String, int)}.
+     * @param node  Node which sent the message
+     * @param mes  Message from the node, or null if it couldn't be parsed
+     */
+    private void addGameFromNode(final Node node, final SOCMessage mes)
+    {
+        if (mes instanceof SOCNewGameWithOptions)
+        {
+            final SOCNewGameWithOptions ngm = (SOCNewGameWithOptions) mes;
+            addGame(node, ngm.getGame(), ngm.getOptionsString(), ngm.getMinVersion());
+        }
+        else if (mes instanceof SOCNewGame)
+        {
+            // node sends this simpler form for a game with no options
+            String gaName = ((SOCNewGame) mes).getGame();
+            if ((gaName.length() > 0) && (gaName.charAt(0) == SOCGames.MARKER_THIS_GAME_UNJOINABLE))
+                gaName = gaName.substring(1);
+            addGame(node, gaName, null, -1);
+        }
+    }
+
+    /**
+     * A node has announced a game: Add it to the list, confirming its placement if pending,
+     * and announce it to all clients.
+     * @param node  Node hosting the game
+     * @param gaName  Game name
+     * @param opts  Game options, as packed by {@link SOCGameOption#packOptionsToString(Map, boolean)}, or null
+     * @param minVers  Minimum client version to join, or -1 to find it from <tt>opts</tt>
+     */
+    private void addGame(final Node node, final String gaName, String opts, int minVers)
+    {
+        if ((opts != null) && opts.startsWith(SOCMessage.sep2))
+            opts = opts.substring(1);  // from NEWGAMEWITHOPTIONS parsing
+        if ((opts != null) && (opts.equals("-") || (opts.length() == 0)))
+            opts = null;
+        if ((minVers < 0) && (opts != null))
+        {
+            final Map<String, SOCGameOption> om = SOCGameOption.parseOptionsToMap(opts);
+            if (om != null)
+                minVers = SOCVersionedItem.itemsMinimumVersion(om);
+        }
+
+        final GamePlacement gp = new GamePlacement(node, false, opts, minVers);
+        synchronized (games)
+        {
+            final GamePlacement old = games.get(gaName);
+            if (old != null)
+            {
+                if (! old.pending)
+                {
+                    if (old.node != node)
+                        System.err.println
+                            ("Router: Game " + gaName + " is on nodes " + old.node + " and " + node + "; using " + old.node);
+                    return;  // already listed
+                }
+
+                --old.node.gameCount;
+            }
+
+            games.put(gaName, gp);
+            ++node.gameCount;
+        }
+
+        final List<StringConnection> cl = new ArrayList<StringConnection>();
+        synchronized (unnamedConns)
+        {
+            cl.addAll(unnamedConns);
+            cl.addAll(conns.values());
+        }
+        for (StringConnection c : cl)
+        {
+            final String m = getNewGameMessage(gaName, gp, c.getVersion());
+            if (m != null)
+                c.put(m);
+        }
+    }
+
+    /**
+     * A node has deleted a game: Remove it from the list, and announce that to all clients.
+     * @param node  Node which hosted the game
+     * @param gaName  Game name
+     */
+    private void removeGame(final Node node, final String gaName)
+    {
+        synchronized (games)
+        {
+            final GamePlacement gp = games.get(gaName);
+            if ((gp == null) || (gp.node != node))
+                return;
+
+            games.remove(gaName);
+            --node.gameCount;
+            if (gp.pending)
+                return;  // was never announced
+        }
+
+        broadcast(SOCDeleteGame.toCmd(gaName));
+    }
+
+    /**
+     * Build the message announcing a game to one client, based on the client's version.
+     * Follows the same rules as the server's own game announcements.
+     * @param gaName  Game name
+     * @param gp  Game's placement, with its options and minimum version
+     * @param cliVers  Client's version, or -1 if not known
+     * @return  The message, or null if this client shouldn't be told about the game
+     */
+    private String getNewGameMessage(final String gaName, final GamePlacement gp, final int cliVers)
+    {
+        if (cliVers >= SOCNewGameWithOptions.VERSION_FOR_NEWGAMEWITHOPTIONS)
+            return SOCNewGameWithOptions.toCmd(gaName, getOptionsForVersion(gp.opts, cliVers), gp.minVers);
+        else if (cliVers >= gp.minVers)
+            return SOCNewGame.toCmd(gaName);
+        else if (cliVers >= SOCGames.VERSION_FOR_UNJOINABLE)
+            return SOCNewGame.toCmd(SOCGames.MARKER_THIS_GAME_UNJOINABLE + gaName);
+        else
+            return null;
+    }
+
+    /**
+     * Build the full list of games on all nodes for a client, to send in place of its home node's list.
+     * @param cliVers  Client's version, or -1 if not known
+     * @param withOptions  If true, build {@link SOCGamesWithOptions}, otherwise {@link SOCGames}
+     * @return  The message
+     */
+    private String getGameListMessage(final int cliVers, final boolean withOptions)
+    {
+        final StringBuilder sb = new StringBuilder(Integer.toString(SOCMessage.GAMESWITHOPTIONS));
+        final Vector<String> gl = new Vector<String>();
+        synchronized (games)
+        {
+            for (Map.Entry<String, GamePlacement> e : games.entrySet())
+            {
+                final GamePlacement gp = e.getValue();
+                if (gp.pending)
+                    continue;
+
+                String gaName = e.getKey();
+                final boolean canJoin = (cliVers >= gp.minVers);
+                if (! canJoin)
+                {
+                    if (cliVers < SOCGames.VERSION_FOR_UNJOINABLE)
+                        continue;
+                    gaName = SOCGames.MARKER_THIS_GAME_UNJOINABLE + gaName;
+                }
+
+                if (withOptions)
+                {
+                    // same format as SOCGamesWithOptions.toCmd
+                    final String opts = (canJoin) ? getOptionsForVersion(gp.opts, cliVers) : null;
+                    sb.append(SOCMessage.sep).append(gaName)
+                      .append(SOCMessage.sep).append((opts != null) ? opts : "-");
+                } else {
+                    gl.addElement(gaName);
+                }
+            }
+        }
+
+        return (withOptions) ? sb.toString() : SOCGames.toCmd(gl);
+    }
+
+    /**
+     * Adjust a game's options for an older client, as the node would.
+     * @param opts  Options packed at our version, or null
+     * @param cliVers  Client's version
+     * @return  Options packed for <tt>cliVers</tt>, or null
+     */
+    private static String getOptionsForVersion(final String opts, final int cliVers)
+    {
+        if ((opts == null) || (cliVers >= Version.versionNumber()))
+            return opts;
+
+        final Map<String, SOCGameOption> om = SOCGameOption.parseOptionsToMap(opts);
+        return (om != null) ? SOCGameOption.packOptionsToString(om, false, cliVers) : opts;
+    }
+
+    /**
+     * Start connecting the router's monitor link to a node, to track its games.
+     * Once connected, {@link #monitorConnected(NodeLink)} is called.
+     * If it can't connect, {@link #linkClosed(NodeLink)} tries again later.
+     * @param node  Node to connect to
+     */
+    private void connectMonitor(final Node node)
+    {
+        if (stopping)
+            return;
+
+        final NodeLink link = new NodeLink(node, null);
+        link.put(SOCVersion.toCmd(Version.versionNumber(), Version.version(), Version.buildnum(), null));
+        link.open();
+    }
+
+    /**
+     * A node's monitor link has connected: Use it, so new games can be placed on that node.
+     * Called from the link's putter thread, before its reader thread starts.
+     * @param link  The node's new monitor link
+     */
+    private void monitorConnected(final NodeLink link)
+    {
+        if (stopping)
+        {
+            link.close();
+            return;
+        }
+
+        link.node.monitor = link;
+        System.err.println("Router: Connected to node " + link.node);
+    }
+
+    /**
+     * Call {@link #connectMonitor(Node)} after {@link #NODE_RECONNECT_SECONDS}.
+     * @param node  Node to connect to
+     */
+    private void scheduleConnectMonitor(final Node node)
+    {
+        utilTimer.schedule(new TimerTask()
+        {
+            public void run()
+            {
+                connectMonitor(node);
+            }
+        }, NODE_RECONNECT_SECONDS * 1000L);
+    }
+
+    /**
+     * A link to a node has been closed or lost, or couldn't connect.
+     * For a monitor link, remove the node's games and reconnect after {@link #NODE_RECONNECT_SECONDS}.
+     * For a client's link, disconnect the client unless it's already leaving.  If the link couldn't connect,
+     * reject the client if that was its home node, otherwise tell the client and leave it connected.
+     * Called from the link's reader thread, or its putter thread if it couldn't connect.
+     * @param link  The closed link
+     */
+    private void linkClosed(final NodeLink link)
+    {
+        final Node node = link.node;
+        final ClientSession sess = link.session;
+        if (sess != null)
+        {
+            synchronized (sess)
+            {
+                if (sess.links[node.index] == link)
+                    sess.links[node.index] = null;
+            }
+            if (sess.closed || stopping)
+                return;
+
+            if (link.connected)
+            {
+                removeConnection(sess.conn);
+            }
+            else if (node == nodes[0])
+            {
+                sess.conn.put(SOCRejectConnection.toCmd(MSG_NO_NODE));
+                sess.conn.disconnectSoft();
+            } else {
+                sess.conn.put(SOCStatusMessage.toCmd
+                    (SOCStatusMessage.SV_NOT_OK_GENERIC, sess.conn.getVersion(), MSG_NO_NODE));
+            }
+
+            return;
+        }
+
+        if (! link.connected)
+        {
+            if (! stopping)
+                scheduleConnectMonitor(node);
+
+            return;
+        }
+
+        if (node.monitor != link)
+            return;
+        node.monitor = null;
+
+        final List<String> gone = new ArrayList<String>();
+        synchronized (games)
+        {
+            for (Iterator<Map.Entry<String, GamePlacement>> it = games.entrySet().iterator(); it.hasNext(); )
+            {
+                final Map.Entry<String, GamePlacement> e = it.next();
+                final GamePlacement gp = e.getValue();
+                if (gp.node != node)
+                    continue;
+
+                it.remove();
+                if (! gp.pending)
+                    gone.add(e.getKey());
+            }
+            node.gameCount = 0;
+        }
+        for (String gaName : gone)
+            broadcast(SOCDeleteGame.toCmd(gaName));
+
+        if (! stopping)
+        {
+            System.err.println("Router: Lost node " + node);
+            scheduleConnectMonitor(node);
+        }
+    }
+
+    /**
+     * Get a message's type number without parsing the rest of it.
+     * @param str  Message
+     * @return  Its type, such as {@link SOCMessage#GAMES}, or 0 if malformed
+     */
+    private static int getMessageType(final String str)
+    {
+        int mtype = 0;
+        for (int i = 0; i < str.length(); ++i)
+        {
+            final char ch = str.charAt(i);
+            if ((ch < '0') || (ch > '9') || (mtype > 99999))
+                break;  // end of type number, or not a valid type
+            mtype = (10 * mtype) + (ch - '0');
+        }
+
+        return mtype;
+    }
+
+    /**
+     * Start a router from the command line; see class javadoc for arguments.
+     * @param args  Command-line arguments
+     */
+    public static void main(String[] args)
+    {
+        final SOCLobbyRouter router;
+        try
+        {
+            if (args.length < 2)
+                throw new IllegalArgumentException();
+
+            final int port = Integer.parseInt(args[0]);
+            final String[] nodeAddrs = new String[args.length - 1];
+            System.arraycopy(args, 1, nodeAddrs, 0, nodeAddrs.length);
+            for (String addr : nodeAddrs)
+                if (addr.indexOf(':') == -1)
+                    throw new IllegalArgumentException(addr);  // local string sockets are only for testing in one JVM
+
+            router = new SOCLobbyRouter(port, nodeAddrs);
+        }
+        catch (RuntimeException e)
+        {
+            System.err.println("usage: java soc.server.SOCLobbyRouter port nodehost:nodeport [nodehost:nodeport ...]");
+            return;
+        }
+
+        router.setPriority(5);
+        router.start();
+    }
+
+    /**
+     * One server node.
+     */
+    private static final class Node
+    {
+        /** Index in {@link SOCLobbyRouter#nodes} */
+        final int index;
+
+        /** Host name for a TCP node, or null for a {@link LocalStringServerSocket} in this JVM */
+        final String host;
+
+        /** TCP port, or -1 */
+        final int port;
+
+        /** Local string socket name, or null for a TCP node */
+        final String strSocketName;
+
+        /** The router's monitor link to this node, or null if not connected */
+        volatile NodeLink monitor;
+
+        /**
+         * Number of games on this node, including placements not yet announced.
+         * Synchronize on {@link SOCLobbyRouter#games} to use.
+         */
+        int gameCount;
+
+        Node(final int index, final String host, final int port, final String strSocketName)
+        {
+            this.index = index;
+            this.host = host;
+            this.port = port;
+            this.strSocketName = strSocketName;
+        }
+
+        public String toString()
+        {
+            return (host != null) ? (host + ':' + port) : strSocketName;
+        }
+    }
+
+    /**
+     * A game's node, and its options and minimum version once the node has announced it.
+     */
+    private static final class GamePlacement
+    {
+        final Node node;
+
+        /** If true, placed by the router for a new game which the node hasn't announced yet */
+        final boolean pending;
+
+        /** When this placement was made, from {@link System#currentTimeMillis()} */
+        final long placedAt;
+
+        /** Game options, as packed by {@link SOCGameOption#packOptionsToString(Map, boolean)}, or null */
+        final String opts;
+
+        /** Minimum client version to join the game, or -1 */
+        final int minVers;
+
+        GamePlacement(final Node node, final boolean pending, final String opts, final int minVers)
+        {
+            this.node = node;
+            this.pending = pending;
+            this.opts = opts;
+            this.minVers = minVers;
+            placedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * One client's state at the router, stored as its connection's
+     * {@link StringConnection#getAppData() app data}.
+     */
+    private static final class ClientSession
+    {
+        final StringConnection conn;
+
+        /** Links to nodes, indexed like {@link SOCLobbyRouter#nodes}, or null. Synchronize on this session to use. */
+        final NodeLink[] links;
+
+        /** The client's {@link SOCVersion} message, to replay at each node, or null if not sent yet */
+        volatile String versionMsg;
+
+        /** Nickname claimed by the client, or null. Synchronize on {@link SOCLobbyRouter#nicknames} to set. */
+        String nickname;
+
+        /** Non-empty password sent by the client, or null */
+        volatile String password;
+
+        /** True once a node has accepted the client's nickname */
+        volatile boolean nameConfirmed;
+
+        /** True once the client has left */
+        volatile boolean closed;
+
+        ClientSession(final StringConnection conn, final int nodeCount)
+        {
+            this.conn = conn;
+            links = new NodeLink[nodeCount];
+        }
+    }
+
+    /**
+     * A link to a node, carrying one client's messages or the router's own monitor messages,
+     * over TCP with the same framing as {@link soc.server.genericServer.Connection},
+     * or over a {@link LocalStringConnection}.  Its thread reads messages from the node.
+     * Its {@link Putter} thread connects to the node and sends the queued messages there,
+     * so that a slow or unreachable node doesn't hold up the router's treater thread.
+     */
+    private final class NodeLink extends Thread
+    {
+        final Node node;
+
+        /** Client whose messages this link carries, or null for the router's monitor link */
+        final ClientSession session;
+
+        /**
+         * True if the client has sent a join request on this link, so the node has its password;
+         * cleared if the node rejects the nickname or password.
+         */
+        volatile boolean joined;
+
+        /** True once connected to the node; stays true after the link is closed */
+        volatile boolean connected;
+
+        /** Messages waiting to be sent to the node. Synchronize on this queue to use it or {@link #closed}. */
+        private final LinkedList<String> outQueue = new LinkedList<String>();
+
+        /** Set by {@link Putter} when connected; null for a local node */
+        private Socket sock;
+
+        private DataInputStream in;
+
+        private DataOutputStream out;
+
+        /** Local connection, or null for a TCP node; set by {@link Putter} when connected */
+        private LocalStringConnection lconn;
+
+        private volatile boolean closed;
+
+        /**
+         * Create a link to a node. Call {@link #open()} to connect and begin reading from it.
+         * @param node  Node to connect to
+         * @param session  Client whose messages this link carries, or null for a monitor link
+         */
+        NodeLink(final Node node, final ClientSession session)
+        {
+            this.node = node;
+            this.session = session;
+
+            setName("router-node" + node.index + ((session != null) ? ("-" + session.conn.host()) : "-monitor"));
+            setDaemon(true);
+        }
+
+        /**
+         * Start the {@link Putter} thread, which connects to the node, starts this link's reader thread,
+         * and sends the queued messages.
+         */
+        void open()
+        {
+            new Putter().start();
+        }
+
+        /**
+         * Queue a message to send to the node. Doesn't block.
+         * If the link is closed, the message is dropped.
+         * @param str  Message to send
+         */
+        void put(final String str)
+        {
+            synchronized (outQueue)
+            {
+                if (closed)
+                    return;
+
+                outQueue.addLast(str);
+                outQueue.notify();
+            }
+        }
+
+        /**
+         * Close the link, if not already closed. Its reader thread will stop and call
+         * {@link SOCLobbyRouter#linkClosed(NodeLink)}.  If it's still connecting,
+         * it's closed once connected.
+         */
+        void close()
+        {
+            synchronized (outQueue)
+            {
+                closed = true;
+                outQueue.clear();
+                outQueue.notify();
+            }
+
+            synchronized (this)
+            {
+                if (lconn != null)
+                    lconn.disconnect();
+                else if (sock != null)
+                    try { sock.close(); } catch (IOException e) {}
+            }
+        }
+
+        /**
+         * Connect to the node, unless the link has been closed meanwhile.
+         * Called from the {@link Putter} thread.
+         * @throws IOException if the node can't be reached
+         */
+        private void connect()
+            throws IOException
+        {
+            if (node.host != null)
+            {
+                final Socket s = new Socket();
+                try
+                {
+                    s.connect(new InetSocketAddress(node.host, node.port), NODE_CONNECT_TIMEOUT_MS);
+                    synchronized (this)
+                    {
+                        in = new DataInputStream(s.getInputStream());
+                        out = new DataOutputStream(s.getOutputStream());
+                        sock = s;
+                    }
+                }
+                catch (IOException e)
+                {
+                    try { s.close(); } catch (IOException e2) {}
+                    throw e;
+                }
+            } else {
+                final LocalStringConnection lc = LocalStringServerSocket.connectTo(node.strSocketName);
+                synchronized (this)
+                {
+                    lconn = lc;
+                }
+            }
+
+            connected = true;
+            if (closed)
+                close();  // closed while connecting
+        }
+
+        /**
+         * Read and treat messages from the node until the link is closed or lost.
+         */
+        public void run()
+        {
+            try
+            {
+                while (! closed)
+                {
+                    final String str = (lconn != null) ? lconn.readNext() : in.readUTF();
+                    if (session != null)
+                        treatFromNode(this, str);
+                    else
+                        treatFromMonitor(node, str);
+                }
+            }
+            catch (Exception e) {}  // EOF or closed
+
+            close();
+            linkClosed(this);
+        }
+
+        /**
+         * NodeLink inner class thread to connect to the node, then send {@link NodeLink#outQueue} messages to it.
+         * If it can't connect, calls {@link SOCLobbyRouter#linkClosed(NodeLink)} itself,
+         * since the reader thread isn't started.
+         */
+        private final class Putter extends Thread
+        {
+            Putter()
+            {
+                setName(NodeLink.this.getName() + "-putter");
+                setDaemon(true);
+            }
+
+            public void run()
+            {
+                try
+                {
+                    connect();
+                }
+                catch (IOException e)
+                {
+                    System.err.println("Router: Cannot connect "
+                        + ((session != null) ? (session.conn.host() + " ") : "") + "to node " + node + ": " + e);
+                    close();
+                    linkClosed(NodeLink.this);
+                    return;
+                }
+
+                if (session == null)
+                    monitorConnected(NodeLink.this);
+                NodeLink.this.start();  // reader
+
+                while (! closed)
+                {
+                    String str = null;
+                    synchronized (outQueue)
+                    {
+                        if (outQueue.isEmpty())
+                        {
+                            try
+                            {
+                                outQueue.wait();
+                            }
+                            catch (InterruptedException e) {}
+                        }
+                        if (! (closed || outQueue.isEmpty()))
+                            str = outQueue.removeFirst();
+                    }
+
+                    if (str == null)
+                        continue;
+
+                    try
+                    {
+                        if (lconn != null)
+                            lconn.put(str);
+                        else
+                            out.writeUTF(str);
+                    }
+                    catch (Exception e)
+                    {
+                        close();  // IOException or IllegalStateException; reader thread will call linkClosed
+                    }
+                }
+            }
+        }
+    }
+
+}
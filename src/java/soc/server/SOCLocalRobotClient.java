@@ -76,6 +76,8 @@ class SOCLocalRobotClient implements Runnable
      * @param strSocketName  Server's stringport socket name, or null
      * @param port    Server's tcp port, if <tt>strSocketName</tt> is null
      * @param cookie  Cookie for robot connections to server
+     * @param randomSeed  If not null, seed for the robot's brains; see {@link SOCRobotClient#setRandomSeed(long)}.
+     *     This parameter was added in v2.0.00.
      * @since 1.1.09
      * @see SOCServer#setupLocalRobots(int, int)
      * @throws ClassNotFoundException  if a robot class, or SOCDisplaylessClient,
@@ -83,7 +85,7 @@ class SOCLocalRobotClient implements Runnable
      * @throws LinkageError  for same reason as ClassNotFoundException
      */
     public static void createAndStartRobotClientThread
-        (final String rname, final String strSocketName, final int port, final String cookie)
+        (final String rname, final String strSocketName, final int port, final String cookie, final Long randomSeed)
         throws ClassNotFoundException, LinkageError
     {
         SOCRobotClient rcli;
@@ -91,6 +93,8 @@ class SOCLocalRobotClient implements Runnable
             rcli = new SOCRobotClient(strSocketName, rname, "pw", cookie);
         else
             rcli = new SOCRobotClient("localhost", port, rname, "pw", cookie);
+        if (randomSeed != null)
+            rcli.setRandomSeed(randomSeed.longValue());
         Thread rth = new Thread(new SOCLocalRobotClient(rcli));
         rth.setDaemon(true);
         rth.start();  // run() will add to robotClients
@@ -30,7 +30,9 @@ import soc.message.*;
 import soc.robot.SOCRobotClient;
 import soc.server.database.SOCDBHelper;
 
+import soc.server.genericServer.InboundMessageLimiter;
 import soc.server.genericServer.LocalStringConnection;
+import soc.server.genericServer.OutboundQueueLimits;
 import soc.server.genericServer.Server;
 import soc.server.genericServer.StringConnection;
 
@@ -38,10 +40,12 @@ import soc.util.I18n;
 import soc.util.SOCGameBoardReset;
 import soc.util.SOCGameList;  // used in javadoc
 import soc.util.SOCRobotParameters;
+import soc.util.SOCSplittableRandom;
 import soc.util.SOCStringManager;
 import soc.util.Version;
 
 import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
 import java.net.SocketException;
 import java.sql.SQLException;
@@ -52,6 +56,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
@@ -61,6 +66,7 @@ import java.util.MissingResourceException;
 import java.util.Properties;
 import java.util.Random;
 import java.util.Vector;
+import java.util.WeakHashMap;
 
 /**
  * A server for Settlers of Catan
@@ -167,6 +173,15 @@ public class SOCServer extends Server
      */
     public static final String PROP_JSETTLERS_BOTS_SHOWCOOKIE = "jsettlers.bots.showcookie";
 
+    /**
+     * String property <tt>jsettlers.bots.trusted</tt> to list the nicknames of third-party or
+     * remote robots which are exempt from the inbound message rates such as {@link #PROP_JSETTLERS_INLIMIT_GAMEPLAY}
+     * and from {@link #PROP_JSETTLERS_INLIMIT_QUEUE}, separated by commas. Robots started by this server are always exempt; other robots are limited
+     * like any network client unless they're listed here. (The default is empty.)
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_BOTS_TRUSTED = "jsettlers.bots.trusted";
+
     /**
      * Property <tt>jsettlers.startrobots</tt> to start some robots when the server starts.
      * (The default is {@link #SOC_STARTROBOTS_DEFAULT}.)
@@ -202,6 +217,152 @@ public class SOCServer extends Server
      */
     public static final String PROP_JSETTLERS_CLI_MAXCREATECHANNELS = "jsettlers.client.maxcreatechannels";
 
+    /**
+     * Property <tt>jsettlers.checkpoint.dir</tt> to periodically save active games
+     * to files in this directory, so they can be restored after a server crash or restart.
+     * (The default is not set, games are not checkpointed.)
+     * @see #PROP_JSETTLERS_CHECKPOINT_SECONDS
+     * @see #PROP_JSETTLERS_CHECKPOINT_RESTORE
+     * @see SOCGameCheckpointer
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_CHECKPOINT_DIR = "jsettlers.checkpoint.dir";
+
+    /**
+     * Property <tt>jsettlers.checkpoint.seconds</tt> to set how often changed games are checkpointed
+     * when {@link #PROP_JSETTLERS_CHECKPOINT_DIR} is set. (The default is 60.)
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_CHECKPOINT_SECONDS = "jsettlers.checkpoint.seconds";
+
+    /**
+     * Boolean property <tt>jsettlers.checkpoint.restore</tt> to restore the games
+     * checkpointed in {@link #PROP_JSETTLERS_CHECKPOINT_DIR} when the server starts.
+     * (The default is N; otherwise the old checkpoints are deleted.)
+     * Human players resume by rejoining their game with the same nickname;
+     * robots are then asked to fill the seats of the previous robot players.
+     *<P>
+     * Since the player's old connection is gone, rejoining a restored seat follows the rules for
+     * taking over a nickname: A client from the host which had that seat when the game was checkpointed,
+     * or one which gave the nickname's database password, can rejoin right away.  A client from a
+     * different host must wait {@link #NICKNAME_TAKEOVER_SECONDS_DIFFERENT_IP} seconds after its first try.
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_CHECKPOINT_RESTORE = "jsettlers.checkpoint.restore";
+
+    /**
+     * Property <tt>jsettlers.eventlog.dir</tt> to log each game's events to files in this directory,
+     * for post-mortems and replay with {@link SOCGameEventLogReplay}.
+     * (The default is not set, games are not logged.)
+     * @see #PROP_JSETTLERS_EVENTLOG_SEGMENTKB
+     * @see SOCGameEventLog
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_EVENTLOG_DIR = "jsettlers.eventlog.dir";
+
+    /**
+     * Property <tt>jsettlers.eventlog.segmentkb</tt> to set the size in KB at which a game's
+     * event log is rotated to a new segment file. (The default is 4096.)
+     * @see #PROP_JSETTLERS_EVENTLOG_SEGMENTS
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_EVENTLOG_SEGMENTKB = "jsettlers.eventlog.segmentkb";
+
+    /**
+     * Property <tt>jsettlers.eventlog.segments</tt> to set how many of each game's newest
+     * event log segments are kept when rotating. (The default is 8.)
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_EVENTLOG_SEGMENTS = "jsettlers.eventlog.segments";
+
+    /**
+     * Property <tt>jsettlers.game.seed</tt> to seed each new game's random numbers
+     * from this number and the game's name, for repeatable simulations and benchmarks.
+     * Also seeds the server's local robots.
+     * (The default is not set, each game gets a new unique seed.)
+     * @see #setGameRandomSeed(long)
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_GAME_SEED = "jsettlers.game.seed";
+
+    /**
+     * Property <tt>jsettlers.boardpool.size</tt> to set how many board layouts to make ahead of time
+     * for each combination of game options being played, so games start without waiting for their layout.
+     * 0 disables the pool. (The default is 2.)
+     * @see SOCBoardLayoutPool
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_BOARDPOOL_SIZE = "jsettlers.boardpool.size";
+
+    /**
+     * Property <tt>jsettlers.inlimit.gameplay</tt> to limit how fast each network client can send
+     * game actions and other messages not in another category: <tt>rate,burst</tt> where
+     * rate is messages per second and burst is how many can be sent at once after a quiet time.
+     * Messages over the limit are dropped. Rate 0 is no limit. (The default is 50,200.)
+     * @see #PROP_JSETTLERS_INLIMIT_CHAT
+     * @see #PROP_JSETTLERS_INLIMIT_TRADE
+     * @see InboundMessageLimiter
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_INLIMIT_GAMEPLAY = "jsettlers.inlimit.gameplay";
+
+    /**
+     * Property <tt>jsettlers.inlimit.chat</tt> to limit how fast each network client can send
+     * chat text to games and channels: <tt>rate,burst</tt> like {@link #PROP_JSETTLERS_INLIMIT_GAMEPLAY}.
+     * (The default is 2,10.)
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_INLIMIT_CHAT = "jsettlers.inlimit.chat";
+
+    /**
+     * Property <tt>jsettlers.inlimit.trade</tt> to limit how fast each network client can send
+     * trade offers and their replies: <tt>rate,burst</tt> like {@link #PROP_JSETTLERS_INLIMIT_GAMEPLAY}.
+     * (The default is 5,20.)
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_INLIMIT_TRADE = "jsettlers.inlimit.trade";
+
+    /**
+     * Property <tt>jsettlers.inlimit.queue</tt> to set how many messages from one network client
+     * can wait to be treated; a client which sends more is disconnected. 0 is no limit. (The default is 200.)
+     * Robots started by this server, and those listed in {@link #PROP_JSETTLERS_BOTS_TRUSTED}, aren't limited.
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_INLIMIT_QUEUE = "jsettlers.inlimit.queue";
+
+    /**
+     * Property <tt>jsettlers.inlimit.strikes</tt> to set how many of a network client's messages can be
+     * dropped for exceeding the limits in a burst before it's disconnected; 1 strike is forgiven each second.
+     * (The default is 50.)
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_INLIMIT_STRIKES = "jsettlers.inlimit.strikes";
+
+    /**
+     * Property <tt>jsettlers.outlimit.highwater</tt> to set how many messages can wait to be sent
+     * to a network client before it's considered lagging: Then, newer messages such as a game's state
+     * replace older ones still waiting. 0 disables the outbound limits. (The default is 500.)
+     * @see #PROP_JSETTLERS_OUTLIMIT_MAX
+     * @see OutboundQueueLimits
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_OUTLIMIT_HIGHWATER = "jsettlers.outlimit.highwater";
+
+    /**
+     * Property <tt>jsettlers.outlimit.max</tt> to set how many messages can wait to be sent to a network client
+     * before it's disconnected. (The default is 5000.)
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_OUTLIMIT_MAX = "jsettlers.outlimit.max";
+
+    /**
+     * Property <tt>jsettlers.outlimit.lagseconds</tt> to set how long a network client can be lagging
+     * (see {@link #PROP_JSETTLERS_OUTLIMIT_HIGHWATER}) before it's disconnected. 0 is no limit.
+     * (The default is 120.)
+     * @since 2.0.00
+     */
+    public static final String PROP_JSETTLERS_OUTLIMIT_LAGSECONDS = "jsettlers.outlimit.lagseconds";
+
     /**
      * List and descriptions of all available JSettlers {@link Properties properties},
      * such as {@link #PROP_JSETTLERS_PORT} and {@link SOCDBHelper#PROP_JSETTLERS_DB_URL}.
@@ -222,6 +383,23 @@ public class SOCServer extends Server
         I18n.PROP_JSETTLERS_LOCALE,             "Locale override from the default, such as es or en_US",
         PROP_JSETTLERS_BOTS_COOKIE,             "Robot cookie value (default is random generated each startup)",
         PROP_JSETTLERS_BOTS_SHOWCOOKIE,         "Flag to show the robot cookie value at startup",
+        PROP_JSETTLERS_BOTS_TRUSTED,            "Robot nicknames exempt from client message limits, separated by commas",
+        PROP_JSETTLERS_CHECKPOINT_DIR,          "If set, directory for periodic game checkpoint files",
+        PROP_JSETTLERS_CHECKPOINT_SECONDS,      "Seconds between game checkpoints (default 60)",
+        PROP_JSETTLERS_CHECKPOINT_RESTORE,      "Flag to restore checkpointed games at startup",
+        PROP_JSETTLERS_EVENTLOG_DIR,            "If set, directory for game event logs",
+        PROP_JSETTLERS_EVENTLOG_SEGMENTKB,      "Size in KB to rotate a game's event log (default 4096)",
+        PROP_JSETTLERS_EVENTLOG_SEGMENTS,       "Newest event log segments to keep per game (default 8)",
+        PROP_JSETTLERS_GAME_SEED,               "If set, base random seed for games and local robots, for repeatable runs",
+        PROP_JSETTLERS_BOARDPOOL_SIZE,          "Board layouts to make ahead for each game option set (default 2, 0 disables)",
+        PROP_JSETTLERS_INLIMIT_GAMEPLAY,        "Client game message limit: msgs/second,burst (default 50,200; 0 is no limit)",
+        PROP_JSETTLERS_INLIMIT_CHAT,            "Client chat message limit: msgs/second,burst (default 2,10)",
+        PROP_JSETTLERS_INLIMIT_TRADE,           "Client trade offer limit: msgs/second,burst (default 5,20)",
+        PROP_JSETTLERS_INLIMIT_QUEUE,           "Disconnect a client with this many msgs waiting (default 200, 0 is no limit)",
+        PROP_JSETTLERS_INLIMIT_STRIKES,         "Disconnect a client after this many msgs over limits (default 50, 1 forgiven/second)",
+        PROP_JSETTLERS_OUTLIMIT_HIGHWATER,      "Msgs waiting to send to a client before dropping superseded ones (default 500, 0 disables)",
+        PROP_JSETTLERS_OUTLIMIT_MAX,            "Disconnect a client with this many msgs waiting to send (default 5000)",
+        PROP_JSETTLERS_OUTLIMIT_LAGSECONDS,     "Disconnect a client lagging above highwater this long (default 120, 0 is no limit)",
         SOCDBHelper.PROP_JSETTLERS_DB_USER,     "DB username",
         SOCDBHelper.PROP_JSETTLERS_DB_PASS,     "DB password",
         SOCDBHelper.PROP_JSETTLERS_DB_URL,      "DB connection URL",
@@ -397,6 +575,14 @@ public class SOCServer extends Server
      */
     private String robotCookie;
 
+    /**
+     * Nicknames of robots not started by this server which are still exempt from the inbound message rates,
+     * from {@link #PROP_JSETTLERS_BOTS_TRUSTED}; empty if none.
+     * @see #handleIMAROBOT(StringConnection, SOCImARobot)
+     * @since 2.0.00
+     */
+    private final HashSet<String> trustedRobotNames = new HashSet<String>();
+
     /**
      * A list of robot {@link StringConnection}s connected to this server.
      * @see SOCLocalRobotClient#robotClients
@@ -504,6 +690,24 @@ public class SOCServer extends Server
      */
     public static final int NICKNAME_TAKEOVER_SECONDS_DIFFERENT_IP = 150;
 
+    /**
+     * When choosing robots to join a game, a robot's games are weighted by this much
+     * if the robot uses {@link soc.robot.SOCRobotDM#SMART_STRATEGY SMART_STRATEGY},
+     * which takes more CPU time per game than FAST_STRATEGY.
+     * @see #getRobotLoad(StringConnection, Map)
+     * @since 2.0.00
+     */
+    public static final int ROBOT_LOAD_SMART_WEIGHT = 2;
+
+    /**
+     * When choosing robots to join a game, this much time in a robot's most recent
+     * {@link SOCServerPing} round trip counts as much load as one game.
+     * A robot client handles its messages in order, so a slow reply means it's busy.
+     * @see #getRobotLoad(StringConnection, Map)
+     * @since 2.0.00
+     */
+    public static final int ROBOT_LOAD_PING_MILLIS_PER_GAME = 250;
+
     /**
      * list of chat channels
      */
@@ -592,6 +796,44 @@ public class SOCServer extends Server
      */
     SOCGameTimeoutChecker gameTimeoutChecker;
 
+    /**
+     * game checkpointer, or null if {@link #PROP_JSETTLERS_CHECKPOINT_DIR} isn't set
+     * @since 2.0.00
+     */
+    SOCGameCheckpointer gameCheckpointer;
+
+    /**
+     * For each game restored from a checkpoint, its human players who haven't yet rejoined,
+     * by nickname, with the host each played from when the game was checkpointed.
+     * Weak keys: A game's entry is dropped after the game is destroyed and garbage-collected.
+     * Synchronize on this map when using it or its contents.
+     * @see #checkRestoredSeat(String, String, StringConnection, boolean)
+     * @since 2.0.00
+     */
+    private final WeakHashMap<SOCGame, HashMap<String, RestoredSeat>> restoredSeats
+        = new WeakHashMap<SOCGame, HashMap<String, RestoredSeat>>();
+
+    /**
+     * game event log, or null if {@link #PROP_JSETTLERS_EVENTLOG_DIR} isn't set
+     * @see #recordGameEvent(String, String)
+     * @since 2.0.00
+     */
+    SOCGameEventLog gameEventLog;
+
+    /**
+     * If not null, base seed for new games' random numbers.
+     * @see #setGameRandomSeed(long)
+     * @since 2.0.00
+     */
+    private volatile Long gameRandomSeed;
+
+    /**
+     * Board layouts made ahead of time, or null if {@link #PROP_JSETTLERS_BOARDPOOL_SIZE} is 0
+     * @see #takeBoardLayout(SOCGame)
+     * @since 2.0.00
+     */
+    SOCBoardLayoutPool boardLayoutPool;
+
     String databaseUserName;
     String databasePassword;
 
@@ -787,6 +1029,16 @@ public class SOCServer extends Server
             robotCookie = generateRobotCookie();
         }
 
+        if (props.containsKey(PROP_JSETTLERS_BOTS_TRUSTED))
+        {
+            for (String rname : props.getProperty(PROP_JSETTLERS_BOTS_TRUSTED).split(","))
+            {
+                rname = rname.trim();
+                if (rname.length() > 0)
+                    trustedRobotNames.add(rname);
+            }
+        }
+
         /**
          * Try to connect to the DB, if any.
          */
@@ -897,6 +1149,79 @@ public class SOCServer extends Server
         serverRobotPinger.start();
         gameTimeoutChecker = new SOCGameTimeoutChecker(this);
         gameTimeoutChecker.start();
+
+        final String gameSeed = (props != null) ? props.getProperty(PROP_JSETTLERS_GAME_SEED) : null;
+        if (gameSeed != null)
+        {
+            try
+            {
+                setGameRandomSeed(Long.parseLong(gameSeed.trim()));
+            }
+            catch (NumberFormatException e)
+            {
+                System.err.println("* Ignoring " + PROP_JSETTLERS_GAME_SEED + ", not a number: " + gameSeed);
+            }
+        }
+
+        if (strSocketName == null)
+        {
+            // only network clients are limited
+            inboundLimiter = init_inboundLimiter(props);
+
+            final int highWater = (props != null) ? init_getIntProperty(props, PROP_JSETTLERS_OUTLIMIT_HIGHWATER, 500) : 500;
+            if (highWater > 0)
+            {
+                final int maxQueued = (props != null) ? init_getIntProperty(props, PROP_JSETTLERS_OUTLIMIT_MAX, 5000) : 5000,
+                          lagSeconds = (props != null) ? init_getIntProperty(props, PROP_JSETTLERS_OUTLIMIT_LAGSECONDS, 120) : 120;
+                outboundLimits = new OutboundQueueLimits
+                    (highWater, Math.max(highWater, maxQueued), 1000L * Math.max(0, lagSeconds));
+            }
+        }
+
+        final int boardPoolSize = (props != null) ? init_getIntProperty(props, PROP_JSETTLERS_BOARDPOOL_SIZE, 2) : 2;
+        if (boardPoolSize > 0)
+        {
+            boardLayoutPool = new SOCBoardLayoutPool(boardPoolSize, 16);
+            boardLayoutPool.start();
+        }
+
+        final String eventLogDir = (props != null) ? props.getProperty(PROP_JSETTLERS_EVENTLOG_DIR) : null;
+        if (eventLogDir != null)
+        {
+            try
+            {
+                gameEventLog = new SOCGameEventLog
+                    (new File(eventLogDir), 1024L * init_getIntProperty(props, PROP_JSETTLERS_EVENTLOG_SEGMENTKB, 4096),
+                     init_getIntProperty(props, PROP_JSETTLERS_EVENTLOG_SEGMENTS, 8));
+            }
+            catch (IOException e)
+            {
+                System.err.println("* Game events will not be logged: " + e.getMessage());
+            }
+        }
+
+        /**
+         * Restore any checkpointed games, then start checkpointing.
+         */
+        final String checkpointDir = (props != null) ? props.getProperty(PROP_JSETTLERS_CHECKPOINT_DIR) : null;
+        if (checkpointDir != null)
+        {
+            final File dir = new File(checkpointDir);
+            if (init_getBoolProperty(props, PROP_JSETTLERS_CHECKPOINT_RESTORE, false))
+                restoreCheckpointedGames(dir);
+
+            try
+            {
+                gameCheckpointer = new SOCGameCheckpointer
+                    (this, dir, init_getIntProperty(props, PROP_JSETTLERS_CHECKPOINT_SECONDS, 60));
+                gameCheckpointer.start();
+            }
+            catch (IOException e)
+            {
+                System.err.println("* Games will not be checkpointed: " + e.getMessage());
+            }
+        }
+
         this.databaseUserName = databaseUserName;
         this.databasePassword = databasePassword;
 
@@ -922,6 +1247,104 @@ public class SOCServer extends Server
         System.err.println();
     }
 
+    /**
+     * Restore the games checkpointed by {@link SOCGameCheckpointer} in a directory,
+     * such as after a server crash. Called from {@link #initSocServer(String, String, Properties)}
+     * before starting the checkpointer, which will delete the checkpoints of any games not restored.
+     * For each game, calls {@link SOCGameListAtServer#addRestoredGame(SOCGame, GameHandler)}
+     * and {@link GameHandler#gameRestored(SOCGame)}, and remembers its human players' hosts
+     * for {@link #checkRestoredSeat(String, String, StringConnection, boolean)}.
+     * @param dir  Checkpoint directory
+     * @since 2.0.00
+     */
+    private void restoreCheckpointedGames(final File dir)
+    {
+        final long startTime = System.currentTimeMillis();
+        final File[] files = SOCGameCheckpointer.listCheckpointFiles(dir);
+        int n = 0;
+        for (int i = 0; i < files.length; ++i)
+        {
+            try
+            {
+                final SOCGameCheckpointer.Checkpoint ck = SOCGameCheckpointer.readCheckpoint(files[i]);
+                final SOCGame ga = ck.game;
+                if (gameList.addRestoredGame(ga, handler))
+                {
+                    final HashMap<String, RestoredSeat> seats = new HashMap<String, RestoredSeat>();
+                    for (int pn = 0; pn < ga.maxPlayers; ++pn)
+                    {
+                        final SOCPlayer pl = ga.getPlayer(pn);
+                        if (! (ga.isSeatVacant(pn) || pl.isRobot()))
+                            seats.put(pl.getName(), new RestoredSeat((pn < ck.seatHosts.length) ? ck.seatHosts[pn] : null));
+                    }
+                    synchronized (restoredSeats)
+                    {
+                        restoredSeats.put(ga, seats);
+                    }
+
+                    handler.gameRestored(ga);
+                    recordGameStart(ga);
+                    ++n;
+                }
+            }
+            catch (Exception e)
+            {
+                System.err.println("* Could not restore game from checkpoint " + files[i].getName() + ": " + e);
+            }
+        }
+
+        System.err.println("Restored " + n + " of " + files.length + " checkpointed games from " + dir
+            + " in " + (System.currentTimeMillis() - startTime) + " ms");
+    }
+
+    /**
+     * For initialization, make the limiter for messages from network clients
+     * from properties such as {@link #PROP_JSETTLERS_INLIMIT_CHAT}, or their defaults.
+     * @param props  Properties to look in, or null for defaults
+     * @return  the limiter, or null if the properties set no limits
+     * @since 2.0.00
+     */
+    private static InboundMessageLimiter init_inboundLimiter(Properties props)
+    {
+        // by category: InboundMessageLimiter.CATEGORY_GAMEPLAY, CATEGORY_CHAT, CATEGORY_TRADE
+        final String[] pNames = { PROP_JSETTLERS_INLIMIT_GAMEPLAY, PROP_JSETTLERS_INLIMIT_CHAT, PROP_JSETTLERS_INLIMIT_TRADE };
+        final String[] pDefaults = { "50,200", "2,10", "5,20" };
+
+        final double[] rates = new double[InboundMessageLimiter.CATEGORY_COUNT];
+        final int[] bursts = new int[InboundMessageLimiter.CATEGORY_COUNT];
+        boolean anyLimit = false;
+        for (int i = 0; i < pNames.length; ++i)
+        {
+            String pv = (props != null) ? props.getProperty(pNames[i], pDefaults[i]) : pDefaults[i];
+            for (int tries = 0; tries < 2; ++tries)
+            {
+                try
+                {
+                    final int comma = pv.indexOf(',');
+                    rates[i] = Double.parseDouble((comma != -1) ? pv.substring(0, comma).trim() : pv.trim());
+                    bursts[i] = (comma != -1) ? Integer.parseInt(pv.substring(comma + 1).trim()) : (int) Math.ceil(rates[i]);
+                    if ((rates[i] < 0) || ((rates[i] > 0) && (bursts[i] < 1)))
+                        throw new NumberFormatException();
+                    break;
+                }
+                catch (NumberFormatException e)
+                {
+                    System.err.println("* Ignoring " + pNames[i] + ", not rate,burst: " + pv);
+                    pv = pDefaults[i];
+                }
+            }
+            if (rates[i] > 0)
+                anyLimit = true;
+        }
+
+        final int maxQueued = (props != null) ? init_getIntProperty(props, PROP_JSETTLERS_INLIMIT_QUEUE, 200) : 200,
+                  maxStrikes = (props != null) ? init_getIntProperty(props, PROP_JSETTLERS_INLIMIT_STRIKES, 50) : 50;
+        if ((! anyLimit) && (maxQueued <= 0))
+            return null;
+
+        return new InboundMessageLimiter(rates, bursts, Math.max(0, maxQueued), Math.max(0, maxStrikes));
+    }
+
     /**
      * For initialization, get and parse an integer property, or use its default instead.
      * @param props  Properties to look in
@@ -1271,6 +1694,7 @@ public class SOCServer extends Server
                 {
                     newGame.isPractice = true;  // flag if practice game (set since 1.1.09)
                 }
+                expectBoardLayout(newGame);
 
                 // Add this (creating) player to the game
                 gameList.addMember(c, gaName);
@@ -1502,13 +1926,21 @@ public class SOCServer extends Server
     }
 
     /**
-     * shuffle the indexes to distribute load among {@link #robots}
-     * @return a shuffled array of robot indexes, from 0 to ({#link {@link #robots}}.size() - 1
+     * Order the indexes to distribute load among {@link #robots}: Least-loaded robots first,
+     * using {@link #getRobotLoad(StringConnection, Map)}.  Robots with the same load are in random order.
+     * Callers ask robots to join in this order, skipping any which can't join.
+     *<P>
+     * Before v2.0.00 this was only a random shuffle, so a robot already playing many games was
+     * as likely to be asked as an idle one.
+     *
+     * @return an array of robot indexes, from 0 to ({#link {@link #robots}}.size() - 1
      * @since 1.1.06
      */
     int[] robotShuffleForJoin()
     {
         int[] robotIndexes = new int[robots.size()];
+        if (robotIndexes.length == 0)
+            return robotIndexes;
 
         for (int i = 0; i < robots.size(); i++)
         {
@@ -1526,9 +1958,101 @@ public class SOCServer extends Server
                 robotIndexes[i] = tmp;
             }
         }
+
+        // Stable sort of shuffled indexes by load, so ties stay random
+        final Map<StringConnection, Integer> pending = getRobotPendingJoinCounts();
+        final int[] load = new int[robotIndexes.length];
+        for (int i = 0; i < robotIndexes.length; ++i)
+            load[i] = getRobotLoad(robots.get(robotIndexes[i]), pending);
+        for (int i = 1; i < robotIndexes.length; ++i)
+        {
+            final int idx = robotIndexes[i], ld = load[i];
+            int j = i - 1;
+            for (; (j >= 0) && (load[j] > ld); --j)
+            {
+                robotIndexes[j + 1] = robotIndexes[j];
+                load[j + 1] = load[j];
+            }
+            robotIndexes[j + 1] = idx;
+            load[j + 1] = ld;
+        }
+
         return robotIndexes;
     }
 
+    /**
+     * Count each robot's requests to join games which it hasn't yet sat down in,
+     * from {@link #robotJoinRequests}.
+     * @return Map from robot connections to their number of pending join requests;
+     *     robots without any aren't in the map
+     * @see #getRobotLoad(StringConnection, Map)
+     * @since 2.0.00
+     */
+    private Map<StringConnection, Integer> getRobotPendingJoinCounts()
+    {
+        Map<StringConnection, Integer> pending = new HashMap<StringConnection, Integer>();
+
+        synchronized (robotJoinRequests)
+        {
+            for (Vector<StringConnection> requests : robotJoinRequests.values())
+            {
+                for (StringConnection rc : requests)
+                {
+                    Integer n = pending.get(rc);
+                    pending.put(rc, Integer.valueOf((n != null) ? (n.intValue() + 1) : 1));
+                }
+            }
+        }
+
+        return pending;
+    }
+
+    /**
+     * Estimate a robot client's current load, to choose robots to join a game.
+     * Each game the robot's in or has been asked to join counts as 1 load unit,
+     * or {@link #ROBOT_LOAD_SMART_WEIGHT} if the robot uses SMART_STRATEGY.
+     * The robot's most recent ping round-trip time adds 1 unit
+     * per {@link #ROBOT_LOAD_PING_MILLIS_PER_GAME} milliseconds.
+     *
+     * @param robotConn  A robot client's connection, from {@link #robots}
+     * @param pending  Robots' pending join request counts from {@link #getRobotPendingJoinCounts()},
+     *     or null to count them here
+     * @return  The robot's load, 0 or higher
+     * @since 2.0.00
+     */
+    int getRobotLoad(final StringConnection robotConn, Map<StringConnection, Integer> pending)
+    {
+        if (pending == null)
+            pending = getRobotPendingJoinCounts();
+
+        int games = gameList.getMemberGameNames(robotConn).size();
+        Integer n = pending.get(robotConn);
+        if (n != null)
+            games += n.intValue();
+
+        int load = games;
+        final SOCClientData scd = (SOCClientData) robotConn.getAppData();
+        if (scd != null)
+        {
+            if (scd.robotStrategyType == soc.robot.SOCRobotDM.SMART_STRATEGY)
+                load *= ROBOT_LOAD_SMART_WEIGHT;
+            load += scd.robotPingRoundTripMillis / ROBOT_LOAD_PING_MILLIS_PER_GAME;
+        }
+
+        return load;
+    }
+
+    /**
+     * Get the cookie which robots must send to connect to this server,
+     * for robot clients started in our JVM by tools like {@link RobotParameterTuner}.
+     * @return  The robot cookie, or null if none
+     * @since 2.0.00
+     */
+    String getRobotCookie()
+    {
+        return robotCookie;
+    }
+
     /**
      * Set up some robot opponents, running in our JVM for operator convenience.
      * Set up more than needed; when a game is started, game setup will
@@ -1557,7 +2081,8 @@ public class SOCServer extends Server
             for (int i = 0; i < numFast; ++i)
             {
                 String rname = "droid " + (i+1);
-                SOCLocalRobotClient.createAndStartRobotClientThread(rname, strSocketName, port, robotCookie);
+                SOCLocalRobotClient.createAndStartRobotClientThread
+                    (rname, strSocketName, port, robotCookie, gameRandomSeed);
                     // includes yield() and sleep(75 ms) this thread.
             }
 
@@ -1578,7 +2103,8 @@ public class SOCServer extends Server
             for (int i = 0; i < numSmart; ++i)
             {
                 String rname = "robot " + (i+1+numFast);
-                SOCLocalRobotClient.createAndStartRobotClientThread(rname, strSocketName, port, robotCookie);
+                SOCLocalRobotClient.createAndStartRobotClientThread
+                    (rname, strSocketName, port, robotCookie, gameRandomSeed);
                     // includes yield() and sleep(75 ms) this thread.
             }
 
@@ -1629,6 +2155,8 @@ public class SOCServer extends Server
            SOCGameRecord gr = (SOCGameRecord)gameRecords.get(gm);
            writeGameRecord(gm, gr);
          */
+        if (gameEventLog != null)
+            gameEventLog.gameDestroyed(gm);
 
         ///
         /// delete the game from gamelist,
@@ -1766,6 +2294,77 @@ public class SOCServer extends Server
         return super.getConnection(connKey);
     }
 
+    /**
+     * Get the host of a game's human player, to save in its checkpoint.
+     * If the player isn't connected but hasn't yet rejoined the game after it was restored from
+     * a checkpoint, returns their host from that checkpoint.
+     * @param ga  Game
+     * @param plName  Player's nickname
+     * @return  The player's host, or null if not known
+     * @since 2.0.00
+     */
+    String getPlayerHost(final SOCGame ga, final String plName)
+    {
+        final StringConnection pc = getConnection(plName);
+        if (pc != null)
+            return pc.host();
+
+        synchronized (restoredSeats)
+        {
+            final HashMap<String, RestoredSeat> seats = restoredSeats.get(ga);
+            final RestoredSeat rs = (seats != null) ? seats.get(plName) : null;
+            return (rs != null) ? rs.host : null;
+        }
+    }
+
+    /**
+     * Is this client allowed to rejoin a player's seat in a game restored from a checkpoint?
+     * Like {@link #checkNickname(String, StringConnection, boolean)}'s takeover of a lost connection,
+     * but there's no old connection to ping: A client which gave the nickname's password,
+     * or is connecting from the host that player had when the game was checkpointed, can rejoin now.
+     * Any other client must wait {@link #NICKNAME_TAKEOVER_SECONDS_DIFFERENT_IP} seconds after the first
+     * such try, giving the player time to return.  Once a client is allowed, the seat is no longer checked.
+     *
+     * @param gaName  Game the client wants to join
+     * @param plName  Client's nickname
+     * @param c  Client's connection
+     * @param authenticated  True if the client gave the password for {@code plName}'s account
+     * @return  0 if OK, or the number of seconds after which {@code c} can rejoin;
+     *     always 0 if {@code plName} isn't a player waiting to rejoin that game
+     * @since 2.0.00
+     */
+    private int checkRestoredSeat
+        (final String gaName, final String plName, final StringConnection c, final boolean authenticated)
+    {
+        final SOCGame ga = gameList.getGameData(gaName);
+        if (ga == null)
+            return 0;
+
+        synchronized (restoredSeats)
+        {
+            final HashMap<String, RestoredSeat> seats = restoredSeats.get(ga);
+            final RestoredSeat rs = (seats != null) ? seats.get(plName) : null;
+            if (rs == null)
+                return 0;
+
+            if (! (authenticated || c.host().equals(rs.host)))
+            {
+                final long now = System.currentTimeMillis();
+                if (rs.otherHostMillis == 0)
+                    rs.otherHostMillis = now;
+                final int secondsSince = (int) ((now - rs.otherHostMillis) / 1000L);
+                if (secondsSince < NICKNAME_TAKEOVER_SECONDS_DIFFERENT_IP)
+                    return NICKNAME_TAKEOVER_SECONDS_DIFFERENT_IP - secondsSince;
+            }
+
+            seats.remove(plName);
+            if (seats.isEmpty())
+                restoredSeats.remove(ga);
+        }
+
+        return 0;
+    }
+
     /**
      * the connection c leaves all channels it was in
      *
@@ -1848,11 +2447,12 @@ public class SOCServer extends Server
 
         try
         {
-            for (String ga : gameList.getGameNames())
+            // look only at c's games, not every game on the server
+            for (String ga : gameList.getMemberGameNames(c))
             {
                 Vector<StringConnection> v = gameList.getMembers(ga);
 
-                if (v.contains(c))
+                if ((v != null) && v.contains(c))
                 {
                     boolean thisGameDestroyed = false;
                     gameList.takeMonitorForGame(ga);
@@ -3445,6 +4045,98 @@ public class SOCServer extends Server
         return false;
     }
 
+    /**
+     * Get an inbound message's category for the network client message limits,
+     * from its message type: Chat text, trade offers and replies, or gameplay (everything else).
+     * Only parses the message type number, since this is called for each message in the client's reader thread.
+     *
+     * @param str Contents of message from the client
+     * @return  Category, such as {@link InboundMessageLimiter#CATEGORY_CHAT}
+     * @see #PROP_JSETTLERS_INLIMIT_CHAT
+     * @since 2.0.00
+     */
+    @Override
+    protected int getInboundMessageCategory(final String str)
+    {
+        int mtype = 0;
+        for (int i = 0; i < str.length(); ++i)
+        {
+            final char ch = str.charAt(i);
+            if ((ch < '0') || (ch > '9') || (mtype > 99999))
+                break;  // end of type number, or not a valid type
+            mtype = (10 * mtype) + (ch - '0');
+        }
+
+        switch (mtype)
+        {
+        case SOCMessage.TEXTMSG:
+        case SOCMessage.GAMETEXTMSG:
+            return InboundMessageLimiter.CATEGORY_CHAT;
+
+        case SOCMessage.MAKEOFFER:
+        case SOCMessage.CLEAROFFER:
+        case SOCMessage.REJECTOFFER:
+        case SOCMessage.ACCEPTOFFER:
+            return InboundMessageLimiter.CATEGORY_TRADE;
+
+        default:
+            return InboundMessageLimiter.CATEGORY_GAMEPLAY;
+        }
+    }
+
+    /**
+     * For a network client which is falling behind, get the key of an outbound message which makes
+     * earlier ones with the same key obsolete: A game's {@link SOCGameState}, a player's {@link SOCResourceCount},
+     * or a {@link SOCPlayerElement} which sets (not gains or loses) an element's amount.
+     * The key is the message without its final value field.
+     *
+     * @param str  Outbound message
+     * @return  Key for this message, or null if it never supersedes an earlier message
+     * @see #PROP_JSETTLERS_OUTLIMIT_HIGHWATER
+     * @since 2.0.00
+     */
+    @Override
+    protected String getOutboundSupersedeKey(final String str)
+    {
+        final int sepIdx = str.indexOf(SOCMessage.sep_char);
+        if (sepIdx == -1)
+            return null;
+        final int lastComma = str.lastIndexOf(SOCMessage.sep2_char);
+        if (lastComma < sepIdx)
+            return null;
+
+        final int mtype;
+        try
+        {
+            mtype = Integer.parseInt(str.substring(0, sepIdx));
+        }
+        catch (NumberFormatException e)
+        {
+            return null;
+        }
+
+        switch (mtype)
+        {
+        case SOCMessage.GAMESTATE:
+        case SOCMessage.RESOURCECOUNT:
+            return str.substring(0, lastComma);
+
+        case SOCMessage.PLAYERELEMENT:
+            {
+                // game,pn,action,element,value
+                final int c1 = str.indexOf(SOCMessage.sep2_char, sepIdx),
+                          c2 = (c1 != -1) ? str.indexOf(SOCMessage.sep2_char, c1 + 1) : -1,
+                          c3 = (c2 != -1) ? str.indexOf(SOCMessage.sep2_char, c2 + 1) : -1;
+                if ((c3 != -1) && str.substring(c2 + 1, c3).equals(Integer.toString(SOCPlayerElement.SET)))
+                    return str.substring(0, lastComma);
+            }
+            return null;
+
+        default:
+            return null;
+        }
+    }
+
     /**
      * Treat the incoming messages.  Messages of unknown type are ignored.
      *<P>
@@ -3482,6 +4174,9 @@ public class SOCServer extends Server
                     if ((ga == null) || (c == null))
                         return;  // <--- Early return: ignore unknown games ---
 
+                    if (gameEventLog != null)
+                        gameEventLog.recordInbound(ga, (String) c.getData(), s);
+
                     final GameHandler hand = gameList.getGameTypeHandler(gaName);
                     if (hand != null)  // all consistent games will have a handler
                     {
@@ -3719,6 +4414,7 @@ public class SOCServer extends Server
         "*WHO*   show players and observers of this game",
         "--- Debug Commands ---",
         "*BCAST*  broadcast msg to all games/channels",
+        "*BOTLIST*  list robots and their current load",
         "*GC*    trigger the java garbage-collect",
         "*KILLBOT*  botname  End a bot's connection",
         "*KILLGAME*  end the current game",
@@ -3831,12 +4527,13 @@ public class SOCServer extends Server
         }
         else if (dcmdU.startsWith("*BOTLIST*"))
         {
+            final Map<StringConnection, Integer> pending = getRobotPendingJoinCounts();
             Enumeration<StringConnection> robotsEnum = robots.elements();
 
             while (robotsEnum.hasMoreElements())
             {
                 StringConnection robotConn = robotsEnum.nextElement();
-                messageToGame(ga, "> Robot: " + robotConn.getData());
+                messageToGame(ga, "> Robot: " + robotConn.getData() + getRobotLoadDescription(robotConn, pending));
                 robotConn.put(SOCAdminPing.toCmd((ga)));
             }
         }
@@ -3903,6 +4600,38 @@ public class SOCServer extends Server
         return isCmd;
     }
 
+    /**
+     * Describe a robot's load for operators, such as the {@code *BOTLIST*} debug command.
+     * @param robotConn  A robot client's connection, from {@link #robots}
+     * @param pending  Robots' pending join request counts from {@link #getRobotPendingJoinCounts()}
+     * @return  Description starting with a space, such as " (smart): games=3, joining=1, ping=40ms, load=8"
+     * @see #getRobotLoad(StringConnection, Map)
+     * @since 2.0.00
+     */
+    private String getRobotLoadDescription(final StringConnection robotConn, final Map<StringConnection, Integer> pending)
+    {
+        final SOCClientData scd = (SOCClientData) robotConn.getAppData();
+        final Integer n = pending.get(robotConn);
+
+        StringBuffer sb = new StringBuffer();
+        if (scd != null)
+            sb.append((scd.robotStrategyType == soc.robot.SOCRobotDM.SMART_STRATEGY) ? " (smart)" : " (fast)");
+        sb.append(": games=");
+        sb.append(gameList.getMemberGameNames(robotConn).size());
+        sb.append(", joining=");
+        sb.append((n != null) ? n.intValue() : 0);
+        if ((scd != null) && (scd.robotPingRoundTripMillis > 0))
+        {
+            sb.append(", ping=");
+            sb.append(scd.robotPingRoundTripMillis);
+            sb.append("ms");
+        }
+        sb.append(", load=");
+        sb.append(getRobotLoad(robotConn, pending));
+
+        return sb.toString();
+    }
+
     /**
      * The server is being cleanly stopped.
      * Shut down with a final message "The game server is shutting down".
@@ -3943,6 +4672,17 @@ public class SOCServer extends Server
             Thread.yield();
         }
 
+        /// save the games one last time, so they can be restored at the next startup
+        if (gameCheckpointer != null)
+        {
+            gameCheckpointer.stopCheckpointing();
+            gameCheckpointer.checkpointAll();
+        }
+        if (gameEventLog != null)
+            gameEventLog.closeAll();
+        if (boardLayoutPool != null)
+            boardLayoutPool.stopPool();
+
         /// now continue with shutdown
         try
         {
@@ -4032,6 +4772,13 @@ public class SOCServer extends Server
             return;
         cd.disconnectLastPingMillis = 0;
 
+        if (cd.isRobot && (cd.robotPingSentMillis != 0))
+        {
+            // reply to SOCServerRobotPinger; remember round trip for getRobotLoad
+            cd.robotPingRoundTripMillis = (int) (System.currentTimeMillis() - cd.robotPingSentMillis);
+            cd.robotPingSentMillis = 0;
+        }
+
         // TODO any other reaction or flags?
     }
 
@@ -4534,6 +5281,13 @@ public class SOCServer extends Server
         if (! isBuiltIn)
             scd.robot3rdPartyBrainClass = rbc;
 
+        // Bots play in many games at once, but any bot with the cookie can claim to be built-in:
+        // Exempt only the ones we started, or that the server operator listed as trusted.
+        final String rname = mes.getNickname();
+        if (SOCLocalRobotClient.robotClients.containsKey(rname) || trustedRobotNames.contains(rname))
+            exemptFromInboundRateLimits(c);
+        scd.robotStrategyType = params.getStrategyType();
+
         scd.locale = null;  // bots don't care about message text contents
         scd.localeStr = null;
         // Note that if c.setI18NStringManager was called, it's not cleared here
@@ -4619,6 +5373,17 @@ public class SOCServer extends Server
             messageToPlayer(c, gaName, "> Free Memory: " + rt.freeMemory());
             messageToPlayer(c, gaName, "> Version: "
                 + Version.versionNumber() + " (" + Version.version() + ") build " + Version.buildnum());
+            if (gameCheckpointer != null)
+                messageToPlayer(c, gaName, "> " + gameCheckpointer.getStatsString());
+            if (gameEventLog != null)
+                messageToPlayer(c, gaName, "> " + gameEventLog.getStatsString());
+            if (boardLayoutPool != null)
+                messageToPlayer(c, gaName, "> " + boardLayoutPool.getStatsString());
+            if (inboundLimiter != null)
+                messageToPlayer(c, gaName, "> " + inboundLimiter.getStatsString());
+            final String outStats = getOutboundQueueStatsString();
+            if (outStats != null)
+                messageToPlayer(c, gaName, "> " + outStats);
 
             if (! clientPastVersionStats.isEmpty())
             {
@@ -4897,6 +5662,24 @@ public class SOCServer extends Server
         }
         System.err.println("L4965 past user,pw check at " + System.currentTimeMillis());
 
+        /**
+         * If they're rejoining their seat in a game restored from a checkpoint,
+         * check that they're that player, as checkNickname does for a takeover.
+         */
+        if (! isTakingOver)
+        {
+            final boolean authenticated = (c.getData() == null) && (msgPass != null) && (msgPass.length() > 0);
+            final int seatTimeout = checkRestoredSeat
+                (gameName, (c.getData() != null) ? (String) c.getData() : msgUser, c, authenticated);
+            if (seatTimeout > 0)
+            {
+                c.put(SOCStatusMessage.toCmd
+                        (SOCStatusMessage.SV_NAME_IN_USE, cliVers,
+                         checkNickname_getRetryText(seatTimeout)));
+                return;
+            }
+        }
+
         /**
          * Now that everything's validated, name this connection/user/player.
          * If isTakingOver, also copies their current game/channel count.
@@ -5579,6 +6362,90 @@ public class SOCServer extends Server
         }
     }
 
+    /**
+     * Create a game played only by robots, and ask these robots to join it.
+     * The game starts when they've all sat down, the same way as
+     * a game whose empty seats are filled by robots after {@link #handleSTARTGAME(StringConnection, SOCStartGame)}.
+     * Seats past <tt>botNames.length</tt> are locked.
+     * The game has no owner; when it's over, the caller should destroy it.
+     *<P>
+     * Used by bot-vs-bot tools such as {@link RobotParameterTuner}.
+     *
+     * @param gaName  Name of the new game
+     * @param gaOpts  Game options, or null; should already be validated, by calling
+     *                {@link SOCGameOption#adjustOptionsToKnown(Map, Map, boolean)}
+     *                with <tt>doServerPreadjust</tt> true.
+     * @param botNames  Names of the connected robots to play, in seat order;
+     *     at least {@link SOCGame#MINPLAYERS}, at most the game's max players
+     * @return  True if the game was created and the robots were asked to join,
+     *     false if a game with that name already exists
+     * @throws IllegalArgumentException  if <tt>botNames</tt> has the wrong length,
+     *     or a bot name isn't a connected robot
+     * @since 2.0.00
+     */
+    public boolean startRobotOnlyGame
+        (final String gaName, final Map<String, SOCGameOption> gaOpts, final String[] botNames)
+        throws IllegalArgumentException
+    {
+        if (botNames.length < SOCGame.MINPLAYERS)
+            throw new IllegalArgumentException("botNames length: " + botNames.length);
+
+        StringConnection[] botConns = new StringConnection[botNames.length];
+        synchronized (robots)
+        {
+            for (int i = 0; i < botNames.length; ++i)
+            {
+                for (StringConnection rc : robots)
+                {
+                    if (botNames[i].equals(rc.getData()))
+                    {
+                        botConns[i] = rc;
+                        break;
+                    }
+                }
+
+                if (botConns[i] == null)
+                    throw new IllegalArgumentException("Not a connected robot: " + botNames[i]);
+            }
+        }
+
+        SOCGame ga;
+        gameList.takeMonitor();
+        try
+        {
+            ga = gameList.createGame(gaName, null, null, gaOpts, handler);
+        }
+        finally
+        {
+            gameList.releaseMonitor();
+        }
+        if (ga == null)
+            return false;
+        expectBoardLayout(ga);
+
+        if (botNames.length > ga.maxPlayers)
+            throw new IllegalArgumentException("botNames length: " + botNames.length);
+
+        StringConnection[] robotSeats = new StringConnection[ga.maxPlayers];
+        System.arraycopy(botConns, 0, robotSeats, 0, botConns.length);
+
+        ga.takeMonitor();
+        try
+        {
+            for (int pn = botNames.length; pn < ga.maxPlayers; ++pn)
+                ga.setSeatLock(pn, SOCGame.SeatLockState.LOCKED);
+
+            ga.setGameState(SOCGame.READY);
+            readyGameAskRobotsJoin(ga, robotSeats);
+        }
+        finally
+        {
+            ga.releaseMonitor();
+        }
+
+        return true;
+    }
+
     /**
      * Temporary debugging; call when "no player gets anything" will be printed after a roll.
      * @param ga  Game data
@@ -6579,25 +7446,106 @@ public class SOCServer extends Server
     }
 
     /**
-     * record events that happen during the game
+     * record events that happen during the game, in the {@link #gameEventLog} if there is one.
+     * Before v2.0.00 this method did nothing.
      *
      * @param gameName   the name of the game
-     * @param event      the event
+     * @param event      the event, usually a message sent to the game
+     * @see #recordGameStart(SOCGame)
      */
     protected void recordGameEvent(String gameName, String event)
     {
-        /*
-           FileWriter fw = (FileWriter)gameDataFiles.get(gameName);
-           if (fw != null) {
-           try {
-           fw.write(event+"\n");
-           //D.ebugPrintln("WROTE |"+event+"|");
-           } catch (Exception e) {
-           D.ebugPrintln(e.toString());
-           D.ebugPrintln("Unable to write to disk.");
-           }
-           }
-         */
+        if (gameEventLog != null)
+            gameEventLog.recordEvent(gameName, event);
+    }
+
+    /**
+     * This game has started, or restarted after a board reset or a restore from checkpoint;
+     * start recording its events if the {@link #gameEventLog} is enabled.
+     * Caller should hold {@link SOCGame#takeMonitor()} or be the only thread which can change the game.
+     *
+     * @param ga  the game
+     * @see #recordGameEvent(String, String)
+     * @since 2.0.00
+     */
+    void recordGameStart(final SOCGame ga)
+    {
+        if (gameEventLog != null)
+            gameEventLog.gameStarted(ga);
+    }
+
+    /**
+     * Seed new games' random numbers from this base seed and each game's name, for repeatable
+     * simulations and benchmarks: A game with the same name, options, and player actions
+     * will get the same board and dice.  Local robots started after this call are seeded too.
+     * Takes effect for games started after this call.
+     * @param seed  Base seed
+     * @see #PROP_JSETTLERS_GAME_SEED
+     * @see SOCGame#setRandomSeed(long)
+     * @since 2.0.00
+     */
+    public void setGameRandomSeed(final long seed)
+    {
+        gameRandomSeed = Long.valueOf(seed);
+    }
+
+    /**
+     * Before starting a game, seed its random numbers if {@link #setGameRandomSeed(long)} was called.
+     * A game from a board reset keeps the seed it got from the old game, so its board is new but still repeatable.
+     * Either way, the game's seed is saved with it in checkpoints and event logs.
+     * @param ga  the game, which hasn't yet called {@link SOCGame#startGame()}
+     * @since 2.0.00
+     */
+    void seedNewGame(final SOCGame ga)
+    {
+        final Long seed = gameRandomSeed;
+        if ((seed != null) && ! ga.isBoardReset())
+            ga.setRandomSeed(SOCSplittableRandom.seedFor(seed.longValue(), ga.getName()));
+    }
+
+    /**
+     * A new game was created; if the {@link #boardLayoutPool} is enabled, start making layouts
+     * for its options so one is ready when it starts.
+     * @param ga  the new game
+     * @since 2.0.00
+     */
+    private void expectBoardLayout(final SOCGame ga)
+    {
+        if ((boardLayoutPool != null) && (gameRandomSeed == null))
+            boardLayoutPool.expect(ga);
+    }
+
+    /**
+     * Before starting a game, take a board layout for it from the {@link #boardLayoutPool} if one is ready.
+     * The game will take the layout's seed as its own, so it's still repeatable from its recorded seed.
+     * Games aren't given pooled layouts if {@link #setGameRandomSeed(long)} was called,
+     * because their seed must come from the base seed and their name.
+     * @param ga  the game, which hasn't yet called {@link SOCGame#startGame()}
+     * @return  a layout whose board and seed to pass to {@link SOCGame#startGame(SOCBoard, long)},
+     *     or null to lay out the game's own board
+     * @since 2.0.00
+     */
+    SOCBoardLayoutPool.Layout takeBoardLayout(final SOCGame ga)
+    {
+        if ((boardLayoutPool == null) || (gameRandomSeed != null))
+            return null;
+
+        return boardLayoutPool.take(ga);
+    }
+
+    /**
+     * The server is ending a player's turn because they left or are inactive;
+     * record it in the {@link #gameEventLog} if there is one.
+     *
+     * @param gameName  the name of the game
+     * @param pn  player number
+     * @param plName  player name
+     * @since 2.0.00
+     */
+    void recordGameForceEndTurn(final String gameName, final int pn, final String plName)
+    {
+        if (gameEventLog != null)
+            gameEventLog.recordForceEndTurn(gameName, pn, plName);
     }
 
     /**
@@ -7107,4 +8055,23 @@ public class SOCServer extends Server
 
     }  // main
 
+    /**
+     * A human player's seat in a game restored from a checkpoint, until they rejoin it.
+     * @see SOCServer#restoredSeats
+     * @since 2.0.00
+     */
+    private static final class RestoredSeat
+    {
+        /** The player's host when the game was checkpointed, or null if not known */
+        final String host;
+
+        /** When a client from another host first tried to rejoin this seat, or 0 */
+        long otherHostMillis;
+
+        RestoredSeat(final String host)
+        {
+            this.host = host;
+        }
+    }
+
 }  // public class SOCServer
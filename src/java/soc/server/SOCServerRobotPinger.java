@@ -73,6 +73,9 @@ public class SOCServerRobotPinger extends Thread
                 for (StringConnection robotConnection : robotConnections)
                 {
                     D.ebugPrintln("(*)(*)(*)(*) PINGING " + robotConnection.getData());
+                    SOCClientData scd = (SOCClientData) robotConnection.getAppData();
+                    if (scd != null)
+                        scd.robotPingSentMillis = System.currentTimeMillis();  // for robot load round-trip time
                     robotConnection.put(ping.toCmd());
                 }
             }
@@ -193,6 +193,8 @@ public class SOCDBHelper
     private static String LASTLOGIN_UPDATE = "UPDATE users SET lastlogin = ?  WHERE nickname = ? ;";
     private static String SAVE_GAME_COMMAND = "INSERT INTO games VALUES (?,?,?,?,?,?,?,?,?,?);";
     private static String ROBOT_PARAMS_QUERY = "SELECT * FROM robotparams WHERE robotname = ?;";
+    private static String ROBOT_PARAMS_DELETE = "DELETE FROM robotparams WHERE robotname = ?;";
+    private static String ROBOT_PARAMS_INSERT = "INSERT INTO robotparams VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?);";
 
     private static PreparedStatement createAccountCommand = null;
     private static PreparedStatement recordLoginCommand = null;
@@ -206,6 +208,18 @@ public class SOCDBHelper
      */
     private static PreparedStatement robotParamsQuery = null;
 
+    /** Delete a bot's robot parameters; {@link #ROBOT_PARAMS_DELETE}.
+     *  Used in {@link #saveRobotParams(String, SOCRobotParameters, long, long, int, int)}.
+     *  @since 2.0.00
+     */
+    private static PreparedStatement robotParamsDelete = null;
+
+    /** Insert a bot's robot parameters; {@link #ROBOT_PARAMS_INSERT}.
+     *  Used in {@link #saveRobotParams(String, SOCRobotParameters, long, long, int, int)}.
+     *  @since 2.0.00
+     */
+    private static PreparedStatement robotParamsInsert = null;
+
     /**
      * This makes a connection to the database
      * and initializes the prepared statements.
@@ -425,6 +439,8 @@ public class SOCDBHelper
         lastloginUpdate = connection.prepareStatement(LASTLOGIN_UPDATE);
         saveGameCommand = connection.prepareStatement(SAVE_GAME_COMMAND);
         robotParamsQuery = connection.prepareStatement(ROBOT_PARAMS_QUERY);
+        robotParamsDelete = connection.prepareStatement(ROBOT_PARAMS_DELETE);
+        robotParamsInsert = connection.prepareStatement(ROBOT_PARAMS_INSERT);
 
         return true;
     }
@@ -927,6 +943,70 @@ public class SOCDBHelper
         return robotParams;
     }
 
+    /**
+     * Save this robot's specialized parameters in the database, replacing any it already has there.
+     * {@link #retrieveRobotParams(String)} will return them the next time the robot connects.
+     *
+     * @param robotName  Name of robot for db lookup
+     * @param params  Parameters to save; {@link SOCRobotParameters#getDecisionTimeBudget()} isn't stored
+     * @param startTime  When these parameters were first tested, from {@link System#currentTimeMillis()}
+     * @param endTime  When testing ended
+     * @param gamesWon  Number of test games won with these parameters
+     * @param gamesLost  Number of test games lost
+     *
+     * @return true if the save succeeded, false if not connected to a database
+     *
+     * @throws SQLException if unexpected problem saving the params
+     * @since 2.0.00
+     */
+    public static boolean saveRobotParams
+        (final String robotName, final SOCRobotParameters params, final long startTime, final long endTime,
+         final int gamesWon, final int gamesLost)
+        throws SQLException
+    {
+        // ensure that the JDBC connection is still valid
+        if (checkConnection())
+        {
+            if (robotParamsInsert == null)
+                return false;
+
+            try
+            {
+                robotParamsDelete.setString(1, robotName);
+                robotParamsDelete.executeUpdate();
+
+                // fill in the data values to the Prepared statement
+                robotParamsInsert.setString(1, robotName);
+                robotParamsInsert.setInt(2, params.getMaxGameLength());
+                robotParamsInsert.setInt(3, params.getMaxETA());
+                robotParamsInsert.setFloat(4, params.getETABonusFactor());
+                robotParamsInsert.setFloat(5, params.getAdversarialFactor());
+                robotParamsInsert.setFloat(6, params.getLeaderAdversarialFactor());
+                robotParamsInsert.setFloat(7, params.getDevCardMultiplier());
+                robotParamsInsert.setFloat(8, params.getThreatMultiplier());
+                robotParamsInsert.setInt(9, params.getStrategyType());
+                robotParamsInsert.setTimestamp(10, new Timestamp(startTime));
+                robotParamsInsert.setTimestamp(11, new Timestamp(endTime));
+                robotParamsInsert.setInt(12, gamesWon);
+                robotParamsInsert.setInt(13, gamesLost);
+                robotParamsInsert.setBoolean(14, (params.getTradeFlag() == 1));
+
+                // execute the Command
+                robotParamsInsert.executeUpdate();
+
+                return true;
+            }
+            catch (SQLException sqlE)
+            {
+                errorCondition = true;
+                sqlE.printStackTrace();
+                throw sqlE;
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Query to see if a column exists in a table.
      * Any exception is caught here and returns false.
@@ -1019,6 +1099,8 @@ public class SOCDBHelper
                 lastloginUpdate.close();
                 saveGameCommand.close();
                 robotParamsQuery.close();
+                robotParamsDelete.close();
+                robotParamsInsert.close();
             }
             catch (Throwable thr)
             {
@@ -29,9 +29,12 @@ import java.io.IOException;
 import java.io.Serializable;
 
 import java.net.Socket;
+import java.net.SocketException;
 
 import java.util.Date;
-import java.util.Vector;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.TimerTask;
 
 
 /** A client's connection at a server.
@@ -66,7 +69,43 @@ public final class Connection
     protected boolean connected = false;
     /** @see #disconnectSoft() */
     protected boolean inputConnected = false;
-    private Vector<String> outQueue = new Vector<String>();
+
+    /**
+     * Messages waiting to be sent by the {@link Putter}, oldest first; synchronize on this queue.
+     * Includes messages superseded while lagging, which won't be sent.
+     * Before v2.0.00 this was an unbounded Vector of Strings.
+     * @see #put(String)
+     */
+    private final LinkedList<QueuedMessage> outQueue = new LinkedList<QueuedMessage>();
+
+    /**
+     * Number of messages in {@link #outQueue} which will be sent (not superseded).
+     * Synchronize on {@link #outQueue}.
+     * @since 2.0.00
+     */
+    private int outQueueLive;
+
+    /**
+     * While this connection is lagging (more than {@link OutboundQueueLimits#highWater} messages waiting),
+     * the newest queued message for each key from {@link Server#getOutboundSupersedeKey(String)};
+     * otherwise {@code null}.  Synchronize on {@link #outQueue}.
+     * @since 2.0.00
+     */
+    private HashMap<String, QueuedMessage> outQueueByKey;
+
+    /**
+     * Time this connection started lagging, from {@link System#currentTimeMillis()}, or 0 if not lagging.
+     * Synchronize on {@link #outQueue}.
+     * @since 2.0.00
+     */
+    private long outLaggingSince;
+
+    /**
+     * True if this connection fell too far behind and is being disconnected; {@link #put(String)} ignores messages.
+     * Synchronize on {@link #outQueue}.
+     * @since 2.0.00
+     */
+    private boolean outEvicted;
 
     /** initialize the connection data */
     Connection(Socket so, Server sve)
@@ -194,16 +233,97 @@ public final class Connection
     /**
      * Send this data over the connection.  Adds it to the {@link #outQueue}
      * to be sent by the Putter thread.
+     *<P>
+     * If the server has {@link Server#outboundLimits} and this connection has fallen behind
+     * (more than {@link OutboundQueueLimits#highWater} messages waiting), a message which supersedes
+     * one already waiting replaces it; see {@link Server#getOutboundSupersedeKey(String)}.
+     * If it falls too far behind, it's disconnected: Its queue is cleared, and the server's
+     * {@link Server#utilTimer} thread calls {@link Server#removeConnection(StringConnection)},
+     * since our caller may hold locks.
      *
      * @param str Data to send
      */
     public final void put(String str)
     {
+        final OutboundQueueLimits lim = ourServer.outboundLimits;
+        int evictQueued = -1;
+
         synchronized (outQueue)
         {
+            if (outEvicted)
+                return;
+
             // D.ebugPrintln("Adding " + str + " to outQueue for " + data);
-            outQueue.addElement(str);
-            outQueue.notify();
+            final QueuedMessage qm = new QueuedMessage(str);
+            if ((lim != null) && (outQueueLive >= lim.highWater))
+            {
+                final long now = System.currentTimeMillis();
+                if (outLaggingSince == 0)
+                {
+                    outLaggingSince = now;
+                    outQueueByKey = new HashMap<String, QueuedMessage>();
+                    lim.lagging();
+                }
+
+                final String key = ourServer.getOutboundSupersedeKey(str);
+                if (key != null)
+                {
+                    final QueuedMessage old = outQueueByKey.put(key, qm);
+                    if ((old != null) && (old.str != null))
+                    {
+                        old.str = null;  // Putter will skip it
+                        --outQueueLive;
+                        lim.collapsed();
+                    }
+                }
+
+                if ((outQueueLive >= lim.maxQueued)
+                    || ((lim.maxLagMillis > 0) && ((now - outLaggingSince) > lim.maxLagMillis)))
+                {
+                    evictQueued = outQueueLive;
+                    outEvicted = true;
+                    outQueue.clear();
+                    outQueueByKey = null;
+                    outQueueLive = 0;
+                }
+            }
+
+            if (evictQueued == -1)
+            {
+                outQueue.addLast(qm);
+                ++outQueueLive;
+                if (lim != null)
+                    lim.queueSize(outQueueLive);
+                outQueue.notify();
+            }
+        }
+
+        if (evictQueued != -1)
+        {
+            lim.evicted();
+            System.err.println("Disconnecting " + hst + " (" + data + "): Too far behind on outbound messages ("
+                + evictQueued + " waiting)");
+            error = new SocketException("Outbound message queue limit exceeded");
+            ourServer.utilTimer.schedule(new TimerTask()
+            {
+                public void run()
+                {
+                    ourServer.removeConnection(Connection.this);
+                }
+            }, 0);
+        }
+    }
+
+    /**
+     * Get the number of messages waiting to be sent to this connection, for stats.
+     * @return number of messages in {@link #outQueue} which will be sent
+     * @since 2.0.00
+     */
+    public int getOutQueueSize()
+    {
+        synchronized (outQueue)
+        {
+            return outQueueLive;
         }
     }
 
@@ -383,10 +503,22 @@ public final class Connection
 
                 synchronized (outQueue)
                 {
-                    if (outQueue.size() > 0)
+                    while ((c == null) && ! outQueue.isEmpty())
                     {
-                        c = outQueue.elementAt(0);
-                        outQueue.removeElementAt(0);
+                        final QueuedMessage qm = outQueue.removeFirst();
+                        c = qm.str;  // null if superseded
+                        if (c != null)
+                        {
+                            qm.str = null;
+                            --outQueueLive;
+                        }
+                    }
+
+                    final OutboundQueueLimits lim = ourServer.outboundLimits;
+                    if ((outLaggingSince != 0) && ((lim == null) || (outQueueLive <= (lim.highWater / 2))))
+                    {
+                        outLaggingSince = 0;  // caught up
+                        outQueueByKey = null;
                     }
                 }
 
@@ -399,7 +531,7 @@ public final class Connection
 
                 synchronized (outQueue)
                 {
-                    if (outQueue.size() == 0)
+                    if (outQueue.isEmpty())
                     {
                         try
                         {
@@ -417,4 +549,19 @@ public final class Connection
             D.ebugPrintln("putter not putting connected==false : " + data);
         }
     }
+
+    /**
+     * One message in {@link Connection#outQueue}.
+     * @since 2.0.00
+     */
+    private static final class QueuedMessage
+    {
+        /** Message to send, or null if it's been superseded or sent */
+        String str;
+
+        QueuedMessage(final String str)
+        {
+            this.str = str;
+        }
+    }
 }
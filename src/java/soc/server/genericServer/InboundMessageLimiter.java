@@ -0,0 +1,248 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2013 JSettlers contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.server.genericServer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-connection limits on inbound messages, so that one flooding client
+ * (or a buggy bot) can't fill the server's {@link Server#inQueue} and starve everyone else.
+ * Used by {@link Server#treat(String, StringConnection)} for network {@link Connection}s;
+ * local {@link LocalStringConnection}s are in the same JVM and aren't limited.
+ *<P>
+ * Each message is put into a category by {@link Server#getInboundMessageCategory(String)}:
+ * {@link #CATEGORY_GAMEPLAY}, {@link #CATEGORY_CHAT}, or {@link #CATEGORY_TRADE}.
+ * Each connection has a token bucket for each category: The bucket holds up to <tt>burst</tt> messages,
+ * and refills at <tt>rate</tt> messages per second.  A message which finds its bucket empty is dropped.
+ *<P>
+ * Dropped messages are counted against the connection in another bucket, of "strikes",
+ * which refills at 1 per second. A client which keeps sending too fast, and runs out of strikes,
+ * is disconnected.  So is a client with more than <tt>maxQueued</tt> messages waiting in {@link Server#inQueue},
+ * which means it's sending faster than the server can treat them.
+ *<P>
+ * A trusted connection, such as a built-in robot playing in many games at once,
+ * can be exempted from the rates and from <tt>maxQueued</tt> by {@link Server#exemptFromInboundRateLimits(StringConnection)}:
+ * A robot client hosting brains for many games can have hundreds of messages waiting while the server is busy.
+ *<P>
+ * The counts of dropped messages and disconnects are shown by {@link #getStatsString()}.
+ * This class is thread-safe; each connection's {@link ConnState} is used only by that
+ * connection's reader thread, except for its queued-message count.
+ *
+ * @since 2.0.00
+ */
+public class InboundMessageLimiter
+{
+    /** Category for game actions and all other messages not in another category */
+    public static final int CATEGORY_GAMEPLAY = 0;
+
+    /** Category for chat text in games and channels */
+    public static final int CATEGORY_CHAT = 1;
+
+    /** Category for trade offers and their replies */
+    public static final int CATEGORY_TRADE = 2;
+
+    /** Number of categories */
+    public static final int CATEGORY_COUNT = 3;
+
+    /** Category names for {@link #getStatsString()} */
+    private static final String[] CATEGORY_NAMES = { "gameplay", "chat", "trade" };
+
+    /** {@link #check(ConnState, int)} result: Treat the message */
+    public static final int RESULT_OK = 0;
+
+    /** {@link #check(ConnState, int)} result: Drop the message, its category's rate is exceeded */
+    public static final int RESULT_DROP = 1;
+
+    /** {@link #check(ConnState, int)} result: Drop the message and disconnect the client for abuse */
+    public static final int RESULT_DISCONNECT = 2;
+
+    /** Each category's refill rate in messages per second, or 0 for no limit */
+    private final double[] rates;
+
+    /** Each category's bucket size */
+    private final int[] bursts;
+
+    /** Maximum messages from one connection waiting in {@link Server#inQueue}, or 0 for no limit */
+    private final int maxQueued;
+
+    /** Size of each connection's bucket of strikes (dropped messages) before it's disconnected */
+    private final int maxStrikes;
+
+    /** Stats: Messages dropped in each category */
+    private final AtomicLong[] statDropped = new AtomicLong[CATEGORY_COUNT];
+
+    /** Stats: Clients disconnected for running out of strikes */
+    private final AtomicLong statDisconnectedFlood = new AtomicLong();
+
+    /** Stats: Clients disconnected for too many queued messages */
+    private final AtomicLong statDisconnectedQueue = new AtomicLong();
+
+    /**
+     * Create a limiter with these limits.
+     * @param rates  Each category's rate in messages per second, indexed by category such as {@link #CATEGORY_CHAT};
+     *     0 for no limit on that category
+     * @param bursts  Each category's burst size: Messages which can be sent at once after a quiet time; at least 1
+     * @param maxQueued  Maximum messages from one connection waiting to be treated, or 0 for no limit
+     * @param maxStrikes  Dropped messages allowed in a burst before disconnecting; refills at 1 per second
+     * @throws IllegalArgumentException if <tt>rates</tt> or <tt>bursts</tt> length isn't {@link #CATEGORY_COUNT},
+     *     or any value is negative
+     */
+    public InboundMessageLimiter(final double[] rates, final int[] bursts, final int maxQueued, final int maxStrikes)
+        throws IllegalArgumentException
+    {
+        if ((rates.length != CATEGORY_COUNT) || (bursts.length != CATEGORY_COUNT))
+            throw new IllegalArgumentException("length");
+        for (int i = 0; i < CATEGORY_COUNT; ++i)
+            if ((rates[i] < 0) || (bursts[i] < 0))
+                throw new IllegalArgumentException("category " + i);
+        if ((maxQueued < 0) || (maxStrikes < 0))
+            throw new IllegalArgumentException("maxQueued, maxStrikes");
+
+        this.rates = rates.clone();
+        this.bursts = bursts.clone();
+        this.maxQueued = maxQueued;
+        this.maxStrikes = maxStrikes;
+        for (int i = 0; i < CATEGORY_COUNT; ++i)
+            statDropped[i] = new AtomicLong();
+    }
+
+    /**
+     * Make the limit state for a new connection, with full buckets.
+     * @return  New limit state
+     */
+    public ConnState newConnState()
+    {
+        return new ConnState(this, System.nanoTime());
+    }
+
+    /**
+     * Check whether a message from a connection is within its limits, and if so count it as queued.
+     * If the result is {@link #RESULT_OK}, call {@link ConnState#dequeued()} after the message is removed
+     * from {@link Server#inQueue}.  Call only from the connection's reader thread.
+     *
+     * @param st  Connection's limit state, from {@link #newConnState()}
+     * @param category  Message category, such as {@link #CATEGORY_CHAT}
+     * @return  {@link #RESULT_OK}, {@link #RESULT_DROP}, or {@link #RESULT_DISCONNECT}
+     */
+    public int check(final ConnState st, int category)
+    {
+        if ((category < 0) || (category >= CATEGORY_COUNT))
+            category = CATEGORY_GAMEPLAY;
+
+        final long now = System.nanoTime();
+        final double secs = (now - st.lastNanos) / 1e9;
+        st.lastNanos = now;
+
+        for (int i = 0; i < CATEGORY_COUNT; ++i)
+            st.tokens[i] = Math.min(bursts[i], st.tokens[i] + secs * rates[i]);
+        st.strikes = Math.min(maxStrikes, st.strikes + secs);
+
+        if ((maxQueued > 0) && (st.queued.get() >= maxQueued) && ! st.ratesExempt)
+        {
+            statDropped[category].incrementAndGet();
+            statDisconnectedQueue.incrementAndGet();
+            return RESULT_DISCONNECT;
+        }
+
+        if ((rates[category] > 0) && ! st.ratesExempt)
+        {
+            if (st.tokens[category] < 1.0)
+            {
+                statDropped[category].incrementAndGet();
+                st.strikes -= 1.0;
+                if (st.strikes < 0)
+                {
+                    statDisconnectedFlood.incrementAndGet();
+                    return RESULT_DISCONNECT;
+                }
+
+                return RESULT_DROP;
+            }
+
+            st.tokens[category] -= 1.0;
+        }
+
+        st.queued.incrementAndGet();
+        return RESULT_OK;
+    }
+
+    /**
+     * Get stats for the server's stats display.
+     * @return stats text, such as "Inbound limits: Dropped 0 gameplay, 12 chat, 0 trade; disconnected 1 flooding, 0 queue full"
+     */
+    public String getStatsString()
+    {
+        StringBuilder sb = new StringBuilder("Inbound limits: Dropped ");
+        for (int i = 0; i < CATEGORY_COUNT; ++i)
+        {
+            if (i > 0)
+                sb.append(", ");
+            sb.append(statDropped[i].get()).append(' ').append(CATEGORY_NAMES[i]);
+        }
+        sb.append("; disconnected ").append(statDisconnectedFlood.get()).append(" flooding, ")
+          .append(statDisconnectedQueue.get()).append(" queue full");
+
+        return sb.toString();
+    }
+
+    /**
+     * One connection's token buckets and queued-message count.
+     * Made by {@link InboundMessageLimiter#newConnState()}.
+     */
+    public static final class ConnState
+    {
+        /** Tokens in each category's bucket */
+        final double[] tokens = new double[CATEGORY_COUNT];
+
+        /** Strikes left before disconnect */
+        double strikes;
+
+        /** Time of the last {@link InboundMessageLimiter#check(ConnState, int)}, from {@link System#nanoTime()} */
+        long lastNanos;
+
+        /** This connection's messages waiting in {@link Server#inQueue} */
+        final AtomicInteger queued = new AtomicInteger();
+
+        /**
+         * If true, this trusted connection isn't limited by the category rates or by <tt>maxQueued</tt>.
+         * @see Server#exemptFromInboundRateLimits(StringConnection)
+         */
+        volatile boolean ratesExempt;
+
+        ConnState(final InboundMessageLimiter lim, final long now)
+        {
+            for (int i = 0; i < CATEGORY_COUNT; ++i)
+                tokens[i] = lim.bursts[i];
+            strikes = lim.maxStrikes;
+            lastNanos = now;
+        }
+
+        /**
+         * A message from this connection which passed {@link InboundMessageLimiter#check(ConnState, int)}
+         * has been removed from {@link Server#inQueue} to be treated.
+         */
+        public void dequeued()
+        {
+            queued.decrementAndGet();
+        }
+    }
+
+}
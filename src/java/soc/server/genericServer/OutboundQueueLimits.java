@@ -0,0 +1,137 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2013 JSettlers contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.server.genericServer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits on each network {@link Connection}'s queue of outbound messages, so that a client
+ * on a stalled network can't make the server run out of memory by never reading its messages.
+ *<P>
+ * When a connection has more than {@link #highWater} messages waiting to be sent, it's lagging:
+ * From then on, a new message which supersedes one already waiting, such as a game's new state,
+ * replaces the older one instead of being added to the queue.  The server decides which messages
+ * supersede others in {@link Server#getOutboundSupersedeKey(String)}.
+ * The lagging ends once the connection catches up to half of {@code highWater}.
+ *<P>
+ * A connection is disconnected if it has more than {@link #maxQueued} messages waiting,
+ * or has been lagging for more than {@link #maxLagMillis}.
+ *<P>
+ * Holds the stats shown by {@link #getStatsString(int, int)}; this class is thread-safe.
+ *
+ * @since 2.0.00
+ */
+public class OutboundQueueLimits
+{
+    /** Queue size at which a connection starts collapsing superseded messages */
+    public final int highWater;
+
+    /** Queue size at which a connection is disconnected */
+    public final int maxQueued;
+
+    /** Time a connection can spend lagging (above {@link #highWater}) before it's disconnected, or 0 for no limit */
+    public final long maxLagMillis;
+
+    /** Stats: Largest queue size seen */
+    private int statPeak;
+
+    /** Stats: Messages dropped because a newer one superseded them */
+    private final AtomicLong statCollapsed = new AtomicLong();
+
+    /** Stats: Times a connection started lagging */
+    private final AtomicLong statLagging = new AtomicLong();
+
+    /** Stats: Connections disconnected for falling too far behind */
+    private final AtomicLong statEvicted = new AtomicLong();
+
+    /**
+     * Create a set of limits.
+     * @param highWater  Queue size at which to start collapsing superseded messages; at least 1
+     * @param maxQueued  Queue size at which to disconnect; at least <tt>highWater</tt>
+     * @param maxLagMillis  Time to allow lagging before disconnecting, or 0 for no limit
+     * @throws IllegalArgumentException if <tt>highWater</tt> &lt; 1, <tt>maxQueued</tt> &lt; <tt>highWater</tt>,
+     *     or <tt>maxLagMillis</tt> &lt; 0
+     */
+    public OutboundQueueLimits(final int highWater, final int maxQueued, final long maxLagMillis)
+        throws IllegalArgumentException
+    {
+        if ((highWater < 1) || (maxQueued < highWater) || (maxLagMillis < 0))
+            throw new IllegalArgumentException();
+
+        this.highWater = highWater;
+        this.maxQueued = maxQueued;
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    /**
+     * A connection's queue has grown to this size; update the peak size stat.
+     * @param queued  Number of messages waiting to be sent
+     */
+    void queueSize(final int queued)
+    {
+        if (queued > statPeak)
+        {
+            synchronized (this)
+            {
+                if (queued > statPeak)
+                    statPeak = queued;
+            }
+        }
+    }
+
+    /** Count a message dropped because a newer one superseded it. */
+    void collapsed()
+    {
+        statCollapsed.incrementAndGet();
+    }
+
+    /** Count a connection which has started lagging. */
+    void lagging()
+    {
+        statLagging.incrementAndGet();
+    }
+
+    /** Count a connection disconnected for falling too far behind. */
+    void evicted()
+    {
+        statEvicted.incrementAndGet();
+    }
+
+    /**
+     * Get stats for the server's stats display.
+     * @param totalQueued  Messages waiting now in all connections' queues
+     * @param largestQueued  Messages waiting now in the largest queue
+     * @return stats text, such as "Outbound queues: 12 waiting (largest 9, peak 610); 3 lagged, 40 superseded dropped, 1 disconnected"
+     * @see Server#getOutboundQueueStatsString()
+     */
+    public String getStatsString(final int totalQueued, final int largestQueued)
+    {
+        final int peak;
+        synchronized (this)
+        {
+            peak = statPeak;
+        }
+
+        return "Outbound queues: " + totalQueued + " waiting (largest " + largestQueued + ", peak " + peak + "); "
+            + statLagging.get() + " lagged, " + statCollapsed.get() + " superseded dropped, "
+            + statEvicted.get() + " disconnected";
+    }
+
+}
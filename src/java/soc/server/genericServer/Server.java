@@ -130,6 +130,25 @@ public abstract class Server extends Thread implements Serializable, Cloneable
     /** command messages from clients for {@link #treat(String, StringConnection)} */
     public Vector<Command> inQueue = new Vector<Command>();
 
+    /**
+     * Limits on inbound messages from each network {@link Connection}, or {@code null} for no limits.
+     * Set this before the server starts accepting connections.
+     * @see #treat(String, StringConnection)
+     * @see #getInboundMessageCategory(String)
+     * @since 2.0.00
+     */
+    protected InboundMessageLimiter inboundLimiter;
+
+    /**
+     * Limits on each network {@link Connection}'s queue of outbound messages,
+     * or {@code null} for unbounded queues.
+     * Set this before the server starts accepting connections.
+     * @see #getOutboundSupersedeKey(String)
+     * @see #getOutboundQueueStatsString()
+     * @since 2.0.00
+     */
+    protected OutboundQueueLimits outboundLimits;
+
     /**
      * Versions of currently connected clients, according to
      * {@link StringConnection#getVersion()}.
@@ -397,17 +416,132 @@ public abstract class Server extends Thread implements Serializable, Cloneable
         }
     }
 
-    /** treat a request from the given connection, by adding to {@link #inQueue} */
+    /**
+     * treat a request from the given connection, by adding to {@link #inQueue}.
+     *<P>
+     * If {@link #inboundLimiter} is set and the connection is limited, the message is dropped instead
+     * if its category's rate is exceeded; if the client keeps sending too fast, or has too many
+     * messages waiting in {@code inQueue}, it's disconnected by calling {@link #removeConnection(StringConnection)}.
+     * Called from the connection's reader thread.
+     */
     public void treat(String s, StringConnection c)
     {
         // D.ebugPrintln("IN got: " + s);
+        final InboundMessageLimiter.ConnState ls = c.inboundLimitState;
+        if (ls != null)
+        {
+            final int res = inboundLimiter.check(ls, getInboundMessageCategory(s));
+            if (res != InboundMessageLimiter.RESULT_OK)
+            {
+                if (res == InboundMessageLimiter.RESULT_DISCONNECT)
+                {
+                    System.err.println("Disconnecting " + c.host() + " (" + c.getData()
+                        + "): Inbound message limit exceeded");
+                    c.error = new SocketException("Inbound message limit exceeded");
+                    removeConnection(c);
+                }
+
+                return;
+            }
+        }
+
         synchronized (inQueue)
         {
-            inQueue.addElement(new Command(s, c));
+            inQueue.addElement(new Command(s, c, ls));
             inQueue.notify();
         }
     }
 
+    /**
+     * Exempt a trusted connection, such as a built-in robot, from the category rates of {@link #inboundLimiter}
+     * and from its limit on messages waiting in {@link #inQueue}, so that one robot client playing in many games
+     * isn't disconnected, dropping all of its robots at once, when the server falls behind.
+     * Does nothing if the connection isn't limited.
+     * @param c  Connection to exempt
+     * @since 2.0.00
+     */
+    protected void exemptFromInboundRateLimits(StringConnection c)
+    {
+        final InboundMessageLimiter.ConnState ls = c.inboundLimitState;
+        if (ls != null)
+            ls.ratesExempt = true;
+    }
+
+    /**
+     * Get an inbound message's category, for its rate limit in {@link #inboundLimiter}.
+     * Called from {@link #treat(String, StringConnection)} in the connection's reader thread,
+     * so it should be quick.  This default implementation always returns
+     * {@link InboundMessageLimiter#CATEGORY_GAMEPLAY}; override it in your app if needed.
+     *
+     * @param str Contents of message from the client
+     * @return  Category, such as {@link InboundMessageLimiter#CATEGORY_CHAT}
+     * @since 2.0.00
+     */
+    protected int getInboundMessageCategory(String str)
+    {
+        return InboundMessageLimiter.CATEGORY_GAMEPLAY;
+    }
+
+    /**
+     * For a connection which is falling behind on its outbound messages, get the key of an outbound message
+     * which makes any earlier message with the same key obsolete, such as a game's new state.
+     * If the earlier message is still waiting to be sent, it's dropped.  Messages whose effect
+     * depends on earlier messages (such as a change by an amount) must return null.
+     * Called only while a connection is lagging; see {@link #outboundLimits}.
+     * This default implementation always returns null; override it in your app if needed.
+     *<P>
+     * Called from {@link Connection#put(String)} while its queue is locked, so it should be quick.
+     *
+     * @param str  Outbound message
+     * @return  Key for this message, or null if it never supersedes an earlier message
+     * @since 2.0.00
+     */
+    protected String getOutboundSupersedeKey(String str)
+    {
+        return null;
+    }
+
+    /**
+     * Get stats about network connections' outbound message queues, if {@link #outboundLimits} is set.
+     * @return  stats text from {@link OutboundQueueLimits#getStatsString(int, int)}, or null if no limits
+     * @since 2.0.00
+     */
+    protected String getOutboundQueueStatsString()
+    {
+        final OutboundQueueLimits lim = outboundLimits;
+        if (lim == null)
+            return null;
+
+        int total = 0, largest = 0;
+        synchronized (unnamedConns)
+        {
+            for (Enumeration<StringConnection> e = getConnections(); e.hasMoreElements();)
+            {
+                final StringConnection c = e.nextElement();
+                if (c instanceof Connection)
+                {
+                    final int n = ((Connection) c).getOutQueueSize();
+                    total += n;
+                    if (n > largest)
+                        largest = n;
+                }
+            }
+            for (Enumeration<StringConnection> e = unnamedConns.elements(); e.hasMoreElements();)
+            {
+                final StringConnection c = e.nextElement();
+                if (c instanceof Connection)
+                {
+                    final int n = ((Connection) c).getOutQueueSize();
+                    total += n;
+                    if (n > largest)
+                        largest = n;
+                }
+            }
+        }
+
+        return lim.getStatsString(total, largest);
+    }
+
     /**
      * Remove a queued incoming message from a client, and treat it.
      * Called from the single 'treater' thread.
@@ -515,6 +649,15 @@ public abstract class Server extends Thread implements Serializable, Cloneable
         }
 
         conns.clear();
+
+        // Unnamed connections too, such as a lobby router's link which never joins a game
+        synchronized (unnamedConns)
+        {
+            for (StringConnection c : unnamedConns)
+                c.disconnect();
+
+            unnamedConns.clear();
+        }
     }
 
     /**
@@ -531,6 +674,7 @@ public abstract class Server extends Thread implements Serializable, Cloneable
     public void removeConnection(StringConnection c)
     {
         Object cKey = c.getData();  // client player name
+        boolean wasMember = true;
         synchronized (unnamedConns)
         {
             if (cKey != null)
@@ -549,14 +693,20 @@ public abstract class Server extends Thread implements Serializable, Cloneable
                 // different conn for cKey.
                 // don't remove the replacement.
             }
-            else
+            else if (! unnamedConns.removeElement(c))
             {
-                unnamedConns.removeElement(c);
+                // Not a member: Already removed by another thread (such as reader and putter
+                // both failing, or an outbound queue eviction), or was rejected by newConnection1.
+                // Don't count it twice.
+                wasMember = false;
             }
 
-            --numberCurrentConnections;
-            clientVersionRem(c.getVersion());  // One less of the cli's version
-            c.setVersionTracking(false);
+            if (wasMember)
+            {
+                --numberCurrentConnections;
+                clientVersionRem(c.getVersion());  // One less of the cli's version
+                c.setVersionTracking(false);
+            }
         }
 
         c.disconnect();
@@ -621,6 +771,8 @@ public abstract class Server extends Thread implements Serializable, Cloneable
                     clientVersionAdd(c.getVersion());  // Count one more client with that version
                     numberCurrentConnections++;
                     c.setVersionTracking(true);
+                    if ((inboundLimiter != null) && (c instanceof Connection))
+                        c.inboundLimitState = inboundLimiter.newConnState();
                 }
                 else
                 {
@@ -1056,10 +1208,17 @@ public abstract class Server extends Thread implements Serializable, Cloneable
         public String str;
         public StringConnection con;
 
-        public Command(String s, StringConnection c)
+        /**
+         * Limit state of {@link #con} when this message was queued, or null if not limited
+         * @since 2.0.00
+         */
+        public InboundMessageLimiter.ConnState limitState;
+
+        public Command(String s, StringConnection c, InboundMessageLimiter.ConnState ls)
         {
             str = s;
             con = c;
+            limitState = ls;
         }
     }  // Command
 
@@ -1090,6 +1249,9 @@ public abstract class Server extends Thread implements Serializable, Cloneable
                     }
                 }
 
+                if ((c != null) && (c.limitState != null))
+                    c.limitState.dequeued();
+
                 try
                 {
                     if (c != null)
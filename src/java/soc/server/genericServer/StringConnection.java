@@ -89,6 +89,14 @@ public abstract class StringConnection
     /** Time of connection to server, or of object creation if that time's not available */
     protected Date connectTime = new Date();
 
+    /**
+     * Server-side inbound message limit state, or {@code null} if this connection isn't limited.
+     * Set by {@link Server#addConnection(StringConnection)} if the server has an inbound limiter.
+     * @see Server#treat(String, StringConnection)
+     * @since 2.0.00
+     */
+    InboundMessageLimiter.ConnState inboundLimitState;
+
     /**
      * @return Hostname of the remote end of the connection
      */
@@ -37,6 +37,14 @@ import soc.game.SOCGameOption;
  */
 public class SOCRobotParameters
 {
+    /**
+     * Default for {@link #getDecisionTimeBudget()}, in milliseconds.
+     * Should be well under the server's <tt>ROBOT_FORCE_ENDTURN_SECONDS</tt>,
+     * since a robot may make several decisions during a turn.
+     * @since 2.0.00
+     */
+    public static int DEFAULT_DECISION_TIME_BUDGET = 2000;
+
     protected int maxGameLength;
     protected int maxETA;
     protected float etaBonusFactor;
@@ -47,6 +55,13 @@ public class SOCRobotParameters
     protected int strategyType; // SOCRobotDM.FAST_STRATEGY or SMART_STRATEGY
     protected int tradeFlag;
 
+    /**
+     * Time budget for each robot decision, in milliseconds, or 0 for no limit.
+     * Not stored in the database or sent to robots; defaults to {@link #DEFAULT_DECISION_TIME_BUDGET}.
+     * @since 2.0.00
+     */
+    protected int decisionTimeBudget;
+
     /**
      * constructor
      *
@@ -72,6 +87,30 @@ public class SOCRobotParameters
         threatMultiplier = tm;
         strategyType = st;
         tradeFlag = tf;
+        decisionTimeBudget = DEFAULT_DECISION_TIME_BUDGET;
+    }
+
+    /**
+     * constructor with a decision time budget.
+     *
+     * @param mgl  the max game length
+     * @param me   the max eta
+     * @param ebf  the eta bonus factor
+     * @param af   the adversarial factor
+     * @param laf  the leader adversarial factor
+     * @param dcm  the dev card multiplier
+     * @param tm   the threat multiplier
+     * @param st   the strategy type: {@link soc.robot.SOCRobotDM#FAST_STRATEGY FAST_STRATEGY}
+     *             or {@link soc.robot.SOCRobotDM#SMART_STRATEGY SMART_STRATEGY}
+     * @param tf   the trade flag: Does this robot make/accept trades with players? (1 or 0)
+     * @param dtb  the time budget for each decision, in milliseconds, or 0 for no limit;
+     *             see {@link #getDecisionTimeBudget()}
+     * @since 2.0.00
+     */
+    public SOCRobotParameters(int mgl, int me, float ebf, float af, float laf, float dcm, float tm, int st, int tf, int dtb)
+    {
+        this(mgl, me, ebf, af, laf, dcm, tm, st, tf);
+        decisionTimeBudget = dtb;
     }
 
     /**
@@ -90,6 +129,7 @@ public class SOCRobotParameters
         threatMultiplier = params.getThreatMultiplier();
         strategyType = params.getStrategyType();
         tradeFlag = params.getTradeFlag();
+        decisionTimeBudget = params.getDecisionTimeBudget();
     }
 
     /**
@@ -199,6 +239,18 @@ public class SOCRobotParameters
         return tradeFlag;
     }
 
+    /**
+     * Time budget for each robot decision (building plan, trade offer, robber placement).
+     * When a decision takes longer than this, the robot uses its best choice found so far.
+     * @return decisionTimeBudget, in milliseconds, or 0 for no limit
+     * @see soc.robot.DecisionTimeBudget
+     * @since 2.0.00
+     */
+    public int getDecisionTimeBudget()
+    {
+        return decisionTimeBudget;
+    }
+
     /**
      * @return a human readable form of the data
      */
@@ -209,7 +261,7 @@ public class SOCRobotParameters
                    "|ebf=" + etaBonusFactor + "|af=" + adversarialFactor +
                    "|laf=" + leaderAdversarialFactor + "|dcm=" + devCardMultiplier +
                    "|tm=" + threatMultiplier + "|st=" + strategyType +
-                   "|tf=" + tradeFlag;
+                   "|tf=" + tradeFlag + "|dtb=" + decisionTimeBudget;
 
         return s;
     }
@@ -0,0 +1,170 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2013 JSettlers contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.util;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fast seedable random number generator which can be {@link #split()} into independent streams,
+ * so that one seed can drive all of a game's randomness: Its dice and dev card deck,
+ * its board layout, and its robots' choices. A game played again with the same seed
+ * and the same player actions will play out the same way.
+ *<P>
+ * Uses the SplitMix64 algorithm (Steele, Lea and Flood 2014), the same as Java 8's
+ * {@code java.util.SplittableRandom}, which isn't available in the Java versions JSettlers runs on.
+ * Extends {@link Random} so it can be used anywhere a {@code Random} is, and is {@link java.io.Serializable}
+ * so a game's random state can be saved and restored with the game.
+ *<P>
+ * Unlike {@link Random}, this class isn't thread-safe: Callers must synchronize if
+ * more than one thread uses the same instance. Each game or robot brain has its own.
+ * @since 2.0.00
+ */
+public class SOCSplittableRandom extends Random
+{
+    private static final long serialVersionUID = 2000L;
+
+    /** Default gamma, the odd number added to {@link #seed} each step: 2**64 / golden ratio */
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /** Source of seeds for {@link #newSeed()} */
+    private static final AtomicLong seedUniquifier
+        = new AtomicLong(mix64(System.currentTimeMillis()) ^ mix64(System.nanoTime()));
+
+    /** Current state, advanced by {@link #gamma} for each value */
+    private long seed;
+
+    /** This stream's odd step value */
+    private long gamma;
+
+    /**
+     * Create a generator with a new seed from {@link #newSeed()}.
+     */
+    public SOCSplittableRandom()
+    {
+        this(newSeed());
+    }
+
+    /**
+     * Create a generator with this seed.  Two generators made with the
+     * same seed produce the same values.
+     * @param seed  Seed value
+     */
+    public SOCSplittableRandom(final long seed)
+    {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    private SOCSplittableRandom(final long seed, final long gamma)
+    {
+        super(0L);  // calls setSeed; state is then set below
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    /**
+     * Make a new seed which is very likely different from all others made in this JVM.
+     * @return a new seed
+     */
+    public static long newSeed()
+    {
+        return mix64(seedUniquifier.getAndAdd(2 * GOLDEN_GAMMA)) ^ mix64(System.nanoTime());
+    }
+
+    /**
+     * Derive a seed for something named {@code key} from a base seed, such as a game's seed
+     * from a server's base seed and the game's name.  The same base and key always give the same seed.
+     * @param baseSeed  Base seed
+     * @param key  Key to derive a seed for; not null
+     * @return  Seed for {@code key}
+     */
+    public static long seedFor(final long baseSeed, final String key)
+    {
+        long h = mix64(baseSeed);
+        for (int i = 0; i < key.length(); ++i)
+            h = mix64(h + GOLDEN_GAMMA + key.charAt(i));
+
+        return h;
+    }
+
+    /**
+     * Create a new generator whose values are independent of this one's.
+     * Uses and advances this generator's state, so splits are repeatable when this generator is seeded.
+     * @return  A new generator
+     */
+    public SOCSplittableRandom split()
+    {
+        return new SOCSplittableRandom(nextLong(), mixGamma(nextSeed()));
+    }
+
+    /**
+     * Reset this generator's state from {@code seed}, like {@link #SOCSplittableRandom(long)}.
+     * @param seed  Seed value
+     */
+    @Override
+    public void setSeed(final long seed)
+    {
+        super.setSeed(seed);  // clears Random's saved nextGaussian
+        this.seed = seed;
+        gamma = GOLDEN_GAMMA;
+    }
+
+    @Override
+    protected int next(final int bits)
+    {
+        return (int) (mix64(nextSeed()) >>> (64 - bits));
+    }
+
+    @Override
+    public int nextInt()
+    {
+        return (int) (mix64(nextSeed()) >>> 32);
+    }
+
+    @Override
+    public long nextLong()
+    {
+        return mix64(nextSeed());
+    }
+
+    private long nextSeed()
+    {
+        return (seed += gamma);
+    }
+
+    /** SplitMix64's output function (variant 13 of Stafford's Mix functions). */
+    private static long mix64(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /** Make a gamma for a split: Must be odd, and its bits shouldn't be too regular. */
+    private static long mixGamma(long z)
+    {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        final int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? (z ^ 0xaaaaaaaaaaaaaaaaL) : z;
+    }
+
+}
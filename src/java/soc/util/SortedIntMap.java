@@ -0,0 +1,348 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * This file Copyright (C) 2013 JSettlers contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The maintainer of this program can be reached at jsettlers@nand.net
+ **/
+package soc.util;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A small map from primitive int keys to objects, kept in ascending key order,
+ * for board coordinates and other small sets of int keys.
+ * Keys and values are held in 2 parallel arrays, searched with a binary search:
+ * No boxing of keys, no node allocation per entry, and copying is 2 array copies.
+ *<P>
+ * Iterates in the same order as a {@code TreeMap<Integer, V>} with the same contents.
+ * Adding or removing an entry is O(n), so this class is meant for maps of at most a few hundred entries,
+ * like a robot's possible pieces.
+ *<P>
+ * Not thread-safe.  Null values are not allowed; {@link #get(int)} returns null for missing keys.
+ *
+ * @param <V>  Type of the values
+ * @since 2.0.00
+ */
+public class SortedIntMap<V>
+{
+    /** Keys in ascending order; elements past {@link #size} are unused. */
+    private int[] keys;
+
+    /** Values for {@link #keys}; elements past {@link #size} are null. */
+    private Object[] vals;
+
+    /** Number of entries in the map. */
+    private int size;
+
+    /** Count of structural changes, to detect changes while iterating {@link #values()}. */
+    private int modCount;
+
+    /** Collection view returned by {@link #values()}, or null if not created yet. */
+    private Values valuesView;
+
+    /**
+     * Create an empty map with a default initial capacity.
+     */
+    public SortedIntMap()
+    {
+        this(16);
+    }
+
+    /**
+     * Create an empty map.
+     * @param initialCapacity  Number of entries to allocate room for; will grow if needed
+     */
+    public SortedIntMap(final int initialCapacity)
+    {
+        final int cap = (initialCapacity > 0) ? initialCapacity : 1;
+        keys = new int[cap];
+        vals = new Object[cap];
+    }
+
+    /**
+     * Copy constructor: Create a map with the same keys and values as {@code m}.
+     * The values themselves are not copied.
+     * @param m  Map to copy
+     */
+    public SortedIntMap(final SortedIntMap<? extends V> m)
+    {
+        final int cap = (m.size > 0) ? m.size : 1;
+        keys = new int[cap];
+        vals = new Object[cap];
+        System.arraycopy(m.keys, 0, keys, 0, m.size);
+        System.arraycopy(m.vals, 0, vals, 0, m.size);
+        size = m.size;
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return true if the map has no entries
+     */
+    public boolean isEmpty()
+    {
+        return (size == 0);
+    }
+
+    /**
+     * Find a key's index with a binary search.
+     * @param key  Key to find
+     * @return  Its index if found, or {@code (-(insertion point) - 1)} if not found,
+     *     same as {@link java.util.Arrays#binarySearch(int[], int)}
+     */
+    private int indexOf(final int key)
+    {
+        int lo = 0, hi = size - 1;
+        while (lo <= hi)
+        {
+            final int mid = (lo + hi) >>> 1;
+            final int k = keys[mid];
+            if (k < key)
+                lo = mid + 1;
+            else if (k > key)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+
+        return -(lo + 1);
+    }
+
+    /**
+     * Get the value for a key.
+     * @param key  Key to look for
+     * @return  Its value, or null if not found
+     */
+    @SuppressWarnings("unchecked")
+    public V get(final int key)
+    {
+        final int i = indexOf(key);
+        return (i >= 0) ? (V) vals[i] : null;
+    }
+
+    /**
+     * Is this key in the map?
+     * @param key  Key to look for
+     * @return  True if found
+     */
+    public boolean containsKey(final int key)
+    {
+        return (indexOf(key) >= 0);
+    }
+
+    /**
+     * Add or replace a key's value.
+     * @param key  Key
+     * @param value  Value for key; not null
+     * @return  The previous value for {@code key}, or null if none
+     * @throws IllegalArgumentException if {@code value} is null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(final int key, final V value)
+        throws IllegalArgumentException
+    {
+        if (value == null)
+            throw new IllegalArgumentException("null");
+
+        int i = indexOf(key);
+        if (i >= 0)
+        {
+            final V old = (V) vals[i];
+            vals[i] = value;
+            return old;
+        }
+
+        i = -(i + 1);
+        if (size == keys.length)
+        {
+            final int cap = size * 2;
+            int[] nk = new int[cap];
+            Object[] nv = new Object[cap];
+            System.arraycopy(keys, 0, nk, 0, size);
+            System.arraycopy(vals, 0, nv, 0, size);
+            keys = nk;
+            vals = nv;
+        }
+        if (i < size)
+        {
+            System.arraycopy(keys, i, keys, i + 1, size - i);
+            System.arraycopy(vals, i, vals, i + 1, size - i);
+        }
+        keys[i] = key;
+        vals[i] = value;
+        ++size;
+        ++modCount;
+
+        return null;
+    }
+
+    /**
+     * Remove a key and its value, if present.
+     * @param key  Key to remove
+     * @return  The removed value, or null if {@code key} wasn't in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(final int key)
+    {
+        final int i = indexOf(key);
+        if (i < 0)
+            return null;
+
+        final V old = (V) vals[i];
+        removeAt(i);
+
+        return old;
+    }
+
+    /**
+     * Remove the entry at an index.
+     * @param i  Index, from 0 to {@link #size()} - 1
+     */
+    private void removeAt(final int i)
+    {
+        --size;
+        if (i < size)
+        {
+            System.arraycopy(keys, i + 1, keys, i, size - i);
+            System.arraycopy(vals, i + 1, vals, i, size - i);
+        }
+        vals[size] = null;
+        ++modCount;
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < size; ++i)
+            vals[i] = null;
+        size = 0;
+        ++modCount;
+    }
+
+    /**
+     * Get the key at an index in ascending key order, to loop without an iterator.
+     * @param i  Index, from 0 to {@link #size()} - 1
+     * @return  The key at that index
+     * @throws ArrayIndexOutOfBoundsException if {@code i} is out of range
+     */
+    public int keyAt(final int i)
+        throws ArrayIndexOutOfBoundsException
+    {
+        if (i >= size)
+            throw new ArrayIndexOutOfBoundsException(i);
+
+        return keys[i];
+    }
+
+    /**
+     * Get the value at an index in ascending key order, to loop without an iterator.
+     * @param i  Index, from 0 to {@link #size()} - 1
+     * @return  The value at that index
+     * @throws ArrayIndexOutOfBoundsException if {@code i} is out of range
+     */
+    @SuppressWarnings("unchecked")
+    public V valueAt(final int i)
+        throws ArrayIndexOutOfBoundsException
+    {
+        if (i >= size)
+            throw new ArrayIndexOutOfBoundsException(i);
+
+        return (V) vals[i];
+    }
+
+    /**
+     * Get a view of the values, in ascending key order, like {@link java.util.TreeMap#values()}.
+     * The view's iterator supports {@link Iterator#remove()}.  Other changes to the map
+     * while iterating will cause a {@link ConcurrentModificationException}.
+     * @return  The values collection, backed by this map
+     */
+    public Collection<V> values()
+    {
+        if (valuesView == null)
+            valuesView = new Values();
+
+        return valuesView;
+    }
+
+    /**
+     * Collection view for {@link SortedIntMap#values()}.
+     */
+    private class Values extends AbstractCollection<V>
+    {
+        public int size()
+        {
+            return size;
+        }
+
+        public Iterator<V> iterator()
+        {
+            return new Iterator<V>()
+            {
+                /** Index of the next value to return */
+                private int next = 0;
+
+                /** Index of the last value returned, or -1 */
+                private int last = -1;
+
+                private int expectedModCount = modCount;
+
+                public boolean hasNext()
+                {
+                    return (next < size);
+                }
+
+                @SuppressWarnings("unchecked")
+                public V next()
+                {
+                    if (modCount != expectedModCount)
+                        throw new ConcurrentModificationException();
+                    if (next >= size)
+                        throw new NoSuchElementException();
+
+                    last = next;
+                    ++next;
+                    return (V) vals[last];
+                }
+
+                public void remove()
+                {
+                    if (last < 0)
+                        throw new IllegalStateException();
+                    if (modCount != expectedModCount)
+                        throw new ConcurrentModificationException();
+
+                    removeAt(last);
+                    next = last;
+                    last = -1;
+                    expectedModCount = modCount;
+                }
+            };
+        }
+    }
+
+}